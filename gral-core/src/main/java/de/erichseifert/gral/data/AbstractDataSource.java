@@ -24,13 +24,18 @@ package de.erichseifert.gral.data;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -41,12 +46,16 @@ import de.erichseifert.gral.data.statistics.Statistics;
  * Abstract implementation of the {@code DataSource} interface.
  * This class provides access to statistical information,
  * administration and notification of listeners and supports
- * iteration of data values.
+ * iteration of data values. Listeners are notified by one thread at a
+ * time, even if the data is changed by several threads.
  */
 public abstract class AbstractDataSource implements DataSource, Serializable {
 	/** Version id for serialization. */
 	private static final long serialVersionUID = 9139975565475816812L;
 
+	/** Number of rows that are read at once to calculate row statistics. */
+	private static final int ROW_STATISTICS_BUFFER_SIZE = 1024;
+
 	/** Name of the data source. */
 	private String name;
 	/** Number of columns. */
@@ -57,6 +66,60 @@ public abstract class AbstractDataSource implements DataSource, Serializable {
 	private transient Set<DataListener> dataListeners;
 	/** Statistical description of the data values. */
 	private transient Statistics statistics;
+	/** Cache for the views of all columns. */
+	private transient Column<?>[] columns;
+	/** Number of batches that have been started but not committed yet. */
+	private transient int batchDepth;
+	/** Changes that have been collected during a batch and will be
+	delivered to listeners on commit. */
+	private transient List<PendingChange> pendingChanges;
+	/** Number that is increased with each change of the data. */
+	private transient volatile long version;
+	/** Cache for the statistics of all rows stored by key. */
+	private transient Map<String, double[]> rowStatistics;
+	/** Version of the data that was used to calculate the cached row
+	statistics. */
+	private transient long rowStatisticsVersion;
+	/** Cached snapshot of the data, or {@code null}. */
+	private transient DataSource snapshot;
+	/** Version of the data that was used to create the cached snapshot. */
+	private transient long snapshotVersion;
+	/** Changes that have been published but haven't been delivered to the
+	listeners yet, in the order of their publication. */
+	private transient LinkedList<PendingChange> deliveries;
+	/** Lock that serializes the delivery of changes to the listeners. */
+	private transient Object deliveryLock;
+
+	/**
+	 * Type of a data change.
+	 */
+	private static enum ChangeType {
+		/** Data values have been added. */
+		ADDED,
+		/** Data values have been removed. */
+		REMOVED,
+		/** Data values have been updated. */
+		UPDATED
+	}
+
+	/**
+	 * Events of the same type that are waiting for delivery.
+	 */
+	private static final class PendingChange {
+		/** Type of the change. */
+		private final ChangeType type;
+		/** Events describing the changed values. */
+		private final List<DataChangeEvent> events;
+
+		/**
+		 * Initializes a new pending change of the specified type.
+		 * @param type Type of the change.
+		 */
+		public PendingChange(ChangeType type) {
+			this.type = type;
+			events = new ArrayList<DataChangeEvent>();
+		}
+	}
 
 	/**
 	 * Iterator that returns each row of the DataSource.
@@ -125,6 +188,8 @@ public abstract class AbstractDataSource implements DataSource, Serializable {
 		this.name = name;
 		setColumnTypes(types);
 		dataListeners = new LinkedHashSet<DataListener>();
+		deliveries = new LinkedList<PendingChange>();
+		deliveryLock = new Object();
 	}
 
 	/**
@@ -145,6 +210,8 @@ public abstract class AbstractDataSource implements DataSource, Serializable {
 		setColumnTypes(columnTypes);
 
 		dataListeners = new LinkedHashSet<DataListener>();
+		deliveries = new LinkedList<PendingChange>();
+		deliveryLock = new Object();
 	}
 
 	/**
@@ -153,36 +220,145 @@ public abstract class AbstractDataSource implements DataSource, Serializable {
 	 * @return statistical information
 	 */
 	public Statistics getStatistics() {
-		if (statistics == null) {
-			statistics = new Statistics(this);
+		synchronized (this) {
+			if (statistics == null) {
+				statistics = createStatistics(-1);
+			}
+			return statistics;
 		}
-		return statistics;
+	}
+
+	/**
+	 * Creates a new object that calculates statistical information on a
+	 * single column or on all columns of this data source. Subclasses can
+	 * override this method to calculate statistics more efficiently.
+	 * @param col Index of the column, or {@code -1} for all columns.
+	 * @return Statistics object.
+	 */
+	protected Statistics createStatistics(int col) {
+		return new Statistics(this, col);
 	}
 
 	public DataSource getColumnStatistics(String key) {
 		Class[] columnTypes = new Class[getColumnCount()];
 		Arrays.fill(columnTypes, Double.class);
 		DataTable statisticsTable = new DataTable(columnTypes);
-		List<Double> colStatistics = new ArrayList<Double>(columnTypes.length);
-		for (int colIndex = 0; colIndex < getColumnCount(); colIndex++) {
-			Column col = getColumn(colIndex);
-			colStatistics.add(col.getStatistics(key));
-		}
-		if (!colStatistics.isEmpty()) {
-			statisticsTable.add(colStatistics);
+		if (columnTypes.length > 0) {
+			double[] colStatistics = getColumnStatistics(new String[] {key})[0];
+			List<Double> row = new ArrayList<Double>(colStatistics.length);
+			for (double value : colStatistics) {
+				row.add(value);
+			}
+			statisticsTable.add(row);
 		}
 		return statisticsTable;
 	}
 
 	public DataSource getRowStatistics(String key) {
 		DataTable statisticsTable = getRowCount() != 0 ? new DataTable(Double.class) : new DataTable();
-		for (int rowIndex = 0; rowIndex < getRowCount(); rowIndex++) {
-			Record row = getRecord(rowIndex);
-			statisticsTable.add(new Statistics(row).get(key));
+		for (double value : getRowStatistics(new String[] {key})[0]) {
+			statisticsTable.add(value);
 		}
 		return statisticsTable;
 	}
 
+	/**
+	 * Calculates several statistical values for several columns. The
+	 * statistics of each column are cached and kept up to date, so each
+	 * column is only read once, no matter how many values are requested.
+	 * @param keys Requested information.
+	 * @param cols Indexes of the columns, or no indexes for all columns.
+	 * @return Array containing an array with the value of each column for
+	 *         each key.
+	 */
+	public double[][] getColumnStatistics(String[] keys, int... cols) {
+		if (cols.length == 0) {
+			cols = new int[getColumnCount()];
+			for (int col = 0; col < cols.length; col++) {
+				cols[col] = col;
+			}
+		}
+		double[][] values = new double[keys.length][cols.length];
+		for (int i = 0; i < cols.length; i++) {
+			Column<?> column = getColumn(cols[i]);
+			for (int k = 0; k < keys.length; k++) {
+				values[k][i] = column.getStatistics(keys[k]);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Calculates several statistical values for each row. All requested
+	 * values that haven't been cached for the current version of the data
+	 * are calculated in a single pass, which reads blocks of rows column by
+	 * column as primitive values.
+	 * @param keys Requested information.
+	 * @return Array containing an array with the value of each row for
+	 *         each key.
+	 */
+	public double[][] getRowStatistics(String[] keys) {
+		synchronized (this) {
+			long version = getVersion();
+			if (rowStatistics == null || rowStatisticsVersion != version) {
+				rowStatistics = new HashMap<String, double[]>();
+				rowStatisticsVersion = version;
+			}
+
+			// Calculate all missing values at once
+			List<String> missingKeys = new ArrayList<String>(keys.length);
+			for (String key : keys) {
+				if (!rowStatistics.containsKey(key) && !missingKeys.contains(key)) {
+					missingKeys.add(key);
+				}
+			}
+			if (!missingKeys.isEmpty()) {
+				String[] keysNew = missingKeys.toArray(new String[missingKeys.size()]);
+				double[][] valuesNew = calculateRowStatistics(keysNew);
+				for (int k = 0; k < keysNew.length; k++) {
+					rowStatistics.put(keysNew[k], valuesNew[k]);
+				}
+			}
+
+			double[][] values = new double[keys.length][];
+			for (int k = 0; k < keys.length; k++) {
+				values[k] = rowStatistics.get(keys[k]).clone();
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * Calculates several statistical values for each row in a single pass.
+	 * @param keys Requested information.
+	 * @return Array containing an array with the value of each row for
+	 *         each key.
+	 */
+	private double[][] calculateRowStatistics(String[] keys) {
+		int rowCount = getRowCount();
+		int colCount = getColumnCount();
+		double[][] values = new double[keys.length][rowCount];
+		double[][] buffers = new double[colCount][];
+		double[] rowValues = new double[colCount];
+		double[] rowStatistics = new double[keys.length];
+		for (int fromRow = 0; fromRow < rowCount; fromRow += ROW_STATISTICS_BUFFER_SIZE) {
+			int toRow = Math.min(fromRow + ROW_STATISTICS_BUFFER_SIZE, rowCount);
+			for (int col = 0; col < colCount; col++) {
+				buffers[col] = getDoubles(col, fromRow, toRow, buffers[col]);
+			}
+			for (int row = fromRow; row < toRow; row++) {
+				for (int col = 0; col < colCount; col++) {
+					rowValues[col] = buffers[col][row - fromRow];
+				}
+				Statistics.calculate(rowValues, colCount, keys, rowStatistics);
+				for (int k = 0; k < keys.length; k++) {
+					values[k][row] = rowStatistics[k];
+				}
+			}
+		}
+		return values;
+	}
+
 	/**
 	 * Adds the specified {@code DataListener} to this data source.
 	 * @param dataListener listener to be added.
@@ -210,51 +386,430 @@ public abstract class AbstractDataSource implements DataSource, Serializable {
 
 	/**
 	 * Notifies all registered listeners that data values have been added.
+	 * The cached statistics of this data source are updated immediately.
+	 * If a batch is active, the listeners will be notified on commit.
 	 * @param events Event objects describing all values that have been added.
+	 * @see #deliverChanges()
 	 */
 	protected void notifyDataAdded(DataChangeEvent... events) {
-		List<DataListener> listeners = new LinkedList<DataListener>(dataListeners);
-		for (DataListener dataListener : listeners) {
-			dataListener.dataAdded(this, events);
-		}
+		publish(ChangeType.ADDED, events);
 	}
 
 	/**
 	 * Notifies all registered listeners that data values have been removed.
+	 * The cached statistics of this data source are updated immediately.
+	 * If a batch is active, the listeners will be notified on commit.
 	 * @param events Event objects describing all values that have been removed.
+	 * @see #deliverChanges()
 	 */
 	protected void notifyDataRemoved(DataChangeEvent... events) {
-		List<DataListener> listeners = new LinkedList<DataListener>(dataListeners);
-		for (DataListener dataListener : listeners) {
-			dataListener.dataRemoved(this, events);
-		}
+		publish(ChangeType.REMOVED, events);
 	}
 
 	/**
 	 * Notifies all registered listeners that data values have changed.
+	 * The cached statistics of this data source are updated immediately.
+	 * If a batch is active, the listeners will be notified on commit.
 	 * @param events Event objects describing all values that have changed.
+	 * @see #deliverChanges()
 	 */
 	protected void notifyDataUpdated(DataChangeEvent... events) {
+		publish(ChangeType.UPDATED, events);
+	}
+
+	/**
+	 * Updates the version and the cached statistics, and queues the change
+	 * for delivery to the listeners. Data sources that are changed by
+	 * several threads should call this method while holding their lock, so
+	 * the changes are delivered in the order they have been made.
+	 * @param type Type of the change.
+	 * @param events Event objects describing the changed values.
+	 */
+	private void publish(ChangeType type, DataChangeEvent[] events) {
+		synchronized (this) {
+			version++;
+			updateStatistics(type, events);
+			if (batchDepth > 0) {
+				addPendingChange(type, events);
+			} else {
+				PendingChange change = new PendingChange(type);
+				change.events.addAll(Arrays.asList(events));
+				deliveries.add(change);
+			}
+		}
+		deliverChanges();
+	}
+
+	/**
+	 * Delivers all queued changes to the listeners in the order they have
+	 * been published. Listeners are never notified while the lock of this
+	 * data source is held: if this method is called by a thread that holds
+	 * the lock, the changes stay queued and the method has to be called
+	 * again after the lock has been released.
+	 */
+	protected void deliverChanges() {
+		if (Thread.holdsLock(this)) {
+			return;
+		}
+		synchronized (deliveryLock) {
+			while (true) {
+				PendingChange change;
+				synchronized (this) {
+					change = deliveries.poll();
+				}
+				if (change == null) {
+					break;
+				}
+				deliver(change);
+			}
+		}
+	}
+
+	/**
+	 * Delivers all queued changes to the listeners and returns a snapshot
+	 * that contains exactly the delivered changes. Listeners can use this to
+	 * calculate results in the background that they keep up to date with
+	 * the changes they receive afterwards.
+	 * @return Snapshot of the data.
+	 * @throws IllegalStateException if the calling thread holds the lock of
+	 *         this data source.
+	 * @see #snapshot()
+	 */
+	public DataSource deliveredSnapshot() {
+		if (Thread.holdsLock(this)) {
+			throw new IllegalStateException(
+				"Changes can't be delivered while the data source is locked."); //$NON-NLS-1$
+		}
+		synchronized (deliveryLock) {
+			while (true) {
+				PendingChange change;
+				synchronized (this) {
+					change = deliveries.poll();
+					if (change == null) {
+						return snapshot();
+					}
+				}
+				deliver(change);
+			}
+		}
+	}
+
+	/**
+	 * Notifies all registered listeners of the specified change.
+	 * @param change Change to be delivered.
+	 */
+	private void deliver(PendingChange change) {
+		DataChangeEvent[] events = change.events.toArray(
+			new DataChangeEvent[change.events.size()]);
 		List<DataListener> listeners = new LinkedList<DataListener>(dataListeners);
 		for (DataListener dataListener : listeners) {
-			dataListener.dataUpdated(this, events);
+			if (change.type == ChangeType.ADDED) {
+				dataListener.dataAdded(this, events);
+			} else if (change.type == ChangeType.REMOVED) {
+				dataListener.dataRemoved(this, events);
+			} else {
+				dataListener.dataUpdated(this, events);
+			}
+		}
+	}
+
+	/**
+	 * Starts a batch of changes. Until the batch is committed, listeners
+	 * won't be notified of any changes. Batches can be nested; the changes
+	 * are delivered when the outermost batch is committed.
+	 * @see #commit()
+	 */
+	public void beginBatch() {
+		synchronized (this) {
+			if (batchDepth == 0) {
+				pendingChanges = new ArrayList<PendingChange>();
+			}
+			batchDepth++;
 		}
 	}
 
 	/**
-	 * Returns the column with the specified index.
+	 * Finishes a batch of changes that has been started with
+	 * {@link #beginBatch()}. When the outermost batch is committed, all
+	 * collected changes are delivered to the listeners. Consecutive changes
+	 * of the same type are coalesced into a single notification. Added or
+	 * updated cells that form a rectangular range are described by a single
+	 * range event, and so are contiguous removed rows.
+	 */
+	public void commit() {
+		synchronized (this) {
+			if (batchDepth == 0) {
+				throw new IllegalStateException(
+					"No batch has been started that could be committed."); //$NON-NLS-1$
+			}
+			batchDepth--;
+			if (batchDepth > 0) {
+				return;
+			}
+			for (PendingChange change : pendingChanges) {
+				coalesce(change);
+				deliveries.add(change);
+			}
+			pendingChanges = null;
+		}
+		deliverChanges();
+	}
+
+	/**
+	 * Replaces the events of the specified change by a single range event if
+	 * they describe each cell of a rectangular range exactly once. Removals
+	 * are only merged while they are collected, because the rows of the
+	 * events are shifted by earlier removals.
+	 * @param change Change collected during a batch.
+	 */
+	private void coalesce(PendingChange change) {
+		List<DataChangeEvent> events = change.events;
+		if (change.type == ChangeType.REMOVED || events.size() < 2) {
+			return;
+		}
+		int colMin = Integer.MAX_VALUE;
+		int colMax = Integer.MIN_VALUE;
+		int rowMin = Integer.MAX_VALUE;
+		int rowMax = Integer.MIN_VALUE;
+		long cellCount = 0L;
+		for (DataChangeEvent event : events) {
+			if (event.isPermutation()) {
+				return;
+			}
+			colMin = Math.min(colMin, event.getCol());
+			colMax = Math.max(colMax, event.getCol() + event.getColCount() - 1);
+			rowMin = Math.min(rowMin, event.getRow());
+			rowMax = Math.max(rowMax, event.getRow() + event.getRowCount() - 1);
+			cellCount += (long) event.getColCount()*event.getRowCount();
+		}
+		int colCount = colMax - colMin + 1;
+		int rowCount = rowMax - rowMin + 1;
+		if ((long) colCount*rowCount != cellCount || cellCount > Integer.MAX_VALUE) {
+			return;
+		}
+		BitSet cells = new BitSet((int) cellCount);
+		for (DataChangeEvent event : events) {
+			for (int row = event.getRow(); row < event.getRow() + event.getRowCount(); row++) {
+				int cellFirst = (row - rowMin)*colCount + event.getCol() - colMin;
+				int cellLast = cellFirst + event.getColCount();
+				int cellSet = cells.nextSetBit(cellFirst);
+				if (cellSet >= 0 && cellSet < cellLast) {
+					return;
+				}
+				cells.set(cellFirst, cellLast);
+			}
+		}
+		events.clear();
+		events.add(new DataChangeEvent(this, colMin, rowMin, colCount, rowCount));
+	}
+
+	/**
+	 * Updates the cached statistics of this data source and of its columns
+	 * with the specified change. This method must be called while holding
+	 * the lock of this data source, so range events can be read from the
+	 * current data.
+	 * @param type Type of the change.
+	 * @param events Event objects describing the changed values.
+	 */
+	private void updateStatistics(ChangeType type, DataChangeEvent[] events) {
+		List<Statistics> statisticsList = new ArrayList<Statistics>();
+		if (statistics != null) {
+			statisticsList.add(statistics);
+		}
+		statisticsList.addAll(getCachedColumnStatistics());
+		for (Statistics s : statisticsList) {
+			if (type == ChangeType.ADDED) {
+				s.dataAdded(this, events);
+			} else if (type == ChangeType.REMOVED) {
+				s.dataRemoved(this, events);
+			} else {
+				s.dataUpdated(this, events);
+			}
+		}
+	}
+
+	/**
+	 * Stores events that occurred during a batch. The events are appended
+	 * to the last pending change if it has the same type. Each event is
+	 * merged with the preceding events as long as they form a contiguous
+	 * range, so changing many rows doesn't keep an event per cell.
+	 * @param type Type of the change.
+	 * @param events Event objects describing the changed values.
+	 */
+	private void addPendingChange(ChangeType type, DataChangeEvent[] events) {
+		PendingChange change = pendingChanges.isEmpty() ? null :
+			pendingChanges.get(pendingChanges.size() - 1);
+		if (change == null || change.type != type) {
+			change = new PendingChange(type);
+			pendingChanges.add(change);
+		}
+		List<DataChangeEvent> pending = change.events;
+		for (DataChangeEvent event : events) {
+			pending.add(event);
+			int last = pending.size() - 1;
+			while (last > 0) {
+				DataChangeEvent merged = merge(type, pending.get(last - 1), pending.get(last));
+				if (merged == null) {
+					break;
+				}
+				pending.remove(last);
+				pending.set(last - 1, merged);
+				last--;
+			}
+		}
+	}
+
+	/**
+	 * Returns a range event describing the cells of two consecutive events,
+	 * if they form a contiguous range. Cells that are next to each other in
+	 * the same rows can always be merged. Rows are merged if they span the
+	 * same columns and the second event continues the first one. For
+	 * removals, this means that the rows of the second event have been
+	 * located directly before or after the rows of the first event.
+	 * @param type Type of the change.
+	 * @param first Event that occurred first.
+	 * @param second Event that occurred second.
+	 * @return Range event describing the cells of both events, or
+	 *         {@code null} if the cells aren't contiguous.
+	 */
+	private DataChangeEvent merge(ChangeType type, DataChangeEvent first,
+			DataChangeEvent second) {
+		if (first.isPermutation() || second.isPermutation()) {
+			return null;
+		}
+		if (first.getRow() == second.getRow()
+				&& first.getRowCount() == second.getRowCount()
+				&& first.getCol() + first.getColCount() == second.getCol()) {
+			return new DataChangeEvent(this, first.getCol(), first.getRow(),
+				first.getColCount() + second.getColCount(), first.getRowCount());
+		}
+		if (first.getCol() != second.getCol()
+				|| first.getColCount() != second.getColCount()) {
+			return null;
+		}
+		int row;
+		if (type == ChangeType.REMOVED) {
+			// The rows after the first removal have been shifted
+			if (second.getRow() > first.getRow()
+					|| second.getRow() + second.getRowCount() < first.getRow()) {
+				return null;
+			}
+			row = second.getRow();
+		} else {
+			if (first.getRow() + first.getRowCount() != second.getRow()) {
+				return null;
+			}
+			row = first.getRow();
+		}
+		return new DataChangeEvent(this, first.getCol(), row,
+			first.getColCount(), first.getRowCount() + second.getRowCount());
+	}
+
+	/**
+	 * Returns the column with the specified index. The column is a live view
+	 * of the data source, so no values are copied and changes to the data
+	 * source are visible in the column.
 	 * @param col index of the column to return
 	 * @return the specified column of the data source
 	 */
 	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public Column<?> getColumn(int col) {
-		Class<? extends Comparable<?>> columnType = getColumnTypes()[col];
-		List<Comparable<?>> columnData = new LinkedList<Comparable<?>>();
-		for (int rowIndex = 0; rowIndex < getRowCount(); rowIndex++) {
-			Record record = getRecord(rowIndex);
-			columnData.add(record.get(col));
+		synchronized (this) {
+			if (columns == null) {
+				columns = new Column<?>[getColumnCount()];
+			}
+			if (columns[col] == null) {
+				columns[col] = new Column(this, col);
+			}
+			return columns[col];
 		}
-		return new Column(columnType, columnData.toArray(new Comparable[0]));
+	}
+
+	/**
+	 * Returns the statistics of all column views that have been created.
+	 * The statistics are marked as belonging to the current version, as
+	 * they will be updated with the current change.
+	 * @return Statistics objects.
+	 */
+	private List<Statistics> getCachedColumnStatistics() {
+		if (columns == null) {
+			return Collections.emptyList();
+		}
+		long version = getVersion();
+		List<Statistics> columnStatistics = new ArrayList<Statistics>(columns.length);
+		for (Column<?> column : columns) {
+			if (column != null && column.getCachedStatistics() != null) {
+				columnStatistics.add(column.getCachedStatistics());
+				column.setStatisticsVersion(version);
+			}
+		}
+		return columnStatistics;
+	}
+
+	/**
+	 * Returns the value with the specified row and column index as a primitive
+	 * {@code double}. Empty cells and cells that don't contain a number are
+	 * returned as {@code NaN}. Implementations that store primitive values
+	 * should override this method to avoid boxing.
+	 * @param col index of the column to return
+	 * @param row index of the row to return
+	 * @return the numeric value of the data cell, or {@code NaN}
+	 */
+	public double getDouble(int col, int row) {
+		Comparable<?> value = get(col, row);
+		if (!(value instanceof Number)) {
+			return Double.NaN;
+		}
+		return ((Number) value).doubleValue();
+	}
+
+	/**
+	 * Copies the values of a range of rows in the specified column to an
+	 * array of primitive {@code double} values. Empty cells and cells that
+	 * don't contain a number are stored as {@code NaN}. The default
+	 * implementation calls {@link #getDouble(int, int)} for each row.
+	 * @param col index of the column to read
+	 * @param fromRow index of the first row to read (inclusive)
+	 * @param toRow index of the last row to read (exclusive)
+	 * @param dest Optional array as data sink. If array is {@code null} a new
+	 *        array will be created.
+	 * @return Array containing the values starting at index 0.
+	 */
+	public double[] getDoubles(int col, int fromRow, int toRow, double[] dest) {
+		dest = createDoubleArray(fromRow, toRow, dest);
+		for (int row = fromRow; row < toRow; row++) {
+			dest[row - fromRow] = getDouble(col, row);
+		}
+		return dest;
+	}
+
+	/**
+	 * Returns an array that is large enough to store the values of the
+	 * specified range of rows. If {@code dest} is {@code null} a new array
+	 * will be created, otherwise {@code dest} is checked for a sufficient
+	 * size.
+	 * @param fromRow index of the first row (inclusive)
+	 * @param toRow index of the last row (exclusive)
+	 * @param dest Optional array as data sink.
+	 * @return Array to store the values in.
+	 */
+	protected static double[] createDoubleArray(int fromRow, int toRow, double[] dest) {
+		int count = toRow - fromRow;
+		if (count < 0) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Invalid row range from {0,number,integer} to {1,number,integer}.", //$NON-NLS-1$
+				fromRow, toRow));
+		}
+		if (dest == null) {
+			return new double[count];
+		}
+		if (dest.length < count) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Array of size {0,number,integer} cannot store {1,number,integer} elements.", //$NON-NLS-1$
+				dest.length, count));
+		}
+		return dest;
 	}
 
 	@Override
@@ -267,6 +822,50 @@ public abstract class AbstractDataSource implements DataSource, Serializable {
 		return new Record(getRow(row).toArray(null));
 	}
 
+	/**
+	 * Returns a number that is increased whenever the data of this source
+	 * changes. The default implementation counts the notifications of data
+	 * listeners.
+	 * @return Version of the current data.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns an immutable view of the current data. The snapshot is created
+	 * using {@link #createSnapshot()} and reused until the version of the
+	 * data changes.
+	 * @return Immutable view of the current data.
+	 */
+	public DataSource snapshot() {
+		synchronized (this) {
+			long version = getVersion();
+			if (snapshot == null || snapshotVersion != version) {
+				snapshot = createSnapshot();
+				snapshotVersion = version;
+			}
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Creates an immutable view of the current data. The default
+	 * implementation copies all records of this data source, so it should be
+	 * overridden by data sources that can share their data, e.g. with the
+	 * snapshot of another data source.
+	 * @return Immutable view of the current data.
+	 */
+	protected DataSource createSnapshot() {
+		long version = getVersion();
+		int rowCount = getRowCount();
+		Record[] records = new Record[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			records[row] = getRecord(row);
+		}
+		return new DataSnapshot(getName(), getColumnTypes(), records, rowCount, null, version);
+	}
+
 	// Allows DataTable to reuse the name property
 	protected void setName(String name) {
 		this.name = name;
@@ -312,6 +911,7 @@ public abstract class AbstractDataSource implements DataSource, Serializable {
 	protected void setColumnTypes(Class<? extends Comparable<?>>... types) {
 		this.types = Arrays.copyOf(types, types.length);
 		columnCount = types.length;
+		columns = null;
 	}
 
 	/**
@@ -337,6 +937,8 @@ public abstract class AbstractDataSource implements DataSource, Serializable {
 
 		// Handle transient fields
 		dataListeners = new HashSet<DataListener>();
+		deliveries = new LinkedList<PendingChange>();
+		deliveryLock = new Object();
 		// Statistics can be omitted. It's created using a lazy getter.
 	}
 }
@@ -0,0 +1,118 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import java.io.Serializable;
+
+/**
+ * <p>Value of a categorical column that has been encoded by a
+ * {@link CategoryDictionary}. Each distinct name is represented by a single
+ * instance with an integer code, so a column of categories only stores
+ * references to shared objects, and comparisons and grouping can be done
+ * on the codes.</p>
+ *
+ * <p>Categories of the same dictionary are ordered by their codes, i.e. in
+ * the order in which they have been added to the dictionary. Categories of
+ * different dictionaries are ordered by their names.</p>
+ *
+ * @see CategoryDictionary
+ */
+public final class Category implements Comparable<Category>, Serializable {
+	/** Version id for serialization. */
+	private static final long serialVersionUID = 4735328391592574160L;
+
+	/** Dictionary that contains the category. */
+	private final CategoryDictionary dictionary;
+	/** Code of the category within the dictionary. */
+	private final int code;
+	/** Name of the category. */
+	private final String name;
+
+	/**
+	 * Initializes a new category. Categories are created by
+	 * {@link CategoryDictionary#getCategory(String)}.
+	 * @param dictionary Dictionary that contains the category.
+	 * @param code Code of the category within the dictionary.
+	 * @param name Name of the category.
+	 */
+	Category(CategoryDictionary dictionary, int code, String name) {
+		this.dictionary = dictionary;
+		this.code = code;
+		this.name = name;
+	}
+
+	/**
+	 * Returns the dictionary that contains this category.
+	 * @return Dictionary.
+	 */
+	public CategoryDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Returns the code of this category within its dictionary.
+	 * @return Code in the range from {@code 0} to the size of the dictionary.
+	 */
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * Returns the name of this category.
+	 * @return Name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public int compareTo(Category category) {
+		if (category.dictionary == dictionary) {
+			return (code < category.code) ? -1 : ((code == category.code) ? 0 : 1);
+		}
+		return name.compareTo(category.name);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof Category)) {
+			return false;
+		}
+		Category category = (Category) obj;
+		if (category.dictionary == dictionary) {
+			return category.code == code;
+		}
+		return name.equals(category.name);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import java.io.Serializable;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Class that encodes the distinct names of a categorical column as
+ * {@link Category} objects with consecutive integer codes. Data tables
+ * can use {@code Category} as column type to store large columns with few
+ * distinct values: each cell only refers to a shared category, and
+ * sorting and grouping use the codes instead of comparing strings.</p>
+ *
+ * <p>Example:</p>
+ * <pre>
+ * CategoryDictionary fruits = new CategoryDictionary("apple", "pear");
+ * DataTable data = new DataTable(Category.class, Double.class);
+ * data.add(fruits.getCategory("pear"), 2.0);
+ * data.add(fruits.getCategory("apple"), 3.0);
+ * </pre>
+ *
+ * @see Category
+ */
+public class CategoryDictionary implements Serializable {
+	/** Version id for serialization. */
+	private static final long serialVersionUID = -1693823516227651082L;
+
+	/** Categories stored by code. */
+	private final List<Category> categories;
+	/** Categories stored by name. */
+	private final Map<String, Category> categoriesByName;
+
+	/**
+	 * Initializes a new dictionary with the specified names. The names are
+	 * encoded in the specified order.
+	 * @param names Names of the initial categories.
+	 */
+	public CategoryDictionary(String... names) {
+		categories = new ArrayList<Category>();
+		categoriesByName = new HashMap<String, Category>();
+		for (String name : names) {
+			getCategory(name);
+		}
+	}
+
+	/**
+	 * Returns the category with the specified name. A new category is added
+	 * if the name hasn't been encoded yet.
+	 * @param name Name of the category.
+	 * @return Category with the specified name, or {@code null} if the name
+	 *         is {@code null}.
+	 */
+	public synchronized Category getCategory(String name) {
+		if (name == null) {
+			return null;
+		}
+		Category category = categoriesByName.get(name);
+		if (category == null) {
+			category = new Category(this, categories.size(), name);
+			categories.add(category);
+			categoriesByName.put(name, category);
+		}
+		return category;
+	}
+
+	/**
+	 * Returns the category with the specified code.
+	 * @param code Code of the category.
+	 * @return Category with the specified code.
+	 */
+	public synchronized Category getCategory(int code) {
+		if (code < 0 || code >= categories.size()) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Category {0,number,integer} does not exist.", code)); //$NON-NLS-1$
+		}
+		return categories.get(code);
+	}
+
+	/**
+	 * Returns whether the specified name has been encoded.
+	 * @param name Name of the category.
+	 * @return {@code true} if the dictionary contains a category with the
+	 *         name, {@code false} otherwise.
+	 */
+	public synchronized boolean contains(String name) {
+		return categoriesByName.containsKey(name);
+	}
+
+	/**
+	 * Returns the number of categories.
+	 * @return Number of categories.
+	 */
+	public synchronized int size() {
+		return categories.size();
+	}
+
+	/**
+	 * Counts the occurrences of each category of this dictionary in the
+	 * specified column. The rows are grouped by the codes of the categories.
+	 * Empty cells and values that don't belong to this dictionary are
+	 * ignored.
+	 * @param data Data source.
+	 * @param col Index of the column containing the categories.
+	 * @return Number of occurrences of each category, indexed by code.
+	 */
+	public int[] count(DataSource data, int col) {
+		int[] counts = new int[size()];
+		for (int row = 0; row < data.getRowCount(); row++) {
+			Comparable<?> value = data.get(col, row);
+			if (!(value instanceof Category)) {
+				continue;
+			}
+			Category category = (Category) value;
+			if (category.getDictionary() != this) {
+				continue;
+			}
+			int code = category.getCode();
+			if (code >= counts.length) {
+				counts = Arrays.copyOf(counts, size());
+			}
+			counts[code]++;
+		}
+		return counts;
+	}
+}
@@ -22,6 +22,7 @@
 package de.erichseifert.gral.data;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -33,9 +34,14 @@ import de.erichseifert.gral.data.statistics.Statistics;
  * <p>Class for accessing a specific column of a data source. The data of the
  * column can be accessed using the {@code get(int)} method.</p>
  *
+ * <p>A column either stores a copy of its values or it is a live view of a
+ * column in a data source. Views are returned by
+ * {@link DataSource#getColumn(int)}: they don't copy any values and always
+ * reflect the current data of the source.</p>
+ *
  * <p>Example for accessing value at column 2, row 3 of a data source:</p>
  * <pre>
- * Column col = new Column(dataSource, 2);
+ * Column col = dataSource.getColumn(2);
  * Number v = col.get(3);
  * </pre>
  *
@@ -47,6 +53,51 @@ public class Column<T extends Comparable<T>> implements Iterable<T>, Serializabl
 
 	private final Class<T> dataType;
 	private final List<T> data;
+	/** Data source that contains the values if this column is a view,
+	otherwise {@code null}. Views are serialized as copies. */
+	private final transient DataSource source;
+	/** Index of the column in the data source. */
+	private final int col;
+	/** Cache for statistical information about the column values. */
+	private transient Statistics statistics;
+	/** Version of the data source the cached statistics belong to. */
+	private transient long statisticsVersion;
+
+	/**
+	 * List that reads the values of a data source column on demand.
+	 * @param <T> Data type of the column.
+	 */
+	private static final class ColumnList<T> extends AbstractList<T>
+			implements Serializable {
+		/** Version id for serialization. */
+		private static final long serialVersionUID = -6174326358741372451L;
+
+		/** Data source that contains the values. */
+		private final DataSource source;
+		/** Index of the column in the data source. */
+		private final int col;
+
+		/**
+		 * Initializes a new list for the values in the specified column.
+		 * @param source Data source.
+		 * @param col Column index.
+		 */
+		public ColumnList(DataSource source, int col) {
+			this.source = source;
+			this.col = col;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T get(int row) {
+			return (T) source.get(col, row);
+		}
+
+		@Override
+		public int size() {
+			return source.getRowCount();
+		}
+	}
 
 	public Column(Class<T> dataType, T... data) {
 		this(dataType, Arrays.asList(data));
@@ -58,12 +109,68 @@ public class Column<T extends Comparable<T>> implements Iterable<T>, Serializabl
 		for (T item : data) {
 			this.data.add(item);
 		}
+		source = null;
+		col = -1;
+	}
+
+	/**
+	 * Initializes a new live view of a column in the specified data source.
+	 * No values are copied.
+	 * @param source Data source.
+	 * @param col Column index.
+	 */
+	@SuppressWarnings("unchecked")
+	Column(DataSource source, int col) {
+		this.dataType = (Class<T>) source.getColumnTypes()[col];
+		this.data = new ColumnList<T>(source, col);
+		this.source = source;
+		this.col = col;
 	}
 
 	public T get(int row) {
 		return row >= data.size() ? null : data.get(row);
 	}
 
+	/**
+	 * Returns the value in the specified row as a primitive {@code double}.
+	 * Empty cells and values that aren't numbers are returned as
+	 * {@code NaN}.
+	 * @param row Row index.
+	 * @return Numeric value, or {@code NaN}.
+	 */
+	public double getDouble(int row) {
+		if (source != null) {
+			return source.getDouble(col, row);
+		}
+		T value = get(row);
+		if (!(value instanceof Number)) {
+			return Double.NaN;
+		}
+		return ((Number) value).doubleValue();
+	}
+
+	/**
+	 * Copies the values of a range of rows to an array of primitive
+	 * {@code double} values. Empty cells and values that aren't numbers are
+	 * stored as {@code NaN}. Views read the values directly from the data
+	 * source without boxing if the source supports it.
+	 * @param fromRow index of the first row to read (inclusive)
+	 * @param toRow index of the last row to read (exclusive)
+	 * @param dest Optional array as data sink. If array is {@code null} a new
+	 *        array will be created.
+	 * @return Array containing the values starting at index 0.
+	 */
+	public double[] getDoubles(int fromRow, int toRow, double[] dest) {
+		if (source != null) {
+			return source.getDoubles(col, fromRow, toRow, dest);
+		}
+		dest = AbstractDataSource.createDoubleArray(fromRow, toRow, dest);
+		for (int row = fromRow; row < toRow; row++) {
+			dest[row - fromRow] = getDouble(row);
+		}
+		return dest;
+	}
+
 	public int size() {
 		return data.size();
 	}
@@ -81,7 +188,62 @@ public class Column<T extends Comparable<T>> implements Iterable<T>, Serializabl
 	}
 
 	public double getStatistics(String key) {
-		return new Statistics(data).get(key);
+		Statistics statistics;
+		// The statistics are created with the lock of the source, so they
+		// can't miss a change that is published in the meantime
+		synchronized ((source != null) ? source : this) {
+			// Statistics of a view are discarded if the data source has been
+			// changed without updating them
+			if (source != null && statisticsVersion != source.getVersion()) {
+				this.statistics = null;
+			}
+			if (this.statistics == null) {
+				if (source instanceof AbstractDataSource) {
+					this.statistics = ((AbstractDataSource) source).createStatistics(col);
+				} else if (source != null) {
+					this.statistics = new Statistics(source, col);
+				} else {
+					this.statistics = new Statistics(data);
+				}
+				if (source != null) {
+					statisticsVersion = source.getVersion();
+				}
+			}
+			statistics = this.statistics;
+		}
+		return statistics.get(key);
+	}
+
+	/**
+	 * Returns the statistics of this column if they have already been
+	 * created. This is used by data sources to keep the statistics of
+	 * their column views up to date.
+	 * @return Statistics object, or {@code null}.
+	 */
+	Statistics getCachedStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Sets the version of the data source the cached statistics belong to.
+	 * This is used by data sources that update the statistics of their
+	 * column views with each change.
+	 * @param version Version of the data source.
+	 */
+	void setStatisticsVersion(long version) {
+		statisticsVersion = version;
+	}
+
+	/**
+	 * Replaces a view by a copy of its values during serialization, so the
+	 * data source isn't serialized.
+	 * @return This column, or a copy of the values of this view.
+	 */
+	private Object writeReplace() {
+		if (source == null) {
+			return this;
+		}
+		return new Column<T>(dataType, data);
 	}
 
 	@Override
@@ -0,0 +1,414 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.BitSet;
+
+/**
+ * <p>Utility class that writes the values of a table column by column in a
+ * compact binary format. It is used by the serialization methods of data
+ * sources.</p>
+ *
+ * <p>Columns of numbers and booleans are written as a bitmap of the empty
+ * cells followed by a block of raw primitive values. The values of all other
+ * column types are written as objects, so repeated values are only stored
+ * once. Columns of categories that belong to a single dictionary are
+ * written as the dictionary followed by a block of codes. The column types
+ * themselves are not written, as they are part of the serialized data
+ * source.</p>
+ */
+final class ColumnCodec {
+	/** Number of values that are converted at once. */
+	private static final int BUFFER_SIZE = 1024;
+
+	/**
+	 * Default constructor that prevents creation of class.
+	 */
+	private ColumnCodec() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns the number of bytes of a single value of the specified type,
+	 * or {@code 0} if the values are written as objects.
+	 * @param type Column type.
+	 * @return Number of bytes per value.
+	 */
+	private static int getValueSize(Class<?> type) {
+		if (Double.class.equals(type) || Long.class.equals(type)) {
+			return 8;
+		} else if (Float.class.equals(type) || Integer.class.equals(type)) {
+			return 4;
+		} else if (Short.class.equals(type)) {
+			return 2;
+		} else if (Byte.class.equals(type) || Boolean.class.equals(type)) {
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Writes the specified records column by column.
+	 * @param out Output stream.
+	 * @param types Column types.
+	 * @param records Records containing the values.
+	 * @param rowCount Number of records that will be written.
+	 * @param cols Index of the record value for each column, or {@code null}
+	 *        if all values of the records are written.
+	 * @throws IOException if an error occurs while writing.
+	 */
+	public static void writeRecords(ObjectOutput out,
+			Class<? extends Comparable<?>>[] types, Record[] records,
+			int rowCount, int[] cols) throws IOException {
+		out.writeInt(rowCount);
+		byte[] buffer = new byte[BUFFER_SIZE*8];
+		for (int col = 0; col < types.length; col++) {
+			int index = (cols != null) ? cols[col] : col;
+			if (Category.class.equals(types[col])) {
+				CategoryDictionary dictionary = getDictionary(records, rowCount, index);
+				out.writeObject(dictionary);
+				if (dictionary != null) {
+					writeCodes(out, records, rowCount, index);
+					continue;
+				}
+			}
+			int valueSize = getValueSize(types[col]);
+			if (valueSize == 0) {
+				for (int row = 0; row < rowCount; row++) {
+					out.writeObject(records[row].get(index));
+				}
+				continue;
+			}
+
+			// Empty cells
+			BitSet nulls = new BitSet(rowCount);
+			for (int row = 0; row < rowCount; row++) {
+				if (records[row].get(index) == null) {
+					nulls.set(row);
+				}
+			}
+			writeBitSet(out, nulls, rowCount);
+
+			// Values
+			Class<?> type = types[col];
+			for (int fromRow = 0; fromRow < rowCount; fromRow += BUFFER_SIZE) {
+				int toRow = Math.min(fromRow + BUFFER_SIZE, rowCount);
+				int pos = 0;
+				for (int row = fromRow; row < toRow; row++) {
+					Object value = records[row].get(index);
+					long bits;
+					if (value == null) {
+						bits = 0L;
+					} else if (Double.class.equals(type)) {
+						bits = Double.doubleToRawLongBits((Double) value);
+					} else if (Float.class.equals(type)) {
+						bits = Float.floatToRawIntBits((Float) value);
+					} else if (Boolean.class.equals(type)) {
+						bits = ((Boolean) value) ? 1L : 0L;
+					} else {
+						bits = ((Number) value).longValue();
+					}
+					pos = putBits(buffer, pos, bits, valueSize);
+				}
+				out.write(buffer, 0, pos);
+			}
+		}
+	}
+
+	/**
+	 * Reads records that have been written by
+	 * {@link #writeRecords(ObjectOutput, Class[], Record[], int, int[])}.
+	 * @param in Input stream.
+	 * @param types Column types.
+	 * @return Records containing the values.
+	 * @throws ClassNotFoundException if the class of a value doesn't exist.
+	 * @throws IOException if an error occurs while reading.
+	 */
+	public static Record[] readRecords(ObjectInput in,
+			Class<? extends Comparable<?>>[] types)
+			throws ClassNotFoundException, IOException {
+		int rowCount = in.readInt();
+		Comparable<?>[][] values = new Comparable<?>[rowCount][types.length];
+		byte[] buffer = new byte[BUFFER_SIZE*8];
+		for (int col = 0; col < types.length; col++) {
+			if (Category.class.equals(types[col])) {
+				CategoryDictionary dictionary = (CategoryDictionary) in.readObject();
+				if (dictionary != null) {
+					readCodes(in, dictionary, values, col);
+					continue;
+				}
+			}
+			int valueSize = getValueSize(types[col]);
+			if (valueSize == 0) {
+				for (int row = 0; row < rowCount; row++) {
+					values[row][col] = (Comparable<?>) in.readObject();
+				}
+				continue;
+			}
+
+			BitSet nulls = readBitSet(in, rowCount);
+			Class<?> type = types[col];
+			for (int fromRow = 0; fromRow < rowCount; fromRow += BUFFER_SIZE) {
+				int toRow = Math.min(fromRow + BUFFER_SIZE, rowCount);
+				in.readFully(buffer, 0, (toRow - fromRow)*valueSize);
+				int pos = 0;
+				for (int row = fromRow; row < toRow; row++, pos += valueSize) {
+					if (nulls.get(row)) {
+						continue;
+					}
+					long bits = getBits(buffer, pos, valueSize);
+					Comparable<?> value;
+					if (Double.class.equals(type)) {
+						value = Double.longBitsToDouble(bits);
+					} else if (Float.class.equals(type)) {
+						value = Float.intBitsToFloat((int) bits);
+					} else if (Long.class.equals(type)) {
+						value = bits;
+					} else if (Integer.class.equals(type)) {
+						value = (int) bits;
+					} else if (Short.class.equals(type)) {
+						value = (short) bits;
+					} else if (Byte.class.equals(type)) {
+						value = (byte) bits;
+					} else {
+						value = bits != 0L;
+					}
+					values[row][col] = value;
+				}
+			}
+		}
+
+		Record[] records = new Record[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			records[row] = new Record(values[row]);
+		}
+		return records;
+	}
+
+	/**
+	 * Returns the dictionary of the categories in the specified column of
+	 * the records.
+	 * @param records Records containing the values.
+	 * @param rowCount Number of records.
+	 * @param index Index of the record value.
+	 * @return The dictionary that contains all categories, or {@code null}
+	 *         if the categories belong to different dictionaries or if
+	 *         there are no categories.
+	 */
+	private static CategoryDictionary getDictionary(Record[] records,
+			int rowCount, int index) {
+		CategoryDictionary dictionary = null;
+		for (int row = 0; row < rowCount; row++) {
+			Category category = records[row].get(index);
+			if (category == null) {
+				continue;
+			}
+			if (dictionary == null) {
+				dictionary = category.getDictionary();
+			} else if (category.getDictionary() != dictionary) {
+				return null;
+			}
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Writes the codes of the categories in the specified column of the
+	 * records.
+	 * @param out Output stream.
+	 * @param records Records containing the values.
+	 * @param rowCount Number of records.
+	 * @param index Index of the record value.
+	 * @throws IOException if an error occurs while writing.
+	 */
+	private static void writeCodes(ObjectOutput out, Record[] records,
+			int rowCount, int index) throws IOException {
+		BitSet nulls = new BitSet(rowCount);
+		for (int row = 0; row < rowCount; row++) {
+			if (records[row].get(index) == null) {
+				nulls.set(row);
+			}
+		}
+		writeBitSet(out, nulls, rowCount);
+		byte[] buffer = new byte[BUFFER_SIZE*4];
+		for (int fromRow = 0; fromRow < rowCount; fromRow += BUFFER_SIZE) {
+			int toRow = Math.min(fromRow + BUFFER_SIZE, rowCount);
+			int pos = 0;
+			for (int row = fromRow; row < toRow; row++) {
+				Category category = records[row].get(index);
+				int code = (category != null) ? category.getCode() : 0;
+				pos = putBits(buffer, pos, code, 4);
+			}
+			out.write(buffer, 0, pos);
+		}
+	}
+
+	/**
+	 * Reads the codes of categories that have been written by
+	 * {@link #writeCodes(ObjectOutput, Record[], int, int)}.
+	 * @param in Input stream.
+	 * @param dictionary Dictionary of the categories.
+	 * @param values Values of all rows.
+	 * @param col Index of the column to be read.
+	 * @throws IOException if an error occurs while reading.
+	 */
+	private static void readCodes(ObjectInput in, CategoryDictionary dictionary,
+			Comparable<?>[][] values, int col) throws IOException {
+		int rowCount = values.length;
+		BitSet nulls = readBitSet(in, rowCount);
+		byte[] buffer = new byte[BUFFER_SIZE*4];
+		for (int fromRow = 0; fromRow < rowCount; fromRow += BUFFER_SIZE) {
+			int toRow = Math.min(fromRow + BUFFER_SIZE, rowCount);
+			in.readFully(buffer, 0, (toRow - fromRow)*4);
+			for (int row = fromRow, pos = 0; row < toRow; row++, pos += 4) {
+				if (!nulls.get(row)) {
+					values[row][col] = dictionary.getCategory((int) getBits(buffer, pos, 4));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a column of primitive {@code double} values.
+	 * @param out Output stream.
+	 * @param values Values of the column.
+	 * @param nulls Empty cells of the column.
+	 * @param rowCount Number of values that will be written.
+	 * @throws IOException if an error occurs while writing.
+	 */
+	public static void writeDoubles(ObjectOutput out, double[] values,
+			BitSet nulls, int rowCount) throws IOException {
+		writeBitSet(out, nulls, rowCount);
+		byte[] buffer = new byte[BUFFER_SIZE*8];
+		for (int fromRow = 0; fromRow < rowCount; fromRow += BUFFER_SIZE) {
+			int toRow = Math.min(fromRow + BUFFER_SIZE, rowCount);
+			int pos = 0;
+			for (int row = fromRow; row < toRow; row++) {
+				pos = putBits(buffer, pos, Double.doubleToRawLongBits(values[row]), 8);
+			}
+			out.write(buffer, 0, pos);
+		}
+	}
+
+	/**
+	 * Reads a column of primitive {@code double} values that has been
+	 * written by {@link #writeDoubles(ObjectOutput, double[], BitSet, int)}.
+	 * @param in Input stream.
+	 * @param values Array that will store the values.
+	 * @param nulls Bitmap that will store the empty cells.
+	 * @param rowCount Number of values.
+	 * @throws IOException if an error occurs while reading.
+	 */
+	public static void readDoubles(ObjectInput in, double[] values,
+			BitSet nulls, int rowCount) throws IOException {
+		nulls.or(readBitSet(in, rowCount));
+		byte[] buffer = new byte[BUFFER_SIZE*8];
+		for (int fromRow = 0; fromRow < rowCount; fromRow += BUFFER_SIZE) {
+			int toRow = Math.min(fromRow + BUFFER_SIZE, rowCount);
+			in.readFully(buffer, 0, (toRow - fromRow)*8);
+			for (int row = fromRow, pos = 0; row < toRow; row++, pos += 8) {
+				values[row] = Double.longBitsToDouble(getBits(buffer, pos, 8));
+			}
+		}
+	}
+
+	/**
+	 * Writes a bitmap as a block of bytes. A single byte is written if no
+	 * bits are set.
+	 * @param out Output stream.
+	 * @param bits Bitmap.
+	 * @param size Number of bits that will be written.
+	 * @throws IOException if an error occurs while writing.
+	 */
+	private static void writeBitSet(ObjectOutput out, BitSet bits, int size)
+			throws IOException {
+		boolean empty = bits.nextSetBit(0) < 0 || bits.nextSetBit(0) >= size;
+		out.writeBoolean(empty);
+		if (empty) {
+			return;
+		}
+		byte[] bytes = new byte[(size + 7)/8];
+		for (int i = bits.nextSetBit(0); i >= 0 && i < size; i = bits.nextSetBit(i + 1)) {
+			bytes[i >> 3] |= 1 << (i & 7);
+		}
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a bitmap that has been written by
+	 * {@link #writeBitSet(ObjectOutput, BitSet, int)}.
+	 * @param in Input stream.
+	 * @param size Number of bits.
+	 * @return Bitmap.
+	 * @throws IOException if an error occurs while reading.
+	 */
+	private static BitSet readBitSet(ObjectInput in, int size)
+			throws IOException {
+		BitSet bits = new BitSet(size);
+		if (in.readBoolean()) {
+			return bits;
+		}
+		byte[] bytes = new byte[(size + 7)/8];
+		in.readFully(bytes);
+		for (int i = 0; i < size; i++) {
+			if ((bytes[i >> 3] & (1 << (i & 7))) != 0) {
+				bits.set(i);
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Stores the lowest bytes of the specified bits in big-endian order.
+	 * @param buffer Destination array.
+	 * @param pos Index of the first byte.
+	 * @param bits Bits to be stored.
+	 * @param size Number of bytes.
+	 * @return Index after the last stored byte.
+	 */
+	private static int putBits(byte[] buffer, int pos, long bits, int size) {
+		for (int shift = (size - 1)*8; shift >= 0; shift -= 8) {
+			buffer[pos++] = (byte) (bits >>> shift);
+		}
+		return pos;
+	}
+
+	/**
+	 * Reads bytes that have been stored by
+	 * {@link #putBits(byte[], int, long, int)}. Integral values are sign
+	 * extended.
+	 * @param buffer Source array.
+	 * @param pos Index of the first byte.
+	 * @param size Number of bytes.
+	 * @return Bits.
+	 */
+	private static long getBits(byte[] buffer, int pos, int size) {
+		long bits = buffer[pos];
+		for (int i = 1; i < size; i++) {
+			bits = (bits << 8) | (buffer[pos + i] & 0xFFL);
+		}
+		return bits;
+	}
+}
@@ -0,0 +1,677 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import java.io.Serializable;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>An append-only data source for long time series that stores its
+ * values in compressed blocks. The first column contains the timestamps as
+ * {@code Long} values, all other columns contain {@code Double} values.</p>
+ *
+ * <p>Rows are collected in an uncompressed block. Whenever a block is full,
+ * it is compressed like in Facebook's Gorilla time series database: the
+ * timestamps are encoded as the differences of consecutive intervals
+ * (delta-of-delta), which requires a single bit for regular intervals, and
+ * each value is encoded as the bitwise XOR with the previous value of the
+ * column, which requires only a few bits for slowly changing values.</p>
+ *
+ * <p>Values are decoded block by block and column by column. The decoded
+ * block of each column is kept, so sequential access, e.g. for drawing a
+ * plot or calculating statistics, decodes each block only once.
+ * Timestamps must not decrease. Old rows can only be removed in whole
+ * blocks using {@link #removeBefore(long)}.</p>
+ *
+ * <p>Example:</p>
+ * <pre>
+ * CompressedTimeSeries data = new CompressedTimeSeries(1);
+ * data.add(System.currentTimeMillis(), 42.0);
+ * </pre>
+ *
+ * @see DataSource
+ */
+public class CompressedTimeSeries extends AbstractDataSource {
+	/** Version id for serialization. */
+	private static final long serialVersionUID = 2153813426950173581L;
+
+	/** Number of rows per block. */
+	static final int BLOCK_SIZE = 1024;
+
+	/** Compressed blocks of rows. All blocks contain {@code BLOCK_SIZE}
+	rows. */
+	private final List<Block> blocks;
+	/** Timestamps of the rows that haven't been compressed yet. */
+	private final long[] openTimestamps;
+	/** Values of the rows that haven't been compressed yet, stored as one
+	array per value column. */
+	private final double[][] openValues;
+	/** Number of rows that haven't been compressed yet. */
+	private int openSize;
+	/** Number of rows. */
+	private int rowCount;
+	/** Whether this instance is an immutable snapshot. */
+	private final boolean snapshot;
+	/** Version of the original data if this instance is a snapshot. */
+	private final long snapshotVersion;
+
+	/** Index of the decoded block for each column, or {@code -1}. */
+	private transient int[] decodedBlocks;
+	/** Decoded timestamps. Only valid if a block has been decoded. */
+	private transient long[] decodedTimestamps;
+	/** Decoded values for each value column. Only valid if a block has
+	been decoded. */
+	private transient double[][] decodedValues;
+
+	/**
+	 * Rows that have been compressed. Each column is stored as a separate
+	 * bit stream, so columns can be decoded independently.
+	 */
+	private static final class Block implements Serializable {
+		/** Version id for serialization. */
+		private static final long serialVersionUID = -6207391245806524113L;
+
+		/** Encoded timestamps. */
+		private final long[] timestamps;
+		/** Encoded values for each value column. */
+		private final long[][] values;
+		/** Last timestamp of the block. */
+		private final long lastTimestamp;
+
+		/**
+		 * Compresses the specified rows.
+		 * @param timestamps Timestamps of the rows.
+		 * @param values Values of the rows for each value column.
+		 * @param size Number of rows.
+		 */
+		public Block(long[] timestamps, double[][] values, int size) {
+			this.timestamps = encodeTimestamps(timestamps, size);
+			this.values = new long[values.length][];
+			for (int col = 0; col < values.length; col++) {
+				this.values[col] = encodeValues(values[col], size);
+			}
+			lastTimestamp = timestamps[size - 1];
+		}
+
+		/**
+		 * Returns the number of bytes used by the encoded columns.
+		 * @return Number of bytes.
+		 */
+		public long getSize() {
+			long words = timestamps.length;
+			for (long[] column : values) {
+				words += column.length;
+			}
+			return words*8L;
+		}
+	}
+
+	/**
+	 * Bit stream that is stored in an array of {@code long} values. Bits
+	 * are written starting with the most significant bit of each word.
+	 */
+	private static final class BitWriter {
+		/** Words containing the bits. */
+		private long[] words = new long[16];
+		/** Number of bits that have been written. */
+		private int size;
+
+		/**
+		 * Appends the lowest bits of the specified value.
+		 * @param value Bits to be written.
+		 * @param count Number of bits in the range [0, 64].
+		 */
+		public void write(long value, int count) {
+			if (count == 0) {
+				return;
+			}
+			int index = size >> 6;
+			if (index + 1 >= words.length) {
+				words = Arrays.copyOf(words, words.length*2);
+			}
+			if (count < 64) {
+				value &= (1L << count) - 1L;
+			}
+			int free = 64 - (size & 63);
+			if (count <= free) {
+				words[index] |= value << (free - count);
+			} else {
+				int rest = count - free;
+				words[index] |= value >>> rest;
+				words[index + 1] |= value << (64 - rest);
+			}
+			size += count;
+		}
+
+		/**
+		 * Returns the words containing all bits that have been written.
+		 * @return Array of words.
+		 */
+		public long[] toArray() {
+			return Arrays.copyOf(words, (size + 63) >> 6);
+		}
+	}
+
+	/**
+	 * Class that reads a bit stream written by a {@code BitWriter}.
+	 */
+	private static final class BitReader {
+		/** Words containing the bits. */
+		private final long[] words;
+		/** Index of the next bit. */
+		private int pos;
+
+		/**
+		 * Initializes a new reader for the specified words.
+		 * @param words Words containing the bits.
+		 */
+		public BitReader(long[] words) {
+			this.words = words;
+		}
+
+		/**
+		 * Reads the specified number of bits.
+		 * @param count Number of bits in the range [0, 64].
+		 * @return Bits in the lowest bits of the value.
+		 */
+		public long read(int count) {
+			if (count == 0) {
+				return 0L;
+			}
+			int index = pos >> 6;
+			int free = 64 - (pos & 63);
+			long value;
+			if (count <= free) {
+				value = words[index] >>> (free - count);
+			} else {
+				int rest = count - free;
+				value = (words[index] << rest) | (words[index + 1] >>> (64 - rest));
+			}
+			pos += count;
+			return (count < 64) ? value & ((1L << count) - 1L) : value;
+		}
+
+		/**
+		 * Reads the specified number of bits as two's complement number.
+		 * @param count Number of bits in the range [1, 64].
+		 * @return Signed value.
+		 */
+		public long readSigned(int count) {
+			long value = read(count);
+			return (value << (64 - count)) >> (64 - count);
+		}
+	}
+
+	/**
+	 * Initializes a new instance with the specified number of value columns.
+	 * @param valueCols Number of columns in addition to the timestamp
+	 *        column.
+	 */
+	@SuppressWarnings("unchecked")
+	public CompressedTimeSeries(int valueCols) {
+		if (valueCols < 0) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Invalid number of columns: {0,number,integer}.", //$NON-NLS-1$
+				valueCols));
+		}
+		Class<? extends Comparable<?>>[] types = new Class[valueCols + 1];
+		Arrays.fill(types, Double.class);
+		types[0] = Long.class;
+		setColumnTypes(types);
+
+		blocks = new ArrayList<Block>();
+		openTimestamps = new long[BLOCK_SIZE];
+		openValues = new double[valueCols][BLOCK_SIZE];
+		snapshot = false;
+		snapshotVersion = 0L;
+	}
+
+	/**
+	 * Initializes an immutable snapshot of the specified time series. The
+	 * compressed blocks are shared.
+	 * @param original Time series.
+	 */
+	private CompressedTimeSeries(CompressedTimeSeries original) {
+		super(original.getName(), original.getColumnTypes());
+		blocks = new ArrayList<Block>(original.blocks);
+		openTimestamps = Arrays.copyOf(original.openTimestamps, original.openSize);
+		openValues = new double[original.openValues.length][];
+		for (int col = 0; col < openValues.length; col++) {
+			openValues[col] = Arrays.copyOf(original.openValues[col], original.openSize);
+		}
+		openSize = original.openSize;
+		rowCount = original.rowCount;
+		snapshot = true;
+		snapshotVersion = original.getVersion();
+	}
+
+	/**
+	 * Appends a row with the specified timestamp and values. The timestamp
+	 * must not be smaller than the timestamp of the last row.
+	 * @param timestamp Timestamp of the row.
+	 * @param values Values of the value columns.
+	 * @return Index of the row that has been added.
+	 */
+	public int add(long timestamp, double... values) {
+		if (values.length != openValues.length) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Wrong number of columns! Expected {0,number,integer}, got {1,number,integer}.", //$NON-NLS-1$
+				openValues.length, values.length));
+		}
+		DataChangeEvent[] events = new DataChangeEvent[values.length + 1];
+		int rowIndex;
+		synchronized (this) {
+			checkMutable();
+			if (rowCount > 0 && timestamp < getTimestamp(rowCount - 1)) {
+				throw new IllegalArgumentException(MessageFormat.format(
+					"Timestamp {0,number,integer} is smaller than the last timestamp.", //$NON-NLS-1$
+					timestamp));
+			}
+			rowIndex = rowCount;
+			openTimestamps[openSize] = timestamp;
+			events[0] = new DataChangeEvent(this, 0, rowIndex, null, timestamp);
+			for (int col = 0; col < values.length; col++) {
+				openValues[col][openSize] = values[col];
+				events[col + 1] = new DataChangeEvent(this, col + 1, rowIndex, null, values[col]);
+			}
+			openSize++;
+			rowCount++;
+			if (openSize == BLOCK_SIZE) {
+				blocks.add(new Block(openTimestamps, openValues, openSize));
+				openSize = 0;
+			}
+			notifyDataAdded(events);
+		}
+		deliverChanges();
+		return rowIndex;
+	}
+
+	/**
+	 * Removes all compressed blocks whose rows are older than the specified
+	 * timestamp. Rows that haven't been compressed yet are never removed.
+	 * @param timestamp Timestamp of the oldest row that has to be kept.
+	 * @return Number of rows that have been removed.
+	 */
+	public int removeBefore(long timestamp) {
+		int removed = 0;
+		synchronized (this) {
+			checkMutable();
+			while (!blocks.isEmpty() && blocks.get(0).lastTimestamp < timestamp) {
+				blocks.remove(0);
+				removed += BLOCK_SIZE;
+			}
+			rowCount -= removed;
+			decodedBlocks = null;
+			if (removed > 0) {
+				notifyDataRemoved(new DataChangeEvent(this, 0, 0, getColumnCount(), removed));
+			}
+		}
+		deliverChanges();
+		return removed;
+	}
+
+	/**
+	 * Removes all rows.
+	 */
+	public void clear() {
+		int removed;
+		synchronized (this) {
+			checkMutable();
+			removed = rowCount;
+			blocks.clear();
+			openSize = 0;
+			rowCount = 0;
+			decodedBlocks = null;
+			if (removed > 0) {
+				notifyDataRemoved(new DataChangeEvent(this, 0, 0, getColumnCount(), removed));
+			}
+		}
+		deliverChanges();
+	}
+
+	/**
+	 * Throws an exception if this instance is an immutable snapshot.
+	 */
+	private void checkMutable() {
+		if (snapshot) {
+			throw new UnsupportedOperationException(
+				"Snapshots cannot be changed."); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the value with the specified row and column index.
+	 * @param col index of the column to return
+	 * @param row index of the row to return
+	 * @return the specified value of the data cell
+	 */
+	public synchronized Comparable<?> get(int col, int row) {
+		checkCell(col, row);
+		if (col == 0) {
+			return getTimestamp(row);
+		}
+		return getValue(col, row);
+	}
+
+	@Override
+	public synchronized double getDouble(int col, int row) {
+		checkCell(col, row);
+		if (col == 0) {
+			return getTimestamp(row);
+		}
+		return getValue(col, row);
+	}
+
+	@Override
+	public synchronized double[] getDoubles(int col, int fromRow, int toRow, double[] dest) {
+		dest = createDoubleArray(fromRow, toRow, dest);
+		if (col < 0 || col >= getColumnCount()) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Column {0,number,integer} does not exist.", col)); //$NON-NLS-1$
+		}
+		if (fromRow < 0 || toRow > rowCount) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Row range from {0,number,integer} to {1,number,integer} does not exist.", //$NON-NLS-1$
+				fromRow, toRow));
+		}
+		int sealedRows = blocks.size()*BLOCK_SIZE;
+		int row = fromRow;
+		while (row < toRow) {
+			int count;
+			if (row < sealedRows) {
+				int blockIndex = row/BLOCK_SIZE;
+				int index = row % BLOCK_SIZE;
+				count = Math.min(toRow - row, BLOCK_SIZE - index);
+				decode(col, blockIndex);
+				if (col == 0) {
+					for (int i = 0; i < count; i++) {
+						dest[row - fromRow + i] = decodedTimestamps[index + i];
+					}
+				} else {
+					System.arraycopy(decodedValues[col - 1], index, dest, row - fromRow, count);
+				}
+			} else {
+				int index = row - sealedRows;
+				count = toRow - row;
+				if (col == 0) {
+					for (int i = 0; i < count; i++) {
+						dest[row - fromRow + i] = openTimestamps[index + i];
+					}
+				} else {
+					System.arraycopy(openValues[col - 1], index, dest, row - fromRow, count);
+				}
+			}
+			row += count;
+		}
+		return dest;
+	}
+
+	/**
+	 * Checks whether the specified cell exists. If not, an
+	 * {@code IndexOutOfBoundsException} is thrown.
+	 * @param col Column index.
+	 * @param row Row index.
+	 */
+	private void checkCell(int col, int row) {
+		if (col < 0 || col >= getColumnCount()) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Column {0,number,integer} does not exist.", col)); //$NON-NLS-1$
+		}
+		if (row < 0 || row >= rowCount) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Row {0,number,integer} does not exist.", row)); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the timestamp of the specified row.
+	 * @param row Row index.
+	 * @return Timestamp.
+	 */
+	private long getTimestamp(int row) {
+		int sealedRows = blocks.size()*BLOCK_SIZE;
+		if (row >= sealedRows) {
+			return openTimestamps[row - sealedRows];
+		}
+		decode(0, row/BLOCK_SIZE);
+		return decodedTimestamps[row % BLOCK_SIZE];
+	}
+
+	/**
+	 * Returns the value of the specified cell in a value column.
+	 * @param col Column index.
+	 * @param row Row index.
+	 * @return Value.
+	 */
+	private double getValue(int col, int row) {
+		int sealedRows = blocks.size()*BLOCK_SIZE;
+		if (row >= sealedRows) {
+			return openValues[col - 1][row - sealedRows];
+		}
+		decode(col, row/BLOCK_SIZE);
+		return decodedValues[col - 1][row % BLOCK_SIZE];
+	}
+
+	/**
+	 * Decodes a column of the specified block if it hasn't been decoded
+	 * before.
+	 * @param col Column index.
+	 * @param blockIndex Block index.
+	 */
+	private void decode(int col, int blockIndex) {
+		if (decodedBlocks == null) {
+			decodedBlocks = new int[getColumnCount()];
+			Arrays.fill(decodedBlocks, -1);
+			decodedTimestamps = new long[BLOCK_SIZE];
+			decodedValues = new double[getColumnCount() - 1][BLOCK_SIZE];
+		}
+		if (decodedBlocks[col] == blockIndex) {
+			return;
+		}
+		Block block = blocks.get(blockIndex);
+		if (col == 0) {
+			decodeTimestamps(block.timestamps, decodedTimestamps);
+		} else {
+			decodeValues(block.values[col - 1], decodedValues[col - 1]);
+		}
+		decodedBlocks[col] = blockIndex;
+	}
+
+	/**
+	 * Returns the number of rows of the data source.
+	 * @return number of rows in the data source.
+	 */
+	public synchronized int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Returns the number of bytes used by the compressed blocks.
+	 * @return Number of bytes.
+	 */
+	public synchronized long getCompressedSize() {
+		long size = 0L;
+		for (Block block : blocks) {
+			size += block.getSize();
+		}
+		return size;
+	}
+
+	@Override
+	public long getVersion() {
+		return snapshot ? snapshotVersion : super.getVersion();
+	}
+
+	/**
+	 * Returns an immutable view of the current data. The compressed blocks
+	 * are shared with the snapshot, only the rows that haven't been
+	 * compressed yet are copied.
+	 * @return Immutable view of the current data.
+	 */
+	@Override
+	public synchronized DataSource snapshot() {
+		if (snapshot) {
+			return this;
+		}
+		return new CompressedTimeSeries(this);
+	}
+
+	/**
+	 * Encodes timestamps as differences of consecutive intervals. Intervals
+	 * that don't change are encoded with a single bit.
+	 * @param timestamps Timestamps.
+	 * @param size Number of timestamps.
+	 * @return Encoded timestamps.
+	 */
+	private static long[] encodeTimestamps(long[] timestamps, int size) {
+		BitWriter out = new BitWriter();
+		out.write(timestamps[0], 64);
+		long delta = 0L;
+		for (int i = 1; i < size; i++) {
+			long deltaNew = timestamps[i] - timestamps[i - 1];
+			long deltaOfDelta = deltaNew - delta;
+			delta = deltaNew;
+			if (deltaOfDelta == 0L) {
+				out.write(0L, 1);
+			} else if (isInRange(deltaOfDelta, 7)) {
+				out.write(2L, 2);
+				out.write(deltaOfDelta, 7);
+			} else if (isInRange(deltaOfDelta, 9)) {
+				out.write(6L, 3);
+				out.write(deltaOfDelta, 9);
+			} else if (isInRange(deltaOfDelta, 12)) {
+				out.write(14L, 4);
+				out.write(deltaOfDelta, 12);
+			} else {
+				out.write(15L, 4);
+				out.write(deltaOfDelta, 64);
+			}
+		}
+		return out.toArray();
+	}
+
+	/**
+	 * Decodes timestamps that have been encoded by
+	 * {@link #encodeTimestamps(long[], int)}.
+	 * @param encoded Encoded timestamps.
+	 * @param timestamps Array that will store the timestamps.
+	 */
+	private static void decodeTimestamps(long[] encoded, long[] timestamps) {
+		BitReader in = new BitReader(encoded);
+		timestamps[0] = in.read(64);
+		long delta = 0L;
+		for (int i = 1; i < timestamps.length; i++) {
+			if (in.read(1) != 0L) {
+				if (in.read(1) == 0L) {
+					delta += in.readSigned(7);
+				} else if (in.read(1) == 0L) {
+					delta += in.readSigned(9);
+				} else if (in.read(1) == 0L) {
+					delta += in.readSigned(12);
+				} else {
+					delta += in.read(64);
+				}
+			}
+			timestamps[i] = timestamps[i - 1] + delta;
+		}
+	}
+
+	/**
+	 * Encodes values as the bitwise XOR with the previous value. Only the
+	 * bits between the leading and the trailing zeros of the XOR are stored.
+	 * If they fit into the range of the previous XOR, the range is reused.
+	 * @param values Values.
+	 * @param size Number of values.
+	 * @return Encoded values.
+	 */
+	private static long[] encodeValues(double[] values, int size) {
+		BitWriter out = new BitWriter();
+		long bits = Double.doubleToRawLongBits(values[0]);
+		out.write(bits, 64);
+		int leading = -1;
+		int trailing = 0;
+		for (int i = 1; i < size; i++) {
+			long bitsNew = Double.doubleToRawLongBits(values[i]);
+			long xor = bitsNew ^ bits;
+			bits = bitsNew;
+			if (xor == 0L) {
+				out.write(0L, 1);
+				continue;
+			}
+			int leadingNew = Math.min(Long.numberOfLeadingZeros(xor), 31);
+			int trailingNew = Long.numberOfTrailingZeros(xor);
+			if (leading >= 0 && leadingNew >= leading && trailingNew >= trailing) {
+				out.write(2L, 2);
+				out.write(xor >>> trailing, 64 - leading - trailing);
+			} else {
+				int length = 64 - leadingNew - trailingNew;
+				out.write(3L, 2);
+				out.write(leadingNew, 5);
+				out.write(length - 1, 6);
+				out.write(xor >>> trailingNew, length);
+				leading = leadingNew;
+				trailing = trailingNew;
+			}
+		}
+		return out.toArray();
+	}
+
+	/**
+	 * Decodes values that have been encoded by
+	 * {@link #encodeValues(double[], int)}.
+	 * @param encoded Encoded values.
+	 * @param values Array that will store the values.
+	 */
+	private static void decodeValues(long[] encoded, double[] values) {
+		BitReader in = new BitReader(encoded);
+		long bits = in.read(64);
+		values[0] = Double.longBitsToDouble(bits);
+		int leading = 0;
+		int trailing = 0;
+		for (int i = 1; i < values.length; i++) {
+			if (in.read(1) != 0L) {
+				if (in.read(1) != 0L) {
+					leading = (int) in.read(5);
+					int length = (int) in.read(6) + 1;
+					trailing = 64 - leading - length;
+				}
+				bits ^= in.read(64 - leading - trailing) << trailing;
+			}
+			values[i] = Double.longBitsToDouble(bits);
+		}
+	}
+
+	/**
+	 * Returns whether the specified value can be stored as two's complement
+	 * number with the specified number of bits.
+	 * @param value Value.
+	 * @param bits Number of bits.
+	 * @return {@code true} if the value fits, {@code false} otherwise.
+	 */
+	private static boolean isInRange(long value, int bits) {
+		long limit = 1L << (bits - 1);
+		return value >= -limit && value < limit;
+	}
+}
@@ -24,8 +24,17 @@ package de.erichseifert.gral.data;
 import java.util.EventObject;
 
 /**
- * Class that stores information on a change of a specific data value in a
- * data source.
+ * <p>Class that stores information on a change of a specific data value in a
+ * data source.</p>
+ * <p>For changes of many values, e.g. if a block of rows has been added or a
+ * table has been cleared, a single event can describe a rectangular range of
+ * cells instead. Range events don't contain the old and new values of the
+ * cells: Values that have been added or updated can be read from the data
+ * source, values that have been removed are not available anymore.</p>
+ * <p>If the rows of a range have only been reordered, e.g. by sorting, the
+ * range event is marked as permutation. The values of the range haven't
+ * changed, so results that don't depend on the order of the values, like
+ * statistics, stay valid.</p>
  * @see DataListener
  * @see DataSource
  */
@@ -41,6 +50,14 @@ public class DataChangeEvent extends EventObject {
 	private final Comparable<?> valOld;
 	/** Changed value. */
 	private final Comparable<?> valNew;
+	/** Number of columns that have changed. */
+	private final int colCount;
+	/** Number of rows that have changed. */
+	private final int rowCount;
+	/** Decides whether the event describes a range of cells. */
+	private final boolean range;
+	/** Decides whether the rows of the range have only been reordered. */
+	private final boolean permutation;
 
 	/**
 	 * Initializes a new event with data source, position of the data value,
@@ -59,6 +76,49 @@ public class DataChangeEvent extends EventObject {
 		this.row = row;
 		this.valOld = valOld;
 		this.valNew = valNew;
+		colCount = 1;
+		rowCount = 1;
+		range = false;
+		permutation = false;
+	}
+
+	/**
+	 * Initializes a new event with data source and a range of data values.
+	 * The range starts at the specified cell and spans the specified number
+	 * of columns and rows.
+	 * @param source Data source.
+	 * @param col First column of the range.
+	 * @param row First row of the range.
+	 * @param colCount Number of columns in the range.
+	 * @param rowCount Number of rows in the range.
+	 */
+	public DataChangeEvent(DataSource source, int col, int row,
+			int colCount, int rowCount) {
+		this(source, col, row, colCount, rowCount, false);
+	}
+
+	/**
+	 * Initializes a new event with data source and a range of data values
+	 * whose rows have possibly only been reordered.
+	 * @param source Data source.
+	 * @param col First column of the range.
+	 * @param row First row of the range.
+	 * @param colCount Number of columns in the range.
+	 * @param rowCount Number of rows in the range.
+	 * @param permutation {@code true} if the rows of the range have only
+	 *        been reordered, {@code false} otherwise.
+	 */
+	public DataChangeEvent(DataSource source, int col, int row,
+			int colCount, int rowCount, boolean permutation) {
+		super(source);
+		this.col = col;
+		this.row = row;
+		this.colCount = colCount;
+		this.rowCount = rowCount;
+		valOld = null;
+		valNew = null;
+		range = true;
+		this.permutation = permutation;
 	}
 
 	/**
@@ -77,8 +137,56 @@ public class DataChangeEvent extends EventObject {
 		return row;
 	}
 
+	/**
+	 * Returns the number of columns that have changed. For events describing
+	 * a single value this is always {@code 1}.
+	 * @return Number of columns.
+	 */
+	public int getColCount() {
+		return colCount;
+	}
+
+	/**
+	 * Returns the number of rows that have changed. For events describing
+	 * a single value this is always {@code 1}.
+	 * @return Number of rows.
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Returns whether this event describes a range of cells. In this case
+	 * the old and new values are not available.
+	 * @return {@code true} if the event describes a range of cells,
+	 *         {@code false} if it describes a single value.
+	 */
+	public boolean isRange() {
+		return range;
+	}
+
+	/**
+	 * Returns whether the rows of the range have only been reordered, so the
+	 * range still contains the same values.
+	 * @return {@code true} if the event describes a permutation of rows,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isPermutation() {
+		return permutation;
+	}
+
+	/**
+	 * Returns whether the specified column lies within the changed cells.
+	 * @param column Column index.
+	 * @return {@code true} if the column has changed, {@code false} otherwise.
+	 */
+	public boolean containsCol(int column) {
+		return column >= col && column < col + colCount;
+	}
+
 	/**
 	 * Returns the old value before it has changed.
+	 * Range events always return {@code null}.
 	 * @return Value before the change.
 	 */
 	public Comparable<?> getOld() {
@@ -87,6 +195,7 @@ public class DataChangeEvent extends EventObject {
 
 	/**
 	 * Returns the new value after the change has been applied.
+	 * Range events always return {@code null}.
 	 * @return Value after the change.
 	 */
 	public Comparable<?> getNew() {
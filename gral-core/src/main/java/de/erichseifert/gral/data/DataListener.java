@@ -23,6 +23,10 @@ package de.erichseifert.gral.data;
 
 /**
  * Interface that can be implemented to listen for changes in data sources.
+ * Events either describe single values or ranges of cells, e.g. if many rows
+ * have been added at once or if a table has been cleared. Listeners that
+ * rely on the values of the changed cells must check
+ * {@link DataChangeEvent#isRange()}.
  * @see DataSource
  */
 public interface DataListener {
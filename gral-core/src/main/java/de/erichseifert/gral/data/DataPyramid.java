@@ -0,0 +1,469 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Data series of two columns that maintains aggregates of the values at
+ * several resolutions. The rows are grouped into buckets of consecutive
+ * rows, and the minimum, the maximum, the mean, and the number of values
+ * are stored for each bucket. Each level of the pyramid contains buckets
+ * that are twice as large as the buckets of the level below.</p>
+ *
+ * <p>Plots can use {@link #getData(double, double, double)} to draw only
+ * as many buckets as there are pixels instead of all rows. The values of
+ * the x column are expected to be sorted in ascending order. The
+ * aggregates are updated incrementally when the original data source
+ * changes: appending rows only updates the last bucket of each level.</p>
+ *
+ * <p>Example for drawing a long time series:</p>
+ * <pre>
+ * DataSource data = new DataPyramid(telemetry, 0, 1);
+ * XYPlot plot = new XYPlot(data);
+ * </pre>
+ */
+public class DataPyramid extends DataSeries {
+	/** Version id for serialization. */
+	private static final long serialVersionUID = -2519316384702914532L;
+
+	/** Column of the aggregates that contains the mean of the x values. */
+	public static final int COL_X = 0;
+	/** Column of the aggregates that contains the mean of the y values. */
+	public static final int COL_MEAN = 1;
+	/** Column of the aggregates that contains the minimum of the y values. */
+	public static final int COL_MIN = 2;
+	/** Column of the aggregates that contains the maximum of the y values. */
+	public static final int COL_MAX = 3;
+	/** Column of the aggregates that contains the number of values. */
+	public static final int COL_COUNT = 4;
+
+	/** Binary logarithm of the number of rows in the buckets of the first
+	level. */
+	private static final int FIRST_LEVEL = 4;
+	/** Number of rows that are read at once from the data source. */
+	private static final int BUFFER_SIZE = 1024;
+
+	/** Levels of the pyramid, starting with the smallest buckets, or
+	{@code null} if the pyramid hasn't been built yet. */
+	private transient List<Level> levels;
+
+	/**
+	 * Buckets of a single resolution. The aggregates are stored in
+	 * primitive arrays which are indexed by bucket.
+	 */
+	private static final class Level {
+		/** Binary logarithm of the number of rows per bucket. */
+		private final int shift;
+		/** Number of buckets. */
+		private int size;
+		/** Smallest x value of each bucket. */
+		private double[] minX;
+		/** Largest x value of each bucket. */
+		private double[] maxX;
+		/** Sum of the x values of each bucket. */
+		private double[] sumX;
+		/** Smallest y value of each bucket. */
+		private double[] minY;
+		/** Largest y value of each bucket. */
+		private double[] maxY;
+		/** Sum of the y values of each bucket. */
+		private double[] sumY;
+		/** Number of values of each bucket. */
+		private int[] count;
+
+		/**
+		 * Initializes a new empty level.
+		 * @param shift Binary logarithm of the number of rows per bucket.
+		 */
+		public Level(int shift) {
+			this.shift = shift;
+			minX = new double[0];
+			maxX = new double[0];
+			sumX = new double[0];
+			minY = new double[0];
+			maxY = new double[0];
+			sumY = new double[0];
+			count = new int[0];
+		}
+
+		/**
+		 * Changes the number of buckets. The storage is enlarged if necessary.
+		 * @param size New number of buckets.
+		 */
+		public void setSize(int size) {
+			if (size > count.length) {
+				int capacity = Math.max(size, count.length*3/2 + 1);
+				minX = Arrays.copyOf(minX, capacity);
+				maxX = Arrays.copyOf(maxX, capacity);
+				sumX = Arrays.copyOf(sumX, capacity);
+				minY = Arrays.copyOf(minY, capacity);
+				maxY = Arrays.copyOf(maxY, capacity);
+				sumY = Arrays.copyOf(sumY, capacity);
+				count = Arrays.copyOf(count, capacity);
+			}
+			this.size = size;
+		}
+
+		/**
+		 * Removes all values from the specified bucket. The x range of an
+		 * empty bucket is set to the largest x value of the preceding bucket
+		 * to keep the buckets sorted.
+		 * @param i Bucket index.
+		 */
+		public void clear(int i) {
+			double x = (i > 0) ? maxX[i - 1] : Double.NEGATIVE_INFINITY;
+			minX[i] = x;
+			maxX[i] = x;
+			sumX[i] = 0.0;
+			minY[i] = Double.POSITIVE_INFINITY;
+			maxY[i] = Double.NEGATIVE_INFINITY;
+			sumY[i] = 0.0;
+			count[i] = 0;
+		}
+
+		/**
+		 * Adds a pair of values to the specified bucket.
+		 * @param i Bucket index.
+		 * @param x X value.
+		 * @param y Y value.
+		 */
+		public void add(int i, double x, double y) {
+			if (count[i] == 0) {
+				minX[i] = x;
+				maxX[i] = x;
+			} else {
+				minX[i] = Math.min(minX[i], x);
+				maxX[i] = Math.max(maxX[i], x);
+			}
+			sumX[i] += x;
+			minY[i] = Math.min(minY[i], y);
+			maxY[i] = Math.max(maxY[i], y);
+			sumY[i] += y;
+			count[i]++;
+		}
+
+		/**
+		 * Adds the aggregates of a bucket of another level to the specified
+		 * bucket.
+		 * @param i Bucket index.
+		 * @param level Other level.
+		 * @param j Index of the bucket in the other level.
+		 */
+		public void merge(int i, Level level, int j) {
+			if (level.count[j] == 0) {
+				return;
+			}
+			if (count[i] == 0) {
+				minX[i] = level.minX[j];
+				maxX[i] = level.maxX[j];
+			} else {
+				minX[i] = Math.min(minX[i], level.minX[j]);
+				maxX[i] = Math.max(maxX[i], level.maxX[j]);
+			}
+			sumX[i] += level.sumX[j];
+			minY[i] = Math.min(minY[i], level.minY[j]);
+			maxY[i] = Math.max(maxY[i], level.maxY[j]);
+			sumY[i] += level.sumY[j];
+			count[i] += level.count[j];
+		}
+
+		/**
+		 * Returns the index of the first bucket whose values are not smaller
+		 * than the specified value.
+		 * @param x X value.
+		 * @return Bucket index.
+		 */
+		public int getLowerBound(double x) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (maxX[mid] < x) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Returns the index of the first bucket whose values are all larger
+		 * than the specified value.
+		 * @param x X value.
+		 * @return Bucket index.
+		 */
+		public int getUpperBound(double x) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (minX[mid] <= x) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * Initializes a new pyramid for the specified columns of a data source.
+	 * @param data Data source.
+	 * @param colX Index of the column containing the sorted x values.
+	 * @param colY Index of the column containing the y values.
+	 */
+	public DataPyramid(DataSource data, int colX, int colY) {
+		this(null, data, colX, colY);
+	}
+
+	/**
+	 * Initializes a new named pyramid for the specified columns of a data
+	 * source.
+	 * @param name Descriptive name.
+	 * @param data Data source.
+	 * @param colX Index of the column containing the sorted x values.
+	 * @param colY Index of the column containing the y values.
+	 */
+	public DataPyramid(String name, DataSource data, int colX, int colY) {
+		super(name, data, colX, colY);
+	}
+
+	/**
+	 * Returns the number of levels of the pyramid. The buckets of the first
+	 * level contain {@code 16} rows, and the last level contains a single
+	 * bucket.
+	 * @return Number of levels.
+	 */
+	public synchronized int getLevelCount() {
+		return getLevels().size();
+	}
+
+	/**
+	 * Returns the number of rows that are aggregated in a single bucket of
+	 * the specified level.
+	 * @param level Index of the level.
+	 * @return Number of rows per bucket.
+	 */
+	public int getBucketSize(int level) {
+		return 1 << (FIRST_LEVEL + level);
+	}
+
+	/**
+	 * Returns the aggregates of all non-empty buckets of the specified level
+	 * in the specified range of x values. Additionally, the buckets next to
+	 * the range are returned to allow continuing lines. The returned table
+	 * contains a row for each bucket with the following columns: mean of the
+	 * x values ({@link #COL_X}), mean ({@link #COL_MEAN}), minimum
+	 * ({@link #COL_MIN}), and maximum ({@link #COL_MAX}) of the y values,
+	 * and the number of values ({@link #COL_COUNT}).
+	 * @param level Index of the level.
+	 * @param minX Smallest visible x value.
+	 * @param maxX Largest visible x value.
+	 * @return Data table containing the aggregates.
+	 */
+	public synchronized DataSource getLevel(int level, double minX, double maxX) {
+		Level buckets = getLevels().get(level);
+		int first = Math.max(buckets.getLowerBound(minX) - 1, 0);
+		int last = Math.min(buckets.getUpperBound(maxX) + 1, buckets.size);
+		DoubleColumnTable table = new DoubleColumnTable(5);
+		table.setName(getName());
+		for (int i = first; i < last; i++) {
+			int count = buckets.count[i];
+			if (count == 0) {
+				continue;
+			}
+			table.add(buckets.sumX[i]/count, buckets.sumY[i]/count,
+				buckets.minY[i], buckets.maxY[i], (double) count);
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the data that should be drawn for the specified range of x
+	 * values with the specified number of pixels. The coarsest level that
+	 * still contains at least one bucket per pixel is chosen. If the
+	 * range contains less rows, an immutable view of the original rows is
+	 * returned.
+	 * @param minX Smallest visible x value.
+	 * @param maxX Largest visible x value.
+	 * @param pixels Number of pixels available for the range.
+	 * @return Data that should be drawn: either a snapshot of the rows, or
+	 *         the aggregates as returned by {@link #getLevel(int, double, double)}.
+	 */
+	public synchronized DataSource getData(double minX, double maxX, double pixels) {
+		List<Level> levels = getLevels();
+		if (levels.isEmpty() || !(pixels > 0.0)) {
+			return snapshot();
+		}
+		Level first = levels.get(0);
+		double bucketCount = first.getUpperBound(maxX) - first.getLowerBound(minX);
+		int level = -1;
+		while (level + 1 < levels.size() && bucketCount >= pixels) {
+			level++;
+			bucketCount /= 2.0;
+		}
+		if (level < 0) {
+			return snapshot();
+		}
+		return getLevel(level, minX, maxX);
+	}
+
+	/**
+	 * Returns the levels of the pyramid. The levels are built from the
+	 * original data if they don't exist yet.
+	 * @return Levels of the pyramid.
+	 */
+	private List<Level> getLevels() {
+		if (levels == null) {
+			levels = new ArrayList<Level>();
+			update(0, getRowCount());
+		}
+		return levels;
+	}
+
+	/**
+	 * Calculates the aggregates of all buckets that contain the specified
+	 * rows. Levels are added or removed if the number of rows has changed.
+	 * @param fromRow Index of the first row that has changed.
+	 * @param toRow Index of the row after the last row that has changed.
+	 */
+	private void update(int fromRow, int toRow) {
+		int rowCount = getRowCount();
+		toRow = Math.min(toRow, rowCount);
+
+		// Calculate the buckets of the first level from the original rows
+		int size = (rowCount + (1 << FIRST_LEVEL) - 1) >> FIRST_LEVEL;
+		if (size == 0) {
+			levels.clear();
+			return;
+		}
+		if (levels.isEmpty()) {
+			levels.add(new Level(FIRST_LEVEL));
+		}
+		Level level = levels.get(0);
+		level.setSize(size);
+		int from = fromRow >> FIRST_LEVEL;
+		int to = (toRow + (1 << FIRST_LEVEL) - 1) >> FIRST_LEVEL;
+		if (from < to) {
+			int rowFirst = from << FIRST_LEVEL;
+			int rowLast = Math.min(to << FIRST_LEVEL, rowCount);
+			double[] bufferX = new double[Math.min(BUFFER_SIZE, rowLast - rowFirst)];
+			double[] bufferY = new double[bufferX.length];
+			for (int i = from; i < to; i++) {
+				level.clear(i);
+			}
+			for (int row = rowFirst; row < rowLast; row += bufferX.length) {
+				int rowEnd = Math.min(row + bufferX.length, rowLast);
+				getDoubles(0, row, rowEnd, bufferX);
+				getDoubles(1, row, rowEnd, bufferY);
+				for (int r = row; r < rowEnd; r++) {
+					double x = bufferX[r - row];
+					double y = bufferY[r - row];
+					if (Double.isNaN(x) || Double.isNaN(y)) {
+						continue;
+					}
+					level.add(r >> FIRST_LEVEL, x, y);
+				}
+			}
+			for (int i = from; i < to; i++) {
+				if (level.count[i] == 0) {
+					level.clear(i);
+				}
+			}
+		}
+
+		// Merge pairs of buckets for the following levels
+		int levelIndex = 1;
+		while (size > 1) {
+			Level lower = level;
+			size = (size + 1) >> 1;
+			from >>= 1;
+			to = (to + 1) >> 1;
+			if (levelIndex == levels.size()) {
+				levels.add(new Level(FIRST_LEVEL + levelIndex));
+				from = 0;
+				to = size;
+			}
+			level = levels.get(levelIndex++);
+			level.setSize(size);
+			for (int i = from; i < to; i++) {
+				level.clear(i);
+				level.merge(i, lower, 2*i);
+				if (2*i + 1 < lower.size) {
+					level.merge(i, lower, 2*i + 1);
+				}
+			}
+		}
+		while (levels.size() > levelIndex) {
+			levels.remove(levels.size() - 1);
+		}
+	}
+
+	/**
+	 * Updates the aggregates of the rows that have been changed as
+	 * described by the specified events. All aggregates are calculated again
+	 * if no events are specified.
+	 * @param events Event objects describing the changed rows.
+	 * @param structural {@code true} if rows have been added or removed.
+	 */
+	private synchronized void update(DataChangeEvent[] events, boolean structural) {
+		if (levels == null) {
+			return;
+		}
+		int fromRow = Integer.MAX_VALUE;
+		int toRow = 0;
+		for (DataChangeEvent event : events) {
+			fromRow = Math.min(fromRow, event.getRow());
+			toRow = Math.max(toRow, event.getRow() + event.getRowCount());
+		}
+		if (events.length == 0) {
+			fromRow = 0;
+		}
+		if (events.length == 0 || structural) {
+			toRow = Integer.MAX_VALUE;
+		}
+		update(Math.max(fromRow, 0), toRow);
+	}
+
+	@Override
+	public void dataAdded(DataSource source, DataChangeEvent... events) {
+		update(events, true);
+		super.dataAdded(source, events);
+	}
+
+	@Override
+	public void dataUpdated(DataSource source, DataChangeEvent... events) {
+		update(events, false);
+		super.dataUpdated(source, events);
+	}
+
+	@Override
+	public void dataRemoved(DataSource source, DataChangeEvent... events) {
+		update(events, true);
+		super.dataRemoved(source, events);
+	}
+}
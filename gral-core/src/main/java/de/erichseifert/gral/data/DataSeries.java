@@ -24,6 +24,7 @@ package de.erichseifert.gral.data;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -102,6 +103,36 @@ public class DataSeries extends AbstractDataSource implements DataListener {
 		}
 	}
 
+	@Override
+	public double getDouble(int col, int row) {
+		if (col < 0 || col >= cols.size()) {
+			return Double.NaN;
+		}
+		return data.getDouble(cols.get(col), row);
+	}
+
+	/**
+	 * Copies the values of a range of rows in the specified column to an
+	 * array of primitive {@code double} values. Like
+	 * {@link #getDouble(int, int)}, the values of a column that doesn't
+	 * exist in this series are stored as {@code NaN}.
+	 * @param col index of the column to read
+	 * @param fromRow index of the first row to read (inclusive)
+	 * @param toRow index of the last row to read (exclusive)
+	 * @param dest Optional array as data sink. If array is {@code null} a new
+	 *        array will be created.
+	 * @return Array containing the values starting at index 0.
+	 */
+	@Override
+	public double[] getDoubles(int col, int fromRow, int toRow, double[] dest) {
+		if (col < 0 || col >= cols.size()) {
+			dest = createDoubleArray(fromRow, toRow, dest);
+			Arrays.fill(dest, 0, toRow - fromRow, Double.NaN);
+			return dest;
+		}
+		return data.getDoubles(cols.get(col), fromRow, toRow, dest);
+	}
+
 	@Override
 	public int getColumnCount() {
 		return cols.size();
@@ -115,6 +146,35 @@ public class DataSeries extends AbstractDataSource implements DataListener {
 		return data.getRowCount();
 	}
 
+	/**
+	 * Returns the version of the original data source, as the series only
+	 * changes with its data.
+	 * @return Version of the current data.
+	 */
+	@Override
+	public long getVersion() {
+		return data.getVersion();
+	}
+
+	/**
+	 * Creates an immutable view of the current data from the snapshot of the
+	 * original data source, so no values are copied. If the original data
+	 * source creates a {@code DataSnapshot}, its records are shared.
+	 * @return Immutable view of the current data.
+	 */
+	@Override
+	protected DataSource createSnapshot() {
+		DataSource snapshot = data.snapshot();
+		int[] columns = new int[cols.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = cols.get(i);
+		}
+		if (snapshot instanceof DataSnapshot) {
+			return ((DataSnapshot) snapshot).select(getName(), columns);
+		}
+		return new DataSeries(getName(), snapshot, columns);
+	}
+
 	/**
 	 * Method that is invoked when data has been added.
 	 * This method is invoked by objects that provide support for
@@ -0,0 +1,401 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.text.MessageFormat;
+
+/**
+ * <p>Immutable view of the data of another data source at a certain
+ * version. Snapshots are created using {@link DataSource#snapshot()} and can
+ * be read while the original data source is being changed, e.g. to render
+ * consistent data.</p>
+ *
+ * <p>The records of a snapshot may be shared with the original data source.
+ * Each column of a snapshot refers to a column of the shared records.</p>
+ *
+ * <p>Columns with values in ascending order are detected and can be used
+ * to find the rows within a range of values by binary search. The check is
+ * done once for each snapshot; snapshots which only contain additional rows
+ * compared to an earlier snapshot just check the additional rows.</p>
+ *
+ * @see DataSource#snapshot()
+ */
+public class DataSnapshot extends AbstractDataSource {
+	/** Version id for serialization. */
+	private static final long serialVersionUID = -2046519452434851703L;
+
+	/** Records containing the values. */
+	private final Record[] records;
+	/** Number of rows. */
+	private final int rowCount;
+	/** Index of the record value for each column, or {@code null}. */
+	private final int[] cols;
+	/** Version of the original data. */
+	private final long version;
+	/**
+	 * Number of leading rows that have been checked for ascending order for
+	 * each value of the records.
+	 */
+	private final int[] checkedRows;
+	/** Whether values that are not in ascending order have been found. */
+	private final boolean[] unsorted;
+
+	/**
+	 * Serialized form of a snapshot. Only the rows and columns that belong to
+	 * the snapshot are written, column by column as blocks of primitive
+	 * values.
+	 */
+	private static final class SerializedSnapshot implements Serializable {
+		/** Version id for serialization. */
+		private static final long serialVersionUID = 6340752941726254711L;
+
+		/** Name of the data. */
+		private final String name;
+		/** Types of the columns. */
+		private final Class<? extends Comparable<?>>[] types;
+		/** Version of the original data. */
+		private final long version;
+		/** Snapshot to be written. Only valid during serialization. */
+		private transient DataSnapshot snapshot;
+		/** Records that have been read. Only valid after deserialization. */
+		private transient Record[] records;
+
+		/**
+		 * Initializes the serialized form of the specified snapshot.
+		 * @param snapshot Snapshot.
+		 */
+		public SerializedSnapshot(DataSnapshot snapshot) {
+			this.snapshot = snapshot;
+			name = snapshot.getName();
+			types = snapshot.getColumnTypes();
+			version = snapshot.version;
+		}
+
+		/**
+		 * Custom serialization method.
+		 * @param out Output stream.
+		 * @throws IOException if there is an error while writing data to the
+		 *         output stream.
+		 */
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			out.defaultWriteObject();
+			ColumnCodec.writeRecords(out, types, snapshot.records,
+				snapshot.rowCount, snapshot.cols);
+		}
+
+		/**
+		 * Custom deserialization method.
+		 * @param in Input stream.
+		 * @throws ClassNotFoundException if a serialized class doesn't exist anymore.
+		 * @throws IOException if there is an error while reading data from the
+		 *         input stream.
+		 */
+		private void readObject(ObjectInputStream in)
+				throws ClassNotFoundException, IOException {
+			in.defaultReadObject();
+			records = ColumnCodec.readRecords(in, types);
+		}
+
+		/**
+		 * Creates the snapshot after deserialization.
+		 * @return Snapshot.
+		 */
+		private Object readResolve() {
+			return new DataSnapshot(name, types, records, records.length,
+				null, version);
+		}
+	}
+
+	/**
+	 * Initializes a new instance with the specified records.
+	 * @param name Name of the data.
+	 * @param types Types of the columns.
+	 * @param records Records that will not be changed anymore.
+	 * @param rowCount Number of records that belong to the snapshot.
+	 * @param cols Index of the record value for each column, or
+	 *        {@code null} if all values of the records are used.
+	 * @param version Version of the original data.
+	 */
+	DataSnapshot(String name, Class<? extends Comparable<?>>[] types,
+			Record[] records, int rowCount, int[] cols, long version) {
+		this(name, types, records, rowCount, cols, version,
+			new int[types.length], new boolean[types.length]);
+	}
+
+	/**
+	 * Initializes a new instance which shares the records and the order of
+	 * the values.
+	 * @param name Name of the data.
+	 * @param types Types of the columns.
+	 * @param records Records that will not be changed anymore.
+	 * @param rowCount Number of records that belong to the snapshot.
+	 * @param cols Index of the record value for each column, or
+	 *        {@code null} if all values of the records are used.
+	 * @param version Version of the original data.
+	 * @param checkedRows Number of rows that have been checked for
+	 *        ascending order for each value of the records.
+	 * @param unsorted Whether values that are not in ascending order have
+	 *        been found for each value of the records.
+	 */
+	private DataSnapshot(String name, Class<? extends Comparable<?>>[] types,
+			Record[] records, int rowCount, int[] cols, long version,
+			int[] checkedRows, boolean[] unsorted) {
+		super(name, types);
+		this.records = records;
+		this.rowCount = rowCount;
+		this.cols = cols;
+		this.version = version;
+		this.checkedRows = checkedRows;
+		this.unsorted = unsorted;
+	}
+
+	/**
+	 * Returns the value with the specified row and column index.
+	 * @param col index of the column to return
+	 * @param row index of the row to return
+	 * @return the specified value of the data cell
+	 */
+	public Comparable<?> get(int col, int row) {
+		if (row >= rowCount) {
+			return null;
+		}
+		return records[row].get(getIndex(col));
+	}
+
+	@Override
+	public double[] getDoubles(int col, int fromRow, int toRow, double[] dest) {
+		dest = createDoubleArray(fromRow, toRow, dest);
+		if (fromRow < 0 || toRow > rowCount) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Row range from {0,number,integer} to {1,number,integer} does not exist.", //$NON-NLS-1$
+				fromRow, toRow));
+		}
+		int index = getIndex(col);
+		for (int row = fromRow; row < toRow; row++) {
+			dest[row - fromRow] = getDouble(records[row], index);
+		}
+		return dest;
+	}
+
+	/**
+	 * Returns the number of rows of the data source.
+	 * @return number of rows in the data source.
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Returns the version of the original data this snapshot has been
+	 * created from.
+	 * @return Version of the original data.
+	 */
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns this instance as it is already immutable.
+	 * @return This snapshot.
+	 */
+	@Override
+	public DataSnapshot snapshot() {
+		return this;
+	}
+
+	/**
+	 * Creates a snapshot which contains only the specified columns of this
+	 * snapshot. The records are shared with this snapshot.
+	 * @param name Name of the new snapshot.
+	 * @param columns Indexes of the columns in this snapshot.
+	 * @return A snapshot containing the specified columns.
+	 */
+	@SuppressWarnings("unchecked")
+	DataSnapshot select(String name, int... columns) {
+		Class<? extends Comparable<?>>[] typesOrig = getColumnTypes();
+		Class<? extends Comparable<?>>[] types = new Class[columns.length];
+		int[] colsSelected = new int[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			types[i] = typesOrig[columns[i]];
+			colsSelected[i] = cols != null ? cols[columns[i]] : columns[i];
+		}
+		return new DataSnapshot(name, types, records, rowCount, colsSelected,
+			version, checkedRows, unsorted);
+	}
+
+	/**
+	 * Creates a snapshot which contains only the specified rows of this
+	 * snapshot. The records are shared with this snapshot.
+	 * @param name Name of the new snapshot.
+	 * @param rows Indexes of the rows in this snapshot.
+	 * @param count Number of rows.
+	 * @param version Version of the data the rows have been selected from.
+	 * @return A snapshot containing the specified rows.
+	 */
+	DataSnapshot selectRows(String name, int[] rows, int count, long version) {
+		Record[] recordsSelected = new Record[count];
+		for (int i = 0; i < count; i++) {
+			recordsSelected[i] = records[rows[i]];
+		}
+		// The order of the values has to be checked again for the new rows
+		return new DataSnapshot(name, getColumnTypes(), recordsSelected, count,
+			cols, version, new int[checkedRows.length], new boolean[unsorted.length]);
+	}
+
+	/**
+	 * Takes over the order of values that has been determined for an
+	 * earlier snapshot. This is only possible if the earlier snapshot
+	 * shares the records and the rows of this snapshot have only been
+	 * appended to the rows of the earlier snapshot.
+	 * @param previous Earlier snapshot of the same data.
+	 */
+	void inheritOrder(DataSnapshot previous) {
+		if (previous.records != records || previous.rowCount > rowCount
+				|| cols != null || previous.cols != null) {
+			return;
+		}
+		synchronized (previous.checkedRows) {
+			System.arraycopy(previous.checkedRows, 0, checkedRows, 0, checkedRows.length);
+			System.arraycopy(previous.unsorted, 0, unsorted, 0, unsorted.length);
+		}
+	}
+
+	/**
+	 * Returns whether the values of the specified column are numbers in
+	 * ascending order. Empty cells and {@code NaN} values are considered
+	 * unsorted.
+	 * @param col Index of the column.
+	 * @return {@code true} if the values are in ascending order.
+	 */
+	public boolean isColumnSorted(int col) {
+		int index = getIndex(col);
+		synchronized (checkedRows) {
+			int row = checkedRows[index];
+			if (!unsorted[index] && row < rowCount) {
+				double valuePrev = (row > 0)
+					? getDouble(records[row - 1], index) : Double.NEGATIVE_INFINITY;
+				for (; row < rowCount; row++) {
+					double value = getDouble(records[row], index);
+					if (!(value >= valuePrev)) {
+						unsorted[index] = true;
+						break;
+					}
+					valuePrev = value;
+				}
+				checkedRows[index] = rowCount;
+			}
+			return !unsorted[index];
+		}
+	}
+
+	/**
+	 * Returns the index of the first row with a value that is greater than
+	 * or equal to the specified value. The values of the column must be
+	 * sorted in ascending order.
+	 * @param col Index of a sorted column.
+	 * @param value Value to search for.
+	 * @return Index of the first row that isn't less than {@code value}, or
+	 *         the number of rows if there is no such row.
+	 * @see #isColumnSorted(int)
+	 */
+	public int getLowerBound(int col, double value) {
+		return search(col, value, false);
+	}
+
+	/**
+	 * Returns the index of the first row with a value that is greater than
+	 * the specified value. The values of the column must be sorted in
+	 * ascending order.
+	 * @param col Index of a sorted column.
+	 * @param value Value to search for.
+	 * @return Index of the first row that is greater than {@code value}, or
+	 *         the number of rows if there is no such row.
+	 * @see #isColumnSorted(int)
+	 */
+	public int getUpperBound(int col, double value) {
+		return search(col, value, true);
+	}
+
+	/**
+	 * Finds the first row of a sorted column with a value that is greater
+	 * than, or greater than or equal to the specified value.
+	 * @param col Index of a sorted column.
+	 * @param value Value to search for.
+	 * @param exclusive {@code true} if equal values should be skipped.
+	 * @return Index of the first row found, or the number of rows.
+	 */
+	private int search(int col, double value, boolean exclusive) {
+		if (!isColumnSorted(col)) {
+			throw new IllegalStateException(MessageFormat.format(
+				"Column {0,number,integer} is not sorted.", col)); //$NON-NLS-1$
+		}
+		int index = getIndex(col);
+		int low = 0;
+		int high = rowCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			double valueMid = getDouble(records[mid], index);
+			if (valueMid < value || (exclusive && valueMid == value)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Replaces the snapshot by its compact serialized form.
+	 * @return Serialized form of the snapshot.
+	 */
+	private Object writeReplace() {
+		return new SerializedSnapshot(this);
+	}
+
+	/**
+	 * Returns the index of the record value for the specified column.
+	 * @param col Index of the column.
+	 * @return Index of the record value.
+	 */
+	private int getIndex(int col) {
+		return cols != null ? cols[col] : col;
+	}
+
+	/**
+	 * Returns a value of a record as a primitive {@code double}.
+	 * @param record Record.
+	 * @param index Index of the value.
+	 * @return The numeric value, or {@code NaN}.
+	 */
+	private static double getDouble(Record record, int index) {
+		Comparable<?> value = record.get(index);
+		if (!(value instanceof Number)) {
+			return Double.NaN;
+		}
+		return ((Number) value).doubleValue();
+	}
+}
@@ -59,6 +59,29 @@ public interface DataSource extends Iterable<Comparable<?>> {
 	 */
 	Comparable<?> get(int col, int row);
 
+	/**
+	 * Returns the value with the specified row and column index as a primitive
+	 * {@code double}. Empty cells and cells that don't contain a number are
+	 * returned as {@code NaN}.
+	 * @param col index of the column to return
+	 * @param row index of the row to return
+	 * @return the numeric value of the data cell, or {@code NaN}
+	 */
+	double getDouble(int col, int row);
+
+	/**
+	 * Copies the values of a range of rows in the specified column to an
+	 * array of primitive {@code double} values. Empty cells and cells that
+	 * don't contain a number are stored as {@code NaN}.
+	 * @param col index of the column to read
+	 * @param fromRow index of the first row to read (inclusive)
+	 * @param toRow index of the last row to read (exclusive)
+	 * @param dest Optional array as data sink. If array is {@code null} a new
+	 *        array will be created.
+	 * @return Array containing the values starting at index 0.
+	 */
+	double[] getDoubles(int col, int fromRow, int toRow, double[] dest);
+
 	/**
 	 * Retrieves a object instance that contains various statistical
 	 * information on the current data source.
@@ -70,6 +93,26 @@ public interface DataSource extends Iterable<Comparable<?>> {
 
 	DataSource getRowStatistics(String key);
 
+	/**
+	 * Calculates several statistical values for several columns. Each
+	 * column is only read once, no matter how many values are requested,
+	 * and the results are kept until the data changes.
+	 * @param keys Requested information.
+	 * @param cols Indexes of the columns, or no indexes for all columns.
+	 * @return Array containing an array with the value of each column for
+	 *         each key.
+	 */
+	double[][] getColumnStatistics(String[] keys, int... cols);
+
+	/**
+	 * Calculates several statistical values for each row in a single pass
+	 * over the data. The results are kept until the data changes.
+	 * @param keys Requested information.
+	 * @return Array containing an array with the value of each row for
+	 *         each key.
+	 */
+	double[][] getRowStatistics(String[] keys);
+
 	/**
 	 * Returns the number of rows of the data source.
 	 * @return number of rows in the data source.
@@ -108,4 +151,20 @@ public interface DataSource extends Iterable<Comparable<?>> {
 	void removeDataListener(DataListener dataListener);
 
 	Record getRecord(int row);
+
+	/**
+	 * Returns a number that is increased whenever the data of this source
+	 * changes.
+	 * @return Version of the current data.
+	 */
+	long getVersion();
+
+	/**
+	 * Returns an immutable view of the current data. The view can be read
+	 * consistently while this data source is changed by other threads. Data
+	 * sources may share their data with the view instead of copying it.
+	 * @return Immutable view of the current data.
+	 * @see DataSnapshot
+	 */
+	DataSource snapshot();
 }
@@ -21,18 +21,32 @@
  */
 package de.erichseifert.gral.data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import de.erichseifert.gral.data.comparators.DataComparator;
 
 /**
- * An in-memory, random access implementation of a mutable data source using
- * arrays to store its values.
+ * <p>An in-memory, random access implementation of a mutable data source using
+ * arrays to store its values.</p>
+ *
+ * <p>The table can be safely used by one or more threads changing its data
+ * while other threads, e.g. for rendering, read values. Changes are
+ * serialized, but reading values never blocks: a new state of the rows is
+ * published after each change. Rows are appended to unused capacity of the
+ * current state, and changing a value replaces the record of its row, so
+ * readers never see a partially changed row. All other structural changes
+ * copy the rows before publishing them. Listeners are notified of the
+ * changes by one thread at a time.</p>
+ *
+ * <p>Only snapshots of the table are immutable. They share the rows with
+ * the table, and the rows will be copied if a value is changed after a
+ * snapshot has been taken.</p>
  *
  * @see DataSource
  * @see MutableDataSource
@@ -41,48 +55,45 @@ public class DataTable extends AbstractDataSource implements MutableDataSource {
 	/** Version id for serialization. */
 	private static final long serialVersionUID = 535236774042654449L;
 
-	/** All values stored as rows of column arrays. */
-	private final List<Record> rows;
+	/** Rows that are currently visible to readers. */
+	private transient volatile Rows rows;
+	/** Whether the records of the current rows are shared with a snapshot. */
+	private transient boolean shared;
+	/** Snapshot that has been created most recently. */
+	private transient DataSnapshot snapshot;
 
 	/**
-	 * Comparator class for comparing two records using a
-	 * specified set of {@code DataComparator}s.
+	 * State of the table rows. New rows may only be stored in the unused
+	 * capacity beyond {@code size}, which is never read using this instance.
+	 * Records may be replaced if a value is changed, unless the rows are
+	 * shared with a snapshot.
 	 */
-	private final class RecordComparator implements Comparator<Record> {
-		/** Rules to use for sorting. */
-		private final DataComparator[] comparators;
+	private static final class Rows {
+		/** Empty state. */
+		private static final Rows EMPTY = new Rows(new Record[0], 0, 0L);
 
-		/**
-		 * Initializes a new instance with a specified set of
-		 * {@code DataComparator}s.
-		 * @param comparators Set of {@code DataComparator}s to use as rules.
-		 */
-		public RecordComparator(DataComparator[] comparators) {
-			this.comparators = comparators;
-		}
+		/** Storage for records. */
+		private final Record[] records;
+		/** Number of valid records. */
+		private final int size;
+		/** Version of the table data. */
+		private final long version;
 
 		/**
-		 * Compares two records using the rules defined by the
-		 * {@code DataComparator}s of this instance.
-		 * @param record1 First record to compare.
-		 * @param record2 Second record to compare.
-	     * @return A negative number if first argument is less than the second,
-	     *         zero if first argument is equal to the second,
-	     *         or a positive integer as the greater than the second.
+		 * Initializes a new instance with the specified records.
+		 * @param records Storage for records.
+		 * @param size Number of valid records.
+		 * @param version Version of the table data.
 		 */
-		public int compare(Record record1, Record record2) {
-			for (DataComparator comparator : comparators) {
-				int result = comparator.compare(record1, record2);
-				if (result != 0) {
-					return result;
-				}
-			}
-			return 0;
+		public Rows(Record[] records, int size, long version) {
+			this.records = records;
+			this.size = size;
+			this.version = version;
 		}
 	}
 
 	public DataTable() {
-		rows = new ArrayList<Record>();
+		rows = Rows.EMPTY;
 	}
 
 	/**
@@ -92,7 +103,7 @@ public class DataTable extends AbstractDataSource implements MutableDataSource {
 	 */
 	public DataTable(Class<? extends Comparable<?>>... types) {
 		super(types);
-		rows = new ArrayList<Record>();
+		rows = Rows.EMPTY;
 	}
 
 	/**
@@ -123,7 +134,7 @@ public class DataTable extends AbstractDataSource implements MutableDataSource {
 
 	public DataTable(Column... columns) {
 		super(columns);
-		rows = new ArrayList<Record>();
+		rows = Rows.EMPTY;
 
 		int maxRowCount = 0;
 		for (Column column : columns) {
@@ -135,7 +146,7 @@ public class DataTable extends AbstractDataSource implements MutableDataSource {
 			for (Column column : columns) {
 				rowData.add(column.get(rowIndex));
 			}
-			rows.add(new Record(rowData));
+			append(new Record(rowData));
 		}
 	}
 
@@ -160,40 +171,16 @@ public class DataTable extends AbstractDataSource implements MutableDataSource {
 	 * @return Index of the row that has been added.
 	 */
 	public int add(List<? extends Comparable<?>> values) {
-		DataChangeEvent[] events;
-		if (values.size() != getColumnCount()) {
-			throw new IllegalArgumentException(MessageFormat.format(
-					"Wrong number of columns! Expected {0,number,integer}, got {1,number,integer}.", //$NON-NLS-1$
-					getColumnCount(), values.size()));
-		}
-
-		// Check row data types
-		Class<? extends Comparable<?>>[] types = getColumnTypes();
-		for (int colIndex = 0; colIndex < values.size(); colIndex++) {
-			Comparable<?> value = values.get(colIndex);
-			if ((value != null)
-					&& !(types[colIndex].isAssignableFrom(value.getClass()))) {
-				throw new IllegalArgumentException(MessageFormat.format(
-						"Wrong column type! Expected {0}, got {1}.", //$NON-NLS-1$
-						types[colIndex], value.getClass()));
-			}
-		}
-
-		// Add data to row
+		checkRow(values, getColumnTypes());
 		Record row = new Record(values);
-		events = new DataChangeEvent[row.size()];
-		for (int columnIndex = 0; columnIndex < row.size(); columnIndex++) {
-			Comparable<?> value = values.get(columnIndex);
-			events[columnIndex] = new DataChangeEvent(this, columnIndex, rows.size(), null, value);
-		}
 
 		int rowIndex;
-		synchronized (rows) {
-			rows.add(row);
-			rowIndex = rows.size();
+		synchronized (this) {
+			rowIndex = append(row);
+			notifyDataAdded(createEvents(row, rowIndex, true));
 		}
-		notifyDataAdded(events);
-		return rowIndex - 1;
+		deliverChanges();
+		return rowIndex;
 	}
 
 	/**
@@ -215,12 +202,49 @@ public class DataTable extends AbstractDataSource implements MutableDataSource {
 		return add(values);
 	}
 
+	/**
+	 * Adds all specified rows to the table. The values of each row are added
+	 * in the order they are specified. All rows are checked before any of
+	 * them is added, so if the types of the table columns and the values of
+	 * any row do not match, an {@code IllegalArgumentException} is thrown and
+	 * the table remains unchanged. Listeners are notified only once with a
+	 * single event describing the range of added rows.
+	 * @param newRows Rows to be added.
+	 * @return Index of the first row that has been added.
+	 */
+	public int addAll(List<? extends List<? extends Comparable<?>>> newRows) {
+		// Check all rows before changing the table
+		Class<? extends Comparable<?>>[] types = getColumnTypes();
+		List<Record> records = new ArrayList<Record>(newRows.size());
+		for (List<? extends Comparable<?>> values : newRows) {
+			checkRow(values, types);
+			records.add(new Record(values));
+		}
+
+		int rowFirst;
+		synchronized (this) {
+			rowFirst = rows.size;
+			for (Record record : records) {
+				append(record);
+			}
+			notifyDataAdded(new DataChangeEvent(
+				this, 0, rowFirst, getColumnCount(), records.size()));
+		}
+		deliverChanges();
+		return rowFirst;
+	}
+
 	public void add(Record row) {
 		if (row.size() != getColumnCount()) {
 			throw new IllegalArgumentException("Invalid element count in Record to be added. " +
 					"Expected: "+getColumnCount()+", got: "+row.size());
 		}
-		rows.add(row);
+		int rowIndex;
+		synchronized (this) {
+			rowIndex = append(row);
+			notifyDataAdded(createEvents(row, rowIndex, true));
+		}
+		deliverChanges();
 	}
 
 	/**
@@ -228,53 +252,61 @@ public class DataTable extends AbstractDataSource implements MutableDataSource {
 	 * @param row Index of the row to remove
 	 */
 	public void remove(int row) {
-		DataChangeEvent[] events;
-		synchronized (rows) {
-			Row r = new Row(this, row);
-			events = new DataChangeEvent[getColumnCount()];
-			for (int col = 0; col < events.length; col++) {
-				events[col] = new DataChangeEvent(this, col, row, r.get(col), null);
+		Record removed;
+		synchronized (this) {
+			Rows r = rows;
+			if (row < 0 || row >= r.size) {
+				throw new IndexOutOfBoundsException(MessageFormat.format(
+					"Row {0,number,integer} does not exist.", row)); //$NON-NLS-1$
 			}
-			rows.remove(row);
+			removed = r.records[row];
+			Record[] records = new Record[r.size - 1];
+			System.arraycopy(r.records, 0, records, 0, row);
+			System.arraycopy(r.records, row + 1, records, row, records.length - row);
+			rows = new Rows(records, records.length, r.version + 1);
+			notifyDataRemoved(createEvents(removed, row, false));
 		}
-		notifyDataRemoved(events);
+		deliverChanges();
 	}
 
 	/**
 	 * Removes the last row from the table.
 	 */
 	public void removeLast() {
-		DataChangeEvent[] events;
+		Record removed;
+		int row;
 		synchronized (this) {
-			int row = getRowCount() - 1;
-			Row r = new Row(this, row);
-			events = new DataChangeEvent[getColumnCount()];
-			for (int col = 0; col < events.length; col++) {
-				events[col] = new DataChangeEvent(this, col, row, r.get(col), null);
+			Rows r = rows;
+			row = r.size - 1;
+			if (row < 0) {
+				throw new IndexOutOfBoundsException("Table is empty."); //$NON-NLS-1$
 			}
-			rows.remove(row);
+			removed = r.records[row];
+			Record[] records = r.records;
+			if (shared) {
+				// A snapshot still reads the last record, which must not be
+				// overwritten by rows that are appended later
+				records = Arrays.copyOf(records, row);
+				shared = false;
+			}
+			// The record isn't cleared as readers may still use the old state
+			rows = new Rows(records, row, r.version + 1);
+			notifyDataRemoved(createEvents(removed, row, false));
 		}
-		notifyDataRemoved(events);
+		deliverChanges();
 	}
 
 	/**
 	 * Deletes all rows this table contains.
 	 */
 	public void clear() {
-		DataChangeEvent[] events;
+		DataChangeEvent event;
 		synchronized (this) {
-			int cols = getColumnCount();
-			int rows = getRowCount();
-			events = new DataChangeEvent[cols*rows];
-			for (int row = 0; row < rows; row++) {
-				for (int col = 0; col < cols; col++) {
-					events[col + row*cols] = new DataChangeEvent(
-						this, col, row, get(col, row), null);
-				}
-			}
-			this.rows.clear();
+			event = new DataChangeEvent(this, 0, 0, getColumnCount(), rows.size);
+			rows = new Rows(new Record[0], 0, rows.version + 1);
+			notifyDataRemoved(event);
 		}
-		notifyDataRemoved(events);
+		deliverChanges();
 	}
 
 	/**
@@ -284,17 +316,44 @@ public class DataTable extends AbstractDataSource implements MutableDataSource {
 	 * @return the specified value of the data cell
 	 */
 	public Comparable<?> get(int col, int row) {
-		Record r;
-		synchronized (rows) {
-			if (row >= rows.size()) {
-				return null;
-			}
-			r = rows.get(row);
-		}
-		if (r == null) {
+		Rows r = rows;
+		if (row >= r.size) {
 			return null;
 		}
-		return r.get(col);
+		return r.records[row].get(col);
+	}
+
+	@Override
+	public double[] getDoubles(int col, int fromRow, int toRow, double[] dest) {
+		Rows r = rows;
+		dest = createDoubleArray(fromRow, toRow, dest);
+		if (fromRow < 0 || toRow > r.size) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Row range from {0,number,integer} to {1,number,integer} does not exist.", //$NON-NLS-1$
+				fromRow, toRow));
+		}
+		for (int row = fromRow; row < toRow; row++) {
+			Comparable<?> value = r.records[row].get(col);
+			dest[row - fromRow] = (value instanceof Number)
+				? ((Number) value).doubleValue() : Double.NaN;
+		}
+		return dest;
+	}
+
+	/**
+	 * Returns the record with the specified index. As records are
+	 * immutable, the record that is stored in the table is returned.
+	 * @param row Index of the record to return.
+	 * @return Record with the specified index.
+	 */
+	@Override
+	public Record getRecord(int row) {
+		Rows r = rows;
+		if (row < 0 || row >= r.size) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Row {0,number,integer} does not exist.", row)); //$NON-NLS-1$
+		}
+		return r.records[row];
 	}
 
 	/**
@@ -312,20 +371,33 @@ public class DataTable extends AbstractDataSource implements MutableDataSource {
 		synchronized (this) {
 			old = (Comparable<T>) get(col, row);
 			if (old == null || !old.equals(value)) {
-				Record record = rows.get(row);
+				Rows r = rows;
+				if (row >= r.size) {
+					throw new IndexOutOfBoundsException(MessageFormat.format(
+						"Row {0,number,integer} does not exist.", row)); //$NON-NLS-1$
+				}
+				Record record = r.records[row];
 				ArrayList<Comparable<?>> values = new ArrayList<Comparable<?>>(record.size());
 				for (Comparable<?> element : record) {
 					values.add(element);
 				}
 				values.set(col, value);
 				Record updatedRecord = new Record(values);
-				rows.set(row, updatedRecord);
+				Record[] records = r.records;
+				if (shared) {
+					records = Arrays.copyOf(records, records.length);
+					shared = false;
+				}
+				// Replacing a reference is atomic, so readers see either record
+				records[row] = updatedRecord;
+				rows = new Rows(records, r.size, r.version + 1);
 				event = new DataChangeEvent(this, col, row, old, value);
 			}
+			if (event != null) {
+				notifyDataUpdated(event);
+			}
 		}
-		if (event != null) {
-			notifyDataUpdated(event);
-		}
+		deliverChanges();
 		return old;
 	}
 
@@ -334,23 +406,168 @@ public class DataTable extends AbstractDataSource implements MutableDataSource {
 	 * @return number of rows in the data source.
 	 */
 	public int getRowCount() {
-		return rows.size();
+		return rows.size;
+	}
+
+	/**
+	 * Returns a number that is increased whenever the data of this table
+	 * changes.
+	 * @return Version of the current data.
+	 */
+	@Override
+	public long getVersion() {
+		return rows.version;
+	}
+
+	/**
+	 * Returns an immutable view of the current rows. The rows are shared
+	 * with the snapshot until a value of the table is changed. If the table
+	 * hasn't been changed since the last snapshot, the same snapshot is
+	 * returned.
+	 * @return Immutable view of the current rows.
+	 */
+	@Override
+	public DataSnapshot snapshot() {
+		synchronized (this) {
+			Rows r = rows;
+			if (snapshot != null && snapshot.getVersion() == r.version) {
+				return snapshot;
+			}
+			DataSnapshot snapshotNew = new DataSnapshot(
+				getName(), getColumnTypes(), r.records, r.size, null, r.version);
+			if (snapshot != null) {
+				// Rows that have only been appended don't need to be checked again
+				snapshotNew.inheritOrder(snapshot);
+			}
+			snapshot = snapshotNew;
+			shared = true;
+			return snapshotNew;
+		}
 	}
 
 	/**
 	 * Sorts the table rows with the specified DataComparators.
 	 * The row values are compared in the way the comparators are specified.
+	 * Listeners are notified once with a single event describing all rows,
+	 * which is marked as permutation.
 	 * @param comparators comparators used for sorting
+	 * @see RowSorter
 	 */
 	public void sort(final DataComparator... comparators) {
-		synchronized (rows) {
-			RecordComparator comparator = new RecordComparator(comparators);
-			Collections.sort(rows, comparator);
+		DataChangeEvent event;
+		synchronized (this) {
+			Rows r = rows;
+			int[] order = new RowSorter(this, comparators).sort();
+			Record[] records = new Record[r.size];
+			for (int row = 0; row < records.length; row++) {
+				records[row] = r.records[order[row]];
+			}
+			rows = new Rows(records, records.length, r.version + 1);
+			event = new DataChangeEvent(this, 0, 0, getColumnCount(), records.length, true);
+			if (event.getRowCount() > 0) {
+				notifyDataUpdated(event);
+			}
 		}
+		deliverChanges();
 	}
 
 	@Override
 	public void setName(String name) {
-		super.setName(name);
+		synchronized (this) {
+			super.setName(name);
+			snapshot = null;
+		}
+	}
+
+	/**
+	 * Appends a record to the rows and publishes the new state to readers.
+	 * This method must only be called while holding the lock of the table.
+	 * @param record Record to be added.
+	 * @return Index of the added record.
+	 */
+	private int append(Record record) {
+		Rows r = rows;
+		Record[] records = r.records;
+		if (r.size == records.length) {
+			records = Arrays.copyOf(records, Math.max(16, records.length*3/2 + 1));
+		}
+		records[r.size] = record;
+		rows = new Rows(records, r.size + 1, r.version + 1);
+		return r.size;
+	}
+
+	/**
+	 * Creates events for all cells of a single row.
+	 * @param record Values of the row.
+	 * @param row Index of the row.
+	 * @param added {@code true} if the row has been added, {@code false} if
+	 *        it has been removed.
+	 * @return Events for all cells of the row.
+	 */
+	private DataChangeEvent[] createEvents(Record record, int row, boolean added) {
+		DataChangeEvent[] events = new DataChangeEvent[record.size()];
+		for (int col = 0; col < events.length; col++) {
+			Comparable<?> value = record.get(col);
+			events[col] = added
+				? new DataChangeEvent(this, col, row, null, value)
+				: new DataChangeEvent(this, col, row, value, null);
+		}
+		return events;
+	}
+
+	/**
+	 * Custom serialization method. The values are written column by column
+	 * as blocks of primitive values.
+	 * @param out Output stream.
+	 * @throws IOException if there is an error while writing data to the
+	 *         output stream.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		Rows r = rows;
+		out.defaultWriteObject();
+		ColumnCodec.writeRecords(out, getColumnTypes(), r.records, r.size, null);
+	}
+
+	/**
+	 * Custom deserialization method.
+	 * @param in Input stream.
+	 * @throws ClassNotFoundException if a serialized class doesn't exist anymore.
+	 * @throws IOException if there is an error while reading data from the
+	 *         input stream.
+	 */
+	private void readObject(ObjectInputStream in)
+			throws ClassNotFoundException, IOException {
+		// Normal deserialization
+		in.defaultReadObject();
+
+		// Handle transient fields
+		Record[] records = ColumnCodec.readRecords(in, getColumnTypes());
+		rows = new Rows(records, records.length, 0L);
+	}
+
+	/**
+	 * Checks whether the specified values can be stored as a row of this
+	 * table. If not, an {@code IllegalArgumentException} is thrown.
+	 * @param values Row values.
+	 * @param types Column types of this table.
+	 */
+	private void checkRow(List<? extends Comparable<?>> values,
+			Class<? extends Comparable<?>>[] types) {
+		if (values.size() != types.length) {
+			throw new IllegalArgumentException(MessageFormat.format(
+					"Wrong number of columns! Expected {0,number,integer}, got {1,number,integer}.", //$NON-NLS-1$
+					types.length, values.size()));
+		}
+
+		// Check row data types
+		for (int colIndex = 0; colIndex < values.size(); colIndex++) {
+			Comparable<?> value = values.get(colIndex);
+			if ((value != null)
+					&& !(types[colIndex].isAssignableFrom(value.getClass()))) {
+				throw new IllegalArgumentException(MessageFormat.format(
+						"Wrong column type! Expected {0}, got {1}.", //$NON-NLS-1$
+						types[colIndex], value.getClass()));
+			}
+		}
 	}
 }
@@ -0,0 +1,560 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import de.erichseifert.gral.data.comparators.DataComparator;
+
+/**
+ * <p>An in-memory, random access implementation of a mutable data source
+ * that stores its values column-wise in primitive {@code double} arrays.
+ * Compared to {@link DataTable} no {@code Record} objects and no boxed
+ * values are kept, so each cell only requires 8 bytes of memory.</p>
+ *
+ * <p>All columns are of type {@code Double}. Empty cells ({@code null}
+ * values) are tracked in a separate bitmap per column, which means that
+ * {@code NaN} values and {@code null} values can be distinguished.</p>
+ *
+ * <p>Example:</p>
+ * <pre>
+ * DoubleColumnTable data = new DoubleColumnTable(2);
+ * data.add(1.0, 2.0);
+ * data.add(2.0, null);
+ * </pre>
+ *
+ * @see DataSource
+ * @see MutableDataSource
+ */
+public class DoubleColumnTable extends AbstractDataSource implements MutableDataSource {
+	/** Version id for serialization. */
+	private static final long serialVersionUID = -2934519623716813170L;
+
+	/** Initial number of rows that can be stored without resizing. */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** Values of all cells stored as one array per column. Empty cells are
+	stored as {@code NaN}. */
+	private transient double[][] values;
+	/** Bitmaps of all empty cells stored as one bitmap per column. */
+	private transient BitSet[] nulls;
+	/** Number of rows. */
+	private int rowCount;
+	/** Whether this instance is an immutable snapshot. */
+	private final boolean snapshot;
+	/** Version of the original data if this instance is a snapshot. */
+	private final long snapshotVersion;
+	/** Snapshot that has been created most recently. */
+	private transient DoubleColumnTable lastSnapshot;
+
+	/**
+	 * Initializes a new instance with the specified number of columns.
+	 * @param cols Number of columns.
+	 */
+	@SuppressWarnings("unchecked")
+	public DoubleColumnTable(int cols) {
+		Class<? extends Comparable<?>>[] types = new Class[cols];
+		Arrays.fill(types, Double.class);
+		setColumnTypes(types);
+
+		values = new double[cols][DEFAULT_CAPACITY];
+		nulls = new BitSet[cols];
+		for (int col = 0; col < cols; col++) {
+			nulls[col] = new BitSet();
+		}
+		snapshot = false;
+		snapshotVersion = 0L;
+	}
+
+	/**
+	 * Initializes an immutable snapshot of the specified table. The column
+	 * arrays are copied, so no values are boxed.
+	 * @param original Table.
+	 */
+	private DoubleColumnTable(DoubleColumnTable original) {
+		super(original.getName(), original.getColumnTypes());
+		int cols = original.getColumnCount();
+		rowCount = original.rowCount;
+		values = new double[cols][];
+		nulls = new BitSet[cols];
+		for (int col = 0; col < cols; col++) {
+			values[col] = Arrays.copyOf(original.values[col], rowCount);
+			nulls[col] = original.nulls[col].get(0, rowCount);
+		}
+		snapshot = true;
+		snapshotVersion = original.getVersion();
+	}
+
+	/**
+	 * Initializes a new instance with the data of another data source. All
+	 * columns of the specified data source must be numeric, otherwise an
+	 * {@code IllegalArgumentException} is thrown.
+	 * @param source Data source to be copied.
+	 */
+	public DoubleColumnTable(DataSource source) {
+		this(source.getColumnCount());
+		for (int col = 0; col < source.getColumnCount(); col++) {
+			if (!source.isColumnNumeric(col)) {
+				throw new IllegalArgumentException(MessageFormat.format(
+					"Column {0,number,integer} isn''t numeric and cannot be copied.", //$NON-NLS-1$
+					col));
+			}
+		}
+		int rows = source.getRowCount();
+		ensureCapacity(rows);
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < getColumnCount(); col++) {
+				Number value = (Number) source.get(col, row);
+				setValue(col, row, value != null ? value.doubleValue() : null);
+			}
+		}
+		rowCount = rows;
+	}
+
+	/**
+	 * Adds a row with the specified comparable values to the table.
+	 * The values are added in the order they are specified. If the types of
+	 * the table columns and the values do not match, an
+	 * {@code IllegalArgumentException} is thrown.
+	 * @param values values to be added as a row
+	 * @return Index of the row that has been added.
+	 */
+	public int add(Comparable<?>... values) {
+		return add(Arrays.asList(values));
+	}
+
+	/**
+	 * Adds a row with the specified container's elements to the table.
+	 * The values are added in the order they are specified. If the types of
+	 * the table columns and the values do not match, an
+	 * {@code IllegalArgumentException} is thrown.
+	 * @param values values to be added as a row
+	 * @return Index of the row that has been added.
+	 */
+	public int add(List<? extends Comparable<?>> values) {
+		checkRow(values);
+
+		DataChangeEvent[] events = new DataChangeEvent[values.size()];
+		int rowIndex;
+		synchronized (this) {
+			checkMutable();
+			rowIndex = rowCount;
+			ensureCapacity(rowIndex + 1);
+			for (int col = 0; col < values.size(); col++) {
+				Double value = (Double) values.get(col);
+				setValue(col, rowIndex, value);
+				events[col] = new DataChangeEvent(this, col, rowIndex, null, value);
+			}
+			rowCount++;
+			notifyDataAdded(events);
+		}
+		deliverChanges();
+		return rowIndex;
+	}
+
+	/**
+	 * Adds all specified rows to the table. The values of each row are added
+	 * in the order they are specified. All rows are checked before any of
+	 * them is added, so if the types of the table columns and the values of
+	 * any row do not match, an {@code IllegalArgumentException} is thrown and
+	 * the table remains unchanged. Listeners are notified only once with a
+	 * single event describing the range of added rows.
+	 * @param rows Rows to be added.
+	 * @return Index of the first row that has been added.
+	 */
+	public int addAll(List<? extends List<? extends Comparable<?>>> rows) {
+		for (List<? extends Comparable<?>> values : rows) {
+			checkRow(values);
+		}
+
+		int colCount = getColumnCount();
+		int rowFirst;
+		synchronized (this) {
+			checkMutable();
+			rowFirst = rowCount;
+			ensureCapacity(rowFirst + rows.size());
+			int rowIndex = rowFirst;
+			for (List<? extends Comparable<?>> values : rows) {
+				for (int col = 0; col < colCount; col++) {
+					setValue(col, rowIndex, (Double) values.get(col));
+				}
+				rowIndex++;
+			}
+			rowCount = rowIndex;
+			notifyDataAdded(new DataChangeEvent(this, 0, rowFirst, colCount, rows.size()));
+		}
+		deliverChanges();
+		return rowFirst;
+	}
+
+	/**
+	 * Adds the specified row to the table.
+	 * The values are added in the order they are specified. If the types of
+	 * the table columns and the values do not match, an
+	 * {@code IllegalArgumentException} is thrown.
+	 * @param row Row to be added
+	 * @return Index of the row that has been added.
+	 */
+	public int add(Row row) {
+		List<Comparable<?>> values;
+		synchronized (row) {
+			values = new ArrayList<Comparable<?>>(row.size());
+			for (Comparable<?> value : row) {
+				values.add(value);
+			}
+		}
+		return add(values);
+	}
+
+	/**
+	 * Removes a specified row from the table.
+	 * @param row Index of the row to remove
+	 */
+	public void remove(int row) {
+		DataChangeEvent[] events;
+		synchronized (this) {
+			checkMutable();
+			if (row < 0 || row >= rowCount) {
+				throw new IndexOutOfBoundsException(MessageFormat.format(
+					"Row {0,number,integer} does not exist.", row)); //$NON-NLS-1$
+			}
+			events = new DataChangeEvent[getColumnCount()];
+			for (int col = 0; col < events.length; col++) {
+				events[col] = new DataChangeEvent(this, col, row, get(col, row), null);
+
+				double[] colValues = values[col];
+				System.arraycopy(colValues, row + 1, colValues, row, rowCount - row - 1);
+
+				BitSet colNulls = nulls[col];
+				for (int i = row; i < rowCount - 1; i++) {
+					colNulls.set(i, colNulls.get(i + 1));
+				}
+				colNulls.clear(rowCount - 1);
+			}
+			rowCount--;
+			notifyDataRemoved(events);
+		}
+		deliverChanges();
+	}
+
+	/**
+	 * Removes the last row from the table.
+	 */
+	public void removeLast() {
+		DataChangeEvent[] events;
+		synchronized (this) {
+			checkMutable();
+			int row = rowCount - 1;
+			if (row < 0) {
+				throw new IndexOutOfBoundsException("Table is empty."); //$NON-NLS-1$
+			}
+			events = new DataChangeEvent[getColumnCount()];
+			for (int col = 0; col < events.length; col++) {
+				events[col] = new DataChangeEvent(this, col, row, get(col, row), null);
+				nulls[col].clear(row);
+			}
+			rowCount--;
+			notifyDataRemoved(events);
+		}
+		deliverChanges();
+	}
+
+	/**
+	 * Deletes all rows this table contains.
+	 */
+	public void clear() {
+		DataChangeEvent event;
+		synchronized (this) {
+			checkMutable();
+			event = new DataChangeEvent(this, 0, 0, getColumnCount(), rowCount);
+			for (BitSet colNulls : nulls) {
+				colNulls.clear();
+			}
+			rowCount = 0;
+			notifyDataRemoved(event);
+		}
+		deliverChanges();
+	}
+
+	/**
+	 * Returns the row with the specified index.
+	 * @param col index of the column to return
+	 * @param row index of the row to return
+	 * @return the specified value of the data cell
+	 */
+	public Comparable<?> get(int col, int row) {
+		if (row >= rowCount || nulls[col].get(row)) {
+			return null;
+		}
+		return values[col][row];
+	}
+
+	/**
+	 * Returns the value of the specified cell as primitive {@code double}.
+	 * Empty cells are returned as {@code NaN}.
+	 * @param col Column index.
+	 * @param row Row index.
+	 * @return Value of the cell, or {@code NaN} if the cell is empty.
+	 */
+	@Override
+	public double getDouble(int col, int row) {
+		if (row >= rowCount) {
+			return Double.NaN;
+		}
+		return values[col][row];
+	}
+
+	/**
+	 * Copies the values of a range of rows in the specified column to an
+	 * array of primitive {@code double} values. Empty cells are stored as
+	 * {@code NaN}.
+	 * @param col index of the column to read
+	 * @param fromRow index of the first row to read (inclusive)
+	 * @param toRow index of the last row to read (exclusive)
+	 * @param dest Optional array as data sink. If array is {@code null} a new
+	 *        array will be created.
+	 * @return Array containing the values starting at index 0.
+	 */
+	@Override
+	public double[] getDoubles(int col, int fromRow, int toRow, double[] dest) {
+		dest = createDoubleArray(fromRow, toRow, dest);
+		if (fromRow < 0 || toRow > rowCount) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Row range from {0,number,integer} to {1,number,integer} does not exist.", //$NON-NLS-1$
+				fromRow, toRow));
+		}
+		System.arraycopy(values[col], fromRow, dest, 0, toRow - fromRow);
+		return dest;
+	}
+
+	/**
+	 * Sets the value of a cell specified by its column and row indexes.
+	 * @param <T> Data type of the cell.
+	 * @param col Column of the cell to change.
+	 * @param row Row of the cell to change.
+	 * @param value New value to be set.
+	 * @return Old value that was replaced.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Comparable<T> set(int col, int row, Comparable<T> value) {
+		if (value != null && !(value instanceof Double)) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Wrong column type! Expected {0}, got {1}.", //$NON-NLS-1$
+				Double.class, value.getClass()));
+		}
+		Comparable<T> old;
+		DataChangeEvent event = null;
+		synchronized (this) {
+			checkMutable();
+			if (col < 0 || col >= getColumnCount() || row < 0 || row >= rowCount) {
+				throw new IndexOutOfBoundsException(MessageFormat.format(
+					"Cell at col={0,number,integer}, row={1,number,integer} does not exist.", //$NON-NLS-1$
+					col, row));
+			}
+			old = (Comparable<T>) get(col, row);
+			if (old == null || !old.equals(value)) {
+				setValue(col, row, (Double) value);
+				event = new DataChangeEvent(this, col, row, old, value);
+			}
+			if (event != null) {
+				notifyDataUpdated(event);
+			}
+		}
+		deliverChanges();
+		return old;
+	}
+
+	/**
+	 * Returns the number of rows of the data source.
+	 * @return number of rows in the data source.
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Sorts the table rows with the specified DataComparators.
+	 * The row values are compared in the way the comparators are specified.
+	 * Listeners are notified once with a single event describing all rows,
+	 * which is marked as permutation.
+	 * @param comparators comparators used for sorting
+	 * @see RowSorter
+	 */
+	public void sort(final DataComparator... comparators) {
+		DataChangeEvent event;
+		synchronized (this) {
+			checkMutable();
+			int[] order = new RowSorter(this, comparators).sort();
+			for (int col = 0; col < getColumnCount(); col++) {
+				double[] colValues = values[col];
+				double[] sortedValues = new double[colValues.length];
+				BitSet colNulls = nulls[col];
+				BitSet sortedNulls = new BitSet(rowCount);
+				for (int row = 0; row < rowCount; row++) {
+					int rowOrig = order[row];
+					sortedValues[row] = colValues[rowOrig];
+					sortedNulls.set(row, colNulls.get(rowOrig));
+				}
+				values[col] = sortedValues;
+				nulls[col] = sortedNulls;
+			}
+			event = new DataChangeEvent(this, 0, 0, getColumnCount(), rowCount, true);
+			if (event.getRowCount() > 0) {
+				notifyDataUpdated(event);
+			}
+		}
+		deliverChanges();
+	}
+
+	@Override
+	public void setName(String name) {
+		synchronized (this) {
+			super.setName(name);
+			lastSnapshot = null;
+		}
+	}
+
+	@Override
+	public long getVersion() {
+		return snapshot ? snapshotVersion : super.getVersion();
+	}
+
+	/**
+	 * Returns an immutable view of the current data. The column arrays are
+	 * copied, so no values are boxed. If the table hasn't been changed since
+	 * the last snapshot, the same snapshot is returned.
+	 * @return Immutable view of the current data.
+	 */
+	@Override
+	public synchronized DataSource snapshot() {
+		if (snapshot) {
+			return this;
+		}
+		if (lastSnapshot == null || lastSnapshot.getVersion() != getVersion()) {
+			lastSnapshot = new DoubleColumnTable(this);
+		}
+		return lastSnapshot;
+	}
+
+	/**
+	 * Throws an exception if this instance is an immutable snapshot.
+	 */
+	private void checkMutable() {
+		if (snapshot) {
+			throw new UnsupportedOperationException(
+				"Snapshots cannot be changed."); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Makes sure the column arrays can store the specified number of rows.
+	 * @param capacity Minimum number of rows.
+	 */
+	private void ensureCapacity(int capacity) {
+		for (int col = 0; col < values.length; col++) {
+			double[] colValues = values[col];
+			if (colValues.length < capacity) {
+				int newCapacity = Math.max(capacity, colValues.length + (colValues.length >> 1) + 1);
+				values[col] = Arrays.copyOf(colValues, newCapacity);
+			}
+		}
+	}
+
+	/**
+	 * Stores a value without any checks or notifications.
+	 * @param col Column index.
+	 * @param row Row index.
+	 * @param value Value to be stored, or {@code null} for an empty cell.
+	 */
+	private void setValue(int col, int row, Double value) {
+		if (value == null) {
+			values[col][row] = Double.NaN;
+			nulls[col].set(row);
+		} else {
+			values[col][row] = value;
+			nulls[col].clear(row);
+		}
+	}
+
+	/**
+	 * Checks whether the specified values can be stored as a row of this
+	 * table. If not, an {@code IllegalArgumentException} is thrown.
+	 * @param values Row values.
+	 */
+	private void checkRow(List<? extends Comparable<?>> values) {
+		if (values.size() != getColumnCount()) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Wrong number of columns! Expected {0,number,integer}, got {1,number,integer}.", //$NON-NLS-1$
+				getColumnCount(), values.size()));
+		}
+		for (Comparable<?> value : values) {
+			if (value != null && !(value instanceof Double)) {
+				throw new IllegalArgumentException(MessageFormat.format(
+					"Wrong column type! Expected {0}, got {1}.", //$NON-NLS-1$
+					Double.class, value.getClass()));
+			}
+		}
+	}
+
+	/**
+	 * Custom serialization method. Only the values of the existing rows are
+	 * written as blocks of primitive values.
+	 * @param out Output stream.
+	 * @throws IOException if there is an error while writing data to the
+	 *         output stream.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		for (int col = 0; col < values.length; col++) {
+			ColumnCodec.writeDoubles(out, values[col], nulls[col], rowCount);
+		}
+	}
+
+	/**
+	 * Custom deserialization method.
+	 * @param in Input stream.
+	 * @throws ClassNotFoundException if a serialized class doesn't exist anymore.
+	 * @throws IOException if there is an error while reading data from the
+	 *         input stream.
+	 */
+	private void readObject(ObjectInputStream in)
+			throws ClassNotFoundException, IOException {
+		// Normal deserialization
+		in.defaultReadObject();
+
+		// Handle transient fields
+		int cols = getColumnCount();
+		values = new double[cols][Math.max(rowCount, DEFAULT_CAPACITY)];
+		nulls = new BitSet[cols];
+		for (int col = 0; col < cols; col++) {
+			nulls[col] = new BitSet();
+			ColumnCodec.readDoubles(in, values[col], nulls[col], rowCount);
+		}
+	}
+}
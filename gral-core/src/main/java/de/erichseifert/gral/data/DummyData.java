@@ -68,6 +68,14 @@ public class DummyData extends AbstractDataSource {
 		return value;
 	}
 
+	@Override
+	public double getDouble(int col, int row) {
+		if (!(value instanceof Number)) {
+			return Double.NaN;
+		}
+		return ((Number) value).doubleValue();
+	}
+
 	@Override
 	public int getColumnCount() {
 		return cols;
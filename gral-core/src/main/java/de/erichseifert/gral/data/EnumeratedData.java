@@ -21,6 +21,7 @@
  */
 package de.erichseifert.gral.data;
 
+import java.util.BitSet;
 
 /**
  * <p>Class that creates a new data source which adds a leading column
@@ -93,6 +94,22 @@ public class EnumeratedData extends AbstractDataSource
 		return original.get(col - 1, row);
 	}
 
+	@Override
+	public double getDouble(int col, int row) {
+		if (col < 1) {
+			return row*steps + offset;
+		}
+		return original.getDouble(col - 1, row);
+	}
+
+	@Override
+	public double[] getDoubles(int col, int fromRow, int toRow, double[] dest) {
+		if (col < 1) {
+			return super.getDoubles(col, fromRow, toRow, dest);
+		}
+		return original.getDoubles(col - 1, fromRow, toRow, dest);
+	}
+
 	/**
 	 * Returns the number of rows of the data source.
 	 * @return number of rows in the data source.
@@ -110,7 +127,7 @@ public class EnumeratedData extends AbstractDataSource
 	 *        have been added.
 	 */
 	public void dataAdded(DataSource source, DataChangeEvent... events) {
-		notifyDataAdded(takeEvents(events));
+		notifyDataAdded(takeEvents(events, true));
 	}
 
 	/**
@@ -122,7 +139,7 @@ public class EnumeratedData extends AbstractDataSource
 	 *        have been updated.
 	 */
 	public void dataUpdated(DataSource source, DataChangeEvent... events) {
-		notifyDataUpdated(takeEvents(events));
+		notifyDataUpdated(takeEvents(events, null));
 	}
 
 	/**
@@ -134,41 +151,79 @@ public class EnumeratedData extends AbstractDataSource
 	 *        have been removed.
 	 */
 	public void dataRemoved(DataSource source, DataChangeEvent... events) {
-		notifyDataRemoved(takeEvents(events));
+		notifyDataRemoved(takeEvents(events, false));
 	}
 
 	/**
 	 * Changes the source and the columns of the specified event objects to
-	 * make them look as if they originated from this data source.
+	 * make them look as if they originated from this data source. If rows
+	 * have been added or removed, events for the generated column are
+	 * inserted. As the generated column only depends on the number of rows,
+	 * these events always describe the values at the end of the column.
+	 * Multiple changed rows in the generated column are described by a single
+	 * range event.
 	 * @param events Original events.
+	 * @param added {@code true} if rows have been added, {@code false} if
+	 *        rows have been removed, or {@code null} if values have been
+	 *        updated.
 	 * @return Changed events.
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private DataChangeEvent[] takeEvents(DataChangeEvent[] events) {
+	private DataChangeEvent[] takeEvents(DataChangeEvent[] events, Boolean added) {
 		if (events == null || events.length == 0) {
-			return new DataChangeEvent[] {
-				new DataChangeEvent(this, 0, 0, null, null)
+			return new DataChangeEvent[0];
+		}
+
+		// Count the rows that have been changed
+		int rowsChanged = 0;
+		if (added != null) {
+			BitSet rows = new BitSet();
+			for (DataChangeEvent event : events) {
+				rows.set(event.getRow(), event.getRow() + event.getRowCount());
+			}
+			rowsChanged = rows.cardinality();
+		}
+
+		// Insert events for the generated column
+		int rowCount = getRowCount();
+		int rowFirst = Boolean.TRUE.equals(added) ? rowCount - rowsChanged : rowCount;
+		DataChangeEvent[] eventsGenerated;
+		if (rowsChanged > 1) {
+			eventsGenerated = new DataChangeEvent[] {
+				new DataChangeEvent(this, 0, rowFirst, 1, rowsChanged)
 			};
+		} else if (rowsChanged == 1) {
+			Double value = rowFirst*steps + offset;
+			if (Boolean.TRUE.equals(added)) {
+				eventsGenerated = new DataChangeEvent[] {
+					new DataChangeEvent(this, 0, rowFirst, null, value)
+				};
+			} else {
+				eventsGenerated = new DataChangeEvent[] {
+					new DataChangeEvent(this, 0, rowFirst, value, null)
+				};
+			}
+		} else {
+			eventsGenerated = new DataChangeEvent[0];
 		}
-		DataChangeEvent[] eventsTx = new DataChangeEvent[events.length + 1];
-		for (int i = 0; i < eventsTx.length; i++) {
-			DataChangeEvent event;
-			int col, row;
-			if (i == 0) {
-				// Insert an event for the generated column
-				event = events[0];
-				col = 0;
-				row = event.getRow();
+
+		DataChangeEvent[] eventsTx = new DataChangeEvent[eventsGenerated.length + events.length];
+		System.arraycopy(eventsGenerated, 0, eventsTx, 0, eventsGenerated.length);
+
+		// Process the columns of the original source
+		for (int i = 0; i < events.length; i++) {
+			DataChangeEvent event = events[i];
+			DataChangeEvent eventTx;
+			if (event.isRange()) {
+				eventTx = new DataChangeEvent(this, event.getCol() + 1, event.getRow(),
+					event.getColCount(), event.getRowCount());
 			} else {
-				// Process the columns of the original source
-				event = events[i - 1];
-				col = event.getCol() + 1;
-				row = event.getRow();
+				Comparable valOld = event.getOld();
+				Comparable valNew = event.getNew();
+				eventTx = new DataChangeEvent(
+					this, event.getCol() + 1, event.getRow(), valOld, valNew);
 			}
-			Comparable valOld = event.getOld();
-			Comparable valNew = event.getNew();
-			eventsTx[i] = new DataChangeEvent(
-				this, col, row, valOld, valNew);
+			eventsTx[eventsGenerated.length + i] = eventTx;
 		}
 		return eventsTx;
 	}
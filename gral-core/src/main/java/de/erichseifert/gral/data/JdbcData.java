@@ -32,9 +32,29 @@ import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.text.MessageFormat;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.erichseifert.gral.data.statistics.Statistics;
+import de.erichseifert.gral.util.DataUtils;
 
 /**
- * Data source for database tables accessed through a JDBC connection.
+ * <p>Data source for database tables accessed through a JDBC connection.</p>
+ *
+ * <p>Large tables should be accessed in pages: the table is read by a single
+ * forward-only query whose cursor is reused as long as pages are requested
+ * in ascending order. The values of a page are stored in primitive arrays
+ * and the most recently used pages are kept in memory. Reading all values
+ * of a column therefore results in a single sequential scan of the
+ * table.</p>
+ *
+ * <p>The element count, the minimum, the maximum, the sum, and the mean of
+ * the statistics are calculated by the database with aggregate queries.
+ * A downsampled view of large tables can be queried using
+ * {@link #getBuckets(int, int, double)}.</p>
  */
 public class JdbcData extends AbstractDataSource {
 	/** Version id for serialization. */
@@ -44,6 +64,8 @@ public class JdbcData extends AbstractDataSource {
 	private final Connection connection;
 	/** The name of the table containing the data. */
 	private final String table;
+	/** Names of the table columns as returned by the JDBC driver. */
+	private String[] columnNames;
 
 	/** Flag that tells whether this object uses buffering. */
 	private boolean buffered;
@@ -56,6 +78,177 @@ public class JdbcData extends AbstractDataSource {
 	Only valid when the object is buffered. */
 	private int bufferedQueryRow;
 
+	/** Number of rows per page, or {@code 0} if the table isn't paged. */
+	private final int pageSize;
+	/** Pages that have been read most recently, in order of access. Only
+	valid when the object is paged. */
+	private final Map<Integer, Page> pages;
+	/** Statement of the query used to read pages. Only valid when the
+	object is paged. */
+	private PreparedStatement pageStatement;
+	/** Forward-only cursor used to read pages. Only valid when the object
+	is paged. */
+	private ResultSet pageQuery;
+	/** Index of the row that will be read next by the cursor. Only valid
+	when the object is paged. */
+	private int pageQueryRow;
+	/** Number of versions that have been returned while the object is
+	neither buffered nor paged. */
+	private long unbufferedVersions;
+
+	/**
+	 * Class that stores the values of consecutive rows. Values of numeric
+	 * columns are stored in primitive arrays.
+	 */
+	private final class Page {
+		/** Types of the columns. */
+		private final Class<? extends Comparable<?>>[] types;
+		/** Values for each column: {@code long[]}, {@code double[]}, or
+		{@code Comparable[]}. */
+		private final Object[] values;
+		/** Empty cells of each column. */
+		private final BitSet[] nulls;
+		/** Number of rows. */
+		private int size;
+
+		/**
+		 * Initializes a new page that can store the specified number of
+		 * rows.
+		 * @param types Types of the columns.
+		 * @param capacity Number of rows.
+		 */
+		public Page(Class<? extends Comparable<?>>[] types, int capacity) {
+			this.types = types;
+			values = new Object[types.length];
+			nulls = new BitSet[types.length];
+			for (int col = 0; col < types.length; col++) {
+				Class<?> type = types[col];
+				if (isIntegral(type)) {
+					values[col] = new long[capacity];
+				} else if (Float.class.equals(type) || Double.class.equals(type)) {
+					values[col] = new double[capacity];
+				} else {
+					values[col] = new Comparable<?>[capacity];
+				}
+				nulls[col] = new BitSet(capacity);
+			}
+		}
+
+		/**
+		 * Reads the current row of a result set and appends it to the page.
+		 * @param result Result set.
+		 * @throws SQLException if an error occurs while accessing the result
+		 *         set.
+		 */
+		public void read(ResultSet result) throws SQLException {
+			for (int col = 0; col < values.length; col++) {
+				Object colValues = values[col];
+				if (colValues instanceof long[]) {
+					((long[]) colValues)[size] = result.getLong(col + 1);
+				} else if (colValues instanceof double[]) {
+					((double[]) colValues)[size] = result.getDouble(col + 1);
+				} else {
+					((Comparable<?>[]) colValues)[size] = jdbcToJavaValue(result, col);
+				}
+				if (result.wasNull()) {
+					nulls[col].set(size);
+				}
+			}
+			size++;
+		}
+
+		/**
+		 * Returns the value of the specified cell.
+		 * @param col Column index.
+		 * @param index Index of the row in this page.
+		 * @return Value of the cell.
+		 */
+		public Comparable<?> get(int col, int index) {
+			if (nulls[col].get(index)) {
+				return null;
+			}
+			Object colValues = values[col];
+			Class<?> type = types[col];
+			if (colValues instanceof long[]) {
+				long value = ((long[]) colValues)[index];
+				if (Byte.class.equals(type)) {
+					return (byte) value;
+				} else if (Short.class.equals(type)) {
+					return (short) value;
+				} else if (Integer.class.equals(type)) {
+					return (int) value;
+				}
+				return value;
+			} else if (colValues instanceof double[]) {
+				double value = ((double[]) colValues)[index];
+				if (Float.class.equals(type)) {
+					return (float) value;
+				}
+				return value;
+			}
+			return ((Comparable<?>[]) colValues)[index];
+		}
+
+		/**
+		 * Returns the value of the specified cell as a primitive
+		 * {@code double}.
+		 * @param col Column index.
+		 * @param index Index of the row in this page.
+		 * @return Numeric value of the cell, or {@code NaN}.
+		 */
+		public double getDouble(int col, int index) {
+			if (nulls[col].get(index)) {
+				return Double.NaN;
+			}
+			Object colValues = values[col];
+			if (colValues instanceof long[]) {
+				return ((long[]) colValues)[index];
+			} else if (colValues instanceof double[]) {
+				return ((double[]) colValues)[index];
+			}
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Statistics of a single column or of all columns of the table. The
+	 * element count, the minimum, the maximum, the sum, and the mean are
+	 * calculated by the database using a single aggregate query. All other
+	 * statistics are calculated from the values read from the table.
+	 */
+	private final class JdbcStatistics extends Statistics {
+		/** Index of the column, or {@code -1} for all columns. */
+		private final int column;
+		/** Statistics calculated by the database, or {@code null} if they
+		haven't been queried yet. */
+		private Map<String, Double> aggregates;
+
+		/**
+		 * Initializes a new object that analyzes the specified column.
+		 * @param column Index of the column, or {@code -1} for all columns.
+		 */
+		public JdbcStatistics(int column) {
+			super(JdbcData.this, column);
+			this.column = column;
+		}
+
+		@Override
+		public double get(String key) {
+			if (!(N.equals(key) || MIN.equals(key) || MAX.equals(key) ||
+					SUM.equals(key) || MEAN.equals(key))) {
+				return super.get(key);
+			}
+			if (aggregates == null) {
+				aggregates = queryAggregates(column);
+				if (aggregates == null) {
+					return super.get(key);
+				}
+			}
+			Double v = aggregates.get(key);
+			return DataUtils.getValueOrDefault(v, Double.NaN);
+		}
+	}
+
 	/**
 	 * Initializes a new instance to query the data from a specified table
 	 * using a specified JDBC connection. It is assumed the table columns
@@ -64,10 +257,53 @@ public class JdbcData extends AbstractDataSource {
 	 * @param table Properly quoted name of the table.
 	 * @param buffered Turns on buffering of JDBC queries.
 	 */
-	@SuppressWarnings("unchecked")
 	public JdbcData(Connection connection, String table, boolean buffered) {
+		this(connection, table, buffered, 0, 0);
+	}
+
+	/**
+	 * Initializes a new instance to query the data from a specified table
+	 * using a specified JDBC connection. The table is read in pages of the
+	 * specified size, and the specified number of pages is kept in memory.
+	 * This implies that the data doesn't change during access.
+	 * @param connection JDBC connection object.
+	 * @param table Properly quoted name of the table.
+	 * @param pageSize Number of rows per page.
+	 * @param pageCount Maximal number of pages kept in memory.
+	 */
+	public JdbcData(Connection connection, String table, int pageSize, int pageCount) {
+		this(connection, table, true, pageSize, pageCount);
+		if (pageSize <= 0 || pageCount <= 0) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Invalid page size {0,number,integer} or page count {1,number,integer}.", //$NON-NLS-1$
+				pageSize, pageCount));
+		}
+	}
+
+	/**
+	 * Initializes a new instance to query the data from a specified table
+	 * using a specified JDBC connection.
+	 * @param connection JDBC connection object.
+	 * @param table Properly quoted name of the table.
+	 * @param buffered Turns on buffering of JDBC queries.
+	 * @param pageSize Number of rows per page, or {@code 0}.
+	 * @param pageCount Maximal number of pages kept in memory.
+	 */
+	@SuppressWarnings("unchecked")
+	private JdbcData(Connection connection, String table, boolean buffered,
+			int pageSize, final int pageCount) {
 		this.connection = connection;
 		this.table = table;
+		this.pageSize = pageSize;
+		pages = new LinkedHashMap<Integer, Page>(16, 0.75f, true) {
+			/** Version id for serialization. */
+			private static final long serialVersionUID = -3484539146478227787L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+				return size() > pageCount;
+			}
+		};
 		setBuffered(buffered);
 
 		try {
@@ -94,6 +330,13 @@ public class JdbcData extends AbstractDataSource {
 	 * @return the specified value of the data cell
 	 */
 	public Comparable<?> get(int col, int row) {
+		if (isPaged()) {
+			Page page = getPage(row);
+			if (page == null) {
+				return null;
+			}
+			return page.get(col, row % pageSize);
+		}
 		try {
 			ResultSet result = bufferedQuery;
 			if (!isBuffered() || result == null) {
@@ -118,6 +361,219 @@ public class JdbcData extends AbstractDataSource {
 		}
 	}
 
+	@Override
+	public double getDouble(int col, int row) {
+		if (!isPaged()) {
+			return super.getDouble(col, row);
+		}
+		Page page = getPage(row);
+		if (page == null) {
+			return Double.NaN;
+		}
+		return page.getDouble(col, row % pageSize);
+	}
+
+	@Override
+	public double[] getDoubles(int col, int fromRow, int toRow, double[] dest) {
+		if (!isPaged()) {
+			return super.getDoubles(col, fromRow, toRow, dest);
+		}
+		dest = createDoubleArray(fromRow, toRow, dest);
+		int row = fromRow;
+		while (row < toRow) {
+			Page page = getPage(row);
+			int index = row % pageSize;
+			int count = Math.min(toRow - row, pageSize - index);
+			for (int i = 0; i < count; i++) {
+				dest[row - fromRow + i] = (page != null)
+					? page.getDouble(col, index + i) : Double.NaN;
+			}
+			row += count;
+		}
+		return dest;
+	}
+
+	/**
+	 * Returns the page containing the specified row. Pages that aren't in
+	 * memory are read using the cursor of the last query if the page follows
+	 * the rows that have been read. Otherwise, a new query is executed.
+	 * @param row Row index.
+	 * @return Page containing the row, or {@code null} if an error occurred
+	 *         while reading the page.
+	 */
+	private Page getPage(int row) {
+		if (row < 0 || row >= getRowCount()) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Row {0,number,integer} does not exist.", row)); //$NON-NLS-1$
+		}
+		int pageIndex = row/pageSize;
+		Page page = pages.get(pageIndex);
+		if (page != null) {
+			return page;
+		}
+
+		int rowFirst = pageIndex*pageSize;
+		try {
+			if (pageQuery == null || pageQueryRow > rowFirst) {
+				closePageQuery();
+				pageStatement = connection.prepareStatement(
+					"SELECT * FROM " + table, //$NON-NLS-1$
+					ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY);
+				pageStatement.setFetchSize(pageSize);
+				pageQuery = pageStatement.executeQuery();
+				pageQueryRow = 0;
+			}
+			// Skip rows of pages that haven't been requested
+			while (pageQueryRow < rowFirst && pageQuery.next()) {
+				pageQueryRow++;
+			}
+
+			page = new Page(getColumnTypes(), pageSize);
+			while (page.size < pageSize && pageQuery.next()) {
+				page.read(pageQuery);
+				pageQueryRow++;
+			}
+			if (page.size < pageSize) {
+				closePageQuery();
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			closePageQuery();
+			return null;
+		}
+		pages.put(pageIndex, page);
+		return page;
+	}
+
+	/**
+	 * Closes the cursor that is used to read pages.
+	 */
+	private void closePageQuery() {
+		try {
+			if (pageQuery != null) {
+				pageQuery.close();
+			}
+			if (pageStatement != null) {
+				pageStatement.close();
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		pageQuery = null;
+		pageStatement = null;
+	}
+
+	/**
+	 * Returns a number that is increased whenever the data of this source
+	 * changes. Unbuffered data sources can't detect changes of the table,
+	 * so a new version is returned on each call, and cached results like
+	 * the statistics of the columns aren't reused.
+	 * @return Version of the current data.
+	 */
+	@Override
+	public synchronized long getVersion() {
+		if (!(isBuffered() || isPaged())) {
+			unbufferedVersions++;
+		}
+		return super.getVersion() + unbufferedVersions;
+	}
+
+	/**
+	 * Returns an immutable view of the current data. Paged and buffered
+	 * data sources imply that the data doesn't change during access: paged
+	 * data sources are returned themselves, so the values are read from the
+	 * pages in memory, and the values of buffered data sources are copied
+	 * once. Unbuffered data sources can't detect changes of the table, so
+	 * their values are copied on each call.
+	 * @return Immutable view of the current data.
+	 */
+	@Override
+	public DataSource snapshot() {
+		if (isPaged()) {
+			return this;
+		} else if (!isBuffered()) {
+			return createSnapshot();
+		}
+		return super.snapshot();
+	}
+
+	@Override
+	protected Statistics createStatistics(int col) {
+		return new JdbcStatistics(col);
+	}
+
+	/**
+	 * Queries the element count, the minimum, the maximum, and the sum of
+	 * the numeric values in the specified column or in all columns.
+	 * @param col Index of the column, or {@code -1} for all columns.
+	 * @return Statistics stored by key, or {@code null} if an error occurred
+	 *         during the query.
+	 */
+	private Map<String, Double> queryAggregates(int col) {
+		Class<? extends Comparable<?>>[] types = getColumnTypes();
+		int colFirst = col >= 0 ? col : 0;
+		int colLast = col >= 0 ? col : types.length - 1;
+		StringBuilder select = new StringBuilder();
+		int colCount = 0;
+		for (int colIndex = colFirst; colIndex <= colLast; colIndex++) {
+			if (!isNumeric(types[colIndex])) {
+				continue;
+			}
+			String name = columnNames[colIndex];
+			if (select.length() > 0) {
+				select.append(", "); //$NON-NLS-1$
+			}
+			select.append("COUNT(").append(name).append("), ") //$NON-NLS-1$ //$NON-NLS-2$
+				.append("MIN(").append(name).append("), ") //$NON-NLS-1$ //$NON-NLS-2$
+				.append("MAX(").append(name).append("), ") //$NON-NLS-1$ //$NON-NLS-2$
+				.append("SUM(").append(name).append(")"); //$NON-NLS-1$ //$NON-NLS-2$
+			colCount++;
+		}
+
+		double n = 0.0;
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		double sum = 0.0;
+		if (colCount > 0) {
+			try {
+				PreparedStatement stmt = connection.prepareStatement(
+					"SELECT " + select + " FROM " + table, //$NON-NLS-1$ //$NON-NLS-2$
+					ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY);
+				ResultSet result = stmt.executeQuery();
+				if (result.next()) {
+					for (int i = 0; i < colCount; i++) {
+						int sqlCol = 4*i + 1;
+						long count = result.getLong(sqlCol);
+						if (count <= 0) {
+							continue;
+						}
+						n += count;
+						min = Math.min(min, result.getDouble(sqlCol + 1));
+						max = Math.max(max, result.getDouble(sqlCol + 2));
+						sum += result.getDouble(sqlCol + 3);
+					}
+				}
+				result.close();
+				stmt.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+				return null;
+			}
+		}
+
+		Map<String, Double> stats = new HashMap<String, Double>();
+		if (n > 0.0) {
+			stats.put(Statistics.MIN, min);
+			stats.put(Statistics.MAX, max);
+		}
+		stats.put(Statistics.N, n);
+		stats.put(Statistics.SUM, sum);
+		stats.put(Statistics.MEAN, n > 0.0 ? sum/n : 0.0);
+		return stats;
+	}
+
 	@Override
 	public int getColumnCount() {
 		if (getColumnTypes() != null) {
@@ -132,7 +588,7 @@ public class JdbcData extends AbstractDataSource {
 	 */
 	public int getRowCount() {
 		int rowCount = bufferedRowCount;
-		if (!isBuffered() || rowCount < 0) {
+		if (!(isBuffered() || isPaged()) || rowCount < 0) {
 			try {
 				PreparedStatement stmt = connection.prepareStatement(
 					"SELECT COUNT(*) FROM " + table, //$NON-NLS-1$
@@ -156,7 +612,7 @@ public class JdbcData extends AbstractDataSource {
 
 	/**
 	 * Fetches the column types as Java {@code Class} objects from the
-	 * JDBC table.
+	 * JDBC table. The names of the columns are stored as well.
 	 * @return Column types as Java {@code Class} objects
 	 * @throws SQLException if an error occurs during access to JDBC table.
 	 */
@@ -168,7 +624,9 @@ public class JdbcData extends AbstractDataSource {
 		ResultSetMetaData metadata = stmt.getMetaData();
 		int colCount = metadata.getColumnCount();
 		Class<?>[] types = new Class<?>[colCount];
+		columnNames = new String[colCount];
 		for (int colIndex = 0; colIndex < colCount; colIndex++) {
+			columnNames[colIndex] = metadata.getColumnName(colIndex + 1);
 			int sqlType = metadata.getColumnType(colIndex + 1);
 			Class<? extends Comparable<?>> type = null;
 			switch (sqlType) {
@@ -255,6 +713,117 @@ public class JdbcData extends AbstractDataSource {
 		}
 	}
 
+	/**
+	 * Returns whether the integral values of the specified type can be
+	 * stored as {@code long} values.
+	 * @param type Column type.
+	 * @return {@code true} if the type is integral.
+	 */
+	private static boolean isIntegral(Class<?> type) {
+		return Byte.class.equals(type) || Short.class.equals(type)
+			|| Integer.class.equals(type) || Long.class.equals(type);
+	}
+
+	/**
+	 * Returns whether the values of the specified type are numbers that can
+	 * be aggregated by the database.
+	 * @param type Column type.
+	 * @return {@code true} if the type is numeric.
+	 */
+	private static boolean isNumeric(Class<?> type) {
+		return isIntegral(type) || Float.class.equals(type)
+			|| Double.class.equals(type);
+	}
+
+	/**
+	 * Returns a downsampled view of the table that is calculated by the
+	 * database. The rows are grouped into buckets of the specified width
+	 * by the values of column {@code colX}, i.e. using
+	 * {@code GROUP BY FLOOR(x/step)}, and the values of column {@code colY}
+	 * are aggregated for each bucket. The returned table contains a row for
+	 * each bucket with the following columns: start of the bucket, number
+	 * of values, minimum, maximum, and mean of the values in {@code colY}.
+	 * @param colX Index of the column used to group the rows.
+	 * @param colY Index of the column that will be aggregated.
+	 * @param step Width of the buckets.
+	 * @return Data table with the aggregated values of all buckets.
+	 */
+	@SuppressWarnings("unchecked")
+	public DataTable getBuckets(int colX, int colY, double step) {
+		if (!(step > 0.0) || Double.isInfinite(step)) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Invalid bucket width: {0}.", step)); //$NON-NLS-1$
+		}
+		Class<? extends Comparable<?>>[] types = getColumnTypes();
+		for (int col : new int[] {colX, colY}) {
+			if (col < 0 || col >= types.length) {
+				throw new IndexOutOfBoundsException(MessageFormat.format(
+					"Column {0,number,integer} does not exist.", col)); //$NON-NLS-1$
+			}
+			if (!isNumeric(types[col])) {
+				throw new IllegalArgumentException(MessageFormat.format(
+					"Column {0,number,integer} isn''t numeric.", col)); //$NON-NLS-1$
+			}
+		}
+
+		DataTable buckets = new DataTable(
+			Double.class, Long.class, Double.class, Double.class, Double.class);
+		String bucket = "FLOOR(" + columnNames[colX] + "/" + step + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		String y = columnNames[colY];
+		try {
+			PreparedStatement stmt = connection.prepareStatement(
+				"SELECT " + bucket + ", COUNT(" + y + "), MIN(" + y + "), " + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				"MAX(" + y + "), AVG(" + y + ") FROM " + table + //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				" GROUP BY " + bucket + " ORDER BY " + bucket, //$NON-NLS-1$ //$NON-NLS-2$
+				ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY);
+			ResultSet result = stmt.executeQuery();
+			while (result.next()) {
+				double index = result.getDouble(1);
+				if (result.wasNull()) {
+					continue;
+				}
+				long count = result.getLong(2);
+				Double min = result.getDouble(3);
+				if (result.wasNull()) {
+					min = null;
+				}
+				Double max = result.getDouble(4);
+				if (result.wasNull()) {
+					max = null;
+				}
+				Double mean = result.getDouble(5);
+				if (result.wasNull()) {
+					mean = null;
+				}
+				buckets.add(index*step, count, min, max, mean);
+			}
+			result.close();
+			stmt.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return buckets;
+	}
+
+	/**
+	 * Returns whether this data source reads the table in pages.
+	 * @return {@code true} when this object uses pages,
+	 *         {@code false} otherwise
+	 */
+	public boolean isPaged() {
+		return pageSize > 0;
+	}
+
+	/**
+	 * Returns the number of rows per page.
+	 * @return Number of rows per page, or {@code 0} if the table isn't
+	 *         read in pages.
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
 	/**
 	 * Returns whether this data source is buffered.
 	 * @return {@code true} when this object uses buffering,
@@ -275,6 +844,8 @@ public class JdbcData extends AbstractDataSource {
 		this.bufferedRowCount = -1;
 		this.bufferedQuery = null;
 		this.bufferedQueryRow = -1;
+		this.pages.clear();
+		closePageQuery();
 	}
 
 	/**
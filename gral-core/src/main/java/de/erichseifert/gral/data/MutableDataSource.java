@@ -63,6 +63,18 @@ public interface MutableDataSource extends DataSource {
 	 */
 	int add(Row row);
 
+	/**
+	 * Adds all specified rows to the data sink. The values of each row are
+	 * added in the order they are specified. All rows are checked before any
+	 * of them is added, so if the types of the data sink columns and the
+	 * values of any row do not match, an {@code IllegalArgumentException} is
+	 * thrown and the data sink remains unchanged. Listeners are notified
+	 * only once for all rows.
+	 * @param rows Rows to be added.
+	 * @return Index of the first row that has been added.
+	 */
+	int addAll(List<? extends List<? extends Comparable<?>>> rows);
+
 	/**
 	 * Removes a specified row from the data sink.
 	 * @param row Index of the row to remove.
@@ -96,6 +108,24 @@ public interface MutableDataSource extends DataSource {
 	 */
 	void sort(final DataComparator... comparators);
 
+	/**
+	 * Starts a batch of changes. Until the batch is committed with
+	 * {@link #commit()}, listeners won't be notified of any changes.
+	 * Instead, all changes are delivered at once on commit, with consecutive
+	 * changes of the same kind coalesced into a single notification.
+	 * Batches can be nested; changes are delivered when the outermost batch
+	 * is committed.
+	 */
+	void beginBatch();
+
+	/**
+	 * Finishes a batch of changes that has been started with
+	 * {@link #beginBatch()} and notifies listeners of all changes that
+	 * have been made during the batch. An {@code IllegalStateException} is
+	 * thrown if no batch has been started.
+	 */
+	void commit();
+
 	/**
 	 * Sets the name of this series.
 	 * @param name name to be set
@@ -30,7 +30,7 @@ import java.util.Iterator;
 import java.util.List;
 
 public class Record implements Iterable<Comparable<?>>, Serializable {
-	private Comparable[] values;
+	private final Comparable[] values;
 
 	public Record(List<? extends Comparable<?>> values) {
 		this.values = values.toArray(new Comparable[0]);
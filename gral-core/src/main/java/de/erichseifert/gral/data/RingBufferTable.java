@@ -0,0 +1,580 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import de.erichseifert.gral.data.comparators.DataComparator;
+
+/**
+ * <p>A mutable data source with a fixed capacity that stores its values
+ * column-wise in primitive {@code double} arrays which are used as circular
+ * buffers. If a row is added to a full table, the oldest row is evicted.
+ * Appending a row and evicting the oldest row take constant time, which makes
+ * this class suitable for sliding windows of time series, e.g. for
+ * monitoring.</p>
+ *
+ * <p>All columns are of type {@code Double}. Like in
+ * {@link DoubleColumnTable}, empty cells ({@code null} values) are tracked in
+ * a separate bitmap per column.</p>
+ *
+ * <p>Listeners are notified of evicted rows with a single removal
+ * notification which is delivered before the notification of the appended
+ * rows. Changes of a single row are described by events for each cell,
+ * changes of multiple rows by a single event for the range of rows.</p>
+ *
+ * <p>Example:</p>
+ * <pre>
+ * RingBufferTable data = new RingBufferTable(2, 100);
+ * data.add(1.0, 2.0);
+ * </pre>
+ *
+ * @see DataSource
+ * @see MutableDataSource
+ */
+public class RingBufferTable extends AbstractDataSource implements MutableDataSource {
+	/** Version id for serialization. */
+	private static final long serialVersionUID = 4916368393528720497L;
+
+	/** Maximal number of rows. */
+	private final int capacity;
+	/** Values of all cells stored as one circular buffer per column. Empty
+	cells are stored as {@code NaN}. */
+	private final double[][] values;
+	/** Bitmaps of all empty cells stored as one bitmap per column. The bits
+	are indexed like the buffers. */
+	private final BitSet[] nulls;
+	/** Buffer index of the first row. */
+	private int head;
+	/** Number of rows. */
+	private int rowCount;
+	/** Whether this instance is an immutable snapshot. */
+	private final boolean snapshot;
+	/** Version of the original data if this instance is a snapshot. */
+	private final long snapshotVersion;
+	/** Snapshot that has been created most recently. */
+	private transient RingBufferTable lastSnapshot;
+
+	/**
+	 * Initializes a new instance with the specified number of columns and
+	 * the specified maximal number of rows.
+	 * @param cols Number of columns.
+	 * @param capacity Maximal number of rows.
+	 */
+	@SuppressWarnings("unchecked")
+	public RingBufferTable(int cols, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Invalid capacity: {0,number,integer}. The capacity must be positive.", //$NON-NLS-1$
+				capacity));
+		}
+		Class<? extends Comparable<?>>[] types = new Class[cols];
+		Arrays.fill(types, Double.class);
+		setColumnTypes(types);
+
+		this.capacity = capacity;
+		values = new double[cols][capacity];
+		nulls = new BitSet[cols];
+		for (int col = 0; col < cols; col++) {
+			nulls[col] = new BitSet(capacity);
+		}
+		snapshot = false;
+		snapshotVersion = 0L;
+	}
+
+	/**
+	 * Initializes an immutable snapshot of the specified table. The buffers
+	 * are copied, so no values are boxed.
+	 * @param original Table.
+	 */
+	private RingBufferTable(RingBufferTable original) {
+		super(original.getName(), original.getColumnTypes());
+		int cols = original.getColumnCount();
+		capacity = original.capacity;
+		values = new double[cols][];
+		nulls = new BitSet[cols];
+		for (int col = 0; col < cols; col++) {
+			values[col] = original.values[col].clone();
+			nulls[col] = (BitSet) original.nulls[col].clone();
+		}
+		head = original.head;
+		rowCount = original.rowCount;
+		snapshot = true;
+		snapshotVersion = original.getVersion();
+	}
+
+	/**
+	 * Returns the maximal number of rows that can be stored.
+	 * @return Maximal number of rows.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns whether the table contains as many rows as it can store. In
+	 * this case the oldest row will be evicted when a new row is added.
+	 * @return {@code true} if the table is full, {@code false} otherwise.
+	 */
+	public boolean isFull() {
+		return rowCount == capacity;
+	}
+
+	/**
+	 * Adds a row with the specified comparable values to the table. If the
+	 * table is full, the oldest row will be evicted. The values are added in
+	 * the order they are specified. If the types of the table columns and the
+	 * values do not match, an {@code IllegalArgumentException} is thrown.
+	 * @param values values to be added as a row
+	 * @return Index of the row that has been added.
+	 */
+	public int add(Comparable<?>... values) {
+		return add(Arrays.asList(values));
+	}
+
+	/**
+	 * Adds a row with the specified container's elements to the table. If the
+	 * table is full, the oldest row will be evicted. The values are added in
+	 * the order they are specified. If the types of the table columns and the
+	 * values do not match, an {@code IllegalArgumentException} is thrown.
+	 * @param values values to be added as a row
+	 * @return Index of the row that has been added.
+	 */
+	public int add(List<? extends Comparable<?>> values) {
+		List<List<? extends Comparable<?>>> rows =
+			new ArrayList<List<? extends Comparable<?>>>(1);
+		rows.add(values);
+		return addAll(rows);
+	}
+
+	/**
+	 * Adds the specified row to the table. If the table is full, the oldest
+	 * row will be evicted. The values are added in the order they are
+	 * specified. If the types of the table columns and the values do not
+	 * match, an {@code IllegalArgumentException} is thrown.
+	 * @param row Row to be added
+	 * @return Index of the row that has been added.
+	 */
+	public int add(Row row) {
+		List<Comparable<?>> values;
+		synchronized (row) {
+			values = new ArrayList<Comparable<?>>(row.size());
+			for (Comparable<?> value : row) {
+				values.add(value);
+			}
+		}
+		return add(values);
+	}
+
+	/**
+	 * Adds all specified rows to the table. As many of the oldest rows are
+	 * evicted as necessary to store the new rows. If more rows are specified
+	 * than the table can store, only the last rows are added. All rows are
+	 * checked before any of them is added, so if the types of the table
+	 * columns and the values of any row do not match, an
+	 * {@code IllegalArgumentException} is thrown and the table remains
+	 * unchanged.
+	 * @param rows Rows to be added.
+	 * @return Index of the first row that has been added.
+	 */
+	public int addAll(List<? extends List<? extends Comparable<?>>> rows) {
+		for (List<? extends Comparable<?>> row : rows) {
+			checkRow(row);
+		}
+
+		int cols = getColumnCount();
+		// Rows that would be evicted immediately aren't stored at all
+		int skipped = Math.max(0, rows.size() - capacity);
+		int added = rows.size() - skipped;
+
+		DataChangeEvent[] eventsRemoved;
+		DataChangeEvent[] eventsAdded;
+		int rowFirst;
+		synchronized (this) {
+			checkMutable();
+			int evicted = Math.max(0, rowCount + added - capacity);
+			eventsRemoved = createEvents(0, evicted, true);
+			evict(evicted);
+
+			rowFirst = rowCount;
+			for (int i = 0; i < added; i++) {
+				List<? extends Comparable<?>> row = rows.get(skipped + i);
+				int index = getIndex(rowCount);
+				for (int col = 0; col < cols; col++) {
+					setValue(col, index, (Double) row.get(col));
+				}
+				rowCount++;
+			}
+			eventsAdded = createEvents(rowFirst, rowCount, false);
+			if (eventsRemoved.length > 0) {
+				notifyDataRemoved(eventsRemoved);
+			}
+			notifyDataAdded(eventsAdded);
+		}
+		deliverChanges();
+		return rowFirst;
+	}
+
+	/**
+	 * Removes a specified row from the table. Removing the first or the last
+	 * row takes constant time.
+	 * @param row Index of the row to remove
+	 */
+	public void remove(int row) {
+		DataChangeEvent[] events;
+		synchronized (this) {
+			checkMutable();
+			if (row < 0 || row >= rowCount) {
+				throw new IndexOutOfBoundsException(MessageFormat.format(
+					"Row {0,number,integer} does not exist.", row)); //$NON-NLS-1$
+			}
+			events = createEvents(row, row + 1, true);
+			if (row == 0) {
+				evict(1);
+			} else {
+				// Move all following rows by one row
+				for (int col = 0; col < getColumnCount(); col++) {
+					double[] colValues = values[col];
+					BitSet colNulls = nulls[col];
+					for (int i = row; i < rowCount - 1; i++) {
+						int index = getIndex(i);
+						int indexNext = getIndex(i + 1);
+						colValues[index] = colValues[indexNext];
+						colNulls.set(index, colNulls.get(indexNext));
+					}
+				}
+				rowCount--;
+			}
+			notifyDataRemoved(events);
+		}
+		deliverChanges();
+	}
+
+	/**
+	 * Removes the last row from the table.
+	 */
+	public void removeLast() {
+		if (rowCount == 0) {
+			throw new IndexOutOfBoundsException("Table is empty."); //$NON-NLS-1$
+		}
+		remove(rowCount - 1);
+	}
+
+	/**
+	 * Deletes all rows this table contains.
+	 */
+	public void clear() {
+		DataChangeEvent[] events;
+		synchronized (this) {
+			checkMutable();
+			events = createEvents(0, rowCount, true);
+			evict(rowCount);
+			notifyDataRemoved(events);
+		}
+		deliverChanges();
+	}
+
+	/**
+	 * Returns the row with the specified index.
+	 * @param col index of the column to return
+	 * @param row index of the row to return
+	 * @return the specified value of the data cell
+	 */
+	public Comparable<?> get(int col, int row) {
+		if (row >= rowCount) {
+			return null;
+		}
+		int index = getIndex(row);
+		if (nulls[col].get(index)) {
+			return null;
+		}
+		return values[col][index];
+	}
+
+	/**
+	 * Returns the value of the specified cell as primitive {@code double}.
+	 * Empty cells are returned as {@code NaN}.
+	 * @param col Column index.
+	 * @param row Row index.
+	 * @return Value of the cell, or {@code NaN} if the cell is empty.
+	 */
+	@Override
+	public double getDouble(int col, int row) {
+		if (row >= rowCount) {
+			return Double.NaN;
+		}
+		return values[col][getIndex(row)];
+	}
+
+	/**
+	 * Copies the values of a range of rows in the specified column to an
+	 * array of primitive {@code double} values. Empty cells are stored as
+	 * {@code NaN}.
+	 * @param col index of the column to read
+	 * @param fromRow index of the first row to read (inclusive)
+	 * @param toRow index of the last row to read (exclusive)
+	 * @param dest Optional array as data sink. If array is {@code null} a new
+	 *        array will be created.
+	 * @return Array containing the values starting at index 0.
+	 */
+	@Override
+	public double[] getDoubles(int col, int fromRow, int toRow, double[] dest) {
+		dest = createDoubleArray(fromRow, toRow, dest);
+		if (fromRow < 0 || toRow > rowCount) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Row range from {0,number,integer} to {1,number,integer} does not exist.", //$NON-NLS-1$
+				fromRow, toRow));
+		}
+		double[] colValues = values[col];
+		int length = toRow - fromRow;
+		int index = getIndex(fromRow);
+		// Copy the range in up to two parts if it wraps around
+		int lengthFirst = Math.min(length, capacity - index);
+		System.arraycopy(colValues, index, dest, 0, lengthFirst);
+		System.arraycopy(colValues, 0, dest, lengthFirst, length - lengthFirst);
+		return dest;
+	}
+
+	/**
+	 * Sets the value of a cell specified by its column and row indexes.
+	 * @param <T> Data type of the cell.
+	 * @param col Column of the cell to change.
+	 * @param row Row of the cell to change.
+	 * @param value New value to be set.
+	 * @return Old value that was replaced.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Comparable<T> set(int col, int row, Comparable<T> value) {
+		if (value != null && !(value instanceof Double)) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Wrong column type! Expected {0}, got {1}.", //$NON-NLS-1$
+				Double.class, value.getClass()));
+		}
+		Comparable<T> old;
+		DataChangeEvent event = null;
+		synchronized (this) {
+			checkMutable();
+			if (col < 0 || col >= getColumnCount() || row < 0 || row >= rowCount) {
+				throw new IndexOutOfBoundsException(MessageFormat.format(
+					"Cell at col={0,number,integer}, row={1,number,integer} does not exist.", //$NON-NLS-1$
+					col, row));
+			}
+			old = (Comparable<T>) get(col, row);
+			if (old == null || !old.equals(value)) {
+				setValue(col, getIndex(row), (Double) value);
+				event = new DataChangeEvent(this, col, row, old, value);
+			}
+			if (event != null) {
+				notifyDataUpdated(event);
+			}
+		}
+		deliverChanges();
+		return old;
+	}
+
+	/**
+	 * Returns the number of rows of the data source.
+	 * @return number of rows in the data source.
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Sorts the table rows with the specified DataComparators.
+	 * The row values are compared in the way the comparators are specified.
+	 * Listeners are notified once with a single event describing all rows,
+	 * which is marked as permutation.
+	 * @param comparators comparators used for sorting
+	 * @see RowSorter
+	 */
+	public void sort(final DataComparator... comparators) {
+		DataChangeEvent event;
+		synchronized (this) {
+			checkMutable();
+			int[] order = new RowSorter(this, comparators).sort();
+			// Store the sorted rows starting at the beginning of the buffers
+			for (int col = 0; col < getColumnCount(); col++) {
+				double[] colValues = values[col];
+				double[] sortedValues = new double[rowCount];
+				BitSet colNulls = nulls[col];
+				BitSet sortedNulls = new BitSet(rowCount);
+				for (int row = 0; row < rowCount; row++) {
+					int index = getIndex(order[row]);
+					sortedValues[row] = colValues[index];
+					sortedNulls.set(row, colNulls.get(index));
+				}
+				System.arraycopy(sortedValues, 0, colValues, 0, rowCount);
+				colNulls.clear();
+				colNulls.or(sortedNulls);
+			}
+			head = 0;
+			event = new DataChangeEvent(this, 0, 0, getColumnCount(), rowCount, true);
+			if (event.getRowCount() > 0) {
+				notifyDataUpdated(event);
+			}
+		}
+		deliverChanges();
+	}
+
+	@Override
+	public void setName(String name) {
+		synchronized (this) {
+			super.setName(name);
+			lastSnapshot = null;
+		}
+	}
+
+	@Override
+	public long getVersion() {
+		return snapshot ? snapshotVersion : super.getVersion();
+	}
+
+	/**
+	 * Returns an immutable view of the current data. The buffers are copied,
+	 * so no values are boxed. If the table hasn't been changed since the
+	 * last snapshot, the same snapshot is returned.
+	 * @return Immutable view of the current data.
+	 */
+	@Override
+	public synchronized DataSource snapshot() {
+		if (snapshot) {
+			return this;
+		}
+		if (lastSnapshot == null || lastSnapshot.getVersion() != getVersion()) {
+			lastSnapshot = new RingBufferTable(this);
+		}
+		return lastSnapshot;
+	}
+
+	/**
+	 * Throws an exception if this instance is an immutable snapshot.
+	 */
+	private void checkMutable() {
+		if (snapshot) {
+			throw new UnsupportedOperationException(
+				"Snapshots cannot be changed."); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the buffer index of the specified row.
+	 * @param row Row index.
+	 * @return Index in the column buffers.
+	 */
+	private int getIndex(int row) {
+		int index = head + row;
+		return index >= capacity ? index - capacity : index;
+	}
+
+	/**
+	 * Removes the specified number of rows from the beginning of the table
+	 * without any notifications.
+	 * @param count Number of rows to remove.
+	 */
+	private void evict(int count) {
+		for (int row = 0; row < count; row++) {
+			int index = getIndex(row);
+			for (BitSet colNulls : nulls) {
+				colNulls.clear(index);
+			}
+		}
+		if (count == rowCount) {
+			head = 0;
+		} else {
+			head = getIndex(count);
+		}
+		rowCount -= count;
+	}
+
+	/**
+	 * Creates events for all cells in a range of rows that have been added
+	 * or that are about to be removed. A single row is described by one event
+	 * per cell, multiple rows are described by a single range event.
+	 * @param fromRow index of the first row (inclusive)
+	 * @param toRow index of the last row (exclusive)
+	 * @param removed {@code true} if the rows will be removed, {@code false}
+	 *        if they have been added.
+	 * @return Events describing the changed values.
+	 */
+	private DataChangeEvent[] createEvents(int fromRow, int toRow, boolean removed) {
+		int cols = getColumnCount();
+		int rows = toRow - fromRow;
+		if (rows == 0) {
+			return new DataChangeEvent[0];
+		} else if (rows > 1) {
+			return new DataChangeEvent[] {
+				new DataChangeEvent(this, 0, fromRow, cols, rows)
+			};
+		}
+		DataChangeEvent[] events = new DataChangeEvent[cols];
+		for (int col = 0; col < cols; col++) {
+			Comparable<?> value = get(col, fromRow);
+			if (removed) {
+				events[col] = new DataChangeEvent(this, col, fromRow, value, null);
+			} else {
+				events[col] = new DataChangeEvent(this, col, fromRow, null, value);
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Stores a value without any checks or notifications.
+	 * @param col Column index.
+	 * @param index Buffer index.
+	 * @param value Value to be stored, or {@code null} for an empty cell.
+	 */
+	private void setValue(int col, int index, Double value) {
+		if (value == null) {
+			values[col][index] = Double.NaN;
+			nulls[col].set(index);
+		} else {
+			values[col][index] = value;
+			nulls[col].clear(index);
+		}
+	}
+
+	/**
+	 * Checks whether the specified values can be stored as a row of this
+	 * table. If not, an {@code IllegalArgumentException} is thrown.
+	 * @param values Row values.
+	 */
+	private void checkRow(List<? extends Comparable<?>> values) {
+		if (values.size() != getColumnCount()) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Wrong number of columns! Expected {0,number,integer}, got {1,number,integer}.", //$NON-NLS-1$
+				getColumnCount(), values.size()));
+		}
+		for (Comparable<?> value : values) {
+			if (value != null && !(value instanceof Double)) {
+				throw new IllegalArgumentException(MessageFormat.format(
+					"Wrong column type! Expected {0}, got {1}.", //$NON-NLS-1$
+					Double.class, value.getClass()));
+			}
+		}
+	}
+}
@@ -0,0 +1,401 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.erichseifert.gral.data.comparators.Ascending;
+import de.erichseifert.gral.data.comparators.DataComparator;
+import de.erichseifert.gral.data.comparators.Descending;
+
+/**
+ * <p>Class that determines the order of the rows of a data source according
+ * to a set of {@code DataComparator}s without changing the data source.</p>
+ *
+ * <p>The values of the columns used by {@code Ascending} and
+ * {@code Descending} comparators are extracted once as primitive keys:
+ * numeric values are used directly, categories are replaced by their
+ * codes, and other values are replaced by their rank. Only an array of
+ * row indexes is sorted, using a stable merge sort. Large data sources are
+ * sorted in parallel.</p>
+ */
+class RowSorter {
+	/** Minimal number of rows to sort in parallel. */
+	static final int PARALLEL_THRESHOLD = 1 << 16;
+	/** Maximal length of ranges that are sorted by insertion sort. */
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	/** Rules to use for sorting. */
+	private final DataComparator[] comparators;
+	/** Primitive key for each comparator, or {@code null}. */
+	private final double[][] keys;
+	/** Rows with empty cells for each key, or {@code null}. */
+	private final BitSet[] nulls;
+	/** Whether the order of each key is reversed. */
+	private final boolean[] descending;
+	/** Records for comparators without primitive keys, or {@code null}. */
+	private final Record[] records;
+	/** Number of rows to sort. */
+	private final int rowCount;
+
+	/**
+	 * Initializes a new instance and extracts the keys from the specified
+	 * data source.
+	 * @param data Data source to be sorted.
+	 * @param comparators Rules to use for sorting.
+	 */
+	public RowSorter(DataSource data, DataComparator... comparators) {
+		this.comparators = comparators;
+		rowCount = data.getRowCount();
+		keys = new double[comparators.length][];
+		nulls = new BitSet[comparators.length];
+		descending = new boolean[comparators.length];
+
+		boolean recordsNeeded = false;
+		for (int i = 0; i < comparators.length; i++) {
+			DataComparator comparator = comparators[i];
+			// Subclasses may compare records differently
+			Class<?> comparatorType = comparator.getClass();
+			if (comparatorType != Ascending.class && comparatorType != Descending.class) {
+				recordsNeeded = true;
+				continue;
+			}
+			descending[i] = comparatorType == Descending.class;
+			nulls[i] = new BitSet(rowCount);
+			int col = comparator.getColumn();
+			Class<?> type = data.getColumnTypes()[col];
+			if (isPrimitive(type)) {
+				keys[i] = getValues(data, col, nulls[i]);
+			} else if (Category.class.equals(type)) {
+				keys[i] = getCodes(data, col, nulls[i]);
+			}
+			if (keys[i] == null) {
+				keys[i] = getRanks(data, col, nulls[i]);
+			}
+		}
+
+		if (recordsNeeded) {
+			records = new Record[rowCount];
+			for (int row = 0; row < rowCount; row++) {
+				records[row] = data.getRecord(row);
+			}
+		} else {
+			records = null;
+		}
+	}
+
+	/**
+	 * Returns the sorted order of the rows.
+	 * @return Array containing the index of the original row for each
+	 *         position in the sorted order.
+	 */
+	public int[] sort() {
+		int[] order = new int[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			order[row] = row;
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (rowCount < PARALLEL_THRESHOLD || threads < 2) {
+			mergeSort(order, new int[rowCount], 0, rowCount);
+			return order;
+		}
+		return sortParallel(order, threads);
+	}
+
+	/**
+	 * Sorts ranges of rows with several threads and merges the sorted ranges
+	 * afterwards.
+	 * @param order Rows to be sorted.
+	 * @param threads Number of threads.
+	 * @return Sorted rows.
+	 */
+	private int[] sortParallel(final int[] order, int threads) {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final int[] buffer = new int[order.length];
+			int[] bounds = new int[threads + 1];
+			for (int i = 0; i <= threads; i++) {
+				bounds[i] = (int) ((long) order.length*i/threads);
+			}
+
+			// Sort ranges
+			List<Future<?>> tasks = new ArrayList<Future<?>>(threads);
+			for (int i = 0; i < threads; i++) {
+				final int from = bounds[i];
+				final int to = bounds[i + 1];
+				tasks.add(executor.submit(new Runnable() {
+					public void run() {
+						mergeSort(order, buffer, from, to);
+					}
+				}));
+			}
+			await(tasks);
+
+			// Merge pairs of sorted ranges until a single range is left
+			int[] src = order;
+			int[] dest = buffer;
+			while (bounds.length > 2) {
+				int ranges = bounds.length - 1;
+				int[] boundsMerged = new int[(ranges + 1)/2 + 1];
+				tasks.clear();
+				for (int i = 0; i < ranges; i += 2) {
+					final int[] mergeSrc = src;
+					final int[] mergeDest = dest;
+					final int from = bounds[i];
+					final int mid = bounds[Math.min(i + 1, ranges)];
+					final int to = bounds[Math.min(i + 2, ranges)];
+					tasks.add(executor.submit(new Runnable() {
+						public void run() {
+							merge(mergeSrc, mergeDest, from, mid, to);
+						}
+					}));
+					boundsMerged[i/2] = from;
+				}
+				boundsMerged[boundsMerged.length - 1] = bounds[ranges];
+				await(tasks);
+				bounds = boundsMerged;
+				int[] tmp = src;
+				src = dest;
+				dest = tmp;
+			}
+			return src;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Waits for the specified tasks to be finished. Exceptions thrown by the
+	 * tasks are passed on to the calling thread.
+	 * @param tasks Tasks.
+	 */
+	static void await(List<Future<?>> tasks) {
+		try {
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Waiting for tasks has been interrupted.", e); //$NON-NLS-1$
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Sorts a range of rows with a stable merge sort.
+	 * @param order Rows to be sorted.
+	 * @param buffer Temporary storage of the same size.
+	 * @param from First index of the range (inclusive).
+	 * @param to Last index of the range (exclusive).
+	 */
+	private void mergeSort(int[] order, int[] buffer, int from, int to) {
+		if (to - from <= INSERTION_SORT_THRESHOLD) {
+			for (int i = from + 1; i < to; i++) {
+				int row = order[i];
+				int j = i - 1;
+				while (j >= from && compare(order[j], row) > 0) {
+					order[j + 1] = order[j];
+					j--;
+				}
+				order[j + 1] = row;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(order, buffer, from, mid);
+		mergeSort(order, buffer, mid, to);
+		if (compare(order[mid - 1], order[mid]) <= 0) {
+			return;
+		}
+		System.arraycopy(order, from, buffer, from, to - from);
+		merge(buffer, order, from, mid, to);
+	}
+
+	/**
+	 * Merges two adjacent sorted ranges.
+	 * @param src Array containing the sorted ranges.
+	 * @param dest Array to store the merged range.
+	 * @param from First index of the first range (inclusive).
+	 * @param mid First index of the second range.
+	 * @param to Last index of the second range (exclusive).
+	 */
+	private void merge(int[] src, int[] dest, int from, int mid, int to) {
+		int i = from;
+		int j = mid;
+		for (int k = from; k < to; k++) {
+			if (j >= to || (i < mid && compare(src[i], src[j]) <= 0)) {
+				dest[k] = src[i++];
+			} else {
+				dest[k] = src[j++];
+			}
+		}
+	}
+
+	/**
+	 * Compares two rows using the rules of this instance.
+	 * @param row1 First row.
+	 * @param row2 Second row.
+	 * @return A negative number if the first row is less than the second,
+	 *         zero if both rows are equal, or a positive number if the
+	 *         first row is greater than the second.
+	 */
+	private int compare(int row1, int row2) {
+		for (int i = 0; i < comparators.length; i++) {
+			int result;
+			double[] key = keys[i];
+			if (key == null) {
+				result = comparators[i].compare(records[row1], records[row2]);
+			} else {
+				// null values sort as if larger than non-null values
+				boolean null1 = nulls[i].get(row1);
+				boolean null2 = nulls[i].get(row2);
+				if (null1 || null2) {
+					result = (null1 == null2) ? 0 : (null1 ? 1 : -1);
+				} else {
+					result = Double.compare(key[row1], key[row2]);
+				}
+				if (descending[i]) {
+					result = -result;
+				}
+			}
+			if (result != 0) {
+				return result;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns whether the values of the specified type can be compared as
+	 * {@code double} values without changing their order.
+	 * @param type Column type.
+	 * @return {@code true} if the values can be compared as {@code double}.
+	 */
+	private static boolean isPrimitive(Class<?> type) {
+		return type == Double.class || type == Float.class
+			|| type == Integer.class || type == Short.class || type == Byte.class;
+	}
+
+	/**
+	 * Returns the numeric values of a column.
+	 * @param data Data source.
+	 * @param col Column index.
+	 * @param nulls Set of rows that will be marked if they are empty.
+	 * @return Numeric values.
+	 */
+	private static double[] getValues(DataSource data, int col, BitSet nulls) {
+		double[] values = data.getDoubles(col, 0, data.getRowCount(), null);
+		for (int row = 0; row < values.length; row++) {
+			if (Double.isNaN(values[row]) && data.get(col, row) == null) {
+				nulls.set(row);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the code of each category of a column. The codes can only be
+	 * used if all categories belong to the same dictionary.
+	 * @param data Data source.
+	 * @param col Column index.
+	 * @param nulls Set of rows that will be marked if they are empty.
+	 * @return Codes of the categories, or {@code null} if the categories
+	 *         belong to different dictionaries.
+	 */
+	private static double[] getCodes(DataSource data, int col, BitSet nulls) {
+		int rowCount = data.getRowCount();
+		double[] codes = new double[rowCount];
+		CategoryDictionary dictionary = null;
+		for (int row = 0; row < rowCount; row++) {
+			Category category = (Category) data.get(col, row);
+			if (category == null) {
+				nulls.set(row);
+				continue;
+			}
+			if (dictionary == null) {
+				dictionary = category.getDictionary();
+			} else if (category.getDictionary() != dictionary) {
+				nulls.clear();
+				return null;
+			}
+			codes[row] = category.getCode();
+		}
+		return codes;
+	}
+
+	/**
+	 * Returns the rank of each value of a column. Equal values have the
+	 * same rank.
+	 * @param data Data source.
+	 * @param col Column index.
+	 * @param nulls Set of rows that will be marked if they are empty.
+	 * @return Ranks of the values.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static double[] getRanks(DataSource data, int col, BitSet nulls) {
+		int rowCount = data.getRowCount();
+		final Comparable[] values = new Comparable[rowCount];
+		Integer[] rows = new Integer[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			values[row] = data.get(col, row);
+			rows[row] = row;
+			if (values[row] == null) {
+				nulls.set(row);
+			}
+		}
+		Arrays.sort(rows, new Comparator<Integer>() {
+			public int compare(Integer row1, Integer row2) {
+				Comparable value1 = values[row1];
+				Comparable value2 = values[row2];
+				if (value1 == null || value2 == null) {
+					return (value1 == value2) ? 0 : (value1 == null ? 1 : -1);
+				}
+				return value1.compareTo(value2);
+			}
+		});
+		double[] ranks = new double[rowCount];
+		int rank = 0;
+		for (int i = 0; i < rowCount; i++) {
+			if (i > 0 && values[rows[i]] != null
+					&& values[rows[i]].compareTo(values[rows[i - 1]]) != 0) {
+				rank++;
+			}
+			ranks[rows[i]] = rank;
+		}
+		return ranks;
+	}
+}
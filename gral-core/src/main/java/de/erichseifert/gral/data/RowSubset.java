@@ -23,8 +23,14 @@ package de.erichseifert.gral.data;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * <p>Abstract class that represents a view on several rows of a data source.
@@ -40,32 +46,65 @@ import java.util.List;
  *     }
  * };
  * </pre>
+ *
+ * <p>Changes of the original data source are processed incrementally: only
+ * added and updated rows are tested again, and the indexes of accepted rows
+ * are shifted if rows have been removed. All rows are tested again if the
+ * change events don't describe the changes unambiguously. Tests of all rows
+ * can be performed in parallel if {@code accept(Row)} is thread-safe.</p>
+ *
+ * <p>The change events of the original data source are translated to the
+ * rows of this data source: added and removed events describe only rows
+ * that enter or leave the subset. If the changes can't be described this
+ * way, listeners are notified with empty events.</p>
  */
 public abstract class RowSubset extends AbstractDataSource
 		implements DataListener {
 	/** Version id for serialization. */
 	private static final long serialVersionUID = -5396152732545986903L;
 
+	/** Minimal number of rows to test in parallel. */
+	private static final int PARALLEL_THRESHOLD = 1 << 14;
+
 	/** Original data source. */
 	private final DataSource original;
-	/** List of row indexes that are stored in this filtered data source. */
-	private transient List<Integer> accepted;
+	/** Whether all rows should be tested in parallel. */
+	private final boolean parallel;
+	/** Indexes of the accepted rows in ascending order. */
+	private transient int[] accepted;
+	/** Number of accepted rows. */
+	private transient int acceptedCount;
+	/** Number of rows of the original data source after the last update. */
+	private transient int rowCountOrig;
 
 	/**
 	 * Creates a new instance with the specified data source.
 	 * @param original DataSource to be filtered.
 	 */
-	@SuppressWarnings("unchecked")
 	public RowSubset(DataSource original) {
-		accepted = new ArrayList<Integer>();
+		this(original, false);
+	}
+
+	/**
+	 * Creates a new instance with the specified data source. If
+	 * {@code parallel} is {@code true}, the method {@code accept(Row)} may
+	 * be called by several threads at the same time when all rows are
+	 * tested.
+	 * @param original DataSource to be filtered.
+	 * @param parallel Whether all rows should be tested in parallel.
+	 */
+	@SuppressWarnings("unchecked")
+	public RowSubset(DataSource original, boolean parallel) {
+		accepted = new int[0];
 		this.original = original;
+		this.parallel = parallel;
 		this.original.addDataListener(this);
 		dataUpdated(this.original);
 	}
 
 	@Override
 	public Row getRow(int row) {
-		int rowOrig = accepted.get(row);
+		int rowOrig = getOriginalRow(row);
 		return original.getRow(rowOrig);
 	}
 
@@ -76,10 +115,16 @@ public abstract class RowSubset extends AbstractDataSource
 	 * @return the specified value of the data cell
 	 */
 	public Comparable<?> get(int col, int row) {
-		int rowOrig = accepted.get(row);
+		int rowOrig = getOriginalRow(row);
 		return original.get(col, rowOrig);
 	}
 
+	@Override
+	public double getDouble(int col, int row) {
+		int rowOrig = getOriginalRow(row);
+		return original.getDouble(col, rowOrig);
+	}
+
 	@Override
 	public int getColumnCount() {
 		return original.getColumnCount();
@@ -90,7 +135,7 @@ public abstract class RowSubset extends AbstractDataSource
 	 * @return number of rows in the data source.
 	 */
 	public int getRowCount() {
-		return accepted.size();
+		return acceptedCount;
 	}
 
 	@Override
@@ -98,6 +143,23 @@ public abstract class RowSubset extends AbstractDataSource
 		return original.getColumnTypes();
 	}
 
+	/**
+	 * Creates an immutable view of the current data from the snapshot of the
+	 * original data source. If the original data source creates a
+	 * {@code DataSnapshot}, its records are shared.
+	 * @return Immutable view of the current data.
+	 */
+	@Override
+	protected DataSource createSnapshot() {
+		DataSource snapshot = original.snapshot();
+		// The accepted rows only match a snapshot with the same rows
+		if (snapshot instanceof DataSnapshot && snapshot.getRowCount() == rowCountOrig) {
+			return ((DataSnapshot) snapshot).selectRows(
+				getName(), accepted, acceptedCount, getVersion());
+		}
+		return super.createSnapshot();
+	}
+
 	/**
 	 * Method that is invoked when data has been added.
 	 * This method is invoked by objects that provide support for
@@ -107,8 +169,10 @@ public abstract class RowSubset extends AbstractDataSource
 	 *        have been added.
 	 */
 	public void dataAdded(DataSource source, DataChangeEvent... events) {
-		dataChanged(source, events);
-		notifyDataAdded(events);
+		DataChangeEvent[] eventsTx = rowsAdded(events);
+		if (eventsTx != null) {
+			notifyDataAdded(eventsTx);
+		}
 	}
 
 	/**
@@ -120,8 +184,10 @@ public abstract class RowSubset extends AbstractDataSource
 	 *        have been added
 	 */
 	public void dataUpdated(DataSource source, DataChangeEvent... events) {
-		dataChanged(source, events);
-		notifyDataUpdated(events);
+		DataChangeEvent[] eventsTx = rowsUpdated(events);
+		if (eventsTx != null) {
+			notifyDataUpdated(eventsTx);
+		}
 	}
 
 	/**
@@ -133,33 +199,265 @@ public abstract class RowSubset extends AbstractDataSource
 	 *        have been removed.
 	 */
 	public void dataRemoved(DataSource source, DataChangeEvent... events) {
-		dataChanged(source, events);
-		notifyDataRemoved(events);
+		DataChangeEvent[] eventsTx = rowsRemoved(events);
+		if (eventsTx != null) {
+			notifyDataRemoved(eventsTx);
+		}
 	}
 
 	/**
-	 * Method that is invoked when data has been added, updated, or removed.
-	 * This method is invoked by objects that provide support for
-	 * {@code DataListener}s and should not be called manually.
-	 * @param source Data source that has been changed.
-	 * @param events Optional event object describing the data values that
-	 *        have been changed.
+	 * Tests the rows that have been appended to the original data source.
+	 * @param events Events describing the added rows.
+	 * @return Events describing the rows that have been added to this data
+	 *         source, or {@code null} if no row has been added.
+	 */
+	private DataChangeEvent[] rowsAdded(DataChangeEvent[] events) {
+		int rowCount = original.getRowCount();
+		BitSet rows = getRows(events);
+		if (rows == null || rows.nextSetBit(0) < rowCountOrig
+				|| rows.length() > rowCount
+				|| rows.cardinality() != rowCount - rowCountOrig) {
+			update();
+			return new DataChangeEvent[0];
+		}
+		for (int row = rowCountOrig; row < rowCount; row++) {
+			if (accept(original.getRow(row))) {
+				append(row);
+			}
+		}
+		rowCountOrig = rowCount;
+		return translate(events);
+	}
+
+	/**
+	 * Tests the rows of the original data source that have been updated.
+	 * @param events Events describing the updated rows.
+	 * @return Events describing the rows of this data source that have been
+	 *         updated, an empty array if rows have entered or left this data
+	 *         source, or {@code null} if no row has been updated.
 	 */
-	private void dataChanged(DataSource source, DataChangeEvent... events) {
-		update();
+	private DataChangeEvent[] rowsUpdated(DataChangeEvent[] events) {
+		int rowCount = original.getRowCount();
+		BitSet rows = getRows(events);
+		if (rows == null || rowCount != rowCountOrig || rows.length() > rowCount) {
+			update();
+			return new DataChangeEvent[0];
+		}
+		// Merge the updated rows with the rows that are still accepted
+		int[] acceptedNew = new int[acceptedCount + rows.cardinality()];
+		int count = 0;
+		int i = 0;
+		boolean membershipChanged = false;
+		for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+			while (i < acceptedCount && accepted[i] < row) {
+				acceptedNew[count++] = accepted[i++];
+			}
+			boolean acceptedBefore = i < acceptedCount && accepted[i] == row;
+			if (acceptedBefore) {
+				i++;
+			}
+			boolean acceptedAfter = accept(original.getRow(row));
+			if (acceptedAfter) {
+				acceptedNew[count++] = row;
+			}
+			membershipChanged |= acceptedBefore != acceptedAfter;
+		}
+		while (i < acceptedCount) {
+			acceptedNew[count++] = accepted[i++];
+		}
+		accepted = acceptedNew;
+		acceptedCount = count;
+		if (membershipChanged) {
+			return new DataChangeEvent[0];
+		}
+		return translate(events);
 	}
 
 	/**
-	 * Updates the list of accepted rows.
+	 * Removes the rows that have been removed from the original data source
+	 * and shifts the indexes of the following rows. Only a single range of
+	 * removed rows can be processed incrementally.
+	 * @param events Events describing the removed rows.
+	 * @return Events describing the rows that have been removed from this
+	 *         data source, or {@code null} if no row has been removed.
+	 */
+	private DataChangeEvent[] rowsRemoved(DataChangeEvent[] events) {
+		if (events == null || events.length == 0) {
+			update();
+			return new DataChangeEvent[0];
+		}
+		int rowFirst = events[0].getRow();
+		int rowsRemoved = events[0].getRowCount();
+		for (DataChangeEvent event : events) {
+			if (event.getRow() != rowFirst || event.getRowCount() != rowsRemoved) {
+				update();
+				return new DataChangeEvent[0];
+			}
+		}
+		int rowLast = rowFirst + rowsRemoved;
+		if (rowFirst < 0 || rowLast > rowCountOrig
+				|| rowCountOrig - rowsRemoved != original.getRowCount()) {
+			update();
+			return new DataChangeEvent[0];
+		}
+		DataChangeEvent[] eventsTx = translate(events);
+		int count = 0;
+		for (int i = 0; i < acceptedCount; i++) {
+			int row = accepted[i];
+			if (row < rowFirst) {
+				accepted[count++] = row;
+			} else if (row >= rowLast) {
+				accepted[count++] = row - rowsRemoved;
+			}
+		}
+		acceptedCount = count;
+		rowCountOrig -= rowsRemoved;
+		return eventsTx;
+	}
+
+	/**
+	 * Translates events of the original data source to events of the
+	 * accepted rows of this data source. Events of rows that aren't
+	 * accepted are dropped.
+	 * @param events Events with rows of the original data source.
+	 * @return Events with rows of this data source, or {@code null} if no
+	 *         accepted row is affected.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private DataChangeEvent[] translate(DataChangeEvent[] events) {
+		List<DataChangeEvent> eventsTx = new ArrayList<DataChangeEvent>(events.length);
+		for (DataChangeEvent event : events) {
+			int rowFirst = getAcceptedIndex(event.getRow());
+			int rowLast = getAcceptedIndex(event.getRow() + event.getRowCount());
+			if (rowFirst == rowLast) {
+				continue;
+			}
+			if (event.isRange()) {
+				eventsTx.add(new DataChangeEvent(this, event.getCol(), rowFirst,
+					event.getColCount(), rowLast - rowFirst));
+			} else {
+				Comparable valOld = event.getOld();
+				Comparable valNew = event.getNew();
+				eventsTx.add(new DataChangeEvent(
+					this, event.getCol(), rowFirst, valOld, valNew));
+			}
+		}
+		if (eventsTx.isEmpty()) {
+			return null;
+		}
+		return eventsTx.toArray(new DataChangeEvent[eventsTx.size()]);
+	}
+
+	/**
+	 * Returns the index of the first accepted row whose index in the
+	 * original data source is greater than or equal to the specified row.
+	 * @param row Index of a row in the original data source.
+	 * @return Index of a row in this data source.
+	 */
+	private int getAcceptedIndex(int row) {
+		int index = Arrays.binarySearch(accepted, 0, acceptedCount, row);
+		return index >= 0 ? index : -(index + 1);
+	}
+
+	/**
+	 * Updates the list of accepted rows by testing all rows.
 	 */
 	private void update() {
-		accepted.clear();
-		for (int rowIndex = 0; rowIndex < original.getRowCount(); rowIndex++) {
-			Row row = original.getRow(rowIndex);
-			if (accept(row)) {
-				accepted.add(rowIndex);
+		int rowCount = original.getRowCount();
+		int threads = Runtime.getRuntime().availableProcessors();
+		acceptedCount = 0;
+		if (parallel && rowCount >= PARALLEL_THRESHOLD && threads > 1) {
+			updateParallel(rowCount, threads);
+		} else {
+			for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+				Row row = original.getRow(rowIndex);
+				if (accept(row)) {
+					append(rowIndex);
+				}
+			}
+		}
+		rowCountOrig = rowCount;
+	}
+
+	/**
+	 * Tests ranges of rows with several threads and appends the accepted
+	 * rows afterwards.
+	 * @param rowCount Number of rows to test.
+	 * @param threads Number of threads.
+	 */
+	private void updateParallel(int rowCount, int threads) {
+		final BitSet[] acceptedRanges = new BitSet[threads];
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> tasks = new ArrayList<Future<?>>(threads);
+			for (int i = 0; i < threads; i++) {
+				final int range = i;
+				final int from = (int) ((long) rowCount*i/threads);
+				final int to = (int) ((long) rowCount*(i + 1)/threads);
+				tasks.add(executor.submit(new Runnable() {
+					public void run() {
+						BitSet rows = new BitSet(to);
+						for (int rowIndex = from; rowIndex < to; rowIndex++) {
+							if (accept(original.getRow(rowIndex))) {
+								rows.set(rowIndex);
+							}
+						}
+						acceptedRanges[range] = rows;
+					}
+				}));
+			}
+			RowSorter.await(tasks);
+		} finally {
+			executor.shutdown();
+		}
+		for (BitSet rows : acceptedRanges) {
+			for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+				append(row);
+			}
+		}
+	}
+
+	/**
+	 * Adds a row index to the end of the accepted rows.
+	 * @param row Index of a row in the original data source.
+	 */
+	private void append(int row) {
+		if (acceptedCount == accepted.length) {
+			accepted = Arrays.copyOf(accepted, Math.max(16, acceptedCount + (acceptedCount >> 1)));
+		}
+		accepted[acceptedCount++] = row;
+	}
+
+	/**
+	 * Returns the index of the row in the original data source.
+	 * @param row Index of a row in this data source.
+	 * @return Index of the row in the original data source.
+	 */
+	private int getOriginalRow(int row) {
+		if (row < 0 || row >= acceptedCount) {
+			throw new IndexOutOfBoundsException(MessageFormat.format(
+				"Row {0,number,integer} does not exist.", row)); //$NON-NLS-1$
+		}
+		return accepted[row];
+	}
+
+	/**
+	 * Returns the rows that are described by the specified events.
+	 * @param events Events.
+	 * @return Set of rows, or {@code null} if there are no events.
+	 */
+	private static BitSet getRows(DataChangeEvent[] events) {
+		if (events == null || events.length == 0) {
+			return null;
+		}
+		BitSet rows = new BitSet();
+		for (DataChangeEvent event : events) {
+			if (event.getRow() < 0) {
+				return null;
 			}
+			rows.set(event.getRow(), event.getRow() + event.getRowCount());
 		}
+		return rows;
 	}
 
 	/**
@@ -182,7 +480,7 @@ public abstract class RowSubset extends AbstractDataSource
 		in.defaultReadObject();
 
 		// Handle transient fields
-		accepted = new ArrayList<Integer>();
+		accepted = new int[0];
 
 		// Update caches
 		dataUpdated(original);
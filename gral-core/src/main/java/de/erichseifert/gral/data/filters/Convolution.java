@@ -25,11 +25,13 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 
 import de.erichseifert.gral.data.DataSource;
-import de.erichseifert.gral.util.DataUtils;
 import de.erichseifert.gral.util.MathUtils;
 
 /**
  * <p>Class that applies a specified kernel to a data source to convolve it.</p>
+ * <p>Large kernels are applied using fast Fourier transforms. The values
+ * outside of the data source are added as padding according to the edge
+ * handling mode before the transform.</p>
  * <p>Functionality includes:</p>
  * <ul>
  *   <li>Getting and setting the {@code Kernel} used for convolution</li>
@@ -39,6 +41,9 @@ public class Convolution extends Filter2D {
 	/** Version id for serialization. */
 	private static final long serialVersionUID = 7155205321415314271L;
 
+	/** Minimal kernel size for convolution using fast Fourier transforms. */
+	static final int FFT_THRESHOLD = 64;
+
 	/** Kernel that provides the values to convolve the data source. */
 	private final Kernel kernel;
 
@@ -67,6 +72,22 @@ public class Convolution extends Filter2D {
 	@Override
 	protected void filter() {
 		clear();
+		Kernel kernel = getKernel();
+		if (kernel != null && kernel.size() >= FFT_THRESHOLD) {
+			double[][] filteredCols = new double[getColumnCountFiltered()][];
+			for (int colIndex = 0; colIndex < filteredCols.length; colIndex++) {
+				int colIndexOriginal = getIndexOriginal(colIndex);
+				filteredCols[colIndex] = convolve(colIndexOriginal, kernel);
+			}
+			for (int rowIndex = 0; rowIndex < getRowCount(); rowIndex++) {
+				Double[] filteredRow = new Double[filteredCols.length];
+				for (int colIndex = 0; colIndex < filteredRow.length; colIndex++) {
+					filteredRow[colIndex] = filteredCols[colIndex][rowIndex];
+				}
+				add(filteredRow);
+			}
+			return;
+		}
 		for (int rowIndex = 0; rowIndex < getRowCount(); rowIndex++) {
 			Double[] filteredRow = new Double[getColumnCountFiltered()];
 			for (int colIndex = 0; colIndex < filteredRow.length; colIndex++) {
@@ -87,14 +108,12 @@ public class Convolution extends Filter2D {
 	private double convolve(int col, int row) {
 		Kernel kernel = getKernel();
 		if (kernel == null) {
-			Comparable<?> original = getOriginal(col, row);
-			return DataUtils.getValueOrDefault((Number) original, Double.NaN);
+			return getOriginalDouble(col, row);
 		}
 		double sum = 0.0;
 		for (int k = kernel.getMinIndex(); k <= kernel.getMaxIndex(); k++) {
 			int r = row + k;
-			Comparable<?> original = getOriginal(col, r);
-			double v = DataUtils.getValueOrDefault((Number) original, Double.NaN);
+			double v = getOriginalDouble(col, r);
 			if (!MathUtils.isCalculatable(v)) {
 				return v;
 			}
@@ -103,6 +122,63 @@ public class Convolution extends Filter2D {
 		return sum;
 	}
 
+	/**
+	 * Calculates the convolved values of a whole column using fast Fourier
+	 * transforms. The results are the same as the results of
+	 * {@link #convolve(int, int)}: if a value that isn't calculatable is
+	 * within the range of the kernel, this value is used as result.
+	 * @param col Column index.
+	 * @param kernel Kernel.
+	 * @return Convolved values of all rows.
+	 */
+	private double[] convolve(int col, Kernel kernel) {
+		int rowCount = getRowCount();
+		if (rowCount == 0) {
+			return new double[0];
+		}
+		int minIndex = kernel.getMinIndex();
+		int kernelSize = kernel.size();
+
+		// Pad the values according to the edge handling mode
+		double[] column = getOriginal().getDoubles(col, 0, rowCount, null);
+		double[] values = new double[rowCount + kernelSize - 1];
+		for (int i = 0; i < values.length; i++) {
+			int row = i + minIndex;
+			if (row >= 0 && row < rowCount) {
+				values[i] = column[row];
+			} else {
+				values[i] = getOriginalDouble(col, row);
+			}
+		}
+
+		// Find the next value that isn't calculatable for each position and
+		// replace these values by zero for the transform
+		int[] nextInvalid = new int[values.length + 1];
+		nextInvalid[values.length] = values.length;
+		double[] valuesValid = new double[values.length];
+		for (int i = values.length - 1; i >= 0; i--) {
+			if (MathUtils.isCalculatable(values[i])) {
+				nextInvalid[i] = nextInvalid[i + 1];
+				valuesValid[i] = values[i];
+			} else {
+				nextInvalid[i] = i;
+			}
+		}
+
+		double[] kernelValues = new double[kernelSize];
+		for (int j = 0; j < kernelSize; j++) {
+			kernelValues[j] = kernel.get(minIndex + j);
+		}
+		double[] result = FFTConvolution.correlate(valuesValid, kernelValues);
+		for (int row = 0; row < rowCount; row++) {
+			int invalid = nextInvalid[row];
+			if (invalid < row + kernelSize) {
+				result[row] = values[invalid];
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Custom deserialization method.
 	 * @param in Input stream.
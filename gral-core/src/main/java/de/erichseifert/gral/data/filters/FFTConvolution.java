@@ -0,0 +1,163 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data.filters;
+
+/**
+ * Class that correlates long sequences of values with large kernels using
+ * fast Fourier transforms. The values are split into blocks which are
+ * transformed separately and added up afterwards (overlap-add method), so
+ * the size of the transforms only depends on the size of the kernel.
+ */
+final class FFTConvolution {
+	/**
+	 * Default constructor that prevents creation of class.
+	 */
+	private FFTConvolution() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Correlates the specified values with a kernel. The result for index
+	 * {@code i} is the sum of {@code kernel[j]*values[i + j]} for all
+	 * kernel indexes {@code j}. All values must be calculatable.
+	 * @param values Values.
+	 * @param kernel Kernel values.
+	 * @return Array containing {@code values.length - kernel.length + 1}
+	 *         results.
+	 */
+	public static double[] correlate(double[] values, double[] kernel) {
+		int kernelSize = kernel.length;
+		int count = Math.max(values.length - kernelSize + 1, 0);
+		double[] result = new double[count];
+		if (count == 0) {
+			return result;
+		}
+
+		// Each transform must be able to hold a block and the kernel
+		int size = Integer.highestOneBit(Math.max(kernelSize - 1, 1)) << 2;
+		int blockSize = size - kernelSize + 1;
+		double[] cos = new double[size/2];
+		double[] sin = new double[size/2];
+		for (int i = 0; i < cos.length; i++) {
+			double angle = 2.0*Math.PI*i/size;
+			cos[i] = Math.cos(angle);
+			sin[i] = Math.sin(angle);
+		}
+
+		// The correlation is a convolution with the reversed kernel
+		double[] kernelRe = new double[size];
+		double[] kernelIm = new double[size];
+		for (int j = 0; j < kernelSize; j++) {
+			kernelRe[j] = kernel[kernelSize - 1 - j];
+		}
+		transform(kernelRe, kernelIm, cos, sin, false);
+
+		double[] re = new double[size];
+		double[] im = new double[size];
+		for (int start = 0; start < values.length; start += blockSize) {
+			int length = Math.min(blockSize, values.length - start);
+			System.arraycopy(values, start, re, 0, length);
+			for (int i = length; i < size; i++) {
+				re[i] = 0.0;
+			}
+			for (int i = 0; i < size; i++) {
+				im[i] = 0.0;
+			}
+
+			transform(re, im, cos, sin, false);
+			for (int i = 0; i < size; i++) {
+				double real = re[i]*kernelRe[i] - im[i]*kernelIm[i];
+				im[i] = re[i]*kernelIm[i] + im[i]*kernelRe[i];
+				re[i] = real;
+			}
+			transform(re, im, cos, sin, true);
+
+			// Add the convolved block to the overlapping results
+			int end = length + kernelSize - 1;
+			for (int i = 0; i < end; i++) {
+				int index = start + i - (kernelSize - 1);
+				if (index >= 0 && index < count) {
+					result[index] += re[i];
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Calculates the discrete Fourier transform of complex values in place
+	 * using the iterative radix-2 algorithm.
+	 * @param re Real parts. The length must be a power of two.
+	 * @param im Imaginary parts.
+	 * @param cos Cosine of {@code 2*PI*i/n} for the first {@code n/2}
+	 *        indexes.
+	 * @param sin Sine of {@code 2*PI*i/n} for the first {@code n/2} indexes.
+	 * @param inverse {@code true} to calculate the inverse transform.
+	 */
+	private static void transform(double[] re, double[] im, double[] cos,
+			double[] sin, boolean inverse) {
+		int n = re.length;
+
+		// Bit reversal permutation
+		for (int i = 1, j = 0; i < n; i++) {
+			int bit = n >> 1;
+			for (; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if (i < j) {
+				double tmp = re[i];
+				re[i] = re[j];
+				re[j] = tmp;
+				tmp = im[i];
+				im[i] = im[j];
+				im[j] = tmp;
+			}
+		}
+
+		for (int length = 2; length <= n; length <<= 1) {
+			int half = length >> 1;
+			int step = n/length;
+			for (int i = 0; i < n; i += length) {
+				for (int j = 0; j < half; j++) {
+					double wRe = cos[j*step];
+					double wIm = inverse ? sin[j*step] : -sin[j*step];
+					int a = i + j;
+					int b = a + half;
+					double tRe = re[b]*wRe - im[b]*wIm;
+					double tIm = re[b]*wIm + im[b]*wRe;
+					re[b] = re[a] - tRe;
+					im[b] = im[a] - tIm;
+					re[a] += tRe;
+					im[a] += tIm;
+				}
+			}
+		}
+
+		if (inverse) {
+			for (int i = 0; i < n; i++) {
+				re[i] /= n;
+				im[i] /= n;
+			}
+		}
+	}
+}
@@ -141,27 +141,64 @@ public abstract class Filter2D extends AbstractDataSource
 				return Double.NaN;
 			} else if (getMode() == Mode.ZERO) {
 				return 0.0;
-			} else if (getMode() == Mode.REPEAT) {
-				row = MathUtils.limit(row, 0, rowLast);
-			} else if (getMode() == Mode.MIRROR) {
-				int rem = Math.abs(row) / rowLast;
-				int mod = Math.abs(row) % rowLast;
-				if ((rem & 1) == 0) {
-					row = mod;
-				} else {
-					row = rowLast - mod;
-				}
-			} else if (getMode() == Mode.CIRCULAR) {
-				if (row >= 0) {
-					row = row % (rowLast + 1);
-				} else {
-					row = (row + 1) % (rowLast + 1) + rowLast;
-				}
 			}
+			row = getOriginalRow(row, rowLast);
 		}
 		return original.get(col, row);
 	}
 
+	/**
+	 * Returns the value of the original data source at the specified column
+	 * and row as a primitive {@code double}. Empty cells and values that
+	 * aren't numbers are returned as {@code NaN}.
+	 * @param col Column index.
+	 * @param row Row index.
+	 * @return Original value.
+	 */
+	protected double getOriginalDouble(int col, int row) {
+		int rowLast = original.getRowCount() - 1;
+		if (row < 0 || row > rowLast) {
+			if (getMode() == Mode.OMIT) {
+				return Double.NaN;
+			} else if (getMode() == Mode.ZERO) {
+				return 0.0;
+			}
+			row = getOriginalRow(row, rowLast);
+		}
+		return original.getDouble(col, row);
+	}
+
+	/**
+	 * Maps a row index outside of the original data source to a valid row
+	 * index according to the current edge handling mode.
+	 * @param row Row index outside of the original data source.
+	 * @param rowLast Index of the last row of the original data source.
+	 * @return Row index inside the original data source.
+	 */
+	private int getOriginalRow(int row, int rowLast) {
+		if (rowLast == 0) {
+			// A single row is repeated by all modes
+			row = 0;
+		} else if (getMode() == Mode.REPEAT) {
+			row = MathUtils.limit(row, 0, rowLast);
+		} else if (getMode() == Mode.MIRROR) {
+			int rem = Math.abs(row) / rowLast;
+			int mod = Math.abs(row) % rowLast;
+			if ((rem & 1) == 0) {
+				row = mod;
+			} else {
+				row = rowLast - mod;
+			}
+		} else if (getMode() == Mode.CIRCULAR) {
+			if (row >= 0) {
+				row = row % (rowLast + 1);
+			} else {
+				row = (row + 1) % (rowLast + 1) + rowLast;
+			}
+		}
+		return row;
+	}
+
 	/**
 	 * Clears this Filter2D.
 	 */
@@ -204,6 +241,19 @@ public abstract class Filter2D extends AbstractDataSource
 		return rows.get(row)[colPos];
 	}
 
+	@Override
+	public double getDouble(int col, int row) {
+		int colPos = getIndex(col);
+		if (colPos < 0) {
+			return original.getDouble(col, row);
+		}
+		Double value = rows.get(row)[colPos];
+		if (value == null) {
+			return Double.NaN;
+		}
+		return value;
+	}
+
 	/**
 	 * Sets a new value for a specified cell.
 	 * @param col Column of the cell.
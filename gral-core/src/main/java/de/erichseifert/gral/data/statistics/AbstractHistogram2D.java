@@ -58,6 +58,19 @@ public abstract class AbstractHistogram2D extends AbstractDataSource
 	 */
 	protected abstract void rebuildCells();
 
+	/**
+	 * Updates the histogram values after the data source has been changed.
+	 * The default implementation recalculates all values. Derived classes
+	 * can override this method to update only the values that are affected
+	 * by the events.
+	 * @param rowsChanged {@code true} if rows have been added or removed,
+	 *        {@code false} if values have been updated.
+	 * @param events Event objects describing the changed values.
+	 */
+	protected void updateCells(boolean rowsChanged, DataChangeEvent... events) {
+		rebuildCells();
+	}
+
 	/**
 	 * Method that is invoked when data has been added.
 	 * This method is invoked by objects that provide support for
@@ -67,7 +80,7 @@ public abstract class AbstractHistogram2D extends AbstractDataSource
 	 *        have been added.
 	 */
 	public void dataAdded(DataSource source, DataChangeEvent... events) {
-		dataChanged(source, events);
+		dataChanged(source, true, events);
 		notifyDataAdded(events);
 	}
 
@@ -80,7 +93,7 @@ public abstract class AbstractHistogram2D extends AbstractDataSource
 	 *        have been updated.
 	 */
 	public void dataUpdated(DataSource source, DataChangeEvent... events) {
-		dataChanged(source, events);
+		dataChanged(source, false, events);
 		notifyDataUpdated(events);
 	}
 
@@ -93,7 +106,7 @@ public abstract class AbstractHistogram2D extends AbstractDataSource
 	 *        have been removed.
 	 */
 	public void dataRemoved(DataSource source, DataChangeEvent... events) {
-		dataChanged(source, events);
+		dataChanged(source, true, events);
 		notifyDataRemoved(events);
 	}
 
@@ -102,11 +115,14 @@ public abstract class AbstractHistogram2D extends AbstractDataSource
 	 * This method is invoked by objects that provide support for
 	 * {@code DataListener}s and should not be called manually.
 	 * @param source Data source that has been changed.
+	 * @param rowsChanged {@code true} if rows have been added or removed,
+	 *        {@code false} if values have been updated.
 	 * @param events Optional event object describing the data values that
 	 *        have been changed.
 	 */
-	private void dataChanged(DataSource source, DataChangeEvent... events) {
-		rebuildCells();
+	private void dataChanged(DataSource source, boolean rowsChanged,
+			DataChangeEvent... events) {
+		updateCells(rowsChanged, events);
 	}
 
 	/**
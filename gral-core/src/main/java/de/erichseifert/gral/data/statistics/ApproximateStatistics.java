@@ -0,0 +1,454 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data.statistics;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import de.erichseifert.gral.data.AbstractDataSource;
+import de.erichseifert.gral.data.DataChangeEvent;
+import de.erichseifert.gral.data.DataSource;
+import de.erichseifert.gral.util.MathUtils;
+
+/**
+ * <p>Statistics that are estimated from a sample of rows, so they can be
+ * calculated quickly for huge data sources.</p>
+ * <p>The rows are divided into equally sized strata and one random row is
+ * taken from each stratum. Statistics that describe the distribution of
+ * the values, like the mean, the variance, or quantiles, are estimated
+ * directly from the sampled values. Totals, like the number of values or
+ * the sum, are scaled by the sampling fraction. The uncertainty of the most
+ * important estimates is available as a confidence interval.</p>
+ * <p>The statistics register themselves as listener of the data source, so
+ * the sample is taken again after the data has changed.</p>
+ * <p>The exact statistics can be calculated in the background using
+ * {@link #refine(Executor)}. As soon as they are available, they are used
+ * for all further requests and the registered
+ * {@code StatisticsListener}s are notified.</p>
+ * <p>Example:</p>
+ * <pre>
+ * ApproximateStatistics stats = new ApproximateStatistics(data, 1, 10000);
+ * double median = stats.get(Statistics.MEDIAN);
+ * double[] interval = stats.getConfidenceInterval(Statistics.MEDIAN);
+ * stats.refine(executor);
+ * </pre>
+ */
+public class ApproximateStatistics extends Statistics {
+	/** Standard score of the two-sided 95% confidence level. */
+	private static final double Z_95 = 1.959963984540054;
+	/** Seed of the random numbers, so the same rows are sampled for the
+	same data. */
+	private static final long SEED = 0L;
+
+	/** Data source that is analyzed. */
+	private final DataSource data;
+	/** Index of the analyzed column, or {@code -1} for all columns. */
+	private final int column;
+	/** Maximal number of sampled rows. */
+	private final int sampleSize;
+	/** Objects that will be notified when the statistics are refined. */
+	private final Set<StatisticsListener> statisticsListeners;
+
+	/** Number of changes that have been received from the data source. */
+	private long changeCount;
+	/** Current sample, or {@code null} if no sample has been taken for the
+	current data. */
+	private Sample sample;
+	/** Exact statistics, or {@code null} if they haven't been calculated
+	yet. */
+	private volatile Statistics exact;
+
+	/**
+	 * Values of a sample of rows.
+	 */
+	private static final class Sample {
+		/** Total number of rows. */
+		private final int rowCount;
+		/** Number of sampled rows. */
+		private final int sampledRows;
+		/** Values of all sampled cells. */
+		private final double[] values;
+		/** Sum of the calculatable values of each sampled row. */
+		private final double[] rowSums;
+		/** Number of calculatable values in each sampled row. */
+		private final double[] rowCounts;
+		/** Sorted calculatable values, or {@code null} if they haven't been
+		sorted yet. */
+		private double[] sorted;
+
+		/**
+		 * Takes a stratified sample of rows from the specified data source.
+		 * @param data Data source.
+		 * @param colFirst Index of the first analyzed column.
+		 * @param colLast Index of the last analyzed column.
+		 * @param sampleSize Maximal number of sampled rows.
+		 */
+		public Sample(DataSource data, int colFirst, int colLast, int sampleSize) {
+			rowCount = data.getRowCount();
+			sampledRows = Math.min(sampleSize, rowCount);
+			int colCount = colLast - colFirst + 1;
+			values = new double[sampledRows*colCount];
+			rowSums = new double[sampledRows];
+			rowCounts = new double[sampledRows];
+
+			Random random = new Random(SEED);
+			for (int i = 0; i < sampledRows; i++) {
+				int fromRow = (int) ((long) rowCount*i/sampledRows);
+				int toRow = (int) ((long) rowCount*(i + 1)/sampledRows);
+				int row = fromRow + random.nextInt(toRow - fromRow);
+				for (int col = colFirst; col <= colLast; col++) {
+					double value = data.getDouble(col, row);
+					values[i*colCount + col - colFirst] = value;
+					if (MathUtils.isCalculatable(value)) {
+						rowSums[i] += value;
+						rowCounts[i]++;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns whether all rows have been sampled.
+		 * @return {@code true} if the sample contains all rows.
+		 */
+		public boolean isComplete() {
+			return sampledRows == rowCount;
+		}
+
+		/**
+		 * Returns the factor for scaling totals of the sample to totals of
+		 * all rows.
+		 * @return Ratio of all rows to sampled rows.
+		 */
+		public double getScale() {
+			if (isComplete()) {
+				return 1.0;
+			}
+			return (double) rowCount/sampledRows;
+		}
+
+		/**
+		 * Returns the sorted calculatable values of the sample.
+		 * @return Sorted values.
+		 */
+		public double[] getSorted() {
+			if (sorted == null) {
+				sorted = new double[values.length];
+				int count = 0;
+				for (double value : values) {
+					if (MathUtils.isCalculatable(value)) {
+						sorted[count++] = value;
+					}
+				}
+				sorted = Arrays.copyOf(sorted, count);
+				Arrays.sort(sorted);
+			}
+			return sorted;
+		}
+	}
+
+	/**
+	 * Initializes new statistics that are estimated from a sample of rows
+	 * of the specified data source. The statistics are registered as
+	 * listener of the data source.
+	 * @param data Data source to be analyzed.
+	 * @param col Index of the column to be analyzed, or {@code -1} for all
+	 *        columns.
+	 * @param sampleSize Maximal number of sampled rows.
+	 */
+	public ApproximateStatistics(DataSource data, int col, int sampleSize) {
+		super(data, col);
+		if (sampleSize < 1) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Invalid sample size: {0,number,integer}.", //$NON-NLS-1$
+				sampleSize));
+		}
+		this.data = data;
+		this.column = col;
+		this.sampleSize = sampleSize;
+		statisticsListeners = new LinkedHashSet<StatisticsListener>();
+		data.addDataListener(this);
+	}
+
+	/**
+	 * Returns the maximal number of sampled rows.
+	 * @return Number of rows.
+	 */
+	public int getSampleSize() {
+		return sampleSize;
+	}
+
+	/**
+	 * Returns whether the statistics are exact. This is the case if they
+	 * have been refined or if the sample contains all rows.
+	 * @return {@code true} if the statistics are exact, {@code false} if
+	 *         they are estimated.
+	 */
+	public boolean isExact() {
+		return exact != null || getSample().isComplete();
+	}
+
+	/**
+	 * Returns the current sample. A new sample is taken if the data has
+	 * changed.
+	 * @return Sample.
+	 */
+	private synchronized Sample getSample() {
+		if (sample == null) {
+			int colFirst = column >= 0 ? column : 0;
+			int colLast = column >= 0 ? column : data.getColumnCount() - 1;
+			sample = new Sample(data, colFirst, colLast, sampleSize);
+		}
+		return sample;
+	}
+
+	/**
+	 * Returns the specified statistics value. If the exact statistics
+	 * haven't been calculated yet, the value is estimated from a sample.
+	 * @param key Requested information.
+	 * @return The value for the specified key as value, or <i>NaN</i>
+	 *         if the specified statistical value does not exist
+	 */
+	@Override
+	public double get(String key) {
+		Statistics exact = this.exact;
+		if (exact != null) {
+			return exact.get(key);
+		}
+		Sample sample = getSample();
+		double[] stats = new double[1];
+		Statistics.calculate(sample.values, sample.values.length, new String[] {key}, stats);
+		if (isTotal(key)) {
+			return stats[0]*sample.getScale();
+		}
+		return stats[0];
+	}
+
+	/**
+	 * Returns the 95% confidence interval of the specified estimated value.
+	 * Intervals are available for the number of values, the sum, the mean,
+	 * and the quantiles. If the statistics are exact, the interval only
+	 * contains the exact value.
+	 * @param key Requested information.
+	 * @return Array containing the lower and the upper bound, or
+	 *         <i>NaN</i> values if no interval is available.
+	 */
+	public double[] getConfidenceInterval(String key) {
+		if (isExact()) {
+			double value = get(key);
+			return new double[] {value, value};
+		}
+		Sample sample = getSample();
+		double n = sample.sampledRows;
+		// Finite population correction
+		double correction = Math.sqrt(1.0 - n/sample.rowCount);
+		if (N.equals(key) || SUM.equals(key)) {
+			double[] totals = N.equals(key) ? sample.rowCounts : sample.rowSums;
+			double[] stats = new double[2];
+			Statistics.calculate(totals, totals.length, new String[] {MEAN, VARIANCE}, stats);
+			double total = stats[0]*sample.rowCount;
+			double error = Z_95*sample.rowCount*Math.sqrt(stats[1]/n)*correction;
+			return new double[] {total - error, total + error};
+		} else if (MEAN.equals(key)) {
+			double[] stats = new double[3];
+			Statistics.calculate(sample.values, sample.values.length,
+				new String[] {N, MEAN, VARIANCE}, stats);
+			double error = Z_95*Math.sqrt(stats[2]/stats[0])*correction;
+			return new double[] {stats[1] - error, stats[1] + error};
+		}
+		double q = Double.NaN;
+		if (QUARTILE_1.equals(key)) {
+			q = 0.25;
+		} else if (QUARTILE_2.equals(key)) {
+			q = 0.50;
+		} else if (QUARTILE_3.equals(key)) {
+			q = 0.75;
+		}
+		double[] sorted = sample.getSorted();
+		if (Double.isNaN(q) || sorted.length == 0) {
+			return new double[] {Double.NaN, Double.NaN};
+		}
+		// Ranks of the order statistics that enclose the quantile
+		double rank = q*(sorted.length - 1);
+		double error = Z_95*Math.sqrt(sorted.length*q*(1.0 - q));
+		int lower = (int) Math.max(0.0, Math.floor(rank - error));
+		int upper = (int) Math.min(sorted.length - 1, Math.ceil(rank + error));
+		return new double[] {sorted[lower], sorted[upper]};
+	}
+
+	/**
+	 * Returns whether the specified key describes a total that grows with
+	 * the number of values.
+	 * @param key Key.
+	 * @return {@code true} if the estimate has to be scaled.
+	 */
+	private static boolean isTotal(String key) {
+		return N.equals(key) || SUM.equals(key) || SUM2.equals(key) ||
+			SUM3.equals(key) || SUM4.equals(key) ||
+			SUM_OF_DIFF_SQUARES.equals(key) || SUM_OF_DIFF_CUBICS.equals(key) ||
+			SUM_OF_DIFF_QUADS.equals(key);
+	}
+
+	/**
+	 * Calculates the exact statistics using the specified executor. When
+	 * the calculation has finished, the exact statistics are used for all
+	 * further requests and all registered listeners are notified. The
+	 * statistics are calculated for a snapshot of the data. If a change has
+	 * been received during the calculation, the result is discarded.
+	 * @param executor Executor that runs the calculation.
+	 */
+	public void refine(Executor executor) {
+		executor.execute(new Runnable() {
+			public void run() {
+				// The snapshot must contain exactly the changes that have
+				// been received before, otherwise changes would be missed
+				// or counted twice
+				long changes;
+				DataSource snapshot;
+				do {
+					changes = getChangeCount();
+					if (data instanceof AbstractDataSource) {
+						snapshot = ((AbstractDataSource) data).deliveredSnapshot();
+					} else {
+						snapshot = data.snapshot();
+					}
+				} while (changes != getChangeCount());
+
+				Statistics statistics = new Statistics(snapshot, column);
+				statistics.setThreadCount(getThreadCount());
+				statistics.setQuantileError(getQuantileError());
+				// Calculate moments and quantiles
+				statistics.get(MEAN);
+				statistics.get(MEDIAN);
+				Statistics exact = new Statistics(data, column);
+				exact.setThreadCount(getThreadCount());
+				exact.setQuantileError(getQuantileError());
+				exact.copyFrom(statistics);
+				// Changes are forwarded to the exact statistics while
+				// holding the same lock, so no change can be missed
+				synchronized (ApproximateStatistics.this) {
+					if (changeCount != changes) {
+						return;
+					}
+					ApproximateStatistics.this.exact = exact;
+				}
+				for (StatisticsListener listener : getStatisticsListeners()) {
+					listener.statisticsRefined(ApproximateStatistics.this);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of changes that have been received from the data
+	 * source.
+	 * @return Number of changes.
+	 */
+	private synchronized long getChangeCount() {
+		return changeCount;
+	}
+
+	/**
+	 * Adds the specified listener that will be notified when the statistics
+	 * are refined.
+	 * @param listener Listener to be added.
+	 */
+	public synchronized void addStatisticsListener(StatisticsListener listener) {
+		statisticsListeners.add(listener);
+	}
+
+	/**
+	 * Removes the specified listener.
+	 * @param listener Listener to be removed.
+	 */
+	public synchronized void removeStatisticsListener(StatisticsListener listener) {
+		statisticsListeners.remove(listener);
+	}
+
+	/**
+	 * Returns a copy of all registered listeners.
+	 * @return Listeners.
+	 */
+	private synchronized List<StatisticsListener> getStatisticsListeners() {
+		return new LinkedList<StatisticsListener>(statisticsListeners);
+	}
+
+	/**
+	 * Discards the current sample and updates the exact statistics if they
+	 * are available.
+	 * @param source Data source that has been changed.
+	 * @param events Optional event object describing the data values that
+	 *        have been added.
+	 */
+	@Override
+	public synchronized void dataAdded(DataSource source, DataChangeEvent... events) {
+		discardSample();
+		if (exact != null) {
+			exact.dataAdded(source, events);
+		}
+	}
+
+	/**
+	 * Discards the current sample and updates the exact statistics if they
+	 * are available.
+	 * @param source Data source that has been changed.
+	 * @param events Optional event object describing the data values that
+	 *        have been updated.
+	 */
+	@Override
+	public synchronized void dataUpdated(DataSource source, DataChangeEvent... events) {
+		discardSample();
+		if (exact != null) {
+			exact.dataUpdated(source, events);
+		}
+	}
+
+	/**
+	 * Discards the current sample and updates the exact statistics if they
+	 * are available.
+	 * @param source Data source that has been changed.
+	 * @param events Optional event object describing the data values that
+	 *        have been removed.
+	 */
+	@Override
+	public synchronized void dataRemoved(DataSource source, DataChangeEvent... events) {
+		discardSample();
+		if (exact != null) {
+			exact.dataRemoved(source, events);
+		}
+	}
+
+	/**
+	 * Discards the current sample, so a new sample is taken on the next
+	 * access, and counts the received change.
+	 */
+	private synchronized void discardSample() {
+		changeCount++;
+		sample = null;
+	}
+}
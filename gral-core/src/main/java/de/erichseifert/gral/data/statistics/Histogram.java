@@ -21,30 +21,53 @@
  */
 package de.erichseifert.gral.data.statistics;
 
+import java.text.MessageFormat;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Iterator;
 
 public class Histogram implements Iterable<Integer> {
-	private Iterable<Comparable<?>> data;
-	private Number[] breaks;
-	private Integer[] bins;
+	private final double[] breaks;
+	private final long[] bins;
+	/** Whether all bins have the same width, so bins can be located by
+	arithmetic instead of a search. */
+	private final boolean equidistant;
 
 	public Histogram(Iterable<Comparable<?>> data, int binCount) {
 		this(data, getEquidistantBreaks(data, binCount + 1));
 	}
 
 	public Histogram(Iterable<Comparable<?>> data, Number... breaks) {
+		this(breaks);
+		for (Comparable<?> value : data) {
+			if (!(value instanceof Number)) {
+				continue;
+			}
+			add(((Number) value).doubleValue());
+		}
+	}
+
+	/**
+	 * Creates an empty histogram with the specified breaks. Values can be
+	 * added with {@link #add(double)}.
+	 * @param breaks Ascending bin limits.
+	 */
+	public Histogram(Number... breaks) {
 		if (breaks.length < 2) {
 			throw new IllegalArgumentException("Invalid break count: " + breaks.length +
 					" A histogram requires at least two breaks to form a bucket.");
 		}
-		this.data = data;
-		this.breaks = breaks;
-		int binCount = breaks.length - 1;
-		bins = new Integer[binCount];
-		Arrays.fill(bins, new Integer(0));
-
-		computeDistribution();
+		this.breaks = new double[breaks.length];
+		for (int breakIndex = 0; breakIndex < breaks.length; breakIndex++) {
+			this.breaks[breakIndex] = breaks[breakIndex].doubleValue();
+			if (breakIndex > 0 && this.breaks[breakIndex] < this.breaks[breakIndex - 1]) {
+				throw new IllegalArgumentException(MessageFormat.format(
+					"Break {0,number,integer} is smaller than the previous break.", //$NON-NLS-1$
+					breakIndex));
+			}
+		}
+		bins = new long[breaks.length - 1];
+		equidistant = isEquidistant(this.breaks);
 	}
 
 	private static Number[] getEquidistantBreaks(Iterable<Comparable<?>> data, int breakCount) {
@@ -61,32 +84,115 @@ public class Histogram implements Iterable<Integer> {
 		return breaks;
 	}
 
-	private void computeDistribution() {
-		for (Comparable<?> value : data) {
-			if (!(value instanceof Number)) {
-				continue;
+	private static boolean isEquidistant(double[] breaks) {
+		double width = (breaks[breaks.length - 1] - breaks[0])/(breaks.length - 1);
+		if (!(width > 0.0) || Double.isInfinite(width)) {
+			return false;
+		}
+		// The bin index is corrected after the division, so small rounding
+		// errors in the breaks don't matter
+		double tolerance = width*1e-6;
+		for (int breakIndex = 1; breakIndex < breaks.length; breakIndex++) {
+			double widthBin = breaks[breakIndex] - breaks[breakIndex - 1];
+			if (Math.abs(widthBin - width) > tolerance) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the index of the bin that contains the specified value.
+	 * @param value Value.
+	 * @return Bin index, or {@code -1} if the value is outside of all bins.
+	 */
+	public int getBinIndex(double value) {
+		int last = bins.length;
+		if (!(value >= breaks[0] && value < breaks[last])) {
+			return -1;
+		}
+		if (equidistant) {
+			double width = (breaks[last] - breaks[0])/last;
+			int binIndex = (int) ((value - breaks[0])/width);
+			binIndex = Math.max(0, Math.min(binIndex, last - 1));
+			while (binIndex > 0 && value < breaks[binIndex]) {
+				binIndex--;
 			}
-			for (int binIndex = 0; binIndex < bins.length; binIndex++) {
-				double lowerBinLimit = breaks[binIndex].doubleValue();
-				double upperBinLimit = breaks[binIndex + 1].doubleValue();
-				double doubleValue = ((Number) value).doubleValue();
-				if (doubleValue >= lowerBinLimit && doubleValue < upperBinLimit) {
-					bins[binIndex]++;
-				}
+			while (binIndex < last - 1 && value >= breaks[binIndex + 1]) {
+				binIndex++;
+			}
+			return binIndex;
+		}
+		// Search the last break that is smaller than or equal to the value
+		int low = 0;
+		int high = last - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (breaks[mid] <= value) {
+				low = mid;
+			} else {
+				high = mid - 1;
 			}
 		}
+		return low;
+	}
+
+	/**
+	 * Counts the specified value in the bin that contains it. Values outside
+	 * of all bins are ignored.
+	 * @param value Value.
+	 */
+	public void add(double value) {
+		int binIndex = getBinIndex(value);
+		if (binIndex >= 0) {
+			bins[binIndex]++;
+		}
+	}
+
+	/**
+	 * Adds the counts of another histogram with the same breaks to this
+	 * histogram. This allows to compute histograms of large data in chunks.
+	 * @param histogram Histogram with the same breaks.
+	 */
+	public void merge(Histogram histogram) {
+		if (!Arrays.equals(breaks, histogram.breaks)) {
+			throw new IllegalArgumentException(
+				"Histograms with different breaks cannot be merged."); //$NON-NLS-1$
+		}
+		for (int binIndex = 0; binIndex < bins.length; binIndex++) {
+			bins[binIndex] += histogram.bins[binIndex];
+		}
 	}
 
 	public int size() {
-		return breaks.length - 1;
+		return bins.length;
 	}
 
 	public int get(int binIndex) {
+		return (int) Math.min(bins[binIndex], Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the number of values in the specified bin.
+	 * @param binIndex Bin index.
+	 * @return Number of values.
+	 */
+	public long getCount(int binIndex) {
 		return bins[binIndex];
 	}
 
 	@Override
 	public Iterator<Integer> iterator() {
-		return Arrays.asList(bins).iterator();
+		return new AbstractList<Integer>() {
+			@Override
+			public Integer get(int index) {
+				return Histogram.this.get(index);
+			}
+
+			@Override
+			public int size() {
+				return Histogram.this.size();
+			}
+		}.iterator();
 	}
 }
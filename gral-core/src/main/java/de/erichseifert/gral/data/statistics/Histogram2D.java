@@ -26,11 +26,11 @@ import java.io.ObjectInputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+import de.erichseifert.gral.data.DataChangeEvent;
 import de.erichseifert.gral.data.DataSource;
 import de.erichseifert.gral.graphics.Orientation;
 
@@ -54,18 +54,18 @@ public class Histogram2D extends AbstractHistogram2D {
 	/** Bin cells that store all aggregation counts. */
 	private final List<long[]> cellList;
 
-	/** Minimum values for cells. */
-	private transient Map<Integer, Long> cacheMin;
-	/** Maximum values for cells. */
-	private transient Map<Integer, Long> cacheMax;
+	/** Histograms that are used to find the cell of a value. */
+	private transient List<Histogram> locators;
+	/** Minimum values for cells, or {@code -1} if the value is unknown. */
+	private transient long[] cacheMin;
+	/** Maximum values for cells, or {@code -1} if the value is unknown. */
+	private transient long[] cacheMax;
 
 	private Histogram2D(DataSource data, Orientation orientation) {
 		super(data);
 		this.orientation = orientation;
 		breaks = new ArrayList<Number[]>();
 		cellList = new ArrayList<long[]>();
-		cacheMin = new HashMap<Integer, Long>();
-		cacheMax = new HashMap<Integer, Long>();
 	}
 
 	/**
@@ -79,20 +79,36 @@ public class Histogram2D extends AbstractHistogram2D {
 					   int breakCount) {
 		this(data, orientation);
 
-		// Create equally spaced breaks
-		int count = getData().getColumnCount();
-		if (orientation == Orientation.HORIZONTAL) {
-			count = getData().getRowCount();
+		// Determine the extrema of all columns or rows in a single pass
+		int colCount = getData().getColumnCount();
+		int rowCount = getData().getRowCount();
+		int count = (orientation == Orientation.HORIZONTAL) ? rowCount : colCount;
+		double[] mins = new double[count];
+		double[] maxs = new double[count];
+		Arrays.fill(mins, Double.NaN);
+		Arrays.fill(maxs, Double.NaN);
+		double[] values = null;
+		for (int col = 0; col < colCount; col++) {
+			values = getData().getDoubles(col, 0, rowCount, values);
+			for (int row = 0; row < rowCount; row++) {
+				double value = values[row];
+				if (Double.isNaN(value)) {
+					continue;
+				}
+				int index = (orientation == Orientation.HORIZONTAL) ? row : col;
+				if (!(value >= mins[index])) {
+					mins[index] = value;
+				}
+				if (!(value <= maxs[index])) {
+					maxs[index] = value;
+				}
+			}
 		}
+
+		// Create equally spaced breaks
 		for (int index = 0; index < count; index++) {
-			double min, max;
-			if (orientation == Orientation.HORIZONTAL) {
-				min = ((Number) getData().getRowStatistics(Statistics.MIN).get(0, index)).doubleValue();
-				max = ((Number) getData().getRowStatistics(Statistics.MAX).get(0, index)).doubleValue();
-			} else {
-				min = ((Number) getData().getColumnStatistics(Statistics.MIN).get(index, 0)).doubleValue();
-				max = ((Number) getData().getColumnStatistics(Statistics.MAX).get(index, 0)).doubleValue();
-			}
+			double min = mins[index];
+			double max = maxs[index];
 			double delta = (max - min + Double.MIN_VALUE) / breakCount;
 
 			Number[] breaks = new Double[breakCount + 1];
@@ -132,55 +148,203 @@ public class Histogram2D extends AbstractHistogram2D {
 	 */
 	@Override
 	protected void rebuildCells() {
-		// FIXME Very naive implementation
+		locators = new ArrayList<Histogram>(breaks.size());
 		cellList.clear();
-		cacheMin.clear();
-		cacheMax.clear();
-
-		// Iterate over histogram data sets
-		int breakIndex = 0;
 		for (Number[] brk : breaks) {
-			long[] cells = new long[brk.length - 1];
-			long colMin = Long.MAX_VALUE;
-			long colMax = Long.MIN_VALUE;
-
-			Iterable<? extends Comparable<?>> data;
-			if (orientation == Orientation.VERTICAL) {
-				data = getData().getColumn(breakIndex);
-			} else {
-				data = getData().getRecord(breakIndex);
-			}
+			locators.add(new Histogram(brk));
+			cellList.add(new long[brk.length - 1]);
+		}
+		cacheMin = null;
+		cacheMax = null;
 
-			// Iterate over data cells
-			for (Comparable<?> cell : data) {
-				if (!(cell instanceof Number)) {
-					continue;
+		int colCount = getData().getColumnCount();
+		int rowCount = getData().getRowCount();
+		double[] values = null;
+		if (orientation == Orientation.VERTICAL) {
+			for (int col = 0; col < Math.min(colCount, breaks.size()); col++) {
+				values = getData().getDoubles(col, 0, rowCount, values);
+				countValues(col, values, rowCount);
+			}
+		} else {
+			rowCount = Math.min(rowCount, breaks.size());
+			for (int col = 0; col < colCount; col++) {
+				values = getData().getDoubles(col, 0, rowCount, values);
+				for (int row = 0; row < rowCount; row++) {
+					count(row, values[row], 1);
 				}
-				Number numericCell = (Number) cell;
-				double val = numericCell.doubleValue();
-				// Iterate over histogram rows
-				for (int i = 0; i < brk.length - 1; i++) {
-					// Put the value into corresponding class
-					if ((val >= brk[i].doubleValue())
-							&& (val < brk[i + 1].doubleValue())) {
-						cells[i]++;
-						if (cells[i] > colMax) {
-							colMax = cells[i];
-						}
-						if (cells[i] < colMin) {
-							colMin = cells[i];
-						}
-						break;
-					}
+			}
+		}
+	}
+
+	/**
+	 * Recalculates the cells of a single histogram column.
+	 * @param col Column index.
+	 */
+	private void rebuildColumn(int col) {
+		Arrays.fill(cellList.get(col), 0L);
+		invalidateCache(col);
+		if (orientation == Orientation.VERTICAL) {
+			if (col < getData().getColumnCount()) {
+				int rowCount = getData().getRowCount();
+				countValues(col, getData().getDoubles(col, 0, rowCount, null), rowCount);
+			}
+		} else if (col < getData().getRowCount()) {
+			for (int dataCol = 0; dataCol < getData().getColumnCount(); dataCol++) {
+				count(col, getData().getDouble(dataCol, col), 1);
+			}
+		}
+	}
+
+	/**
+	 * Updates only the cells that are affected by the specified events.
+	 * Single values are moved between cells, columns that are described by
+	 * range events are recalculated.
+	 * @param rowsChanged {@code true} if rows have been added or removed,
+	 *        {@code false} if values have been updated.
+	 * @param events Event objects describing the changed values.
+	 */
+	@Override
+	protected void updateCells(boolean rowsChanged, DataChangeEvent... events) {
+		if (events == null || events.length == 0 || locators == null) {
+			rebuildCells();
+			return;
+		}
+		int count = breaks.size();
+
+		// Find the columns that have to be recalculated
+		BitSet rebuild = new BitSet(count);
+		for (DataChangeEvent event : events) {
+			if (orientation == Orientation.HORIZONTAL) {
+				if (rowsChanged) {
+					// All following rows of the data source have been moved
+					rebuild.set(Math.min(event.getRow(), count), count);
+				} else if (event.isRange()) {
+					rebuild.set(Math.min(event.getRow(), count),
+						Math.min(event.getRow() + event.getRowCount(), count));
 				}
+			} else if (event.isRange()) {
+				rebuild.set(Math.min(event.getCol(), count),
+					Math.min(event.getCol() + event.getColCount(), count));
 			}
-			cellList.add(cells);
-			cacheMin.put(breakIndex, colMin);
-			cacheMax.put(breakIndex, colMax);
-			breakIndex++;
+		}
+
+		// Move single values between cells
+		for (DataChangeEvent event : events) {
+			if (event.isRange()) {
+				continue;
+			}
+			int col = (orientation == Orientation.HORIZONTAL) ? event.getRow() : event.getCol();
+			if (col >= count || rebuild.get(col)) {
+				continue;
+			}
+			count(col, event.getOld(), -1);
+			count(col, event.getNew(), 1);
+		}
+
+		for (int col = rebuild.nextSetBit(0); col >= 0; col = rebuild.nextSetBit(col + 1)) {
+			rebuildColumn(col);
 		}
 	}
 
+	/**
+	 * Adds the specified values to the cells of a histogram column.
+	 * @param col Column index.
+	 * @param values Values.
+	 * @param size Number of values.
+	 */
+	private void countValues(int col, double[] values, int size) {
+		Histogram locator = locators.get(col);
+		long[] cells = cellList.get(col);
+		for (int i = 0; i < size; i++) {
+			int cell = locator.getBinIndex(values[i]);
+			if (cell >= 0) {
+				cells[cell]++;
+			}
+		}
+	}
+
+	/**
+	 * Changes the count of the cell that contains the specified value.
+	 * Values that aren't numbers are ignored.
+	 * @param col Column index.
+	 * @param value Value.
+	 * @param delta Change of the count.
+	 */
+	private void count(int col, Comparable<?> value, int delta) {
+		if (value instanceof Number) {
+			count(col, ((Number) value).doubleValue(), delta);
+		}
+	}
+
+	/**
+	 * Changes the count of the cell that contains the specified value.
+	 * @param col Column index.
+	 * @param value Value.
+	 * @param delta Change of the count.
+	 */
+	private void count(int col, double value, int delta) {
+		int cell = locators.get(col).getBinIndex(value);
+		if (cell >= 0) {
+			cellList.get(col)[cell] += delta;
+			invalidateCache(col);
+		}
+	}
+
+	/**
+	 * Marks the cached minimum and maximum of a column as unknown.
+	 * @param col Column index.
+	 */
+	private void invalidateCache(int col) {
+		if (cacheMin != null) {
+			cacheMin[col] = -1L;
+			cacheMax[col] = -1L;
+		}
+	}
+
+	/**
+	 * Returns the smallest value of all cells in the specified column.
+	 * @param col Column index.
+	 * @return Minimum value.
+	 */
+	public long getCellMin(int col) {
+		updateCache(col);
+		return cacheMin[col];
+	}
+
+	/**
+	 * Returns the largest value of all cells in the specified column.
+	 * @param col Column index.
+	 * @return Maximum value.
+	 */
+	public long getCellMax(int col) {
+		updateCache(col);
+		return cacheMax[col];
+	}
+
+	/**
+	 * Calculates the minimum and maximum of a column if they are unknown.
+	 * @param col Column index.
+	 */
+	private void updateCache(int col) {
+		if (cacheMin == null) {
+			cacheMin = new long[cellList.size()];
+			cacheMax = new long[cellList.size()];
+			Arrays.fill(cacheMin, -1L);
+			Arrays.fill(cacheMax, -1L);
+		}
+		if (cacheMin[col] >= 0L) {
+			return;
+		}
+		long min = Long.MAX_VALUE;
+		long max = 0L;
+		for (long cell : cellList.get(col)) {
+			min = Math.min(min, cell);
+			max = Math.max(max, cell);
+		}
+		cacheMin[col] = min;
+		cacheMax[col] = max;
+	}
+
 	/**
 	 * Returns the direction in which the histogram values will be accumulated.
 	 * @return Horizontal or vertical orientation.
@@ -250,7 +414,9 @@ public class Histogram2D extends AbstractHistogram2D {
 		in.defaultReadObject();
 
 		// Handle transient fields
-		cacheMin = new HashMap<Integer, Long>();
-		cacheMax = new HashMap<Integer, Long>();
+		locators = new ArrayList<Histogram>(breaks.size());
+		for (Number[] brk : breaks) {
+			locators.add(new Histogram(brk));
+		}
 	}
 }
@@ -0,0 +1,308 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data.statistics;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+import de.erichseifert.gral.util.MathUtils;
+
+/**
+ * <p>Compact summary of a stream of values that allows to estimate arbitrary
+ * quantiles. The summary needs memory proportional to {@code 1/error} and
+ * grows only logarithmically with the number of values.</p>
+ *
+ * <p>The implementation follows the compactor hierarchy described by Karnin,
+ * Lang, and Liberty ("Optimal Quantile Approximation in Streams", 2016):
+ * Values are collected in levels of buffers. If a level is full, it is
+ * sorted and every second value is promoted to the next level with twice
+ * the weight. The estimated quantiles have a rank error of approximately
+ * {@code error*n} for {@code n} values.</p>
+ *
+ * <p>Sketches can be merged, so partial results that were computed
+ * separately can be combined without losing accuracy.</p>
+ */
+public class QuantileSketch {
+	/** Ratio between the capacities of two adjacent levels. */
+	private static final double CAPACITY_RATIO = 2.0/3.0;
+	/** Minimal capacity of a level. */
+	private static final int MIN_CAPACITY = 8;
+	/** Factor to derive the capacity of the topmost level from the
+	rank error. */
+	private static final double ERROR_FACTOR = 2.3;
+
+	/** Relative rank error. */
+	private final double error;
+	/** Capacity of the topmost level. */
+	private final int k;
+	/** Buffered values of each level. Level {@code h} stores values with a
+	weight of {@code 2^h}. */
+	private double[][] levels;
+	/** Number of buffered values in each level. */
+	private int[] sizes;
+	/** Number of levels in use. */
+	private int levelCount;
+	/** Number of values that have been added. */
+	private long count;
+	/** Smallest value that has been added. */
+	private double min;
+	/** Largest value that has been added. */
+	private double max;
+	/** Decides whether the values with even or odd index are promoted
+	during the next compaction. */
+	private boolean promoteOdd;
+
+	/** Sorted values of all levels, or {@code null} if the sketch has
+	changed since the last query. */
+	private double[] sortedValues;
+	/** Cumulative weights of the sorted values. */
+	private long[] sortedWeights;
+
+	/**
+	 * Initializes a new empty sketch with the specified rank error.
+	 * @param error Rank error of the quantile estimates as a fraction of the
+	 *        number of values in the range (0, 1).
+	 */
+	public QuantileSketch(double error) {
+		if (!(error > 0.0 && error < 1.0)) {
+			throw new IllegalArgumentException(MessageFormat.format(
+				"Invalid rank error: {0}. The error must be greater than 0 and less than 1.", //$NON-NLS-1$
+				error));
+		}
+		this.error = error;
+		k = Math.max(MIN_CAPACITY, (int) Math.ceil(ERROR_FACTOR/error));
+		levels = new double[1][];
+		levels[0] = new double[MIN_CAPACITY];
+		sizes = new int[1];
+		levelCount = 1;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Adds a value to the sketch. Values that are not calculatable are
+	 * ignored.
+	 * @param value Value to be added.
+	 */
+	public void add(double value) {
+		if (!MathUtils.isCalculatable(value)) {
+			return;
+		}
+		append(0, value);
+		count++;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+		sortedValues = null;
+		if (sizes[0] >= getCapacity(0)) {
+			compress();
+		}
+	}
+
+	/**
+	 * Adds all values of another sketch to this sketch. The other sketch
+	 * will not be changed.
+	 * @param other Sketch to be merged into this sketch.
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.count == 0) {
+			return;
+		}
+		for (int level = 0; level < other.levelCount; level++) {
+			while (level >= levelCount) {
+				addLevel();
+			}
+			double[] values = other.levels[level];
+			for (int i = 0; i < other.sizes[level]; i++) {
+				append(level, values[i]);
+			}
+		}
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		sortedValues = null;
+		compress();
+	}
+
+	/**
+	 * Returns the number of values that have been added to the sketch.
+	 * @return Number of values.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the rank error of the quantile estimates as a fraction of the
+	 * number of values.
+	 * @return Rank error.
+	 */
+	public double getError() {
+		return error;
+	}
+
+	/**
+	 * Returns the estimated value of the specified quantile. The quantiles
+	 * 0 and 1 return the exact minimum and maximum.
+	 * @param q Quantile in range [0, 1].
+	 * @return Estimated quantile value, or {@code NaN} if the sketch is empty.
+	 */
+	public double quantile(double q) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (q <= 0.0) {
+			return min;
+		} else if (q >= 1.0) {
+			return max;
+		}
+		if (sortedValues == null) {
+			sort();
+		}
+		double rank = q*(count - 1);
+		int index = Arrays.binarySearch(sortedWeights, (long) Math.floor(rank) + 1);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return sortedValues[Math.min(index, sortedValues.length - 1)];
+	}
+
+	/**
+	 * Returns the maximal number of values that can be stored in the
+	 * specified level before it must be compacted.
+	 * @param level Level index.
+	 * @return Capacity of the level.
+	 */
+	private int getCapacity(int level) {
+		int depth = levelCount - 1 - level;
+		return Math.max(MIN_CAPACITY,
+			(int) Math.ceil(k*Math.pow(CAPACITY_RATIO, depth)));
+	}
+
+	/**
+	 * Appends a value to the buffer of the specified level.
+	 * @param level Level index.
+	 * @param value Value to be stored.
+	 */
+	private void append(int level, double value) {
+		double[] values = levels[level];
+		if (sizes[level] == values.length) {
+			values = Arrays.copyOf(values, values.length*2);
+			levels[level] = values;
+		}
+		values[sizes[level]++] = value;
+	}
+
+	/**
+	 * Adds a new empty topmost level.
+	 */
+	private void addLevel() {
+		levels = Arrays.copyOf(levels, levelCount + 1);
+		sizes = Arrays.copyOf(sizes, levelCount + 1);
+		levels[levelCount] = new double[MIN_CAPACITY];
+		levelCount++;
+	}
+
+	/**
+	 * Compacts full levels until all levels are within their capacity.
+	 */
+	private void compress() {
+		for (int level = 0; level < levelCount; level++) {
+			if (sizes[level] < getCapacity(level)) {
+				continue;
+			}
+			boolean topmost = level == levelCount - 1;
+			if (topmost) {
+				addLevel();
+			}
+			compact(level);
+			if (topmost) {
+				// Capacities of all lower levels have shrunk, so they must
+				// be checked again
+				level = -1;
+			}
+		}
+	}
+
+	/**
+	 * Sorts the values of a level and promotes every second value to the
+	 * next level. If the number of values is odd, the smallest value
+	 * remains in the level.
+	 * @param level Level index.
+	 */
+	private void compact(int level) {
+		double[] values = levels[level];
+		int size = sizes[level];
+		Arrays.sort(values, 0, size);
+		int start = size % 2;
+		int offset = promoteOdd ? 1 : 0;
+		promoteOdd = !promoteOdd;
+		for (int i = start + offset; i < size; i += 2) {
+			append(level + 1, values[i]);
+		}
+		sizes[level] = start;
+	}
+
+	/**
+	 * Creates a sorted array of all values together with their cumulative
+	 * weights.
+	 */
+	private void sort() {
+		double[] values = new double[0];
+		long[] weights = new long[0];
+		long weight = 1L;
+		for (int level = 0; level < levelCount; level++) {
+			double[] levelValues = Arrays.copyOf(levels[level], sizes[level]);
+			Arrays.sort(levelValues);
+
+			// Merge the sorted values of the level with the previous values
+			double[] mergedValues = new double[values.length + levelValues.length];
+			long[] mergedWeights = new long[mergedValues.length];
+			int i = 0, j = 0;
+			for (int m = 0; m < mergedValues.length; m++) {
+				if (j >= levelValues.length ||
+						(i < values.length && values[i] <= levelValues[j])) {
+					mergedValues[m] = values[i];
+					mergedWeights[m] = weights[i];
+					i++;
+				} else {
+					mergedValues[m] = levelValues[j];
+					mergedWeights[m] = weight;
+					j++;
+				}
+			}
+			values = mergedValues;
+			weights = mergedWeights;
+			weight *= 2L;
+		}
+
+		// Accumulate weights
+		for (int i = 1; i < weights.length; i++) {
+			weights[i] += weights[i - 1];
+		}
+		sortedValues = values;
+		sortedWeights = weights;
+	}
+}
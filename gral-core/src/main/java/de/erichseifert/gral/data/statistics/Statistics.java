@@ -21,20 +21,47 @@
  */
 package de.erichseifert.gral.data.statistics;
 
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import de.erichseifert.gral.data.DataChangeEvent;
+import de.erichseifert.gral.data.DataListener;
+import de.erichseifert.gral.data.DataSource;
 import de.erichseifert.gral.util.DataUtils;
 import de.erichseifert.gral.util.MathUtils;
-import de.erichseifert.gral.util.SortedList;
 
 
 /**
- * A class that computes and stores various statistical information
- * for an Iterable of values.
+ * <p>A class that computes and stores various statistical information
+ * for an Iterable of values or for a single column of a data source.</p>
+ * <p>If the statistics belong to a data source they can be kept up to date
+ * by passing the change events of the data source to the
+ * {@code DataListener} methods. Added values are then merged into the
+ * existing statistics in constant time. Removed or updated values are only
+ * subtracted as long as they don't affect the minimum or the maximum,
+ * otherwise the statistics will be calculated again on the next access.</p>
+ * <p>By default, quantiles are calculated exactly by sorting all values.
+ * For large amounts of data, an error bound can be set to estimate the
+ * quantiles with a {@link QuantileSketch} instead.</p>
+ * <p>If more than one thread has been set with {@link #setThreadCount(int)},
+ * the basic statistics of large data sources are calculated in parallel:
+ * the values are split into chunks, the moments of each chunk are
+ * calculated by a separate thread, and the partial moments are merged
+ * afterwards. The values are read from a snapshot of the data source.</p>
+ * <p>The cached statistics of a data source are guarded by the lock of the
+ * data source. Statistics can therefore be requested by any thread while
+ * the data source is changed by another thread.</p>
  */
-public class Statistics {
+public class Statistics implements DataListener {
 	/** Key for specifying the total number of elements.
 	This is the zeroth central moment: E((x - µ)^0) */
 	public static final String N = "n"; //$NON-NLS-1$
@@ -84,56 +111,147 @@ public class Statistics {
 	/** Key for specifying the 3rd quartile (or 75th quantile). */
 	public static final String QUARTILE_3 = "quantile75"; //$NON-NLS-1$
 
+	/** Number of values that are read at once from a data source. */
+	private static final int BUFFER_SIZE = 1024;
+	/** Keys of all statistics that are derived from the moments, except
+	for the minimum and the maximum. */
+	private static final String[] MOMENT_KEYS = {
+		N, SUM, SUM2, SUM3, SUM4, MEAN, SUM_OF_DIFF_QUADS, SUM_OF_DIFF_CUBICS,
+		SUM_OF_DIFF_SQUARES, VARIANCE, POPULATION_VARIANCE, SKEWNESS, KURTOSIS
+	};
+	/** Minimal number of values to calculate the moments in parallel. */
+	static final int PARALLEL_THRESHOLD = 1 << 20;
+
 	/** Data values that are used to build statistical aggregates. */
 	private final Iterable<? extends Comparable<?>> data;
+	/** Index of the analyzed column if only a single column of a data source
+	is analyzed, otherwise {@code -1}. */
+	private final int column;
 	/** Table statistics stored by key. */
 	private final Map<String, Double> statistics;
+	/** Accumulated moments of the data values, or {@code null} if they
+	haven't been calculated yet. */
+	private Moments moments;
+	/** Rank error of estimated quantiles, or {@code 0} if quantiles should
+	be calculated exactly. */
+	private double quantileError;
+	/** Summary of the data values used to estimate quantiles, or
+	{@code null} if it hasn't been created yet. */
+	private QuantileSketch sketch;
+	/** Maximal number of threads used to calculate the moments. */
+	private int threadCount;
+	/** Lock that guards the cached statistics. Data sources use their own
+	lock, so the statistics are changed together with the data. */
+	private final Object lock;
 
 	/**
-	 * Initializes a new object with the specified data values.
-	 * @param data Data to be analyzed.
+	 * Interface for classes that consume a sequence of numeric values.
 	 */
-	public Statistics(Iterable<? extends Comparable<?>> data) {
-		statistics = new HashMap<String, Double>();
-		this.data = data;
+	private interface ValueAccumulator {
+		/**
+		 * Adds a value to the accumulator.
+		 * @param val Value to be added.
+		 */
+		void add(double val);
+
+		/**
+		 * Adds several values to the accumulator.
+		 * @param values Values to be added.
+		 * @param count Number of values to be added.
+		 */
+		void add(double[] values, int count);
 	}
 
 	/**
-	 * Utility method that calculates basic statistics like element count, sum,
-	 * or mean.
-	 *
-	 * Notes: Calculation of higher order statistics is based on formulas from
-	 * http://people.xiph.org/~tterribe/notes/homs.html
-	 *
-	 * @param data Data values used to calculate statistics
-	 * @param stats A {@code Map} that should store the new statistics.
+	 * Growable array of all calculatable values of a sequence.
 	 */
-	private void createBasicStats(Iterable<? extends Comparable<?>> data, Map<String, Double> stats) {
-		double n = 0.0;
-		double sum = 0.0;
-		double sum2 = 0.0;
-		double sum3 = 0.0;
-		double sum4 = 0.0;
-		double mean = 0.0;
-		double sumOfDiffSquares = 0.0;
-		double sumOfDiffCubics = 0.0;
-		double sumOfDiffQuads = 0.0;
+	private static final class ValueArray implements ValueAccumulator {
+		/** Stored values. */
+		private double[] values = new double[BUFFER_SIZE];
+		/** Number of stored values. */
+		private int size;
 
-		for (Comparable<?> cell : data) {
-			if (!(cell instanceof Number)) {
-				continue;
+		/**
+		 * Adds a value to the array. Values that are not calculatable are
+		 * ignored.
+		 * @param val Value to be added.
+		 */
+		public void add(double val) {
+			if (!MathUtils.isCalculatable(val)) {
+				return;
 			}
-			Number numericCell = (Number) cell;
-			if (!MathUtils.isCalculatable(numericCell)) {
-				continue;
+			if (size == values.length) {
+				values = Arrays.copyOf(values, values.length*2);
 			}
-			double val = numericCell.doubleValue();
+			values[size++] = val;
+		}
 
-			if (!stats.containsKey(MIN) || val < stats.get(MIN)) {
-				stats.put(MIN, val);
+		/**
+		 * Adds several values to the array. Values that are not
+		 * calculatable are ignored.
+		 * @param values Values to be added.
+		 * @param count Number of values to be added.
+		 */
+		public void add(double[] values, int count) {
+			for (int i = 0; i < count; i++) {
+				add(values[i]);
 			}
-			if (!stats.containsKey(MAX) || val > stats.get(MAX)) {
-				stats.put(MAX, val);
+		}
+
+		/**
+		 * Returns a sorted array of all stored values.
+		 * @return Sorted values.
+		 */
+		public double[] toSortedArray() {
+			double[] sorted = Arrays.copyOf(values, size);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+	}
+
+	/**
+	 * Accumulator for the element count, the sums of powers, and the central
+	 * moments of a sequence of values.
+	 */
+	private static final class Moments implements ValueAccumulator {
+		/** Number of values. */
+		private double n;
+		/** Sum of all values. */
+		private double sum;
+		/** Sum of all value squares. */
+		private double sum2;
+		/** Sum of all value cubics. */
+		private double sum3;
+		/** Sum of all value quads. */
+		private double sum4;
+		/** Smallest value. */
+		private double min = Double.POSITIVE_INFINITY;
+		/** Largest value. */
+		private double max = Double.NEGATIVE_INFINITY;
+		/** Arithmetic mean of all values. */
+		private double mean;
+		/** Second central moment. */
+		private double sumOfDiffSquares;
+		/** Third central moment. */
+		private double sumOfDiffCubics;
+		/** Fourth central moment. */
+		private double sumOfDiffQuads;
+
+		/**
+		 * Adds a value to the statistics. Values that are not calculatable
+		 * are ignored.
+		 * @param val Value to be added.
+		 */
+		public void add(double val) {
+			if (!MathUtils.isCalculatable(val)) {
+				return;
+			}
+
+			if (val < min) {
+				min = val;
+			}
+			if (val > max) {
+				max = val;
 			}
 
 			n++;
@@ -156,45 +274,511 @@ public class Statistics {
 			sumOfDiffSquares += term1;
 		}
 
-		stats.put(N, n);
-		stats.put(SUM,  sum);
-		stats.put(SUM2, sum2);
-		stats.put(SUM3, sum3);
-		stats.put(SUM4, sum4);
-		stats.put(MEAN, mean);
-		stats.put(SUM_OF_DIFF_QUADS, sumOfDiffQuads);
-		stats.put(SUM_OF_DIFF_CUBICS, sumOfDiffCubics);
-		stats.put(SUM_OF_DIFF_SQUARES, sumOfDiffSquares);
+		/**
+		 * Adds several values to the statistics. Values that are not
+		 * calculatable are ignored. The same calculations as in
+		 * {@link #add(double)} are done, but all intermediate results are
+		 * kept in local variables.
+		 * @param values Values to be added.
+		 * @param count Number of values to be added.
+		 */
+		public void add(double[] values, int count) {
+			double n = this.n;
+			double sum = this.sum;
+			double sum2 = this.sum2;
+			double sum3 = this.sum3;
+			double sum4 = this.sum4;
+			double min = this.min;
+			double max = this.max;
+			double mean = this.mean;
+			double m2 = sumOfDiffSquares;
+			double m3 = sumOfDiffCubics;
+			double m4 = sumOfDiffQuads;
+			for (int i = 0; i < count; i++) {
+				double val = values[i];
+				if (!MathUtils.isCalculatable(val)) {
+					continue;
+				}
+				if (val < min) {
+					min = val;
+				}
+				if (val > max) {
+					max = val;
+				}
+
+				n++;
+
+				double val2 = val*val;
+				sum += val;
+				sum2 += val2;
+				sum3 += val2*val;
+				sum4 += val2*val2;
+
+				double delta = val - mean;
+				double deltaN = delta/n;
+				double deltaN2 = deltaN*deltaN;
+				double term1 = delta*deltaN*(n - 1.0);
+				mean += deltaN;
+				m4 += term1*deltaN2*(n*n - 3.0*n + 3.0) +
+					6.0*deltaN2*m2 - 4.0*deltaN*m3;
+				m3 += term1*deltaN*(n - 2.0) - 3.0*deltaN*m2;
+				m2 += term1;
+			}
+			this.n = n;
+			this.sum = sum;
+			this.sum2 = sum2;
+			this.sum3 = sum3;
+			this.sum4 = sum4;
+			this.min = min;
+			this.max = max;
+			this.mean = mean;
+			sumOfDiffSquares = m2;
+			sumOfDiffCubics = m3;
+			sumOfDiffQuads = m4;
+		}
 
-		stats.put(VARIANCE, sumOfDiffSquares/(n - 1.0));
-		stats.put(POPULATION_VARIANCE, sumOfDiffSquares/n);
-		stats.put(SKEWNESS,
-			(sumOfDiffCubics/n)/Math.pow(sumOfDiffSquares/n, 3.0/2.0) - 3.0);
-		stats.put(KURTOSIS,
-			(n*sumOfDiffQuads)/(sumOfDiffSquares*sumOfDiffSquares) - 3.0);
+		/**
+		 * Merges the statistics of other values into these statistics using
+		 * the pairwise update formulas of Chan et al.
+		 * @param other Statistics of other values.
+		 */
+		public void merge(Moments other) {
+			if (other.n <= 0.0) {
+				return;
+			}
+			min = Math.min(min, other.min);
+			max = Math.max(max, other.max);
+			sum += other.sum;
+			sum2 += other.sum2;
+			sum3 += other.sum3;
+			sum4 += other.sum4;
+			if (n <= 0.0) {
+				n = other.n;
+				mean = other.mean;
+				sumOfDiffSquares = other.sumOfDiffSquares;
+				sumOfDiffCubics = other.sumOfDiffCubics;
+				sumOfDiffQuads = other.sumOfDiffQuads;
+				return;
+			}
+
+			double nA = n;
+			double nB = other.n;
+			double nAB = nA + nB;
+			double delta = other.mean - mean;
+			double delta2 = delta*delta;
+			double m2A = sumOfDiffSquares;
+			double m2B = other.sumOfDiffSquares;
+			double m3A = sumOfDiffCubics;
+			double m3B = other.sumOfDiffCubics;
+
+			n = nAB;
+			mean += delta*nB/nAB;
+			sumOfDiffQuads += other.sumOfDiffQuads +
+				delta2*delta2*nA*nB*(nA*nA - nA*nB + nB*nB)/(nAB*nAB*nAB) +
+				6.0*delta2*(nA*nA*m2B + nB*nB*m2A)/(nAB*nAB) +
+				4.0*delta*(nA*m3B - nB*m3A)/nAB;
+			sumOfDiffCubics += m3B +
+				delta2*delta*nA*nB*(nA - nB)/(nAB*nAB) +
+				3.0*delta*(nA*m2B - nB*m2A)/nAB;
+			sumOfDiffSquares += m2B + delta2*nA*nB/nAB;
+		}
+
+		/**
+		 * Removes a value that was added before from the statistics. Values
+		 * that are not calculatable are ignored. The minimum and maximum
+		 * won't be changed.
+		 * @param val Value to be removed.
+		 */
+		public void remove(double val) {
+			if (!MathUtils.isCalculatable(val)) {
+				return;
+			}
+			if (n <= 1.0) {
+				n = 0.0;
+				sum = 0.0;
+				sum2 = 0.0;
+				sum3 = 0.0;
+				sum4 = 0.0;
+				mean = 0.0;
+				sumOfDiffSquares = 0.0;
+				sumOfDiffCubics = 0.0;
+				sumOfDiffQuads = 0.0;
+				return;
+			}
+
+			double val2 = val*val;
+			sum -= val;
+			sum2 -= val2;
+			sum3 -= val2*val;
+			sum4 -= val2*val2;
+
+			// Pairwise update formulas solved for the remaining values
+			double nA = n - 1.0;
+			double meanA = (n*mean - val)/nA;
+			double delta = val - meanA;
+			double delta2 = delta*delta;
+			double sumOfDiffSquaresA = sumOfDiffSquares - delta2*nA/n;
+			double sumOfDiffCubicsA = sumOfDiffCubics -
+				delta2*delta*nA*(nA - 1.0)/(n*n) + 3.0*delta*sumOfDiffSquaresA/n;
+			double sumOfDiffQuadsA = sumOfDiffQuads -
+				delta2*delta2*nA*(nA*nA - nA + 1.0)/(n*n*n) -
+				6.0*delta2*sumOfDiffSquaresA/(n*n) + 4.0*delta*sumOfDiffCubicsA/n;
+
+			n = nA;
+			mean = meanA;
+			sumOfDiffSquares = sumOfDiffSquaresA;
+			sumOfDiffCubics = sumOfDiffCubicsA;
+			sumOfDiffQuads = sumOfDiffQuadsA;
+		}
+
+		/**
+		 * Returns whether the removal of the specified value would change
+		 * the minimum or the maximum.
+		 * @param val Value to be removed.
+		 * @return {@code true} if the value is an extreme value,
+		 *         {@code false} otherwise.
+		 */
+		public boolean isExtreme(double val) {
+			return val <= min || val >= max;
+		}
+
+		/**
+		 * Returns the specified accumulated statistics value.
+		 * @param key Requested information.
+		 * @return The value for the specified key, or {@code NaN} if it
+		 *         can't be derived from the moments.
+		 */
+		public double get(String key) {
+			if (MIN.equals(key)) {
+				return (n > 0.0) ? min : Double.NaN;
+			} else if (MAX.equals(key)) {
+				return (n > 0.0) ? max : Double.NaN;
+			} else if (N.equals(key)) {
+				return n;
+			} else if (SUM.equals(key)) {
+				return sum;
+			} else if (SUM2.equals(key)) {
+				return sum2;
+			} else if (SUM3.equals(key)) {
+				return sum3;
+			} else if (SUM4.equals(key)) {
+				return sum4;
+			} else if (MEAN.equals(key)) {
+				return mean;
+			} else if (SUM_OF_DIFF_QUADS.equals(key)) {
+				return sumOfDiffQuads;
+			} else if (SUM_OF_DIFF_CUBICS.equals(key)) {
+				return sumOfDiffCubics;
+			} else if (SUM_OF_DIFF_SQUARES.equals(key)) {
+				return sumOfDiffSquares;
+			} else if (VARIANCE.equals(key)) {
+				return sumOfDiffSquares/(n - 1.0);
+			} else if (POPULATION_VARIANCE.equals(key)) {
+				return sumOfDiffSquares/n;
+			} else if (SKEWNESS.equals(key)) {
+				return (sumOfDiffCubics/n)/Math.pow(sumOfDiffSquares/n, 3.0/2.0) - 3.0;
+			} else if (KURTOSIS.equals(key)) {
+				return (n*sumOfDiffQuads)/(sumOfDiffSquares*sumOfDiffSquares) - 3.0;
+			}
+			return Double.NaN;
+		}
+
+		/**
+		 * Stores the accumulated statistics in the specified map.
+		 * @param stats A {@code Map} that should store the statistics.
+		 */
+		public void store(Map<String, Double> stats) {
+			if (n > 0.0) {
+				stats.put(MIN, min);
+				stats.put(MAX, max);
+			}
+			for (String key : MOMENT_KEYS) {
+				stats.put(key, get(key));
+			}
+		}
 	}
 
 	/**
-	 * Utility method that calculates quantiles for the given data values and
-	 * stores the results in {@code stats}.
-	 * @param stats {@code Map} for storing results
-	 * @see de.erichseifert.gral.util.MathUtils#quantile(java.util.List,double)
+	 * Initializes a new object with the specified data values.
+	 * @param data Data to be analyzed.
+	 */
+	public Statistics(Iterable<? extends Comparable<?>> data) {
+		this(data, 0.0);
+	}
+
+	/**
+	 * Initializes a new object with the specified data values and the
+	 * specified rank error for quantiles.
+	 * @param data Data to be analyzed.
+	 * @param quantileError Rank error of estimated quantiles as a fraction
+	 *        of the number of values, or {@code 0} for exact quantiles.
+	 * @see #setQuantileError(double)
+	 */
+	public Statistics(Iterable<? extends Comparable<?>> data, double quantileError) {
+		this(data, -1, quantileError);
+	}
+
+	/**
+	 * Initializes a new object that analyzes a single column of the
+	 * specified data source. The values are read directly from the data
+	 * source.
+	 * @param data Data source.
+	 * @param col Index of the column to be analyzed.
+	 */
+	public Statistics(DataSource data, int col) {
+		this(data, col, 0.0);
+	}
+
+	/**
+	 * Initializes a new object with the specified data values.
+	 * @param data Data to be analyzed.
+	 * @param column Index of the column to be analyzed, or {@code -1} for
+	 *        all values.
+	 * @param quantileError Rank error of estimated quantiles.
+	 */
+	private Statistics(Iterable<? extends Comparable<?>> data, int column,
+			double quantileError) {
+		statistics = new HashMap<String, Double>();
+		this.data = data;
+		this.column = column;
+		lock = (data instanceof DataSource) ? data : this;
+		threadCount = 1;
+		setQuantileError(quantileError);
+	}
+
+	/**
+	 * Returns the maximal number of threads that are used to calculate the
+	 * statistics of large data sources.
+	 * @return Number of threads.
+	 */
+	public int getThreadCount() {
+		synchronized (lock) {
+			return threadCount;
+		}
+	}
+
+	/**
+	 * Sets the maximal number of threads that are used to calculate the
+	 * statistics of large data sources. By default, only a single thread is
+	 * used. With more threads, the values are read from a snapshot of the
+	 * data source.
+	 * @param threadCount Number of threads.
+	 */
+	public void setThreadCount(int threadCount) {
+		synchronized (lock) {
+			if (threadCount < 1) {
+				throw new IllegalArgumentException(MessageFormat.format(
+					"Invalid number of threads: {0,number,integer}.", //$NON-NLS-1$
+					threadCount));
+			}
+			this.threadCount = threadCount;
+		}
+	}
+
+	/**
+	 * Returns the rank error of estimated quantiles. A value of {@code 0}
+	 * means that quantiles are calculated exactly.
+	 * @return Rank error as a fraction of the number of values.
+	 */
+	public double getQuantileError() {
+		synchronized (lock) {
+			return quantileError;
+		}
+	}
+
+	/**
+	 * Sets the rank error of estimated quantiles. If the error is greater
+	 * than {@code 0}, quantiles will be estimated using a
+	 * {@link QuantileSketch} which requires much less memory and time than
+	 * sorting all values. A value of {@code 0} means that quantiles are
+	 * calculated exactly.
+	 * @param quantileError Rank error as a fraction of the number of values
+	 *        in the range [0, 1).
+	 */
+	public void setQuantileError(double quantileError) {
+		synchronized (lock) {
+			if (!(quantileError >= 0.0 && quantileError < 1.0)) {
+				throw new IllegalArgumentException(MessageFormat.format(
+					"Invalid quantile error: {0}. The error must be in the range [0, 1).", //$NON-NLS-1$
+					quantileError));
+			}
+			this.quantileError = quantileError;
+			sketch = null;
+			statistics.remove(QUARTILE_1);
+			statistics.remove(QUARTILE_2);
+			statistics.remove(QUARTILE_3);
+			statistics.remove(MEDIAN);
+		}
+	}
+
+	/**
+	 * Returns the lock that guards the cached statistics.
+	 * @return Lock object.
+	 */
+	Object getLock() {
+		return lock;
+	}
+
+	/**
+	 * Replaces the cached statistics by the statistics that have been
+	 * calculated by another object, e.g. for a snapshot of the analyzed
+	 * data. Further changes of the data update the copied statistics.
+	 * @param statistics Statistics to be copied.
+	 */
+	void copyFrom(Statistics statistics) {
+		synchronized (statistics.lock) {
+			synchronized (lock) {
+				moments = statistics.moments;
+				sketch = statistics.sketch;
+				this.statistics.clear();
+				this.statistics.putAll(statistics.statistics);
+			}
+		}
+	}
+
+	/**
+	 * Passes all data values to the specified accumulator. Values of data
+	 * sources are read column by column as primitive values to avoid boxing.
+	 * Cells that don't contain numbers are passed as {@code NaN}.
+	 * @param accumulator Accumulator for the values.
+	 */
+	private void accumulate(ValueAccumulator accumulator) {
+		if (data instanceof DataSource) {
+			DataSource source = (DataSource) data;
+			int rowCount = source.getRowCount();
+			double[] buffer = new double[Math.min(BUFFER_SIZE, rowCount)];
+			int colFirst = column >= 0 ? column : 0;
+			int colLast = column >= 0 ? column : source.getColumnCount() - 1;
+			for (int col = colFirst; col <= colLast; col++) {
+				for (int fromRow = 0; fromRow < rowCount; fromRow += buffer.length) {
+					int toRow = Math.min(fromRow + buffer.length, rowCount);
+					source.getDoubles(col, fromRow, toRow, buffer);
+					accumulator.add(buffer, toRow - fromRow);
+				}
+			}
+		} else {
+			for (Comparable<?> cell : data) {
+				accumulator.add(toDouble(cell));
+			}
+		}
+	}
+
+	/**
+	 * Utility method that calculates basic statistics like element count, sum,
+	 * or mean.
+	 *
+	 * Notes: Calculation of higher order statistics is based on formulas from
+	 * http://people.xiph.org/~tterribe/notes/homs.html
+	 *
+	 * @param stats A {@code Map} that should store the new statistics.
+	 */
+	private void createBasicStats(Map<String, Double> stats) {
+		Moments moments = null;
+		if (threadCount > 1 && data instanceof DataSource) {
+			DataSource source = (DataSource) data;
+			int colCount = column >= 0 ? 1 : source.getColumnCount();
+			if ((long) source.getRowCount()*colCount >= PARALLEL_THRESHOLD) {
+				// Read a snapshot, as this thread holds the lock of the source
+				moments = accumulateParallel(source.snapshot());
+			}
+		}
+		if (moments == null) {
+			moments = new Moments();
+			accumulate(moments);
+		}
+		this.moments = moments;
+		moments.store(stats);
+	}
+
+	/**
+	 * Calculates the moments of all analyzed columns of a data source with
+	 * several threads. The rows of each column are split into chunks whose
+	 * moments are calculated separately and merged afterwards.
+	 * @param source Data source.
+	 * @return Moments of all analyzed values.
 	 */
-	private void createDistributionStats(Iterable<? extends Comparable<?>> data, Map<String, Double> stats) {
-		// Create sorted list of data
-		List<Double> values = new SortedList<Double>();
-		for (Comparable<?> cell : data) {
-			if (!(cell instanceof Number)) {
-				continue;
+	private Moments accumulateParallel(final DataSource source) {
+		int rowCount = source.getRowCount();
+		int colFirst = column >= 0 ? column : 0;
+		int colLast = column >= 0 ? column : source.getColumnCount() - 1;
+		int chunkSize = (rowCount + threadCount - 1)/threadCount;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<Moments>> tasks = new ArrayList<Future<Moments>>();
+			for (int col = colFirst; col <= colLast; col++) {
+				for (int fromRow = 0; fromRow < rowCount; fromRow += chunkSize) {
+					final int chunkCol = col;
+					final int chunkFromRow = fromRow;
+					final int chunkToRow = Math.min(fromRow + chunkSize, rowCount);
+					tasks.add(executor.submit(new Callable<Moments>() {
+						public Moments call() {
+							Moments moments = new Moments();
+							double[] buffer = new double[BUFFER_SIZE];
+							for (int from = chunkFromRow; from < chunkToRow; from += BUFFER_SIZE) {
+								int to = Math.min(from + BUFFER_SIZE, chunkToRow);
+								source.getDoubles(chunkCol, from, to, buffer);
+								moments.add(buffer, to - from);
+							}
+							return moments;
+						}
+					}));
+				}
+			}
+
+			// Merge the partial moments in a fixed order
+			Moments moments = new Moments();
+			for (Future<Moments> task : tasks) {
+				moments.merge(task.get());
 			}
-			Number numericCell = (Number) cell;
-			double value = numericCell.doubleValue();
-			if (MathUtils.isCalculatable(value)) {
-				values.add(value);
+			return moments;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Waiting for tasks has been interrupted.", e); //$NON-NLS-1$
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
 			}
+			throw new IllegalStateException(cause);
+		} finally {
+			executor.shutdown();
 		}
+	}
 
-		if (values.size() <= 0) {
+	/**
+	 * Utility method that calculates quantiles for the given data values and
+	 * stores the results in {@code stats}. Depending on the quantile error,
+	 * the quantiles are either calculated exactly from a sorted array of all
+	 * values or estimated using a {@code QuantileSketch}.
+	 * @param stats {@code Map} for storing results
+	 * @see de.erichseifert.gral.util.MathUtils#quantile(double[],double)
+	 */
+	private void createDistributionStats(Map<String, Double> stats) {
+		if (quantileError > 0.0) {
+			final QuantileSketch sketch = new QuantileSketch(quantileError);
+			accumulate(new ValueAccumulator() {
+				public void add(double val) {
+					sketch.add(val);
+				}
+
+				public void add(double[] values, int count) {
+					for (int i = 0; i < count; i++) {
+						sketch.add(values[i]);
+					}
+				}
+			});
+			this.sketch = sketch;
+			storeQuantiles(sketch, stats);
+			return;
+		}
+
+		ValueArray valueArray = new ValueArray();
+		accumulate(valueArray);
+		double[] values = valueArray.toSortedArray();
+		if (values.length <= 0) {
 			return;
 		}
 
@@ -204,6 +788,337 @@ public class Statistics {
 		stats.put(MEDIAN, stats.get(QUARTILE_2));
 	}
 
+	/**
+	 * Stores the quantiles estimated by the specified sketch in
+	 * {@code stats}.
+	 * @param sketch Summary of the data values.
+	 * @param stats {@code Map} for storing results
+	 */
+	private static void storeQuantiles(QuantileSketch sketch, Map<String, Double> stats) {
+		if (sketch.getCount() <= 0) {
+			return;
+		}
+		stats.put(QUARTILE_1, sketch.quantile(0.25));
+		stats.put(QUARTILE_2, sketch.quantile(0.50));
+		stats.put(QUARTILE_3, sketch.quantile(0.75));
+		stats.put(MEDIAN, stats.get(QUARTILE_2));
+	}
+
+	/**
+	 * Method that is invoked when data has been added.
+	 * This method is invoked by objects that provide support for
+	 * {@code DataListener}s and should not be called manually.
+	 * @param source Data source that has been changed.
+	 * @param events Optional event object describing the data values that
+	 *        have been added.
+	 */
+	public void dataAdded(DataSource source, DataChangeEvent... events) {
+		synchronized (lock) {
+			if (!isIncremental(events)) {
+				invalidate();
+				return;
+			}
+			events = filterColumn(events);
+			if (events.length == 0) {
+				return;
+			}
+			for (DataChangeEvent event : events) {
+				if (event.isRange() && !isReadable(event)) {
+					invalidate();
+					return;
+				}
+			}
+			for (DataChangeEvent event : events) {
+				if (event.isRange()) {
+					addRange(event);
+					continue;
+				}
+				double value = toDouble(event.getNew());
+				if (moments != null) {
+					moments.add(value);
+				}
+				if (sketch != null) {
+					sketch.add(value);
+				}
+			}
+			refresh();
+		}
+	}
+
+	/**
+	 * Method that is invoked when data has been updated.
+	 * This method is invoked by objects that provide support for
+	 * {@code DataListener}s and should not be called manually.
+	 * @param source Data source that has been changed.
+	 * @param events Optional event object describing the data values that
+	 *        have been updated.
+	 */
+	public void dataUpdated(DataSource source, DataChangeEvent... events) {
+		synchronized (lock) {
+			if (!isIncremental(events)) {
+				invalidate();
+				return;
+			}
+			events = filterColumn(events);
+			if (events.length == 0 || isPermutation(events)) {
+				return;
+			}
+			// Values can't be removed from a quantile sketch
+			sketch = null;
+			if (moments != null && containsExtremeValue(events)) {
+				moments = null;
+			} else if (moments != null) {
+				for (DataChangeEvent event : events) {
+					moments.remove(toDouble(event.getOld()));
+					moments.add(toDouble(event.getNew()));
+				}
+			}
+			refresh();
+		}
+	}
+
+	/**
+	 * Method that is invoked when data has been removed.
+	 * This method is invoked by objects that provide support for
+	 * {@code DataListener}s and should not be called manually.
+	 * @param source Data source that has been changed.
+	 * @param events Optional event object describing the data values that
+	 *        have been removed.
+	 */
+	public void dataRemoved(DataSource source, DataChangeEvent... events) {
+		synchronized (lock) {
+			if (!isIncremental(events)) {
+				invalidate();
+				return;
+			}
+			events = filterColumn(events);
+			if (events.length == 0) {
+				return;
+			}
+			// Values can't be removed from a quantile sketch
+			sketch = null;
+			if (moments != null && containsExtremeValue(events)) {
+				moments = null;
+			} else if (moments != null) {
+				for (DataChangeEvent event : events) {
+					moments.remove(toDouble(event.getOld()));
+				}
+			}
+			refresh();
+		}
+	}
+
+	/**
+	 * Returns whether the specified events can be used to update the
+	 * current statistics. This is only possible if all events originate
+	 * from the analyzed data source, because only then the event values are
+	 * the values of the analyzed cells.
+	 * @param events Event objects describing the changed values.
+	 * @return {@code true} if the statistics can be updated incrementally,
+	 *         {@code false} otherwise.
+	 */
+	private boolean isIncremental(DataChangeEvent[] events) {
+		if (events == null || events.length == 0) {
+			return false;
+		}
+		for (DataChangeEvent event : events) {
+			if (event.getSource() != data) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the specified events only describe reordered rows, so
+	 * the analyzed values haven't changed.
+	 * @param events Event objects describing the changed values.
+	 * @return {@code true} if all events are permutations, {@code false}
+	 *         otherwise.
+	 */
+	private static boolean isPermutation(DataChangeEvent[] events) {
+		for (DataChangeEvent event : events) {
+			if (!event.isPermutation()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the range of the specified event still exists in the
+	 * analyzed data source, so that its values can be read.
+	 * @param event Event describing a range of values.
+	 * @return {@code true} if the range can be read, {@code false} otherwise.
+	 */
+	private boolean isReadable(DataChangeEvent event) {
+		DataSource source = (DataSource) data;
+		return event.getCol() >= 0 && event.getRow() >= 0 &&
+			event.getCol() + event.getColCount() <= source.getColumnCount() &&
+			event.getRow() + event.getRowCount() <= source.getRowCount();
+	}
+
+	/**
+	 * Adds the values of all analyzed cells in the range of the specified
+	 * event to the current statistics. The values are read from the data
+	 * source.
+	 * @param event Event describing a range of added values.
+	 */
+	private void addRange(DataChangeEvent event) {
+		DataSource source = (DataSource) data;
+		int colFirst = event.getCol();
+		int colLast = colFirst + event.getColCount() - 1;
+		if (column >= 0) {
+			colFirst = column;
+			colLast = column;
+		}
+		int rowFirst = event.getRow();
+		int rowLast = rowFirst + event.getRowCount();
+		double[] buffer = new double[Math.min(BUFFER_SIZE, event.getRowCount())];
+		for (int col = colFirst; col <= colLast; col++) {
+			for (int fromRow = rowFirst; fromRow < rowLast; fromRow += buffer.length) {
+				int toRow = Math.min(fromRow + buffer.length, rowLast);
+				source.getDoubles(col, fromRow, toRow, buffer);
+				for (int i = 0; i < toRow - fromRow; i++) {
+					if (moments != null) {
+						moments.add(buffer[i]);
+					}
+					if (sketch != null) {
+						sketch.add(buffer[i]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the events that affect the analyzed column. If all columns are
+	 * analyzed, the specified events are returned unchanged.
+	 * @param events Event objects describing the changed values.
+	 * @return Events for the analyzed column.
+	 */
+	private DataChangeEvent[] filterColumn(DataChangeEvent[] events) {
+		if (column < 0) {
+			return events;
+		}
+		int count = 0;
+		for (DataChangeEvent event : events) {
+			if (event.containsCol(column)) {
+				count++;
+			}
+		}
+		if (count == events.length) {
+			return events;
+		}
+		DataChangeEvent[] filtered = new DataChangeEvent[count];
+		int i = 0;
+		for (DataChangeEvent event : events) {
+			if (event.containsCol(column)) {
+				filtered[i++] = event;
+			}
+		}
+		return filtered;
+	}
+
+	/**
+	 * Returns whether the old values of the specified events contain the
+	 * current minimum or maximum. As the old values of range events are
+	 * unknown, they are always considered to contain extreme values.
+	 * @param events Event objects describing the changed values.
+	 * @return {@code true} if the minimum or maximum would be affected,
+	 *         {@code false} otherwise.
+	 */
+	private boolean containsExtremeValue(DataChangeEvent[] events) {
+		for (DataChangeEvent event : events) {
+			if (event.isRange()) {
+				return true;
+			}
+			double old = toDouble(event.getOld());
+			if (MathUtils.isCalculatable(old) && moments.isExtreme(old)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Replaces all cached statistics by the values of the current moments
+	 * and the current quantile sketch. Statistics that can't be derived from
+	 * these will be calculated again on the next access.
+	 */
+	private void refresh() {
+		statistics.clear();
+		if (moments != null) {
+			moments.store(statistics);
+		}
+		if (sketch != null) {
+			storeQuantiles(sketch, statistics);
+		}
+	}
+
+	/**
+	 * Discards all cached statistics, so they will be calculated again on
+	 * the next access.
+	 */
+	private void invalidate() {
+		moments = null;
+		sketch = null;
+		statistics.clear();
+	}
+
+	/**
+	 * Converts a cell value to a primitive {@code double}. Empty cells and
+	 * values that aren't numbers are converted to {@code NaN}.
+	 * @param cell Cell value.
+	 * @return Numeric value.
+	 */
+	private static double toDouble(Comparable<?> cell) {
+		if (!(cell instanceof Number)) {
+			return Double.NaN;
+		}
+		return ((Number) cell).doubleValue();
+	}
+
+	/**
+	 * Calculates several statistics values of an array of primitive values
+	 * without creating a {@code Statistics} object. Values that are not
+	 * calculatable are ignored.
+	 * @param values Values to be analyzed.
+	 * @param count Number of values to be analyzed.
+	 * @param keys Requested information.
+	 * @param dest Array that will store the value for each key, or
+	 *        <i>NaN</i> if the statistical value does not exist.
+	 */
+	public static void calculate(double[] values, int count, String[] keys, double[] dest) {
+		Moments moments = null;
+		double[] sorted = null;
+		for (int i = 0; i < keys.length; i++) {
+			String key = keys[i];
+			double quantile = Double.NaN;
+			if (QUARTILE_1.equals(key)) {
+				quantile = 0.25;
+			} else if (QUARTILE_2.equals(key)) {
+				quantile = 0.50;
+			} else if (QUARTILE_3.equals(key)) {
+				quantile = 0.75;
+			}
+			if (!Double.isNaN(quantile)) {
+				if (sorted == null) {
+					ValueArray valueArray = new ValueArray();
+					valueArray.add(values, count);
+					sorted = valueArray.toSortedArray();
+				}
+				dest[i] = (sorted.length > 0) ? MathUtils.quantile(sorted, quantile) : Double.NaN;
+			} else {
+				if (moments == null) {
+					moments = new Moments();
+					moments.add(values, count);
+				}
+				dest[i] = moments.get(key);
+			}
+		}
+	}
+
 	/**
 	 * Returns the specified statistics value.
 	 * @param key Requested information.
@@ -211,16 +1126,18 @@ public class Statistics {
 	 *         if the specified statistical value does not exist
 	 */
 	public double get(String key) {
-		if (!statistics.containsKey(key)) {
-			if (MEDIAN.equals(key) || QUARTILE_1.equals(key) ||
-					QUARTILE_2.equals(key) || QUARTILE_3.equals(key)) {
-				createDistributionStats(data, statistics);
-			} else {
-				createBasicStats(data, statistics);
+		synchronized (lock) {
+			if (!statistics.containsKey(key)) {
+				if (MEDIAN.equals(key) || QUARTILE_1.equals(key) ||
+						QUARTILE_2.equals(key) || QUARTILE_3.equals(key)) {
+					createDistributionStats(statistics);
+				} else {
+					createBasicStats(statistics);
+				}
 			}
-		}
 
-		Double v = statistics.get(key);
-		return DataUtils.getValueOrDefault(v, Double.NaN);
+			Double v = statistics.get(key);
+			return DataUtils.getValueOrDefault(v, Double.NaN);
+		}
 	}
 }
@@ -0,0 +1,37 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data.statistics;
+
+/**
+ * Interface that can be implemented to listen for statistics that have
+ * been refined in the background.
+ * @see ApproximateStatistics
+ */
+public interface StatisticsListener {
+	/**
+	 * Method that is invoked when estimated statistics have been replaced
+	 * by exact statistics. The method is called by the thread that
+	 * calculated the exact statistics.
+	 * @param statistics Statistics that have been refined.
+	 */
+	void statisticsRefined(Statistics statistics);
+}
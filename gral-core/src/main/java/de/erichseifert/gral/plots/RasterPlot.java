@@ -338,10 +338,8 @@ public class RasterPlot extends XYPlot {
 			new DataTable(Double.class, Double.class, Double.class);
 
 		// Generate pixel data with (x, y, value)
-		double min = ((Number) data.getRowStatistics(Statistics.MIN).
-				getColumnStatistics(Statistics.MIN).get(0, 0)).doubleValue();
-		double max = ((Number) data.getRowStatistics(Statistics.MAX).
-				getColumnStatistics(Statistics.MAX).get(0, 0)).doubleValue();
+		double min = data.getStatistics().get(Statistics.MIN);
+		double max = data.getStatistics().get(Statistics.MAX);
 		double range = max - min;
 		int i = 0;
 		for (Comparable<?> cell : data) {
@@ -42,6 +42,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import de.erichseifert.gral.data.DataPyramid;
+import de.erichseifert.gral.data.DataSnapshot;
 import de.erichseifert.gral.data.DataSource;
 import de.erichseifert.gral.data.DummyData;
 import de.erichseifert.gral.data.Row;
@@ -382,32 +384,86 @@ public class XYPlot extends AbstractPlot implements Navigable, AxisListener {
 				AxisRenderer axisXRenderer = plot.getAxisRenderer(axisNames[0]);
 				AxisRenderer axisYRenderer = plot.getAxisRenderer(axisNames[1]);
 
-				List<DataPoint> points = new LinkedList<DataPoint>();
-				for (int i = 0; i < s.getRowCount(); i++) {
-					Row row = new Row(s, i);
-					Number valueX = (Number) row.get(colX);
-					Number valueY = (Number) row.get(colY);
+				double minX = Math.min(axisX.getMin().doubleValue(), axisX.getMax().doubleValue());
+				double maxX = Math.max(axisX.getMin().doubleValue(), axisX.getMax().doubleValue());
+
+				// Read all values from the same state of the data, even if the
+				// data is changed while drawing. Pyramids provide aggregates
+				// that match the available number of pixels.
+				DataSource data;
+				if (s instanceof DataPyramid) {
+					data = ((DataPyramid) s).getData(minX, maxX, getWidth());
+				} else {
+					data = s.snapshot();
+				}
+				// The aggregates of a pyramid are drawn as the envelope of the
+				// minimum and the maximum of each bucket, so no peak is lost
+				int[] colsY = {colY};
+				if (s instanceof DataPyramid && data.getColumnCount() > DataPyramid.COL_MAX) {
+					colX = DataPyramid.COL_X;
+					colsY = new int[] {DataPyramid.COL_MIN, DataPyramid.COL_MAX};
+				}
+
+				// Only visit the visible rows if the x values are sorted. One
+				// additional row on each side is needed to continue lines.
+				int rowFirst = 0;
+				int rowLast = data.getRowCount();
+				if (data instanceof DataSnapshot
+						&& ((DataSnapshot) data).isColumnSorted(colX)) {
+					DataSnapshot snapshot = (DataSnapshot) data;
+					rowFirst = Math.max(snapshot.getLowerBound(colX, minX) - 1, 0);
+					rowLast = Math.min(snapshot.getUpperBound(colX, maxX) + 1, rowLast);
+				}
 
+				// Values are read as primitive arrays, so they aren't boxed
+				double[] valuesX = data.getDoubles(colX, rowFirst, rowLast, null);
+				double[][] valuesY = new double[colsY.length][];
+				for (int c = 0; c < colsY.length; c++) {
+					valuesY[c] = data.getDoubles(colsY[c], rowFirst, rowLast, null);
+				}
+				// Only point renderers need to access the values of a row
+				boolean rowsNeeded = !plot.getPointRenderers(s).isEmpty();
+				List<Axis> axes = Arrays.asList(axisX, axisY);
+				List<AxisRenderer> axisRenderers = Arrays.asList(axisXRenderer, axisYRenderer);
+
+				List<DataPoint> points = new LinkedList<DataPoint>();
+				for (int i = rowFirst; i < rowLast; i++) {
+					double x = valuesX[i - rowFirst];
+					// Empty cells and NaN values can't be displayed
+					if (Double.isNaN(x)) {
+						continue;
+					}
 					PointND<Double> axisPosX = (axisXRenderer != null)
-						? axisXRenderer.getPosition(axisX, valueX, true, false)
-						: new PointND<Double>(0.0, 0.0);
-					PointND<Double> axisPosY = (axisYRenderer != null)
-						? axisYRenderer.getPosition(axisY, valueY, true, false)
+						? axisXRenderer.getPosition(axisX, x, true, false)
 						: new PointND<Double>(0.0, 0.0);
-					if (axisPosX == null || axisPosY == null) {
+					if (axisPosX == null) {
 						continue;
 					}
+					Row row = null;
+					for (int c = 0; c < colsY.length; c++) {
+						double y = valuesY[c][i - rowFirst];
+						if (Double.isNaN(y)) {
+							continue;
+						}
+						PointND<Double> axisPosY = (axisYRenderer != null)
+							? axisYRenderer.getPosition(axisY, y, true, false)
+							: new PointND<Double>(0.0, 0.0);
+						if (axisPosY == null) {
+							continue;
+						}
 
-					PointND<Double> pos = new PointND<Double>(
-						axisPosX.get(PointND.X), axisPosY.get(PointND.Y));
+						PointND<Double> pos = new PointND<Double>(
+							axisPosX.get(PointND.X), axisPosY.get(PointND.Y));
 
-					PointData pointData = new PointData(
-						Arrays.asList(axisX, axisY),
-						Arrays.asList(axisXRenderer, axisYRenderer),
-						row, row.getIndex(), colY);
+						if (row == null && rowsNeeded) {
+							row = new Row(data, i);
+						}
+						PointData pointData = new PointData(
+							axes, axisRenderers, row, i, colsY[c]);
 
-					DataPoint dataPoint = new DataPoint(pointData, pos);
-					points.add(dataPoint);
+						DataPoint dataPoint = new DataPoint(pointData, pos);
+						points.add(dataPoint);
+					}
 				}
 
 				List<PointRenderer> pointRenderers = new ArrayList<PointRenderer>(plot.getPointRenderers(s));
@@ -568,6 +568,20 @@ public abstract class AbstractAxisRenderer2D implements AxisRenderer, Serializab
 		return tickNormal;
 	}
 
+	/**
+	 * Converts a primitive world (axis) coordinate value to a view (screen)
+	 * coordinate value. The default implementation boxes the value and
+	 * calls {@link #worldToView(Axis, Number, boolean)}.
+	 * @param axis Axis
+	 * @param value World coordinate value to convert
+	 * @param extrapolate Option to activate extrapolation value that are not
+	 *        on the axis
+	 * @return Screen coordinate value
+	 */
+	public double worldToView(Axis axis, double value, boolean extrapolate) {
+		return worldToView(axis, Double.valueOf(value), extrapolate);
+	}
+
 	/**
 	 * Returns the length of the shape path which is used to render axes.
 	 * @return Shape length.
@@ -591,12 +605,32 @@ public abstract class AbstractAxisRenderer2D implements AxisRenderer, Serializab
 	 */
 	public PointND<Double> getPosition(Axis axis, Number value,
 			boolean extrapolate, boolean forceLinear) {
-		if (shapeLines == null || shapeLines.length == 0 || value == null) {
+		if (value == null) {
+			return null;
+		}
+		return getPosition(axis, value.doubleValue(), extrapolate, forceLinear);
+	}
+
+	/**
+	 * Returns the position of the specified primitive value on the axis,
+	 * so the value doesn't have to be boxed.
+	 * The value is returned in view coordinates.
+	 * @param axis Axis
+	 * @param value World coordinate value to convert
+	 * @param extrapolate Option to activate extrapolation value that are not
+	 *        on the axis
+	 * @param forceLinear Force linear interpolation.
+	 * @return N-dimensional point of the value
+	 */
+	public PointND<Double> getPosition(Axis axis, double value,
+			boolean extrapolate, boolean forceLinear) {
+		if (shapeLines == null || shapeLines.length == 0) {
 			return null;
 		}
 
 		// Determine relative position of the value
-		double relativePositionOnShapePath = axis.getPosition(value).doubleValue();
+		double relativePositionOnShapePath =
+			(value - axis.getMin().doubleValue())/axis.getRange();
 		if (!extrapolate) {
 			relativePositionOnShapePath = MathUtils.limit(relativePositionOnShapePath, 0.0, 1.0);
 		}
@@ -94,6 +94,19 @@ public interface AxisRenderer {
 	 */
 	PointND<Double> getPosition(Axis axis, Number value, boolean extrapolate, boolean forceLinear);
 
+	/**
+	 * Returns the position of the specified primitive value on the axis,
+	 * so the value doesn't have to be boxed.
+	 * The value is returned in view coordinates.
+	 * @param axis Axis
+	 * @param value World coordinate value to convert
+	 * @param extrapolate Option to activate extrapolation value that are not
+	 *        on the axis
+	 * @param forceLinear Force linear interpolation.
+	 * @return N-dimensional point of the value
+	 */
+	PointND<Double> getPosition(Axis axis, double value, boolean extrapolate, boolean forceLinear);
+
 	/**
 	 * Returns the normal vector at the position of the specified value.
 	 * The vector is normalized.
@@ -50,18 +50,31 @@ public class LinearRenderer2D extends AbstractAxisRenderer2D {
 	 * @return Screen coordinate value
 	 */
 	public double worldToView(Axis axis, Number value, boolean extrapolate) {
+		return worldToView(axis, value.doubleValue(), extrapolate);
+	}
+
+	/**
+	 * Converts a world (axis) coordinate value to a view (screen) coordinate
+	 * value without boxing the value.
+	 * @param axis Axis
+	 * @param value World coordinate value to convert
+	 * @param extrapolate Option to activate extrapolation value that are not
+	 *        on the axis
+	 * @return Screen coordinate value
+	 */
+	@Override
+	public double worldToView(Axis axis, double value, boolean extrapolate) {
 		double min = axis.getMin().doubleValue();
 		double max = axis.getMax().doubleValue();
-		double val = value.doubleValue();
 		if (!extrapolate) {
-			if (val <= min) {
+			if (value <= min) {
 				return 0.0;
 			}
-			if (val >= max) {
+			if (value >= max) {
 				return getShapeLength();
 			}
 		}
-		return (val - min)/(max - min)*getShapeLength();
+		return (value - min)/(max - min)*getShapeLength();
 	}
 
 	/**
@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import de.erichseifert.gral.data.Category;
 import de.erichseifert.gral.data.DataChangeEvent;
 import de.erichseifert.gral.data.DataListener;
 import de.erichseifert.gral.data.DataSource;
@@ -52,6 +53,9 @@ public abstract class ValueLegend extends AbstractLegend
 	private int labelColumn;
 	/** Format for data to label text conversion. */
 	private Format labelFormat;
+	/** Label texts of categories that have already been formatted, or
+	{@code null}. */
+	private transient Map<Category, String> categoryLabels;
 
 	/**
 	 * Initializes a new instance with default values.
@@ -88,6 +92,20 @@ public abstract class ValueLegend extends AbstractLegend
 			return "";
 		}
 
+		// Rows of the same category share the label text
+		if (value instanceof Category) {
+			if (categoryLabels == null) {
+				categoryLabels = new HashMap<Category, String>();
+			}
+			String text = categoryLabels.get(value);
+			if (text == null) {
+				Format format = getLabelFormat();
+				text = (format != null) ? format.format(value) : value.toString();
+				categoryLabels.put((Category) value, text);
+			}
+			return text;
+		}
+
 		// Formatting
 		Format format = getLabelFormat();
 		if ((format == null) && row.isColumnNumeric(col)) {
@@ -213,6 +231,7 @@ public abstract class ValueLegend extends AbstractLegend
 	protected abstract Drawable getSymbol(Row row);
 
 	private void refresh() {
+		categoryLabels = null;
 		for (Drawable drawable : components.values()) {
 			remove(drawable);
 		}
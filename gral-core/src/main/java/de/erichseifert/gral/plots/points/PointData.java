@@ -39,7 +39,10 @@ public class PointData {
 	public final List<? extends AxisRenderer> axisRenderers;
 	/** The index of the row. */
 	public final int index;
-	/** The data row that will get projected. */
+	/**
+	 * The data row that will get projected, or {@code null} if the values
+	 * of the row aren't needed to render the point.
+	 */
 	public final Row row;
 	/** The index of the column in the row that contains the data value. */
 	public final int col;
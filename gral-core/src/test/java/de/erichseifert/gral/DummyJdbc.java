@@ -50,23 +50,40 @@ import java.sql.Struct;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import de.erichseifert.gral.data.DataSource;
+import de.erichseifert.gral.data.DataTable;
 import de.erichseifert.gral.data.DummyData;
 
 public class DummyJdbc implements Connection {
+	private static final Pattern AGGREGATE_QUERY = Pattern.compile(
+		"SELECT (.+) FROM \\S+(?: GROUP BY FLOOR\\(c(\\d+)/(\\S+)\\) ORDER BY .+)?");
+	private static final Pattern AGGREGATE_TERM = Pattern.compile(
+		"(\\w+)\\(c(\\d+)(?:/\\S+)?\\)");
+
 	private final DataSource data;
 	private boolean closed;
+	int queryCount;
 
 	public DummyJdbc(DataSource data) {
 		this.data = data;
 		this.closed = false;
 	}
 
+	public int getQueryCount() {
+		return queryCount;
+	}
+
 	public void clearWarnings() throws SQLException {
 		throw new UnsupportedOperationException();
 	}
@@ -181,9 +198,94 @@ public class DummyJdbc implements Connection {
 			return new DummyPreparedStatement(this,
 					new DummyData(1, 1, data.getRowCount()));
 		}
+		Matcher aggregateQuery = AGGREGATE_QUERY.matcher(sql);
+		if (aggregateQuery.matches() && !sql.startsWith("SELECT *")) {
+			return new DummyPreparedStatement(this, aggregate(aggregateQuery));
+		}
 		return new DummyPreparedStatement(this, data);
 	}
 
+	/**
+	 * Evaluates simple aggregate queries like
+	 * {@code SELECT MIN(c1), SUM(c2) FROM t} or
+	 * {@code SELECT FLOOR(c1/2.0), AVG(c2) FROM t GROUP BY FLOOR(c1/2.0) ORDER BY FLOOR(c1/2.0)}.
+	 */
+	@SuppressWarnings("unchecked")
+	private DataSource aggregate(Matcher query) {
+		Map<Double, List<Integer>> groups = new TreeMap<Double, List<Integer>>();
+		double step = 1.0;
+		int groupCol = -1;
+		if (query.group(2) != null) {
+			groupCol = Integer.parseInt(query.group(2)) - 1;
+			step = Double.parseDouble(query.group(3));
+		} else {
+			groups.put(0.0, new ArrayList<Integer>());
+		}
+		for (int row = 0; row < data.getRowCount(); row++) {
+			double key = 0.0;
+			if (groupCol >= 0) {
+				double x = data.getDouble(groupCol, row);
+				if (Double.isNaN(x)) {
+					continue;
+				}
+				key = Math.floor(x/step);
+			}
+			if (!groups.containsKey(key)) {
+				groups.put(key, new ArrayList<Integer>());
+			}
+			groups.get(key).add(row);
+		}
+
+		String[] terms = query.group(1).split(", ");
+		Class<? extends Comparable<?>>[] types = new Class[terms.length];
+		Arrays.fill(types, Double.class);
+		DataTable result = new DataTable(types);
+		for (Map.Entry<Double, List<Integer>> group : groups.entrySet()) {
+			Double[] values = new Double[terms.length];
+			for (int i = 0; i < terms.length; i++) {
+				Matcher term = AGGREGATE_TERM.matcher(terms[i]);
+				if (!term.matches()) {
+					throw new UnsupportedOperationException(terms[i]);
+				}
+				String function = term.group(1);
+				if ("FLOOR".equals(function)) {
+					values[i] = group.getKey();
+					continue;
+				}
+				int col = Integer.parseInt(term.group(2)) - 1;
+				double count = 0.0, sum = 0.0;
+				double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+				for (int row : group.getValue()) {
+					double value = data.getDouble(col, row);
+					if (Double.isNaN(value)) {
+						continue;
+					}
+					count++;
+					sum += value;
+					min = Math.min(min, value);
+					max = Math.max(max, value);
+				}
+				if ("COUNT".equals(function)) {
+					values[i] = count;
+				} else if (count == 0.0) {
+					values[i] = null;
+				} else if ("MIN".equals(function)) {
+					values[i] = min;
+				} else if ("MAX".equals(function)) {
+					values[i] = max;
+				} else if ("SUM".equals(function)) {
+					values[i] = sum;
+				} else if ("AVG".equals(function)) {
+					values[i] = sum/count;
+				} else {
+					throw new UnsupportedOperationException(function);
+				}
+			}
+			result.add(values);
+		}
+		return result;
+	}
+
 	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
 		throw new UnsupportedOperationException();
 	}
@@ -325,11 +427,23 @@ class DummyResultSet implements ResultSet {
 	private final DataSource data;
 	private int rowIndex = -1;
 	private boolean closed;
+	private boolean wasNull;
 
 	public DummyResultSet(DataSource data) {
 		this.data = data;
 	}
 
+	private Object getValue(int columnIndex) {
+		Object value = data.get(columnIndex - 1, rowIndex);
+		wasNull = value == null;
+		return value;
+	}
+
+	private Number getNumber(int columnIndex) {
+		Number value = (Number) getValue(columnIndex);
+		return (value != null) ? value : 0;
+	}
+
 	public boolean absolute(int row) throws SQLException {
 		rowIndex = row - 1;
 		return !isBeforeFirst() && !isAfterLast();
@@ -403,7 +517,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public boolean getBoolean(int columnIndex) throws SQLException {
-		return (Boolean) data.get(columnIndex - 1, rowIndex);
+		return (Boolean) getValue(columnIndex);
 	}
 
 	public boolean getBoolean(String columnLabel) throws SQLException {
@@ -411,7 +525,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public byte getByte(int columnIndex) throws SQLException {
-		return ((Number) data.get(columnIndex - 1, rowIndex)).byteValue();
+		return getNumber(columnIndex).byteValue();
 	}
 
 	public byte getByte(String columnLabel) throws SQLException {
@@ -443,7 +557,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public Date getDate(int columnIndex) throws SQLException {
-		return (Date) data.get(columnIndex - 1, rowIndex);
+		return (Date) getValue(columnIndex);
 	}
 
 	public Date getDate(String columnLabel) throws SQLException {
@@ -452,7 +566,7 @@ class DummyResultSet implements ResultSet {
 
 	public Date getDate(int columnIndex, Calendar cal) throws SQLException {
 		// TODO Use calendar
-		return (Date) data.get(columnIndex - 1, rowIndex);
+		return (Date) getValue(columnIndex);
 	}
 
 	public Date getDate(String columnLabel, Calendar cal) throws SQLException {
@@ -460,7 +574,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public double getDouble(int columnIndex) throws SQLException {
-		return ((Number) data.get(columnIndex - 1, rowIndex)).doubleValue();
+		return getNumber(columnIndex).doubleValue();
 	}
 
 	public double getDouble(String columnLabel) throws SQLException {
@@ -476,7 +590,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public float getFloat(int columnIndex) throws SQLException {
-		return ((Number) data.get(columnIndex - 1, rowIndex)).floatValue();
+		return getNumber(columnIndex).floatValue();
 	}
 
 	public float getFloat(String columnLabel) throws SQLException {
@@ -484,7 +598,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public int getInt(int columnIndex) throws SQLException {
-		return ((Number) data.get(columnIndex - 1, rowIndex)).intValue();
+		return getNumber(columnIndex).intValue();
 	}
 
 	public int getInt(String columnLabel) throws SQLException {
@@ -492,7 +606,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public long getLong(int columnIndex) throws SQLException {
-		return ((Number) data.get(columnIndex - 1, rowIndex)).longValue();
+		return getNumber(columnIndex).longValue();
 	}
 
 	public long getLong(String columnLabel) throws SQLException {
@@ -504,7 +618,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public Object getObject(int columnIndex) throws SQLException {
-		return data.get(columnIndex - 1, rowIndex);
+		return getValue(columnIndex);
 	}
 
 	public Object getObject(String columnLabel) throws SQLException {
@@ -534,7 +648,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public short getShort(int columnIndex) throws SQLException {
-		return ((Number) data.get(columnIndex - 1, rowIndex)).shortValue();
+		return getNumber(columnIndex).shortValue();
 	}
 
 	public short getShort(String columnLabel) throws SQLException {
@@ -546,7 +660,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public String getString(int columnIndex) throws SQLException {
-		return String.valueOf(data.get(columnIndex - 1, rowIndex));
+		return String.valueOf(getValue(columnIndex));
 	}
 
 	public String getString(String columnLabel) throws SQLException {
@@ -554,7 +668,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public Time getTime(int columnIndex) throws SQLException {
-		return (Time) data.get(columnIndex - 1, rowIndex);
+		return (Time) getValue(columnIndex);
 	}
 
 	public Time getTime(String columnLabel) throws SQLException {
@@ -563,7 +677,7 @@ class DummyResultSet implements ResultSet {
 
 	public Time getTime(int columnIndex, Calendar cal) throws SQLException {
 		// TODO Use calendar
-		return (Time) data.get(columnIndex - 1, rowIndex);
+		return (Time) getValue(columnIndex);
 	}
 
 	public Time getTime(String columnLabel, Calendar cal) throws SQLException {
@@ -571,7 +685,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public Timestamp getTimestamp(int columnIndex) throws SQLException {
-		return (Timestamp) data.get(columnIndex - 1, rowIndex);
+		return (Timestamp) getValue(columnIndex);
 	}
 
 	public Timestamp getTimestamp(String columnLabel) throws SQLException {
@@ -581,7 +695,7 @@ class DummyResultSet implements ResultSet {
 	public Timestamp getTimestamp(int columnIndex, Calendar cal)
 			throws SQLException {
 		// TODO Use calendar
-		return (Timestamp) data.get(columnIndex - 1, rowIndex);
+		return (Timestamp) getValue(columnIndex);
 	}
 
 	public Timestamp getTimestamp(String columnLabel, Calendar cal)
@@ -695,7 +809,6 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public void setFetchSize(int rows) throws SQLException {
-		throw new UnsupportedOperationException();
 	}
 
 	public void updateArray(int columnIndex, Array x) throws SQLException {
@@ -909,7 +1022,7 @@ class DummyResultSet implements ResultSet {
 	}
 
 	public boolean wasNull() throws SQLException {
-		throw new UnsupportedOperationException();
+		return wasNull;
 	}
 
 	public boolean isWrapperFor(Class<?> iface) throws SQLException {
@@ -1250,7 +1363,7 @@ class DummyResultSetMetaData implements ResultSetMetaData {
 	}
 
 	public String getColumnName(int column) throws SQLException {
-		throw new UnsupportedOperationException();
+		return "c" + column;
 	}
 
 	public int getColumnType(int column) throws SQLException {
@@ -1373,6 +1486,9 @@ class DummyPreparedStatement implements PreparedStatement {
 	}
 
 	public ResultSet executeQuery() throws SQLException {
+		if (connection instanceof DummyJdbc) {
+			((DummyJdbc) connection).queryCount++;
+		}
 		return new DummyResultSet(data);
 	}
 
@@ -1642,7 +1758,6 @@ class DummyPreparedStatement implements PreparedStatement {
 	}
 
 	public void close() throws SQLException {
-		connection.close();
 	}
 
 	public boolean execute(String sql) throws SQLException {
@@ -1771,7 +1886,6 @@ class DummyPreparedStatement implements PreparedStatement {
 	}
 
 	public void setFetchSize(int rows) throws SQLException {
-		throw new UnsupportedOperationException();
 	}
 
 	public void setMaxFieldSize(int max) throws SQLException {
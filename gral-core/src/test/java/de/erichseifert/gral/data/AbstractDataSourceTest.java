@@ -24,14 +24,18 @@ package de.erichseifert.gral.data;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Test;
 
+import de.erichseifert.gral.TestUtils;
 import de.erichseifert.gral.data.statistics.Statistics;
 
 public class AbstractDataSourceTest {
+	private static final double DELTA = TestUtils.DELTA;
+
 	protected class StubAbstractDataSource extends AbstractDataSource {
 		private int colCount;
 		private int rowCount;
@@ -124,4 +128,58 @@ public class AbstractDataSourceTest {
 		DataSource rowStatistics = source.getRowStatistics(Statistics.N);
 		assertThat(rowStatistics.getRowCount(), is(rowCount));
 	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testColumnStatisticsForSeveralKeys() {
+		DataTable table = new DataTable(Integer.class, Double.class, String.class);
+		table.add(1, 2.0, "a");
+		table.add(3, -1.0, "b");
+		table.add(2, 5.0, null);
+		String[] keys = {Statistics.MIN, Statistics.MAX, Statistics.N};
+
+		double[][] statistics = table.getColumnStatistics(keys, 1, 0);
+		assertEquals(-1.0, statistics[0][0], DELTA);
+		assertEquals( 1.0, statistics[0][1], DELTA);
+		assertEquals( 5.0, statistics[1][0], DELTA);
+		assertEquals( 3.0, statistics[1][1], DELTA);
+		assertEquals( 3.0, statistics[2][0], DELTA);
+
+		statistics = table.getColumnStatistics(keys);
+		assertEquals(3, statistics[0].length);
+		assertTrue(Double.isNaN(statistics[0][2]));
+		assertEquals(0.0, statistics[2][2], DELTA);
+
+		table.add(0, 9.0, "c");
+		statistics = table.getColumnStatistics(keys, 0, 1);
+		assertEquals(0.0, statistics[0][0], DELTA);
+		assertEquals(9.0, statistics[1][1], DELTA);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testRowStatisticsForSeveralKeys() {
+		DataTable table = new DataTable(Integer.class, Double.class, Integer.class);
+		table.add(1, 2.0, 6);
+		table.add(3, -1.0, null);
+		String[] keys = {Statistics.SUM, Statistics.MEDIAN, Statistics.N};
+
+		double[][] statistics = table.getRowStatistics(keys);
+		assertEquals(2, statistics[0].length);
+		assertEquals(9.0, statistics[0][0], DELTA);
+		assertEquals(2.0, statistics[0][1], DELTA);
+		assertEquals(2.0, statistics[1][0], DELTA);
+		assertEquals(1.0, statistics[1][1], DELTA);
+		assertEquals(3.0, statistics[2][0], DELTA);
+		assertEquals(2.0, statistics[2][1], DELTA);
+
+		// Results can be changed without affecting the cache
+		statistics[0][0] = 0.0;
+		assertEquals(9.0, table.getRowStatistics(keys)[0][0], DELTA);
+
+		table.set(2, 1, 4);
+		statistics = table.getRowStatistics(new String[] {Statistics.SUM, Statistics.MAX});
+		assertEquals(6.0, statistics[0][1], DELTA);
+		assertEquals(4.0, statistics[1][1], DELTA);
+	}
 }
\ No newline at end of file
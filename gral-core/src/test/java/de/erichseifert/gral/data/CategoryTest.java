@@ -0,0 +1,139 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.erichseifert.gral.TestUtils;
+import de.erichseifert.gral.data.comparators.Ascending;
+
+public class CategoryTest {
+	private CategoryDictionary dictionary;
+
+	@Before
+	public void setUp() {
+		dictionary = new CategoryDictionary("pear", "apple");
+	}
+
+	@Test
+	public void testCreate() {
+		assertEquals(2, dictionary.size());
+		assertTrue(dictionary.contains("apple"));
+		assertFalse(dictionary.contains("cherry"));
+		assertEquals(0, dictionary.getCategory("pear").getCode());
+		assertEquals(1, dictionary.getCategory("apple").getCode());
+		assertEquals("apple", dictionary.getCategory(1).getName());
+		assertEquals("apple", dictionary.getCategory(1).toString());
+		assertSame(dictionary, dictionary.getCategory(0).getDictionary());
+	}
+
+	@Test
+	public void testGetCategory() {
+		Category cherry = dictionary.getCategory("cherry");
+		assertEquals(2, cherry.getCode());
+		assertEquals(3, dictionary.size());
+		assertSame(cherry, dictionary.getCategory("cherry"));
+		assertSame(cherry, dictionary.getCategory(2));
+		assertNull(dictionary.getCategory(null));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetCategoryFailsForInvalidCode() {
+		dictionary.getCategory(2);
+	}
+
+	@Test
+	public void testCompare() {
+		Category pear = dictionary.getCategory("pear");
+		Category apple = dictionary.getCategory("apple");
+		// Categories of the same dictionary are ordered by code
+		assertTrue(pear.compareTo(apple) < 0);
+		assertTrue(apple.compareTo(pear) > 0);
+		assertEquals(0, pear.compareTo(pear));
+
+		// Categories of different dictionaries are ordered by name
+		Category pear2 = new CategoryDictionary("apple", "pear").getCategory("pear");
+		assertTrue(pear2.compareTo(apple) > 0);
+		assertEquals(0, pear2.compareTo(pear));
+		assertEquals(pear, pear2);
+		assertEquals(pear.hashCode(), pear2.hashCode());
+		assertFalse(pear.equals(apple));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCount() {
+		DataTable table = new DataTable(Category.class);
+		table.add(dictionary.getCategory("apple"));
+		table.add(dictionary.getCategory("cherry"));
+		table.add((Comparable<?>) null);
+		table.add(dictionary.getCategory("apple"));
+		table.add(new CategoryDictionary("pear").getCategory("pear"));
+		assertArrayEquals(new int[] {0, 2, 1}, dictionary.count(table, 0));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSort() {
+		DataTable table = new DataTable(Category.class, Integer.class);
+		table.add(dictionary.getCategory("apple"), 0);
+		table.add(dictionary.getCategory("pear"), 1);
+		table.add(null, 2);
+		table.add(dictionary.getCategory("apple"), 3);
+		table.sort(new Ascending(0));
+		assertEquals(1, table.get(1, 0));
+		assertEquals(0, table.get(1, 1));
+		assertEquals(3, table.get(1, 2));
+		assertEquals(2, table.get(1, 3));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		DataTable original = new DataTable(Category.class, Category.class);
+		CategoryDictionary other = new CategoryDictionary("x");
+		original.add(dictionary.getCategory("apple"), dictionary.getCategory("pear"));
+		original.add(null, other.getCategory("x"));
+		original.add(dictionary.getCategory("apple"), null);
+		DataTable deserialized = TestUtils.serializeAndDeserialize(original);
+
+		assertEquals(original.getRowCount(), deserialized.getRowCount());
+		for (int row = 0; row < original.getRowCount(); row++) {
+			assertEquals(original.getRecord(row), deserialized.getRecord(row));
+		}
+		// Categories still share their dictionary
+		Category apple = (Category) deserialized.get(0, 0);
+		assertSame(apple, deserialized.get(0, 2));
+		assertSame(apple.getDictionary(), ((Category) deserialized.get(1, 0)).getDictionary());
+		assertEquals(2, apple.getDictionary().size());
+	}
+}
@@ -25,8 +25,10 @@ import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -152,6 +154,64 @@ public class ColumnTest {
 		assertEquals(44.0, col2.getStatistics(Statistics.SUM), DELTA);
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testColumnOfDataSourceIsLiveView() {
+		DataTable table = new DataTable(Integer.class, Double.class);
+		table.add(1, 1.0);
+		table.add(2, null);
+
+		Column<?> column = table.getColumn(1);
+		assertSame(column, table.getColumn(1));
+		assertEquals(Double.class, column.getType());
+		assertEquals(2, column.size());
+		assertThat(column.get(1), nullValue());
+
+		table.add(3, 3.0);
+		table.set(1, 1, 2.0);
+		assertEquals(3, column.size());
+		assertEquals(2.0, column.get(1));
+		assertEquals(new Column<Double>(Double.class, 1.0, 2.0, 3.0), column);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testGetDoubles() {
+		assertEquals(2.0, col1.getDouble(1), DELTA);
+		assertArrayEquals(new double[] {2.0, 3.0}, col1.getDoubles(1, 3, null), DELTA);
+
+		DataTable table = new DataTable(Integer.class, String.class);
+		table.add(1, "a");
+		table.add(null, "b");
+		Column<?> column = table.getColumn(0);
+		assertArrayEquals(new double[] {1.0, Double.NaN}, column.getDoubles(0, 2, null), DELTA);
+		assertTrue(Double.isNaN(table.getColumn(1).getDouble(0)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testStatisticsOfViewAreUpdated() {
+		DataTable table = new DataTable(Integer.class, Integer.class);
+		table.add(1, 10);
+		table.add(2, 20);
+
+		Column<?> column = table.getColumn(0);
+		assertEquals( 3.0, column.getStatistics(Statistics.SUM), DELTA);
+		assertEquals( 2.0, column.getStatistics(Statistics.MAX), DELTA);
+
+		table.add(5, 30);
+		assertEquals( 8.0, column.getStatistics(Statistics.SUM), DELTA);
+		assertEquals( 5.0, column.getStatistics(Statistics.MAX), DELTA);
+
+		table.set(1, 0, 100);
+		assertEquals( 8.0, column.getStatistics(Statistics.SUM), DELTA);
+
+		table.remove(2);
+		assertEquals( 3.0, column.getStatistics(Statistics.SUM), DELTA);
+		assertEquals( 2.0, column.getStatistics(Statistics.MAX), DELTA);
+		assertEquals( 1.5, column.getStatistics(Statistics.MEDIAN), DELTA);
+	}
+
 	@Test
 	public void testSerializationPreservesSize() throws IOException, ClassNotFoundException {
 		Column<Integer> original = new Column<Integer>(Integer.class, 1, 2, 3);
@@ -160,6 +220,21 @@ public class ColumnTest {
 		assertEquals(original.size(), deserialized.size());
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSerializationOfViewCopiesValues() throws IOException, ClassNotFoundException {
+		DataTable table = new DataTable(Integer.class);
+		table.add(1);
+		table.add(2);
+		Column<?> original = table.getColumn(0);
+		Column<?> deserialized = TestUtils.serializeAndDeserialize(original);
+
+		assertEquals(original, deserialized);
+		table.add(3);
+		assertEquals(2, deserialized.size());
+		assertEquals(3.0, deserialized.getStatistics(Statistics.SUM), DELTA);
+	}
+
 	@Test
 	public void testGetTypeReturnsDataType() {
 		Column<Integer> column = col1;
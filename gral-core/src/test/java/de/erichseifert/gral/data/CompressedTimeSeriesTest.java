@@ -0,0 +1,260 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.erichseifert.gral.TestUtils;
+import de.erichseifert.gral.data.statistics.Statistics;
+
+public class CompressedTimeSeriesTest {
+	private static final double DELTA = TestUtils.DELTA;
+	private static final int ROWS = 2*CompressedTimeSeries.BLOCK_SIZE + 100;
+
+	private static class MockDataListener implements DataListener {
+		private DataChangeEvent[] added;
+		private DataChangeEvent[] removed;
+
+		public void dataAdded(DataSource source, DataChangeEvent... events) {
+			added = events;
+		}
+
+		public void dataUpdated(DataSource source, DataChangeEvent... events) {
+		}
+
+		public void dataRemoved(DataSource source, DataChangeEvent... events) {
+			removed = events;
+		}
+	}
+
+	private CompressedTimeSeries data;
+
+	private static long timestamp(int row) {
+		// Regular intervals with some jitter
+		return 1000000L + row*1000L + ((row % 7 == 0) ? row % 13 : 0);
+	}
+
+	private static double value(int row) {
+		return Math.sin(row/100.0)*100.0;
+	}
+
+	@Before
+	public void setUp() {
+		data = new CompressedTimeSeries(2);
+		for (int row = 0; row < ROWS; row++) {
+			data.add(timestamp(row), value(row), row % 10);
+		}
+	}
+
+	@Test
+	public void testCreate() {
+		assertEquals(3, data.getColumnCount());
+		assertEquals(Long.class, data.getColumnTypes()[0]);
+		assertEquals(Double.class, data.getColumnTypes()[1]);
+		assertEquals(Double.class, data.getColumnTypes()[2]);
+		assertEquals(ROWS, data.getRowCount());
+	}
+
+	@Test
+	public void testGet() {
+		for (int row = 0; row < ROWS; row++) {
+			assertEquals(timestamp(row), data.get(0, row));
+			assertEquals(value(row), data.get(1, row));
+			assertEquals((double) (row % 10), data.getDouble(2, row), 0.0);
+		}
+		// Random access
+		assertEquals(value(5), data.getDouble(1, 5), 0.0);
+		assertEquals(value(ROWS - 1), data.getDouble(1, ROWS - 1), 0.0);
+		assertEquals(value(CompressedTimeSeries.BLOCK_SIZE), data.getDouble(1, CompressedTimeSeries.BLOCK_SIZE), 0.0);
+		assertEquals(timestamp(3), data.get(0, 3));
+
+		try {
+			data.get(3, 0);
+			fail("Expected IndexOutOfBoundsException exception.");
+		} catch (IndexOutOfBoundsException e) {
+		}
+		try {
+			data.get(0, ROWS);
+			fail("Expected IndexOutOfBoundsException exception.");
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	@Test
+	public void testGetDoubles() {
+		int fromRow = CompressedTimeSeries.BLOCK_SIZE - 10;
+		int toRow = ROWS - 5;
+		double[] values = data.getDoubles(1, fromRow, toRow, null);
+		assertEquals(toRow - fromRow, values.length);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(value(fromRow + i), values[i], 0.0);
+		}
+		double[] timestamps = data.getDoubles(0, fromRow, toRow, null);
+		for (int i = 0; i < timestamps.length; i++) {
+			assertEquals(timestamp(fromRow + i), timestamps[i], 0.0);
+		}
+	}
+
+	@Test
+	public void testSpecialValues() {
+		double[] values = {
+			0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+			Double.MIN_VALUE, Double.MAX_VALUE, 1.0, 1.0, -1e-300, 1e300
+		};
+		long[] timestamps = {
+			Long.MIN_VALUE/2, -5L, -5L, 0L, 1L, 100L, 100000L, 100001L, 100002L,
+			Long.MAX_VALUE/2, Long.MAX_VALUE
+		};
+		CompressedTimeSeries data = new CompressedTimeSeries(1);
+		for (int row = 0; row < CompressedTimeSeries.BLOCK_SIZE; row++) {
+			long timestamp = (row < timestamps.length) ? timestamps[row] : Long.MAX_VALUE;
+			data.add(timestamp, values[row % values.length]);
+		}
+		assertEquals(CompressedTimeSeries.BLOCK_SIZE, data.getRowCount());
+		assertTrue(data.getCompressedSize() > 0L);
+
+		for (int row = 0; row < data.getRowCount(); row++) {
+			long timestampExpected = (row < timestamps.length) ? timestamps[row] : Long.MAX_VALUE;
+			assertEquals(timestampExpected, data.get(0, row));
+			assertEquals(Double.doubleToRawLongBits(values[row % values.length]),
+				Double.doubleToRawLongBits((Double) data.get(1, row)));
+		}
+	}
+
+	@Test
+	public void testAddFails() {
+		try {
+			data.add(timestamp(ROWS - 1) - 1L, 0.0, 0.0);
+			fail("Expected IllegalArgumentException exception.");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			data.add(timestamp(ROWS), 0.0);
+			fail("Expected IllegalArgumentException exception.");
+		} catch (IllegalArgumentException e) {
+		}
+		assertEquals(ROWS, data.getRowCount());
+	}
+
+	@Test
+	public void testCompression() {
+		CompressedTimeSeries data = new CompressedTimeSeries(1);
+		for (int row = 0; row < 10*CompressedTimeSeries.BLOCK_SIZE; row++) {
+			data.add(row*1000L, 20.0 + (row/100)*0.5);
+		}
+		long uncompressedSize = 10L*CompressedTimeSeries.BLOCK_SIZE*(8 + 8);
+		assertTrue(data.getCompressedSize()*10L <= uncompressedSize);
+	}
+
+	@Test
+	public void testRemoveBefore() {
+		MockDataListener listener = new MockDataListener();
+		data.addDataListener(listener);
+
+		// Rows of the first block are older
+		int removed = data.removeBefore(timestamp(CompressedTimeSeries.BLOCK_SIZE + 1));
+		assertEquals(CompressedTimeSeries.BLOCK_SIZE, removed);
+		assertEquals(ROWS - removed, data.getRowCount());
+		assertEquals(timestamp(removed), data.get(0, 0));
+		assertEquals(value(removed + 10), data.getDouble(1, 10), 0.0);
+
+		assertNotNull(listener.removed);
+		assertTrue(listener.removed[0].isRange());
+		assertEquals(removed, listener.removed[0].getRowCount());
+
+		// Uncompressed rows are kept
+		removed = data.removeBefore(Long.MAX_VALUE);
+		assertEquals(100, data.getRowCount());
+		assertEquals(value(ROWS - 1), data.getDouble(1, 99), 0.0);
+
+		data.clear();
+		assertEquals(0, data.getRowCount());
+	}
+
+	@Test
+	public void testEventsAdd() {
+		MockDataListener listener = new MockDataListener();
+		data.addDataListener(listener);
+
+		int row = data.add(timestamp(ROWS), 1.0, 2.0);
+		assertEquals(ROWS, row);
+		assertNotNull(listener.added);
+		assertEquals(3, listener.added.length);
+		assertEquals(timestamp(ROWS), listener.added[0].getNew());
+		assertEquals(2.0, listener.added[2].getNew());
+		assertEquals(row, listener.added[2].getRow());
+	}
+
+	@Test
+	public void testStatistics() {
+		Column<?> column = data.getColumn(2);
+		assertEquals(ROWS, column.getStatistics(Statistics.N), DELTA);
+		assertEquals(0.0, column.getStatistics(Statistics.MIN), DELTA);
+		assertEquals(9.0, column.getStatistics(Statistics.MAX), DELTA);
+		double sum = 0.0;
+		for (int row = 0; row < ROWS; row++) {
+			sum += row % 10;
+		}
+		assertEquals(sum, column.getStatistics(Statistics.SUM), DELTA);
+	}
+
+	@Test
+	public void testSnapshot() {
+		DataSource snapshot = data.snapshot();
+		long version = data.getVersion();
+		data.add(timestamp(ROWS), 1.0, 2.0);
+		data.removeBefore(Long.MAX_VALUE);
+
+		assertEquals(ROWS, snapshot.getRowCount());
+		assertEquals(version, snapshot.getVersion());
+		assertEquals(value(0), snapshot.getDouble(1, 0), 0.0);
+		assertEquals(value(ROWS - 1), snapshot.getDouble(1, ROWS - 1), 0.0);
+		try {
+			((CompressedTimeSeries) snapshot).add(timestamp(ROWS + 1), 1.0, 2.0);
+			fail("Expected UnsupportedOperationException exception.");
+		} catch (UnsupportedOperationException e) {
+		}
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		DataSource original = data;
+		DataSource deserialized = TestUtils.serializeAndDeserialize(original);
+
+		assertArrayEquals(original.getColumnTypes(), deserialized.getColumnTypes());
+		assertEquals(original.getRowCount(), deserialized.getRowCount());
+		for (int row = 0; row < original.getRowCount(); row++) {
+			for (int col = 0; col < original.getColumnCount(); col++) {
+				assertEquals(original.get(col, row), deserialized.get(col, row));
+			}
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.erichseifert.gral.TestUtils;
+
+public class DataPyramidTest {
+	private static final double DELTA = TestUtils.DELTA;
+
+	private DataTable table;
+	private DataPyramid pyramid;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		table = new DataTable(Integer.class, Double.class, Double.class);
+		for (int i = 0; i < 100; i++) {
+			table.add(i, (double) i, (double) (i % 7));
+		}
+		pyramid = new DataPyramid(table, 1, 2);
+	}
+
+	private static void assertLevels(DataSource data, DataPyramid pyramid) {
+		int rowCount = data.getRowCount();
+		int levelCount = 0;
+		for (int size = (rowCount + 15)/16; size > 1; size = (size + 1)/2) {
+			levelCount++;
+		}
+		if (rowCount > 0) {
+			levelCount++;
+		}
+		assertEquals(levelCount, pyramid.getLevelCount());
+
+		for (int level = 0; level < pyramid.getLevelCount(); level++) {
+			int bucketSize = pyramid.getBucketSize(level);
+			DataSource buckets = pyramid.getLevel(level,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+			int bucket = 0;
+			for (int rowFirst = 0; rowFirst < rowCount; rowFirst += bucketSize) {
+				double count = 0.0, sumX = 0.0, sumY = 0.0;
+				double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+				for (int row = rowFirst; row < Math.min(rowFirst + bucketSize, rowCount); row++) {
+					double x = data.getDouble(0, row);
+					double y = data.getDouble(1, row);
+					if (Double.isNaN(x) || Double.isNaN(y)) {
+						continue;
+					}
+					count++;
+					sumX += x;
+					sumY += y;
+					minY = Math.min(minY, y);
+					maxY = Math.max(maxY, y);
+				}
+				if (count == 0.0) {
+					continue;
+				}
+				assertEquals(sumX/count, buckets.getDouble(0, bucket), DELTA);
+				assertEquals(sumY/count, buckets.getDouble(1, bucket), DELTA);
+				assertEquals(minY, buckets.getDouble(2, bucket), DELTA);
+				assertEquals(maxY, buckets.getDouble(3, bucket), DELTA);
+				assertEquals(count, buckets.getDouble(4, bucket), DELTA);
+				bucket++;
+			}
+			assertEquals(bucket, buckets.getRowCount());
+		}
+	}
+
+	@Test
+	public void testCreate() {
+		assertEquals(2, pyramid.getColumnCount());
+		assertEquals(table.getRowCount(), pyramid.getRowCount());
+		assertEquals(42.0, pyramid.get(0, 42));
+		assertEquals(4, pyramid.getLevelCount());
+		assertEquals(16, pyramid.getBucketSize(0));
+		assertEquals(128, pyramid.getBucketSize(3));
+		assertLevels(pyramid, pyramid);
+	}
+
+	@Test
+	public void testGetLevelRange() {
+		DataSource buckets = pyramid.getLevel(0, 40.0, 50.0);
+		// Buckets 2 and 3 are visible, plus one additional bucket on each side
+		assertEquals(4, buckets.getRowCount());
+		assertEquals(23.5, buckets.getDouble(0, 0), DELTA);
+		assertEquals(71.5, buckets.getDouble(0, 3), DELTA);
+	}
+
+	@Test
+	public void testGetData() {
+		// Enough pixels to draw all rows
+		DataSource data = pyramid.getData(0.0, 99.0, 200.0);
+		assertEquals(table.getRowCount(), data.getRowCount());
+		assertEquals(2, data.getColumnCount());
+
+		// Only a few pixels
+		data = pyramid.getData(0.0, 99.0, 3.0);
+		assertEquals(5, data.getColumnCount());
+		assertEquals(4, data.getRowCount());
+		assertEquals(15.5, data.getDouble(0, 0), DELTA);
+
+		data = pyramid.getData(0.0, 99.0, 1.0);
+		assertEquals(2, data.getRowCount());
+		assertEquals(64.0, data.getDouble(4, 0), DELTA);
+	}
+
+	@Test
+	public void testAdd() {
+		pyramid.getLevelCount();
+		for (int i = 100; i < 300; i++) {
+			table.add(i, (double) i, (double) (i % 5));
+		}
+		assertLevels(pyramid, pyramid);
+		assertEquals(6, pyramid.getLevelCount());
+	}
+
+	@Test
+	public void testUpdate() {
+		pyramid.getLevelCount();
+		table.set(2, 50, 100.0);
+		table.set(2, 51, null);
+		assertLevels(pyramid, pyramid);
+		assertEquals(100.0, pyramid.getLevel(3, 0.0, 99.0).getDouble(3, 0), DELTA);
+	}
+
+	@Test
+	public void testRemove() {
+		pyramid.getLevelCount();
+		table.remove(10);
+		for (int i = 0; i < 70; i++) {
+			table.removeLast();
+		}
+		assertLevels(pyramid, pyramid);
+		assertEquals(2, pyramid.getLevelCount());
+		table.clear();
+		assertEquals(0, pyramid.getLevelCount());
+		assertEquals(0, pyramid.getData(0.0, 1.0, 10.0).getRowCount());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testEmptyBuckets() {
+		DataTable table = new DataTable(Double.class, Double.class);
+		for (int i = 0; i < 64; i++) {
+			table.add((double) i, (i >= 16 && i < 32) ? null : 1.0);
+		}
+		DataPyramid pyramid = new DataPyramid(table, 0, 1);
+		assertLevels(table, pyramid);
+		DataSource buckets = pyramid.getLevel(0, 40.0, 50.0);
+		assertEquals(2, buckets.getRowCount());
+		assertTrue(buckets.getDouble(0, 0) > 32.0);
+	}
+}
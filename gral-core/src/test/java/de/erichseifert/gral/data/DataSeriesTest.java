@@ -24,6 +24,7 @@ package de.erichseifert.gral.data;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -102,6 +103,16 @@ public class DataSeriesTest {
 		assertNull(series.get(series.getColumnCount(), series.getRowCount()));
 	}
 
+	@Test
+	public void testGetDoublesInvalidColumn() {
+		DataSeries series = new DataSeries(table, 2, 1);
+		double[] values = series.getDoubles(series.getColumnCount(), 0, series.getRowCount(), null);
+		assertEquals(series.getRowCount(), values.length);
+		for (double value : values) {
+			assertTrue(Double.isNaN(value));
+		}
+	}
+
 	@Test
 	public void testGetColumnCount() {
 		DataSeries series = new DataSeries(table, 2, 1);
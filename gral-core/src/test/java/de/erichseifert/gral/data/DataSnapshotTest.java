@@ -0,0 +1,257 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.erichseifert.gral.TestUtils;
+import de.erichseifert.gral.data.comparators.Descending;
+
+public class DataSnapshotTest {
+	private static final double DELTA = TestUtils.DELTA;
+
+	private DataTable table;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		table = new DataTable(Integer.class, Double.class, String.class);
+		table.add(1, 1.0, "a"); // 0
+		table.add(2, 3.0, "b"); // 1
+		table.add(3, 2.0, "c"); // 2
+	}
+
+	private static void assertColumn(DataSource data, int col, Comparable<?>... expected) {
+		assertEquals(expected.length, data.getRowCount());
+		for (int row = 0; row < expected.length; row++) {
+			assertEquals(expected[row], data.get(col, row));
+		}
+	}
+
+	@Test
+	public void testCreate() {
+		DataSource snapshot = table.snapshot();
+		assertEquals(table.getColumnCount(), snapshot.getColumnCount());
+		assertEquals(table.getRowCount(), snapshot.getRowCount());
+		assertEquals(table.getVersion(), snapshot.getVersion());
+		for (int row = 0; row < table.getRowCount(); row++) {
+			assertEquals(table.getRecord(row), snapshot.getRecord(row));
+		}
+		assertSame(snapshot, snapshot.snapshot());
+	}
+
+	@Test
+	public void testUnaffectedByChanges() {
+		DataSource snapshot = table.snapshot();
+		long version = table.getVersion();
+
+		table.add(4, 5.0, "d");
+		table.set(1, 0, -1.0);
+		table.remove(1);
+		table.sort(new Descending(0));
+
+		assertTrue(table.getVersion() > version);
+		assertEquals(version, snapshot.getVersion());
+		assertColumn(snapshot, 0, 1, 2, 3);
+		assertColumn(snapshot, 1, 1.0, 3.0, 2.0);
+		assertNull(snapshot.get(0, 3));
+	}
+
+	@Test
+	public void testSetAfterAdd() {
+		DataSource snapshot = table.snapshot();
+		table.add(4, 5.0, "d");
+		table.set(1, 1, -1.0);
+		assertColumn(snapshot, 1, 1.0, 3.0, 2.0);
+		assertEquals(-1.0, table.get(1, 1));
+		assertEquals(5.0, table.get(1, 3));
+	}
+
+	@Test
+	public void testGetDoubles() {
+		DataSource snapshot = table.snapshot();
+		table.clear();
+		double[] values = snapshot.getDoubles(1, 0, 3, null);
+		assertEquals(1.0, values[0], DELTA);
+		assertEquals(3.0, values[1], DELTA);
+		assertEquals(2.0, values[2], DELTA);
+		assertTrue(Double.isNaN(snapshot.getDouble(2, 0)));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetDoublesFailsForInvalidRange() {
+		table.snapshot().getDoubles(0, 0, table.getRowCount() + 1, null);
+	}
+
+	@Test
+	public void testSeries() {
+		DataSeries series = new DataSeries("series", table, 2, 0);
+		DataSource snapshot = series.snapshot();
+		table.set(0, 0, 42);
+
+		assertEquals("series", snapshot.getName());
+		assertEquals(2, snapshot.getColumnCount());
+		assertEquals(String.class, snapshot.getColumnTypes()[0]);
+		assertColumn(snapshot, 0, "a", "b", "c");
+		assertColumn(snapshot, 1, 1, 2, 3);
+		assertEquals(42, series.get(1, 0));
+		assertEquals(table.getVersion(), series.getVersion());
+	}
+
+	@Test
+	public void testCopy() {
+		EnumeratedData data = new EnumeratedData(table);
+		DataSource snapshot = data.snapshot();
+		table.add(4, 5.0, "d");
+
+		assertTrue(data.getVersion() > snapshot.getVersion());
+		assertColumn(snapshot, 0, 0.0, 1.0, 2.0);
+		assertColumn(snapshot, 1, 1, 2, 3);
+	}
+
+	@Test
+	public void testCopyIsCached() {
+		EnumeratedData data = new EnumeratedData(table);
+		DataSource snapshot = data.snapshot();
+		assertSame(snapshot, data.snapshot());
+
+		table.add(4, 5.0, "d");
+		assertNotSame(snapshot, data.snapshot());
+		assertEquals(4, data.snapshot().getRowCount());
+	}
+
+	@Test
+	public void testRowSubset() {
+		RowSubset subset = new RowSubset(table) {
+			@Override
+			public boolean accept(Row row) {
+				return ((Number) row.get(1)).doubleValue() > 1.5;
+			}
+		};
+		DataSource snapshot = subset.snapshot();
+		assertSame(snapshot, subset.snapshot());
+		table.set(0, 1, 42);
+
+		assertTrue(snapshot instanceof DataSnapshot);
+		assertEquals(2, snapshot.getRowCount());
+		assertColumn(snapshot, 0, 2, 3);
+		assertColumn(snapshot, 2, "b", "c");
+		assertEquals(42, subset.get(0, 0));
+	}
+
+	@Test
+	public void testIsColumnSorted() {
+		DataSnapshot snapshot = table.snapshot();
+		assertTrue(snapshot.isColumnSorted(0));
+		assertFalse(snapshot.isColumnSorted(1));
+		assertFalse(snapshot.isColumnSorted(2));
+
+		table.add(3, 4.0, "d");
+		assertTrue(table.snapshot().isColumnSorted(0));
+		table.add(0, 5.0, "e");
+		assertFalse(table.snapshot().isColumnSorted(0));
+		assertTrue(snapshot.isColumnSorted(0));
+	}
+
+	@Test
+	public void testIsColumnSortedAfterSet() {
+		DataSnapshot snapshot = table.snapshot();
+		assertTrue(snapshot.isColumnSorted(0));
+		table.set(0, 1, 0);
+		table.add(4, 5.0, "d");
+		assertFalse(table.snapshot().isColumnSorted(0));
+	}
+
+	@Test
+	public void testSnapshotIsReusedWithoutChanges() {
+		DataSnapshot snapshot = table.snapshot();
+		assertSame(snapshot, table.snapshot());
+		table.add(4, 5.0, "d");
+		assertNotSame(snapshot, table.snapshot());
+	}
+
+	@Test
+	public void testBounds() {
+		table.add(3, 5.0, "d"); // 3
+		table.add(5, 8.0, "e"); // 4
+		DataSnapshot snapshot = table.snapshot();
+
+		assertEquals(0, snapshot.getLowerBound(0, -1.0));
+		assertEquals(2, snapshot.getLowerBound(0, 3.0));
+		assertEquals(4, snapshot.getUpperBound(0, 3.0));
+		assertEquals(4, snapshot.getLowerBound(0, 3.5));
+		assertEquals(4, snapshot.getUpperBound(0, 3.5));
+		assertEquals(5, snapshot.getUpperBound(0, 5.0));
+		assertEquals(5, snapshot.getLowerBound(0, 9.0));
+	}
+
+	@Test
+	public void testBoundsOfSeries() {
+		DataSnapshot snapshot = (DataSnapshot) new DataSeries(table, 1, 0).snapshot();
+		assertFalse(snapshot.isColumnSorted(0));
+		assertTrue(snapshot.isColumnSorted(1));
+		assertEquals(1, snapshot.getLowerBound(1, 2.0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBoundsFailForUnsortedColumn() {
+		table.snapshot().getLowerBound(1, 2.0);
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		DataSource original = table.snapshot();
+		DataSource deserialized = TestUtils.serializeAndDeserialize(original);
+
+		assertEquals(original.getVersion(), deserialized.getVersion());
+		assertEquals(original.getRowCount(), deserialized.getRowCount());
+		for (int row = 0; row < original.getRowCount(); row++) {
+			assertEquals(original.getRecord(row), deserialized.getRecord(row));
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSerializationOfSelectedColumns() throws IOException, ClassNotFoundException {
+		DataSource original = new DataSeries(table, 2, 0).snapshot();
+		table.add(4, 4.0, "d");
+		DataSource deserialized = TestUtils.serializeAndDeserialize(original);
+
+		assertEquals(2, deserialized.getColumnCount());
+		assertEquals(String.class, deserialized.getColumnTypes()[0]);
+		assertEquals(Integer.class, deserialized.getColumnTypes()[1]);
+		assertEquals(3, deserialized.getRowCount());
+		for (int row = 0; row < original.getRowCount(); row++) {
+			assertEquals(original.getRecord(row), deserialized.getRecord(row));
+		}
+	}
+}
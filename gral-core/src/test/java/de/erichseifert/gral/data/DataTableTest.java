@@ -24,13 +24,21 @@ package de.erichseifert.gral.data;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -47,17 +55,21 @@ public class DataTableTest {
 		private DataChangeEvent[] added;
 		private DataChangeEvent[] updated;
 		private DataChangeEvent[] removed;
+		private int notifications;
 
 		public void dataAdded(DataSource source, DataChangeEvent... events) {
 			added = events;
+			notifications++;
 		}
 
 		public void dataUpdated(DataSource source, DataChangeEvent... events) {
 			updated = events;
+			notifications++;
 		}
 
 		public void dataRemoved(DataSource source, DataChangeEvent... events) {
 			removed = events;
+			notifications++;
 		}
 	}
 
@@ -220,6 +232,32 @@ public class DataTableTest {
 		assertEquals(11, table.get(1, 7));
 	}
 
+	@Test
+	public void testGetDouble() {
+		assertEquals(6.0, table.getDouble(1, 3), DELTA);
+		assertEquals(5.0, table.getDouble(0, 4), DELTA);
+
+		DataTable table = new DataTable(Integer.class, String.class);
+		table.add(null, "foo");
+		assertTrue(Double.isNaN(table.getDouble(0, 0)));
+		assertTrue(Double.isNaN(table.getDouble(1, 0)));
+	}
+
+	@Test
+	public void testGetDoubles() {
+		double[] values = table.getDoubles(1, 2, 5, null);
+		assertArrayEquals(new double[] {2.0, 6.0, 4.0}, values, DELTA);
+
+		double[] dest = new double[4];
+		assertSame(dest, table.getDoubles(0, 0, 2, dest));
+		assertArrayEquals(new double[] {1.0, 2.0, 0.0, 0.0}, dest, DELTA);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetDoublesFailsForSmallArray() {
+		table.getDoubles(0, 0, 3, new double[2]);
+	}
+
 	@Test
 	public void testIterator() {
 		int i = 0;
@@ -271,6 +309,179 @@ public class DataTableTest {
 		}
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSortKeepsStatistics() {
+		final int[] reads = new int[1];
+		DataTable table = new DataTable(Integer.class) {
+			/** Version id for serialization. */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double[] getDoubles(int col, int fromRow, int toRow, double[] dest) {
+				reads[0]++;
+				return super.getDoubles(col, fromRow, toRow, dest);
+			}
+		};
+		table.add(3);
+		table.add(1);
+		table.add(2);
+		Statistics stats = table.getStatistics();
+		stats.setQuantileError(0.01);
+		assertEquals(6.0, stats.get(Statistics.SUM), DELTA);
+		assertEquals(2.0, stats.get(Statistics.MEDIAN), DELTA);
+
+		table.sort(new Ascending(0));
+		int readsSorted = reads[0];
+		// The values haven't changed, so they don't have to be read again
+		assertEquals(6.0, stats.get(Statistics.SUM), DELTA);
+		assertEquals(2.0, stats.get(Statistics.MEDIAN), DELTA);
+		assertEquals(readsSorted, reads[0]);
+	}
+
+	@Test
+	public void testReadWhileAdding() throws InterruptedException {
+		final DataTable table = new DataTable(Integer.class, Integer.class);
+		final int count = 20000;
+		final Throwable[] errors = new Throwable[1];
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				try {
+					for (int i = 0; i < count; i++) {
+						table.add(i, -i);
+					}
+				} catch (Throwable t) {
+					errors[0] = t;
+				}
+			}
+		});
+		writer.start();
+
+		// Each visible row must be complete
+		int rowCount = 0;
+		while (rowCount < count) {
+			rowCount = table.getRowCount();
+			if (rowCount > 0) {
+				int row = rowCount - 1;
+				assertEquals(row, table.get(0, row));
+				assertEquals(-row, table.get(1, row));
+			}
+		}
+		writer.join();
+		assertNull(errors[0]);
+		assertEquals(count, table.getRowCount());
+	}
+
+	@Test
+	public void testConcurrentWriters() throws InterruptedException {
+		final DataTable table = new DataTable(Integer.class);
+		final int count = 20000;
+		final Throwable[] errors = new Throwable[4];
+		table.getStatistics().get(Statistics.N);
+		Thread[] writers = new Thread[errors.length];
+		for (int w = 0; w < writers.length; w++) {
+			final int writer = w;
+			writers[w] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (int i = 0; i < count; i++) {
+							table.add(1);
+						}
+					} catch (Throwable t) {
+						errors[writer] = t;
+					}
+				}
+			});
+			writers[w].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		for (Throwable error : errors) {
+			assertNull(error);
+		}
+		int rowCount = count*writers.length;
+		assertEquals(rowCount, table.getRowCount());
+		assertEquals(rowCount, table.getStatistics().get(Statistics.N), DELTA);
+		assertEquals(rowCount, table.getStatistics().get(Statistics.SUM), DELTA);
+		assertEquals(rowCount, table.getVersion());
+	}
+
+	@Test
+	public void testConcurrentWritersDeliverInOrder() throws InterruptedException {
+		final DataTable table = new DataTable(Integer.class);
+		final int count = 5000;
+		final List<Integer> delivered = new ArrayList<Integer>();
+		final boolean[] locked = new boolean[1];
+		table.addDataListener(new DataListener() {
+			public void dataAdded(DataSource source, DataChangeEvent... events) {
+				locked[0] |= Thread.holdsLock(source);
+				for (DataChangeEvent event : events) {
+					delivered.add(event.getRow());
+				}
+			}
+			public void dataUpdated(DataSource source, DataChangeEvent... events) {
+			}
+			public void dataRemoved(DataSource source, DataChangeEvent... events) {
+			}
+		});
+		Thread[] writers = new Thread[4];
+		for (int w = 0; w < writers.length; w++) {
+			writers[w] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < count; i++) {
+						table.add(1);
+					}
+				}
+			});
+			writers[w].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		assertFalse(locked[0]);
+		assertEquals(count*writers.length, delivered.size());
+		for (int i = 0; i < delivered.size(); i++) {
+			assertEquals(i, delivered.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testRemoveLastFailsForEmptyTable() {
+		table.clear();
+		try {
+			table.removeLast();
+			fail("Expected IndexOutOfBoundsException exception.");
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	@Test
+	public void testRemoveLastKeepsSnapshot() {
+		DataSource snapshot = table.snapshot();
+		int rowCount = table.getRowCount();
+		Comparable<?> last = table.get(0, rowCount - 1);
+
+		table.removeLast();
+		table.add(-1, -2);
+
+		assertEquals(rowCount, snapshot.getRowCount());
+		assertEquals(last, snapshot.get(0, rowCount - 1));
+		assertEquals(-1, table.get(0, rowCount - 1));
+	}
+
+	@Test
+	public void testRemoveLastThenAdd() {
+		int rowCount = table.getRowCount();
+		table.removeLast();
+		table.removeLast();
+		table.add(-1, -2);
+
+		assertEquals(rowCount - 1, table.getRowCount());
+		assertEquals(-1, table.get(0, rowCount - 2));
+		assertEquals(-2, table.get(1, rowCount - 2));
+	}
+
 	@Test
 	public void testClear() {
 		table.clear();
@@ -368,7 +579,201 @@ public class DataTableTest {
 		assertNull(listener.updated);
 		assertNotNull(listener.removed);
 
-		assertEquals(cols * rows, listener.removed.length);
+		assertEquals(1, listener.removed.length);
+		assertTrue(listener.removed[0].isRange());
+		assertEquals(0, listener.removed[0].getCol());
+		assertEquals(0, listener.removed[0].getRow());
+		assertEquals(cols, listener.removed[0].getColCount());
+		assertEquals(rows, listener.removed[0].getRowCount());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testAddAll() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		List<List<Integer>> rows = Arrays.asList(
+			Arrays.asList(9, 12),
+			Arrays.asList(10, null),
+			Arrays.asList(11, 13)
+		);
+		int row = table.addAll(rows);
+		assertEquals(8, row);
+		assertEquals(11, table.getRowCount());
+		assertEquals(12, table.get(1, 8));
+		assertNull(table.get(1, 9));
+		assertEquals(11, table.get(0, 10));
+
+		assertEquals(1, listener.notifications);
+		assertEquals(1, listener.added.length);
+		assertTrue(listener.added[0].isRange());
+		assertEquals(8, listener.added[0].getRow());
+		assertEquals(2, listener.added[0].getColCount());
+		assertEquals(3, listener.added[0].getRowCount());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testAddAllInvalidRowLeavesTableUnchanged() {
+		List<List<? extends Comparable<?>>> rows = Arrays.<List<? extends Comparable<?>>>asList(
+			Arrays.asList(9, 12),
+			Arrays.asList(10, "foo")
+		);
+		try {
+			table.addAll(rows);
+			fail("Expected IllegalArgumentException exception.");
+		} catch (IllegalArgumentException e) {
+		}
+		assertEquals(8, table.getRowCount());
+	}
+
+	@Test
+	public void testEventsSort() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		table.sort(new Descending(0));
+		assertNull(listener.added);
+		assertNull(listener.removed);
+		assertEquals(1, listener.notifications);
+		assertEquals(1, listener.updated.length);
+		assertTrue(listener.updated[0].isRange());
+		assertEquals(table.getColumnCount(), listener.updated[0].getColCount());
+		assertEquals(table.getRowCount(), listener.updated[0].getRowCount());
+	}
+
+	@Test
+	public void testEventsBatch() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		table.beginBatch();
+		table.add(9, 12);
+		table.beginBatch();
+		table.add(10, 13);
+		table.commit();
+		table.set(0, 0, -1);
+		table.remove(0);
+		table.remove(0);
+		assertEquals(0, listener.notifications);
+		table.commit();
+
+		assertEquals(3, listener.notifications);
+		// Added cells are described by a single range
+		assertEquals(1, listener.added.length);
+		assertTrue(listener.added[0].isRange());
+		assertEquals(8, listener.added[0].getRow());
+		assertEquals(2, listener.added[0].getColCount());
+		assertEquals(2, listener.added[0].getRowCount());
+		assertEquals(1, listener.updated.length);
+		// Removed rows are described by a single range of the previous rows
+		assertEquals(1, listener.removed.length);
+		assertTrue(listener.removed[0].isRange());
+		assertEquals(0, listener.removed[0].getRow());
+		assertEquals(2, listener.removed[0].getColCount());
+		assertEquals(2, listener.removed[0].getRowCount());
+		assertEquals(8, table.getRowCount());
+
+		// Listeners are notified immediately after the batch
+		table.add(11, 14);
+		assertEquals(4, listener.notifications);
+	}
+
+	@Test
+	public void testEventsBatchOfManyRows() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		table.beginBatch();
+		for (int i = 0; i < 1000; i++) {
+			table.add(i, i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			table.removeLast();
+		}
+		table.remove(3);
+		table.remove(2);
+		table.remove(2);
+		table.commit();
+
+		assertEquals(2, listener.notifications);
+		assertEquals(1, listener.added.length);
+		assertEquals(8, listener.added[0].getRow());
+		assertEquals(1000, listener.added[0].getRowCount());
+		assertEquals(2, listener.removed.length);
+		assertEquals(8, listener.removed[0].getRow());
+		assertEquals(1000, listener.removed[0].getRowCount());
+		assertEquals(2, listener.removed[1].getRow());
+		assertEquals(3, listener.removed[1].getRowCount());
+		assertEquals(5, table.getRowCount());
+	}
+
+	@Test
+	public void testEventsBatchNotContiguous() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		table.beginBatch();
+		table.set(0, 0, -1);
+		table.set(1, 1, -2);
+		table.commit();
+
+		assertEquals(1, listener.notifications);
+		assertEquals(2, listener.updated.length);
+		assertEquals(-1, listener.updated[0].getNew());
+		assertEquals(-2, listener.updated[1].getNew());
+	}
+
+	@Test
+	public void testBatchAddAllThenRemove() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+		double sum = table.getStatistics().get(Statistics.SUM);
+		double columnSum = table.getColumn(0).getStatistics(Statistics.SUM);
+
+		List<List<Integer>> rows = Arrays.asList(
+			Arrays.asList(9, 12),
+			Arrays.asList(10, 13),
+			Arrays.asList(11, 14)
+		);
+		table.beginBatch();
+		table.addAll(rows);
+		table.removeLast();
+		table.removeLast();
+		table.removeLast();
+		table.commit();
+
+		assertEquals(2, listener.notifications);
+		assertEquals(8, table.getRowCount());
+		assertEquals(16.0, table.getStatistics().get(Statistics.N), DELTA);
+		assertEquals(sum, table.getStatistics().get(Statistics.SUM), DELTA);
+		assertEquals(columnSum, table.getColumn(0).getStatistics(Statistics.SUM), DELTA);
+	}
+
+	@Test
+	public void testBatchAddAllThenUpdate() {
+		table.getStatistics().get(Statistics.SUM);
+		table.getColumn(0).getStatistics(Statistics.SUM);
+
+		List<List<Integer>> rows = Arrays.asList(
+			Arrays.asList(9, 12),
+			Arrays.asList(10, 13)
+		);
+		table.beginBatch();
+		table.addAll(rows);
+		table.set(0, 8, 100);
+		table.commit();
+
+		assertEquals(20.0, table.getStatistics().get(Statistics.N), DELTA);
+		assertEquals(36.0 + 100 + 10 + 44 + 12 + 13,
+			table.getStatistics().get(Statistics.SUM), DELTA);
+		assertEquals(36.0 + 100 + 10, table.getColumn(0).getStatistics(Statistics.SUM), DELTA);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCommitWithoutBatch() {
+		table.commit();
 	}
 
 	@Test
@@ -400,6 +805,39 @@ public class DataTableTest {
 		}
     }
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSerializationOfAllTypes() throws IOException, ClassNotFoundException {
+		DataTable original = new DataTable(Double.class, Float.class, Long.class,
+			Integer.class, Short.class, Byte.class, Boolean.class, String.class);
+		original.add(-1.5, 2.5f, Long.MIN_VALUE, -7, (short) -300, (byte) -2, true, "a");
+		original.add(Double.NaN, null, null, null, null, null, null, null);
+		original.add(null, Float.NaN, Long.MAX_VALUE, Integer.MAX_VALUE,
+			Short.MIN_VALUE, Byte.MAX_VALUE, false, "a");
+		DataTable deserialized = TestUtils.serializeAndDeserialize(original);
+
+		assertArrayEquals(original.getColumnTypes(), deserialized.getColumnTypes());
+		assertEquals(original.getRowCount(), deserialized.getRowCount());
+		for (int row = 0; row < original.getRowCount(); row++) {
+			assertEquals(original.getRecord(row), deserialized.getRecord(row));
+		}
+	}
+
+	@Test
+	public void testSerializationIsCompact() throws IOException {
+		DataTable table = new DataTable(Double.class, Integer.class);
+		int rowCount = 10000;
+		for (int i = 0; i < rowCount; i++) {
+			table.add(i/3.0, i);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(table);
+		out.close();
+		// 8 bytes per double and 4 bytes per integer plus some metadata
+		assertTrue(bytes.size() < rowCount*12 + 2048);
+	}
+
 	@Test
 	public void testSetName() {
 		table.setName("name");
@@ -34,12 +34,19 @@ import de.erichseifert.gral.data.statistics.StatisticsTests;
 	// Tests for classes
 	AbstractDataSourceTest.class,
 	DataTableTest.class,
+	DataSnapshotTest.class,
+	DoubleColumnTableTest.class,
+	CompressedTimeSeriesTest.class,
+	RingBufferTableTest.class,
 	DataSeriesTest.class,
+	DataPyramidTest.class,
 	RowSubsetTest.class,
 	EnumeratedDataTest.class,
 	DummyDataTest.class,
 	RowTest.class,
 	RecordTest.class,
+	RowSorterTest.class,
+	CategoryTest.class,
 	ColumnTest.class,
 	JdbcDataTest.class,
 	// Tests for sub-packages
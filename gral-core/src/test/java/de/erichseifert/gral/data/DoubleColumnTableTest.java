@@ -0,0 +1,385 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.erichseifert.gral.TestUtils;
+import de.erichseifert.gral.data.comparators.Ascending;
+import de.erichseifert.gral.data.comparators.Descending;
+import de.erichseifert.gral.data.statistics.Statistics;
+
+public class DoubleColumnTableTest {
+	private static final double DELTA = TestUtils.DELTA;
+
+	private static class MockDataListener implements DataListener {
+		private DataChangeEvent[] added;
+		private DataChangeEvent[] updated;
+		private DataChangeEvent[] removed;
+
+		public void dataAdded(DataSource source, DataChangeEvent... events) {
+			added = events;
+		}
+
+		public void dataUpdated(DataSource source, DataChangeEvent... events) {
+			updated = events;
+		}
+
+		public void dataRemoved(DataSource source, DataChangeEvent... events) {
+			removed = events;
+		}
+	}
+
+	private DoubleColumnTable table;
+
+	@Before
+	public void setUp() {
+		table = new DoubleColumnTable(2);
+		table.add(1.0,  1.0); // 0
+		table.add(2.0,  3.0); // 1
+		table.add(3.0,  2.0); // 2
+		table.add(4.0,  6.0); // 3
+		table.add(5.0,  4.0); // 4
+		table.add(6.0,  8.0); // 5
+		table.add(7.0,  9.0); // 6
+		table.add(8.0, 11.0); // 7
+	}
+
+	@Test
+	public void testCreate() {
+		DoubleColumnTable table1 = new DoubleColumnTable(3);
+		assertEquals(3, table1.getColumnCount());
+		assertEquals(0, table1.getRowCount());
+		for (Class<? extends Comparable<?>> type : table1.getColumnTypes()) {
+			assertEquals(Double.class, type);
+		}
+
+		// Copy constructor
+		DoubleColumnTable table2 = new DoubleColumnTable(table);
+		assertEquals(table.getColumnCount(), table2.getColumnCount());
+		assertEquals(table.getRowCount(), table2.getRowCount());
+		for (int row = 0; row < table.getRowCount(); row++) {
+			assertEquals(table.getRecord(row), table2.getRecord(row));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("unchecked")
+	public void testCreateFromNonNumericSourceFails() {
+		DataTable source = new DataTable(Double.class, String.class);
+		new DoubleColumnTable(source);
+	}
+
+	@Test
+	public void testAdd() {
+		int sizeBefore = table.getRowCount();
+		table.add(0.0, -1.0);
+		table.add(1.0, -2.0);
+		int rowIndex = table.add(2.0, -3.0);
+		assertEquals(sizeBefore + 3, table.getRowCount());
+		assertEquals(table.getRowCount() - 1, rowIndex);
+		assertEquals(-3.0, table.get(1, rowIndex));
+
+		// Wrong number of columns
+		try {
+			table.add(1.0);
+			fail("Expected IllegalArgumentException exception.");
+		} catch (IllegalArgumentException e) {
+		}
+
+		// Wrong type of columns
+		try {
+			table.add(1, 1);
+			fail("Expected IllegalArgumentException exception.");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testAddManyRowsGrowsStorage() {
+		DoubleColumnTable table = new DoubleColumnTable(1);
+		for (int i = 0; i < 1000; i++) {
+			table.add((double) i);
+		}
+		assertEquals(1000, table.getRowCount());
+		assertEquals(999.0, table.get(0, 999));
+	}
+
+	@Test
+	public void testNullAndNaNAreDistinguished() {
+		int row = table.add(null, Double.NaN);
+		assertNull(table.get(0, row));
+		assertTrue(Double.isNaN(table.getDouble(0, row)));
+		assertNotNull(table.get(1, row));
+		assertTrue(Double.isNaN((Double) table.get(1, row)));
+	}
+
+	@Test
+	public void testGetDoubles() {
+		table.set(1, 3, null);
+		double[] values = table.getDoubles(1, 2, 5, null);
+		assertEquals(3, values.length);
+		assertEquals(2.0, values[0], DELTA);
+		assertTrue(Double.isNaN(values[1]));
+		assertEquals(4.0, values[2], DELTA);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetDoublesFailsForInvalidRange() {
+		table.getDoubles(0, 4, table.getRowCount() + 1, null);
+	}
+
+	@Test
+	public void testSet() {
+		int sizeBefore = table.getRowCount();
+
+		table.set(1, 2, -1.0);
+		assertEquals(sizeBefore, table.getRowCount());
+		assertEquals(-1.0, table.get(1, 2));
+
+		table.set(1, 2, null);
+		assertNull(table.get(1, 2));
+
+		// Illegal column index
+		try {
+			table.set(2, 0, 1.0);
+			fail("Expected IndexOutOfBoundsException exception.");
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	@Test
+	public void testRemove() {
+		table.set(1, 2, null);
+		int sizeBefore = table.getRowCount();
+		table.remove(0);
+		assertEquals(sizeBefore - 1, table.getRowCount());
+		assertEquals(2.0, table.get(0, 0));
+		assertNull(table.get(1, 1));
+		assertEquals(6.0, table.get(1, 2));
+
+		// Invalid (negative) index
+		try {
+			table.remove(-1);
+			fail("Expected IndexOutOfBoundsException exception.");
+		} catch (IndexOutOfBoundsException e) {
+		}
+		// Invalid (positive) index
+		try {
+			table.remove(table.getRowCount());
+			fail("Expected IndexOutOfBoundsException exception.");
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	@Test
+	public void testRemoveLast() {
+		int sizeBefore = table.getRowCount();
+		table.removeLast();
+		assertEquals(sizeBefore - 1, table.getRowCount());
+		assertNull(table.get(0, sizeBefore - 1));
+	}
+
+	@Test
+	public void testClear() {
+		table.clear();
+		assertEquals(0, table.getRowCount());
+	}
+
+	@Test
+	public void testSort() {
+		DoubleColumnTable table = new DoubleColumnTable(3);
+		double[] original = {
+				9,	1,	3,
+				4,	4,	2,
+				4,	2,	1,
+				8,	1,	9,
+				8,	1,	7,
+				6,	2,	4,
+				4,	6,	5,
+				3,	3,	5
+		};
+		int i = 0;
+		while (i < original.length) {
+			table.add(original[i++], original[i++], original[i++]);
+		}
+
+		table.sort(new Ascending(1), new Descending(0), new Ascending(2));
+
+		double[] expected = {
+				9,	1,	3,
+				8,	1,	7,
+				8,	1,	9,
+				6,	2,	4,
+				4,	2,	1,
+				3,	3,	5,
+				4,	4,	2,
+				4,	6,	5
+		};
+		i = 0;
+		while (i < expected.length) {
+			assertEquals(expected[i], table.get(i%3, i/3));
+			i++;
+		}
+	}
+
+	@Test
+	public void testEventsAdd() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		int row = table.add(56.0, 78.0);
+		assertNotNull(listener.added);
+		assertNull(listener.updated);
+		assertNull(listener.removed);
+
+		assertEquals(2, listener.added.length);
+		assertEquals(0, listener.added[0].getCol());
+		assertEquals(row, listener.added[0].getRow());
+		assertNull(listener.added[0].getOld());
+		assertEquals(56.0, listener.added[0].getNew());
+		assertEquals(1, listener.added[1].getCol());
+		assertEquals(row, listener.added[1].getRow());
+		assertNull(listener.added[1].getOld());
+		assertEquals(78.0, listener.added[1].getNew());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testAddAll() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		List<List<Double>> rows = Arrays.asList(
+			Arrays.asList(9.0, 12.0),
+			Arrays.asList(10.0, null)
+		);
+		int row = table.addAll(rows);
+		assertEquals(8, row);
+		assertEquals(10, table.getRowCount());
+		assertEquals(12.0, table.get(1, 8));
+		assertNull(table.get(1, 9));
+
+		assertEquals(1, listener.added.length);
+		assertTrue(listener.added[0].isRange());
+		assertEquals(8, listener.added[0].getRow());
+		assertEquals(2, listener.added[0].getRowCount());
+	}
+
+	@Test
+	public void testEventsUpdate() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		Comparable<?> valueOld = table.set(1, 3, 42.0);
+		assertNull(listener.added);
+		assertNotNull(listener.updated);
+		assertNull(listener.removed);
+
+		assertEquals(6.0, valueOld);
+		assertEquals(1, listener.updated.length);
+		assertEquals(6.0, listener.updated[0].getOld());
+		assertEquals(42.0, listener.updated[0].getNew());
+	}
+
+	@Test
+	public void testEventsRemove() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		table.remove(3);
+		assertNull(listener.added);
+		assertNull(listener.updated);
+		assertNotNull(listener.removed);
+
+		assertEquals(2, listener.removed.length);
+		assertEquals(3, listener.removed[0].getRow());
+		assertEquals(4.0, listener.removed[0].getOld());
+		assertEquals(6.0, listener.removed[1].getOld());
+	}
+
+	@Test
+	public void testStatistics() {
+		assertEquals(16.0, table.getStatistics().get(Statistics.N), DELTA);
+		assertEquals(80.0, table.getStatistics().get(Statistics.SUM), DELTA);
+		assertEquals(11.0, table.getStatistics().get(Statistics.MAX), DELTA);
+	}
+
+	@Test
+	public void testSnapshot() {
+		table.set(1, 2, null);
+		DataSource snapshot = table.snapshot();
+		assertSame(snapshot, table.snapshot());
+		assertSame(snapshot, snapshot.snapshot());
+		assertEquals(table.getVersion(), snapshot.getVersion());
+
+		table.set(0, 0, -1.0);
+		table.add(9.0, 12.0);
+		assertEquals(8, snapshot.getRowCount());
+		assertEquals(1.0, snapshot.getDouble(0, 0), DELTA);
+		assertNull(snapshot.get(1, 2));
+		assertEquals(11.0, snapshot.get(1, 7));
+		assertNotSame(snapshot, table.snapshot());
+		assertEquals(9, table.snapshot().getRowCount());
+
+		try {
+			((DoubleColumnTable) snapshot).add(1.0, 2.0);
+			fail("Expected UnsupportedOperationException exception.");
+		} catch (UnsupportedOperationException e) {
+		}
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		table.set(0, 1, null);
+		DataSource original = table;
+		DataSource deserialized = TestUtils.serializeAndDeserialize(original);
+
+		// Test metadata
+		assertArrayEquals(original.getColumnTypes(), deserialized.getColumnTypes());
+		assertEquals(original.getColumnCount(), deserialized.getColumnCount());
+		assertEquals(original.getRowCount(), deserialized.getRowCount());
+
+		// Test values
+		for (int row = 0; row < original.getRowCount(); row++) {
+			for (int col = 0; col < original.getColumnCount(); col++) {
+				assertEquals(
+					String.format("Wrong data at col=%d, row=%d.", col, row),
+					original.get(col, row), deserialized.get(col, row));
+			}
+		}
+	}
+}
@@ -23,6 +23,11 @@ package de.erichseifert.gral.data;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.sql.Connection;
@@ -35,8 +40,11 @@ import org.junit.Test;
 
 import de.erichseifert.gral.DummyJdbc;
 import de.erichseifert.gral.TestUtils;
+import de.erichseifert.gral.data.statistics.Statistics;
 
 public class JdbcDataTest {
+	private static final double DELTA = TestUtils.DELTA;
+
 	private Connection connection;
 	private DataTable table;
 
@@ -91,6 +99,176 @@ public class JdbcDataTest {
 	public void testXyz() {
 	}
 
+	@Test
+	public void testPagedGetIntInt() {
+		JdbcData data = new JdbcData(connection, "foobar", 3, 2);
+		assertTrue(data.isPaged());
+		assertEquals(3, data.getPageSize());
+		assertEquals(table.getRowCount(), data.getRowCount());
+		for (int rowIndex = 0; rowIndex < table.getRowCount(); rowIndex++) {
+			for (int colIndex = 0; colIndex < table.getColumnCount(); colIndex++) {
+				Comparable<?> expected = table.get(colIndex, rowIndex);
+				Comparable<?> actual = data.get(colIndex, rowIndex);
+				assertEquals(
+					String.format("Wrong value at col=%d, row=%d.", colIndex, rowIndex),
+					expected, actual
+				);
+			}
+		}
+	}
+
+	@Test
+	public void testPagedGetDoubles() {
+		JdbcData data = new JdbcData(connection, "foobar", 3, 2);
+		for (int colIndex = 0; colIndex < 6; colIndex++) {
+			double[] expected = table.getDoubles(colIndex, 1, 8, null);
+			double[] actual = data.getDoubles(colIndex, 1, 8, null);
+			assertArrayEquals(expected, actual, 1e-6);
+		}
+		assertTrue(Double.isNaN(data.getDouble(9, 0)));
+	}
+
+	@Test
+	public void testSnapshot() {
+		DummyJdbc connection = new DummyJdbc(table);
+		JdbcData paged = new JdbcData(connection, "foobar", 3, 2);
+		assertSame(paged, paged.snapshot());
+
+		JdbcData buffered = new JdbcData(connection, "foobar");
+		DataSource snapshot = buffered.snapshot();
+		int queries = connection.getQueryCount();
+		assertSame(snapshot, buffered.snapshot());
+		assertEquals(queries, connection.getQueryCount());
+		assertEquals(buffered.getRowCount(), snapshot.getRowCount());
+		assertEquals(buffered.get(1, 2), snapshot.get(1, 2));
+
+		JdbcData unbuffered = new JdbcData(connection, "foobar", false);
+		assertNotSame(unbuffered.snapshot(), unbuffered.snapshot());
+	}
+
+	@Test
+	public void testPagedSequentialScanUsesSingleQuery() {
+		DummyJdbc connection = new DummyJdbc(table);
+		JdbcData data = new JdbcData(connection, "foobar", 3, 2);
+		data.getRowCount();
+		int queries = connection.getQueryCount();
+
+		// Scan the table column by column
+		for (int colIndex = 0; colIndex < data.getColumnCount(); colIndex++) {
+			for (int rowIndex = 0; rowIndex < data.getRowCount(); rowIndex++) {
+				data.get(colIndex, rowIndex);
+			}
+			if (colIndex == 0) {
+				assertEquals(queries + 1, connection.getQueryCount());
+			}
+		}
+
+		// Pages that have been dropped are read again
+		data.get(0, 0);
+		data.get(0, 7);
+		assertEquals(queries + 1 + data.getColumnCount(), connection.getQueryCount());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testPagedNullValues() {
+		DataTable table = new DataTable(Integer.class, Double.class, String.class);
+		table.add(1, null, "a");
+		table.add(null, 2.0, null);
+		JdbcData data = new JdbcData(new DummyJdbc(table), "foobar", 4, 1);
+		assertEquals(1, data.get(0, 0));
+		assertNull(data.get(1, 0));
+		assertTrue(Double.isNaN(data.getDouble(1, 0)));
+		assertNull(data.get(0, 1));
+		assertEquals(2.0, data.get(1, 1));
+		assertNull(data.get(2, 1));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testPagedGetFailsForInvalidRow() {
+		new JdbcData(connection, "foobar", 3, 2).get(0, 8);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPageSize() {
+		new JdbcData(connection, "foobar", 0, 2);
+	}
+
+	@Test
+	public void testColumnStatistics() {
+		DummyJdbc connection = new DummyJdbc(table);
+		JdbcData data = new JdbcData(connection, "foobar");
+		String[] keys = {
+			Statistics.N, Statistics.MIN, Statistics.MAX,
+			Statistics.SUM, Statistics.MEAN
+		};
+		for (int colIndex = 0; colIndex < 6; colIndex++) {
+			int queries = connection.getQueryCount();
+			for (String key : keys) {
+				assertEquals(
+					String.format("Wrong %s of col=%d.", key, colIndex),
+					table.getColumn(colIndex).getStatistics(key),
+					data.getColumn(colIndex).getStatistics(key), 1e-6);
+			}
+			// All aggregates are calculated by a single query
+			assertEquals(queries + 1, connection.getQueryCount());
+		}
+		// Other statistics are calculated from the values
+		assertEquals(table.getColumn(5).getStatistics(Statistics.VARIANCE),
+			data.getColumn(5).getStatistics(Statistics.VARIANCE), DELTA);
+	}
+
+	@Test
+	public void testColumnStatisticsOfUnbufferedData() {
+		JdbcData data = new JdbcData(connection, "foobar", false);
+		assertEquals(36.0, data.getColumn(2).getStatistics(Statistics.SUM), DELTA);
+		// Changes of the table are detected without buffering
+		table.set(2, 0, 11);
+		assertEquals(46.0, data.getColumn(2).getStatistics(Statistics.SUM), DELTA);
+	}
+
+	@Test
+	public void testStatistics() {
+		JdbcData data = new JdbcData(connection, "foobar");
+		Statistics expected = table.getStatistics();
+		Statistics actual = data.getStatistics();
+		assertEquals(48.0, actual.get(Statistics.N), DELTA);
+		assertEquals(expected.get(Statistics.N), actual.get(Statistics.N), DELTA);
+		assertEquals(expected.get(Statistics.MIN), actual.get(Statistics.MIN), 1e-6);
+		assertEquals(expected.get(Statistics.MAX), actual.get(Statistics.MAX), 1e-6);
+		assertEquals(expected.get(Statistics.SUM), actual.get(Statistics.SUM), 1e-6);
+		assertEquals(expected.get(Statistics.MEAN), actual.get(Statistics.MEAN), 1e-6);
+	}
+
+	@Test
+	public void testBuckets() {
+		JdbcData data = new JdbcData(connection, "foobar");
+		DataTable buckets = data.getBuckets(2, 5, 3.0);
+		assertEquals(5, buckets.getColumnCount());
+		assertEquals(3, buckets.getRowCount());
+		double[][] expected = {
+			{0.0, 2.0, 2.4, 5.9, 4.15},
+			{3.0, 3.0, 1.0, 6.6, 3.2333333},
+			{6.0, 3.0, 5.8, 9.2, 7.4333333}
+		};
+		for (int row = 0; row < expected.length; row++) {
+			assertNotNull(buckets.get(0, row));
+			for (int col = 0; col < expected[row].length; col++) {
+				assertEquals(expected[row][col], buckets.getDouble(col, row), 1e-6);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBucketsFailForInvalidStep() {
+		new JdbcData(connection, "foobar").getBuckets(2, 5, 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBucketsFailForNonNumericColumn() {
+		new JdbcData(connection, "foobar").getBuckets(9, 5, 1.0);
+	}
+
 	@Test(expected=UnsupportedOperationException.class)
 	@SuppressWarnings("unused")
 	public void testSerialization() throws IOException, ClassNotFoundException {
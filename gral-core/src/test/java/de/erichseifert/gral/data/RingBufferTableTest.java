@@ -0,0 +1,272 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.erichseifert.gral.TestUtils;
+import de.erichseifert.gral.data.comparators.Ascending;
+import de.erichseifert.gral.data.statistics.Statistics;
+
+public class RingBufferTableTest {
+	private static final double DELTA = TestUtils.DELTA;
+
+	private static class MockDataListener implements DataListener {
+		private DataChangeEvent[] added;
+		private DataChangeEvent[] updated;
+		private DataChangeEvent[] removed;
+
+		public void dataAdded(DataSource source, DataChangeEvent... events) {
+			added = events;
+		}
+
+		public void dataUpdated(DataSource source, DataChangeEvent... events) {
+			updated = events;
+		}
+
+		public void dataRemoved(DataSource source, DataChangeEvent... events) {
+			removed = events;
+		}
+	}
+
+	private RingBufferTable table;
+
+	@Before
+	public void setUp() {
+		table = new RingBufferTable(2, 4);
+		table.add(1.0, 1.0); // 0
+		table.add(2.0, 3.0); // 1
+		table.add(3.0, 2.0); // 2
+	}
+
+	@Test
+	public void testCreate() {
+		assertEquals(2, table.getColumnCount());
+		assertEquals(4, table.getCapacity());
+		assertEquals(3, table.getRowCount());
+		assertFalse(table.isFull());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreateInvalidCapacity() {
+		new RingBufferTable(2, 0);
+	}
+
+	@Test
+	public void testAddEvictsOldestRow() {
+		assertEquals(3, table.add(4.0, null));
+		assertTrue(table.isFull());
+		assertEquals(3, table.add(5.0, 7.0));
+		assertEquals(3, table.add(6.0, 8.0));
+
+		assertEquals(4, table.getRowCount());
+		assertEquals(3.0, table.get(0, 0));
+		assertEquals(4.0, table.get(0, 1));
+		assertNull(table.get(1, 1));
+		assertEquals(6.0, table.get(0, 3));
+		assertEquals(8.0, table.getDouble(1, 3), DELTA);
+		assertNull(table.get(0, 4));
+	}
+
+	@Test
+	public void testGetDoublesWrapsAround() {
+		for (double value = 4.0; value <= 9.0; value++) {
+			table.add(value, -value);
+		}
+		assertArrayEquals(new double[] {6.0, 7.0, 8.0, 9.0},
+			table.getDoubles(0, 0, 4, null), DELTA);
+		assertArrayEquals(new double[] {-8.0, -9.0},
+			table.getDoubles(1, 2, 4, null), DELTA);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testAddAll() {
+		List<List<Double>> rows = Arrays.asList(
+			Arrays.asList(4.0, 4.0),
+			Arrays.asList(5.0, 5.0),
+			Arrays.asList(6.0, 6.0),
+			Arrays.asList(7.0, 7.0),
+			Arrays.asList(8.0, 8.0)
+		);
+		assertEquals(0, table.addAll(rows));
+		assertEquals(4, table.getRowCount());
+		assertArrayEquals(new double[] {5.0, 6.0, 7.0, 8.0},
+			table.getDoubles(0, 0, 4, null), DELTA);
+	}
+
+	@Test
+	public void testRemove() {
+		table.add(4.0, 4.0);
+		table.add(5.0, 5.0);
+
+		table.remove(0);
+		assertEquals(3, table.getRowCount());
+		assertEquals(3.0, table.get(0, 0));
+
+		table.remove(1);
+		assertEquals(2, table.getRowCount());
+		assertEquals(3.0, table.get(0, 0));
+		assertEquals(5.0, table.get(0, 1));
+
+		table.removeLast();
+		assertEquals(1, table.getRowCount());
+		assertEquals(3.0, table.get(0, 0));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testRemoveInvalidRow() {
+		table.remove(3);
+	}
+
+	@Test
+	public void testClear() {
+		table.add(4.0, 4.0);
+		table.add(5.0, 5.0);
+		table.clear();
+		assertEquals(0, table.getRowCount());
+
+		table.add(6.0, null);
+		assertEquals(6.0, table.get(0, 0));
+		assertNull(table.get(1, 0));
+	}
+
+	@Test
+	public void testSet() {
+		table.add(4.0, 4.0);
+		table.add(5.0, 5.0);
+		assertEquals(3.0, table.set(1, 0, 42.0));
+		assertEquals(42.0, table.get(1, 0));
+	}
+
+	@Test
+	public void testSort() {
+		table.add(4.0, 0.0);
+		table.add(5.0, 2.5);
+		table.sort(new Ascending(1));
+		assertArrayEquals(new double[] {4.0, 3.0, 5.0, 2.0},
+			table.getDoubles(0, 0, 4, null), DELTA);
+
+		table.add(6.0, 6.0);
+		assertEquals(3.0, table.get(0, 0));
+		assertEquals(6.0, table.get(0, 3));
+	}
+
+	@Test
+	public void testEvents() {
+		table.add(4.0, 4.0);
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		table.add(5.0, 5.0);
+		assertNull(listener.updated);
+		assertEquals(2, listener.removed.length);
+		assertEquals(0, listener.removed[0].getRow());
+		assertEquals(1.0, listener.removed[0].getOld());
+		assertEquals(2, listener.added.length);
+		assertEquals(3, listener.added[0].getRow());
+		assertEquals(5.0, listener.added[0].getNew());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testEventsAddAll() {
+		MockDataListener listener = new MockDataListener();
+		table.addDataListener(listener);
+
+		List<List<Double>> rows = Arrays.asList(
+			Arrays.asList(4.0, 4.0),
+			Arrays.asList(5.0, 5.0),
+			Arrays.asList(6.0, 6.0)
+		);
+		table.addAll(rows);
+		assertEquals(1, listener.removed.length);
+		assertTrue(listener.removed[0].isRange());
+		assertEquals(0, listener.removed[0].getRow());
+		assertEquals(2, listener.removed[0].getRowCount());
+		assertEquals(1, listener.added.length);
+		assertTrue(listener.added[0].isRange());
+		assertEquals(1, listener.added[0].getRow());
+		assertEquals(3, listener.added[0].getRowCount());
+		assertEquals(2, listener.added[0].getColCount());
+	}
+
+	@Test
+	public void testStatistics() {
+		Statistics stats = table.getStatistics();
+		assertEquals(12.0, stats.get(Statistics.SUM), DELTA);
+		table.add(4.0, 4.0);
+		table.add(5.0, 5.0);
+		assertEquals(28.0, stats.get(Statistics.SUM), DELTA);
+		assertEquals(2.0, stats.get(Statistics.MIN), DELTA);
+	}
+
+	@Test
+	public void testSnapshot() {
+		table.add(4.0, null);
+		table.add(5.0, 5.0);
+		DataSource snapshot = table.snapshot();
+		assertSame(snapshot, table.snapshot());
+		assertEquals(table.getVersion(), snapshot.getVersion());
+
+		table.add(6.0, 6.0);
+		table.set(0, 0, -1.0);
+		assertEquals(4, snapshot.getRowCount());
+		assertArrayEquals(new double[] {2.0, 3.0, 4.0, 5.0},
+			snapshot.getDoubles(0, 0, 4, null), DELTA);
+		assertNull(snapshot.get(1, 2));
+		assertNotSame(snapshot, table.snapshot());
+
+		try {
+			((RingBufferTable) snapshot).clear();
+			fail("Expected UnsupportedOperationException exception.");
+		} catch (UnsupportedOperationException e) {
+		}
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		table.add(4.0, 4.0);
+		table.add(5.0, null);
+		RingBufferTable deserialized = TestUtils.serializeAndDeserialize(table);
+
+		assertEquals(table.getCapacity(), deserialized.getCapacity());
+		assertEquals(table.getRowCount(), deserialized.getRowCount());
+		for (int row = 0; row < table.getRowCount(); row++) {
+			assertEquals(table.getRecord(row), deserialized.getRecord(row));
+		}
+	}
+}
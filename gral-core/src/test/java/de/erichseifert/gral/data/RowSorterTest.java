@@ -0,0 +1,120 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.erichseifert.gral.data.comparators.Ascending;
+import de.erichseifert.gral.data.comparators.DataComparator;
+import de.erichseifert.gral.data.comparators.Descending;
+
+public class RowSorterTest {
+	private DataTable table;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		table = new DataTable(Integer.class, Double.class, String.class);
+		table.add(3, 1.0, "b"); // 0
+		table.add(1, null, "a"); // 1
+		table.add(3, Double.NaN, null); // 2
+		table.add(2, 2.0, "c"); // 3
+		table.add(1, 2.0, "a"); // 4
+		table.add(3, 0.5, "b"); // 5
+	}
+
+	@Test
+	public void testAscending() {
+		int[] order = new RowSorter(table, new Ascending(0), new Ascending(1)).sort();
+		assertArrayEquals(new int[] {4, 1, 3, 5, 0, 2}, order);
+	}
+
+	@Test
+	public void testDescending() {
+		int[] order = new RowSorter(table, new Descending(1)).sort();
+		assertArrayEquals(new int[] {1, 2, 3, 4, 0, 5}, order);
+	}
+
+	@Test
+	public void testNonNumericColumn() {
+		int[] order = new RowSorter(table, new Ascending(2), new Descending(0)).sort();
+		assertArrayEquals(new int[] {1, 4, 0, 5, 3, 2}, order);
+	}
+
+	@Test
+	public void testCustomComparator() {
+		DataComparator absolute = new Ascending(1) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public int compare(Record record1, Record record2) {
+				return new Descending(0).compare(record1, record2);
+			}
+		};
+		int[] order = new RowSorter(table, absolute, new Ascending(1)).sort();
+		assertArrayEquals(new int[] {5, 0, 2, 3, 4, 1}, order);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testParallel() {
+		int rowCount = RowSorter.PARALLEL_THRESHOLD + 1000;
+		DataTable table = new DataTable(Integer.class, Double.class);
+		Random random = new Random(1234);
+		List<Record> records = new ArrayList<Record>(rowCount);
+		for (int row = 0; row < rowCount; row++) {
+			Record record = new Record(random.nextInt(100), random.nextDouble());
+			table.add(record);
+			records.add(record);
+		}
+
+		DataComparator[] comparators = {new Descending(0), new Ascending(1)};
+		int[] order = new RowSorter(table, comparators).sort();
+
+		final DataComparator[] rules = comparators;
+		Collections.sort(records, new Comparator<Record>() {
+			public int compare(Record record1, Record record2) {
+				for (DataComparator rule : rules) {
+					int result = rule.compare(record1, record2);
+					if (result != 0) {
+						return result;
+					}
+				}
+				return 0;
+			}
+		});
+		assertEquals(rowCount, order.length);
+		for (int row = 0; row < rowCount; row++) {
+			assertEquals(records.get(row), table.getRecord(order[row]));
+		}
+	}
+}
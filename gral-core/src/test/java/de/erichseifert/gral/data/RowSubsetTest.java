@@ -26,11 +26,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import de.erichseifert.gral.TestUtils;
+import de.erichseifert.gral.data.comparators.Descending;
 import de.erichseifert.gral.data.statistics.Statistics;
 
 public class RowSubsetTest {
@@ -40,12 +43,15 @@ public class RowSubsetTest {
 		/** Version id for serialization. */
 		private static final long serialVersionUID = -601722212974379219L;
 
+		private int tests;
+
 		public MockRowSubset(DataSource original) {
 			super(original);
 		}
 
 		@Override
 		public boolean accept(Row row) {
+			tests++;
 			Comparable<?> cell = row.get(0);
 			return (cell instanceof Number) &&
 				(((Number) cell).doubleValue() % 2.0) == 0.0;
@@ -53,7 +59,15 @@ public class RowSubsetTest {
 	}
 
 	private DataTable table;
-	private RowSubset data;
+	private MockRowSubset data;
+
+	private static void assertRows(DataSource data, Integer... expected) {
+		List<Comparable<?>> values = new ArrayList<Comparable<?>>();
+		for (int row = 0; row < data.getRowCount(); row++) {
+			values.add(data.get(0, row));
+		}
+		assertArrayEquals(expected, values.toArray());
+	}
 
 	@Before
 	@SuppressWarnings("unchecked")
@@ -130,6 +144,148 @@ public class RowSubsetTest {
 		assertTrue(data.getRowCount() < sizeBefore);
 	}
 
+	@Test
+	public void testDataAddedTestsOnlyNewRows() {
+		data.tests = 0;
+		table.add(10, -1);
+		table.add(11, -1);
+		assertEquals(2, data.tests);
+		assertRows(data, 2, 4, 6, 8, 10);
+	}
+
+	@Test
+	public void testDataUpdatedTestsOnlyChangedRows() {
+		data.tests = 0;
+		table.set(0, 0, 0);
+		table.set(0, 3, 5);
+		assertEquals(2, data.tests);
+		assertRows(data, 0, 2, 6, 8);
+	}
+
+	@Test
+	public void testDataRemovedShiftsRows() {
+		data.tests = 0;
+		table.remove(0);
+		table.remove(2);
+		assertEquals(0, data.tests);
+		assertRows(data, 2, 6, 8);
+		assertEquals(11, data.get(1, 2));
+
+		table.clear();
+		assertEquals(0, data.getRowCount());
+	}
+
+	@Test
+	public void testBatch() {
+		table.beginBatch();
+		table.remove(0);
+		table.remove(1);
+		table.add(12, 0);
+		table.set(0, 0, 14);
+		table.commit();
+		assertRows(data, 14, 4, 6, 8, 12);
+	}
+
+	private static RowSubset createEvenSubset(DataSource original) {
+		return new RowSubset(original) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public boolean accept(Row row) {
+				return ((Number) row.get(0)).intValue() % 2 == 0;
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private static DataTable createSequence(int count) {
+		DataTable table = new DataTable(Integer.class);
+		for (int i = 0; i < count; i++) {
+			table.add(i);
+		}
+		return table;
+	}
+
+	@Test
+	public void testChainedRemoved() {
+		DataTable table = createSequence(10);
+		RowSubset even = createEvenSubset(table);
+		RowSubset notFour = new RowSubset(even) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public boolean accept(Row row) {
+				return ((Number) row.get(0)).intValue() != 4;
+			}
+		};
+		assertRows(notFour, 0, 2, 6, 8);
+
+		table.remove(2);
+		assertRows(even, 0, 4, 6, 8);
+		assertRows(notFour, 0, 6, 8);
+	}
+
+	@Test
+	public void testChainedUpdated() {
+		DataTable table = createSequence(10);
+		RowSubset even = createEvenSubset(table);
+		RowSubset small = new RowSubset(even) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public boolean accept(Row row) {
+				return ((Number) row.get(0)).doubleValue() < 5.0;
+			}
+		};
+		assertRows(small, 0, 2, 4);
+		assertEquals(6.0, small.getStatistics().get(Statistics.SUM), DELTA);
+
+		table.set(0, 2, 100);
+		assertRows(even, 0, 100, 4, 6, 8);
+		assertRows(small, 0, 4);
+		assertEquals(4.0, small.getStatistics().get(Statistics.SUM), DELTA);
+
+		table.set(0, 4, 2);
+		assertRows(small, 0, 2);
+		assertEquals(2.0, small.getStatistics().get(Statistics.SUM), DELTA);
+
+		table.add(-2);
+		assertRows(small, 0, 2, -2);
+		assertEquals(0.0, small.getStatistics().get(Statistics.SUM), DELTA);
+	}
+
+	@Test
+	public void testSort() {
+		table.sort(new Descending(0));
+		assertRows(data, 8, 6, 4, 2);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testParallel() {
+		DataTable table = new DataTable(Integer.class);
+		for (int i = 0; i < 50000; i++) {
+			table.add(i);
+		}
+		RowSubset data = new RowSubset(table, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public boolean accept(Row row) {
+				return ((Integer) row.get(0)) % 3 == 0;
+			}
+		};
+		assertEquals(16667, data.getRowCount());
+		for (int row = 0; row < data.getRowCount(); row++) {
+			assertEquals(row*3, data.get(0, row));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetFailsForInvalidRow() {
+		data.get(0, data.getRowCount());
+	}
+
 	@Test
 	public void testSerialization() throws IOException, ClassNotFoundException {
 		DataSource original = data;
@@ -27,6 +27,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -195,4 +196,72 @@ public class ConvolutionTest {
 				DELTA);
 		}
     }
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLargeKernel() {
+		DataTable data = new DataTable(Double.class, Double.class);
+		for (int row = 0; row < 500; row++) {
+			data.add(Math.sin(row/10.0)*50.0 + row, (row == 250) ? Double.NaN : row % 7);
+		}
+		double[] values = new double[Convolution.FFT_THRESHOLD + 37];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Math.cos(i/5.0) + i/100.0;
+		}
+		Kernel[] kernels = {
+			new Kernel(30, values),
+			new Kernel(-5, values),
+			new Kernel(values.length + 20, values)
+		};
+
+		for (Kernel kernel : kernels) {
+			for (Filter2D.Mode mode : Filter2D.Mode.values()) {
+				Convolution filter = new Convolution(data, kernel, mode, 0, 1);
+				for (int col = 0; col < 2; col++) {
+					for (int row = 0; row < data.getRowCount(); row++) {
+						// Direct sum over the kernel
+						double expected = 0.0;
+						for (int k = kernel.getMinIndex(); k <= kernel.getMaxIndex(); k++) {
+							double v = filter.getOriginalDouble(col, row + k);
+							if (Double.isNaN(v)) {
+								expected = v;
+								break;
+							}
+							expected += kernel.get(k)*v;
+						}
+						String message = String.format("mode=%s, col=%d, row=%d", mode, col, row);
+						double actual = filter.getDouble(col, row);
+						if (Double.isNaN(expected)) {
+							assertTrue(message, Double.isNaN(actual));
+						} else {
+							assertEquals(message, expected, actual, 1e-9*Math.max(1.0, Math.abs(expected)));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testEmptySource() {
+		DataTable data = new DataTable(Double.class, Double.class);
+		double[] values = new double[Convolution.FFT_THRESHOLD + 1];
+		Arrays.fill(values, 1.0);
+		Kernel[] kernels = {
+			new Kernel(values).normalize(),
+			new Kernel(1.0, 2.0, 1.0).normalize()
+		};
+		for (Kernel kernel : kernels) {
+			for (Filter2D.Mode mode : Filter2D.Mode.values()) {
+				Convolution filter = new Convolution(data, kernel, mode, 0, 1);
+				assertEquals(0, filter.getRowCount());
+
+				data.add(1.0, 2.0);
+				assertEquals(1, filter.getRowCount());
+				data.clear();
+				assertEquals(0, filter.getRowCount());
+			}
+		}
+	}
 }
@@ -135,4 +135,54 @@ public class AbstractHistogram2DTest {
 		table.remove(0);
 		assertEquals(2L, histogram.get(0, 0));
 	}
+
+	@Test
+	public void testDataUpdate() {
+		Histogram2D histogram = new Histogram2D(table, Orientation.VERTICAL, 4);
+		assertEquals(3L, histogram.getCellMax(0));
+		assertEquals(0L, histogram.getCellMin(0));
+		table.set(0, 2, 3);
+		assertEquals(2L, histogram.get(0, 1));
+		assertEquals(1L, histogram.get(0, 2));
+		// Values outside of all cells
+		table.set(0, 4, 100);
+		table.set(0, 5, null);
+		assertEquals(2L, histogram.get(0, 0));
+		assertEquals(2L, histogram.getCellMax(0));
+		assertEquals(1L, histogram.getCellMin(0));
+	}
+
+	@Test
+	public void testDataClear() {
+		AbstractHistogram2D histogram = new Histogram2D(table, Orientation.VERTICAL, 4);
+		table.clear();
+		assertEquals(0L, histogram.get(0, 0));
+		assertEquals(0L, histogram.get(1, 0));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testHorizontal() {
+		DataTable table = new DataTable(Integer.class, Integer.class, Integer.class);
+		table.add(1, 2, 3);
+		table.add(4, 4, 8);
+		table.add(0, 10, 5);
+		Histogram2D histogram = new Histogram2D(table, Orientation.HORIZONTAL, 2);
+		assertEquals(3, histogram.getColumnCount());
+		assertEquals(1L, histogram.get(0, 0));
+		assertEquals(1L, histogram.get(0, 1));
+		assertEquals(2L, histogram.get(1, 0));
+		assertEquals(1L, histogram.get(2, 0));
+		assertEquals(1L, histogram.get(2, 1));
+
+		table.set(1, 1, 7);
+		assertEquals(1L, histogram.get(1, 0));
+		assertEquals(1L, histogram.get(1, 1));
+
+		// Rows that follow a removed row move to the previous histogram column
+		table.remove(0);
+		assertEquals(0L, histogram.get(0, 0));
+		assertEquals(1L, histogram.get(1, 0));
+		assertEquals(0L, histogram.get(2, 0));
+	}
 }
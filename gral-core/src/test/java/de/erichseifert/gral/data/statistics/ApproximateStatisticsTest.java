@@ -0,0 +1,188 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.erichseifert.gral.data.DataTable;
+import de.erichseifert.gral.data.DoubleColumnTable;
+
+public class ApproximateStatisticsTest {
+	private static final double DELTA = 1e-10;
+	private static final int ROWS = 100000;
+
+	private static final Executor DIRECT_EXECUTOR = new Executor() {
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	private static class MockStatisticsListener implements StatisticsListener {
+		private Statistics refined;
+
+		public void statisticsRefined(Statistics statistics) {
+			refined = statistics;
+		}
+	}
+
+	private DoubleColumnTable data;
+
+	@Before
+	public void setUp() {
+		data = new DoubleColumnTable(2);
+		for (int row = 0; row < ROWS; row++) {
+			// Uniformly distributed values in [0, 1000)
+			data.add((row*7919 % ROWS)/100.0, (row % 2 == 0) ? 1.0 : null);
+		}
+	}
+
+	@Test
+	public void testEstimates() {
+		ApproximateStatistics stats = new ApproximateStatistics(data, 0, 2000);
+		assertEquals(2000, stats.getSampleSize());
+		assertFalse(stats.isExact());
+
+		assertEquals(ROWS, stats.get(Statistics.N), DELTA);
+		assertEquals(500.0, stats.get(Statistics.MEAN), 20.0);
+		assertEquals(500.0, stats.get(Statistics.MEDIAN), 30.0);
+		assertEquals(250.0, stats.get(Statistics.QUARTILE_1), 30.0);
+		assertEquals(ROWS*500.0, stats.get(Statistics.SUM), ROWS*20.0);
+		assertTrue(stats.get(Statistics.MIN) < 10.0);
+		assertTrue(stats.get(Statistics.MAX) > 990.0);
+	}
+
+	@Test
+	public void testConfidenceIntervals() {
+		Statistics exact = new Statistics(data, 0);
+		ApproximateStatistics stats = new ApproximateStatistics(data, 0, 2000);
+		String[] keys = {Statistics.MEAN, Statistics.SUM, Statistics.N, Statistics.MEDIAN, Statistics.QUARTILE_3};
+		for (String key : keys) {
+			double[] interval = stats.getConfidenceInterval(key);
+			double estimate = stats.get(key);
+			assertTrue(key, interval[0] <= estimate && estimate <= interval[1]);
+			double value = exact.get(key);
+			assertTrue(key, interval[0] <= value && value <= interval[1]);
+		}
+		double[] interval = stats.getConfidenceInterval(Statistics.KURTOSIS);
+		assertTrue(Double.isNaN(interval[0]));
+		assertTrue(Double.isNaN(interval[1]));
+
+		// Missing values in the second column
+		ApproximateStatistics stats2 = new ApproximateStatistics(data, 1, 2000);
+		assertEquals(ROWS/2.0, stats2.get(Statistics.N), ROWS*0.05);
+		interval = stats2.getConfidenceInterval(Statistics.N);
+		assertTrue(interval[0] <= ROWS/2.0 && ROWS/2.0 <= interval[1]);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCompleteSampleIsExact() {
+		DataTable table = new DataTable(Integer.class, Integer.class);
+		table.add(1, 5);
+		table.add(3, 2);
+		table.add(2, 9);
+		ApproximateStatistics stats = new ApproximateStatistics(table, -1, 10);
+		assertTrue(stats.isExact());
+		assertEquals(6.0, stats.get(Statistics.N), DELTA);
+		assertEquals(22.0, stats.get(Statistics.SUM), DELTA);
+		assertEquals(2.5, stats.get(Statistics.MEDIAN), DELTA);
+		double[] interval = stats.getConfidenceInterval(Statistics.SUM);
+		assertEquals(22.0, interval[0], DELTA);
+		assertEquals(22.0, interval[1], DELTA);
+	}
+
+	@Test
+	public void testRefine() {
+		ApproximateStatistics stats = new ApproximateStatistics(data, 0, 100);
+		MockStatisticsListener listener = new MockStatisticsListener();
+		stats.addStatisticsListener(listener);
+
+		stats.refine(DIRECT_EXECUTOR);
+		assertSame(stats, listener.refined);
+		assertTrue(stats.isExact());
+		Statistics exact = new Statistics(data, 0);
+		assertEquals(exact.get(Statistics.MEAN), stats.get(Statistics.MEAN), DELTA);
+		assertEquals(exact.get(Statistics.MEDIAN), stats.get(Statistics.MEDIAN), DELTA);
+
+		// Exact statistics are kept up to date
+		data.add(1e6, 1.0);
+		assertEquals(1e6, stats.get(Statistics.MAX), DELTA);
+	}
+
+	@Test
+	public void testRefineDiscardsOutdatedResult() {
+		ApproximateStatistics stats = new ApproximateStatistics(data, 0, 100) {
+			@Override
+			public int getThreadCount() {
+				// Change the data during the calculation
+				data.add(0.0, 0.0);
+				return super.getThreadCount();
+			}
+		};
+		MockStatisticsListener listener = new MockStatisticsListener();
+		stats.addStatisticsListener(listener);
+
+		stats.refine(DIRECT_EXECUTOR);
+		assertNull(listener.refined);
+		assertFalse(stats.isExact());
+	}
+
+	@Test
+	public void testRefineCountsEarlierChangesOnce() {
+		ApproximateStatistics stats = new ApproximateStatistics(data, 0, 100);
+		MockStatisticsListener listener = new MockStatisticsListener();
+		stats.addStatisticsListener(listener);
+
+		stats.refine(new Executor() {
+			public void execute(Runnable command) {
+				data.add(0.0, 0.0);
+				command.run();
+			}
+		});
+		assertSame(stats, listener.refined);
+		assertEquals(ROWS + 1, stats.get(Statistics.N), DELTA);
+		data.add(1.0, 1.0);
+		assertEquals(ROWS + 2, stats.get(Statistics.N), DELTA);
+	}
+
+	@Test
+	public void testSampleIsUpdated() {
+		ApproximateStatistics stats = new ApproximateStatistics(data, 0, 100);
+		assertEquals(ROWS, stats.get(Statistics.N), DELTA);
+		data.add(1.0, 1.0);
+		assertEquals(ROWS + 1, stats.get(Statistics.N), DELTA);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSampleSize() {
+		new ApproximateStatistics(data, 0, 0);
+	}
+}
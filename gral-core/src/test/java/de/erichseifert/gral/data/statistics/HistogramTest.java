@@ -83,6 +83,52 @@ public class HistogramTest {
 		new Histogram(data, breaks);
 	}
 
+	@Test
+	public void testAddLocatesBins() {
+		Histogram equidistant = new Histogram(0.0, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1.0);
+		Histogram custom = new Histogram(0.0, 0.05, 0.3, 0.31, 1.0);
+		for (int i = 0; i <= 100; i++) {
+			double value = i/100.0;
+			equidistant.add(value);
+			custom.add(value);
+		}
+		equidistant.add(Double.NaN);
+		equidistant.add(-0.1);
+
+		assertThat(equidistant.getBinIndex(0.3), is(3));
+		assertThat(equidistant.getBinIndex(0.29999), is(2));
+		assertThat(equidistant.getBinIndex(1.0), is(-1));
+		assertThat(custom.getBinIndex(0.3), is(2));
+		assertThat(custom.getBinIndex(0.99), is(3));
+		long total = 0L;
+		for (int binIndex = 0; binIndex < equidistant.size(); binIndex++) {
+			total += equidistant.getCount(binIndex);
+		}
+		assertThat(total, is(100L));
+		assertThat(custom.getCount(0), is(5L));
+		assertThat(custom.getCount(1), is(25L));
+		assertThat(custom.getCount(2), is(1L));
+		assertThat(custom.getCount(3), is(69L));
+	}
+
+	@Test
+	public void testMerge() {
+		Histogram histogram1 = new Histogram(createHistogramData(), -1.0, 0.5, 2.0, 2.8, 5.0);
+		Histogram histogram2 = new Histogram(createHistogramData(), -1.0, 0.5, 2.0, 2.8, 5.0);
+		histogram1.merge(histogram2);
+		assertThat(histogram1, hasItems(0, 6, 6, 2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeFailsForDifferentBreaks() {
+		new Histogram(0.0, 1.0, 2.0).merge(new Histogram(0.0, 1.5, 2.0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThrowsExceptionWhenBreaksDecrease() {
+		new Histogram(0.0, 2.0, 1.0);
+	}
+
 	private static Iterable<Comparable<?>> createHistogramData() {
 		List<Comparable<?>> data = new LinkedList<Comparable<?>>();
 		data.add(1);
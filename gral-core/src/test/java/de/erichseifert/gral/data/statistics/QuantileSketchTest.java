@@ -0,0 +1,118 @@
+/*
+ * GRAL: GRAphing Library for Java(R)
+ *
+ * (C) Copyright 2009-2016 Erich Seifert <dev[at]erichseifert.de>,
+ * Michael Seifert <mseifert[at]error-reports.org>
+ *
+ * This file is part of GRAL.
+ *
+ * GRAL is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GRAL is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GRAL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.erichseifert.gral.data.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QuantileSketchTest {
+	private static final double DELTA = 1e-10;
+
+	@Test
+	public void testCreate() {
+		QuantileSketch sketch = new QuantileSketch(0.01);
+		assertEquals(0.01, sketch.getError(), DELTA);
+		assertEquals(0L, sketch.getCount());
+		assertTrue(Double.isNaN(sketch.quantile(0.5)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreateInvalidError() {
+		new QuantileSketch(0.0);
+	}
+
+	@Test
+	public void testSmallData() {
+		QuantileSketch sketch = new QuantileSketch(0.01);
+		for (double value : new double[] {5.0, 3.0, 9.0, 1.0, 7.0, Double.NaN}) {
+			sketch.add(value);
+		}
+		assertEquals(5L, sketch.getCount());
+		assertEquals(1.0, sketch.quantile(0.00), DELTA);
+		assertEquals(3.0, sketch.quantile(0.25), DELTA);
+		assertEquals(5.0, sketch.quantile(0.50), DELTA);
+		assertEquals(7.0, sketch.quantile(0.75), DELTA);
+		assertEquals(9.0, sketch.quantile(1.00), DELTA);
+	}
+
+	@Test
+	public void testRankError() {
+		double error = 0.01;
+		int n = 100000;
+		double[] values = createValues(n, 42L);
+		QuantileSketch sketch = new QuantileSketch(error);
+		for (double value : values) {
+			sketch.add(value);
+		}
+		assertEquals(n, sketch.getCount());
+		assertQuantiles(values, sketch, error);
+	}
+
+	@Test
+	public void testMerge() {
+		double error = 0.01;
+		double[] values1 = createValues(60000, 1L);
+		double[] values2 = createValues(40000, 2L);
+		QuantileSketch sketch1 = new QuantileSketch(error);
+		for (double value : values1) {
+			sketch1.add(value);
+		}
+		QuantileSketch sketch2 = new QuantileSketch(error);
+		for (double value : values2) {
+			sketch2.add(value);
+		}
+		sketch1.merge(sketch2);
+		assertEquals(100000L, sketch1.getCount());
+		assertEquals(40000L, sketch2.getCount());
+
+		double[] values = Arrays.copyOf(values1, values1.length + values2.length);
+		System.arraycopy(values2, 0, values, values1.length, values2.length);
+		assertQuantiles(values, sketch1, error);
+	}
+
+	private static double[] createValues(int n, long seed) {
+		Random random = new Random(seed);
+		double[] values = new double[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = random.nextGaussian();
+		}
+		return values;
+	}
+
+	private static void assertQuantiles(double[] values, QuantileSketch sketch, double error) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		assertEquals(sorted[0], sketch.quantile(0.0), DELTA);
+		assertEquals(sorted[sorted.length - 1], sketch.quantile(1.0), DELTA);
+		for (double q = 0.05; q < 1.0; q += 0.05) {
+			double estimate = sketch.quantile(q);
+			int rank = Arrays.binarySearch(sorted, estimate);
+			double rankError = Math.abs(rank - q*(sorted.length - 1))/sorted.length;
+			assertTrue("Rank error for quantile " + q + ": " + rankError, rankError <= error);
+		}
+	}
+}
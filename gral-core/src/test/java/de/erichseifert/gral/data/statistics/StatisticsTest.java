@@ -25,10 +25,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import de.erichseifert.gral.data.DataTable;
+import de.erichseifert.gral.data.DoubleColumnTable;
 import org.hamcrest.CoreMatchers;
 
 public class StatisticsTest {
@@ -244,5 +248,159 @@ public class StatisticsTest {
 		assertEquals(-32.0, ((Number) table.getColumnStatistics(Statistics.SUM).get(1, 0)).doubleValue(), DELTA);
 	}
 
-	// TODO Add tests for dataAdded and dataRemoved
+	@Test
+	public void testDataAdded() {
+		// Calculate statistics before the table is changed
+		assertEquals(24.0, stats.get(Statistics.N), DELTA);
+
+		table.add(-3, 10, 6);
+
+		assertStatistics(new Statistics(table), stats);
+		assertEquals( 27.0, stats.get(Statistics.N),   DELTA);
+		assertEquals( -3.0, stats.get(Statistics.MIN), DELTA);
+		assertEquals( 10.0, stats.get(Statistics.MAX), DELTA);
+		assertEquals( 98.0, stats.get(Statistics.SUM), DELTA);
+		assertEquals(  3.0, stats.get(Statistics.MEDIAN), DELTA);
+	}
+
+	@Test
+	public void testDataRemoved() {
+		assertEquals(24.0, stats.get(Statistics.N), DELTA);
+
+		// Remove a row that doesn't contain the minimum or maximum
+		table.remove(3);
+
+		assertStatistics(new Statistics(table), stats);
+		assertEquals( 21.0, stats.get(Statistics.N),   DELTA);
+		assertEquals(  0.0, stats.get(Statistics.MIN), DELTA);
+		assertEquals(  9.0, stats.get(Statistics.MAX), DELTA);
+		assertEquals( 76.0, stats.get(Statistics.SUM), DELTA);
+
+		// Remove the rows that contain the minimum and the maximum
+		table.remove(0);
+		table.remove(5);
+
+		assertStatistics(new Statistics(table), stats);
+		assertEquals( 15.0, stats.get(Statistics.N),   DELTA);
+		assertEquals(  1.0, stats.get(Statistics.MIN), DELTA);
+		assertEquals(  9.0, stats.get(Statistics.MAX), DELTA);
+		assertEquals( 59.0, stats.get(Statistics.SUM), DELTA);
+
+		table.clear();
+
+		assertEquals(  0.0, stats.get(Statistics.N),   DELTA);
+		assertTrue(Double.isNaN(stats.get(Statistics.MIN)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testDataAddedRange() {
+		assertEquals(24.0, stats.get(Statistics.N), DELTA);
+
+		List<List<Integer>> rows = Arrays.asList(
+			Arrays.asList(-3, 10, 6),
+			Arrays.asList(1, null, 2)
+		);
+		table.addAll(rows);
+
+		assertStatistics(new Statistics(table), stats);
+		assertEquals( 29.0, stats.get(Statistics.N),   DELTA);
+		assertEquals(101.0, stats.get(Statistics.SUM), DELTA);
+
+		table.clear();
+		assertEquals(  0.0, stats.get(Statistics.N),   DELTA);
+	}
+
+	@Test
+	public void testDataUpdated() {
+		assertEquals(24.0, stats.get(Statistics.N), DELTA);
+
+		table.set(1, 2, 5);
+		assertStatistics(new Statistics(table), stats);
+		assertEquals( 88.0, stats.get(Statistics.SUM), DELTA);
+
+		// Replace both occurrences of the maximum
+		table.set(1, 6, 1);
+		table.set(2, 7, 1);
+		assertStatistics(new Statistics(table), stats);
+		assertEquals(  8.0, stats.get(Statistics.MAX), DELTA);
+		assertEquals( 72.0, stats.get(Statistics.SUM), DELTA);
+	}
+
+	@Test
+	public void testApproximateQuantiles() {
+		stats.setQuantileError(0.01);
+		assertEquals(0.01, stats.getQuantileError(), DELTA);
+		// Small data sets are summarized without loss
+		assertEquals(2.0, stats.get(Statistics.QUARTILE_1), DELTA);
+		assertEquals(2.0, stats.get(Statistics.MEDIAN), DELTA);
+		assertEquals(5.0, stats.get(Statistics.QUARTILE_3), DELTA);
+
+		// Added values are merged into the sketch
+		table.add(9, 9, 9);
+		table.add(9, 9, 9);
+		assertEquals(4.0, stats.get(Statistics.MEDIAN), DELTA);
+
+		stats.setQuantileError(0.0);
+		assertEquals(4.0, stats.get(Statistics.MEDIAN), DELTA);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidQuantileError() {
+		stats.setQuantileError(-0.1);
+	}
+
+	@Test
+	public void testParallel() {
+		DoubleColumnTable data = new DoubleColumnTable(2);
+		for (int row = 0; row < Statistics.PARALLEL_THRESHOLD + 3; row++) {
+			double x = row*1e-4;
+			data.add(Math.exp(Math.sin(x))*100.0, (row % 5 == 0) ? null : x*x);
+		}
+		Statistics sequential = new Statistics(data);
+		sequential.setThreadCount(1);
+		Statistics parallel = new Statistics(data);
+		parallel.setThreadCount(4);
+		Statistics parallelColumn = new Statistics(data, 1);
+		parallelColumn.setThreadCount(3);
+		Statistics sequentialColumn = new Statistics(data, 1);
+		sequentialColumn.setThreadCount(1);
+
+		String[] keys = {
+			Statistics.N, Statistics.MIN, Statistics.MAX, Statistics.SUM,
+			Statistics.SUM2, Statistics.MEAN, Statistics.SUM_OF_DIFF_SQUARES,
+			Statistics.SUM_OF_DIFF_CUBICS, Statistics.SUM_OF_DIFF_QUADS,
+			Statistics.VARIANCE, Statistics.SKEWNESS, Statistics.KURTOSIS
+		};
+		for (String key : keys) {
+			double expected = sequential.get(key);
+			assertEquals(key, expected, parallel.get(key), Math.abs(expected)*1e-9);
+			expected = sequentialColumn.get(key);
+			assertEquals(key, expected, parallelColumn.get(key), Math.abs(expected)*1e-9);
+		}
+	}
+
+	@Test
+	public void testDefaultThreadCount() {
+		assertEquals(1, stats.getThreadCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidThreadCount() {
+		stats.setThreadCount(0);
+	}
+
+	private static void assertStatistics(Statistics expected, Statistics actual) {
+		String[] keys = {
+			Statistics.N, Statistics.MIN, Statistics.MAX, Statistics.SUM,
+			Statistics.SUM2, Statistics.SUM3, Statistics.SUM4, Statistics.MEAN,
+			Statistics.SUM_OF_DIFF_SQUARES, Statistics.SUM_OF_DIFF_CUBICS,
+			Statistics.SUM_OF_DIFF_QUADS, Statistics.VARIANCE,
+			Statistics.SKEWNESS, Statistics.KURTOSIS, Statistics.MEDIAN,
+			Statistics.QUARTILE_1, Statistics.QUARTILE_3
+		};
+		for (String key : keys) {
+			assertEquals(key, expected.get(key), actual.get(key), 1e-6);
+		}
+	}
 }
@@ -27,7 +27,9 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
 	HistogramTest.class,
+	QuantileSketchTest.class,
 	StatisticsTest.class,
+	ApproximateStatisticsTest.class,
 	AbstractHistogram2DTest.class
 })
 public class StatisticsTests {
@@ -43,7 +43,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import de.erichseifert.gral.TestUtils;
+import de.erichseifert.gral.data.DataPyramid;
 import de.erichseifert.gral.data.DataSource;
+import de.erichseifert.gral.data.DataTable;
 import de.erichseifert.gral.data.DummyData;
 import de.erichseifert.gral.graphics.DrawingContext;
 import de.erichseifert.gral.graphics.Location;
@@ -134,6 +136,33 @@ public class XYPlotTest {
 		}
 	}
 
+	@Test
+	public void testDrawPyramidEnvelope() {
+		DataTable table = new DataTable(Double.class, Double.class);
+		for (int i = 0; i < 10000; i++) {
+			table.add((double) i, (i == 5000) ? 1.0 : 0.0);
+		}
+		DataPyramid pyramid = new DataPyramid(table, 0, 1);
+		MockXYPlot plot = new MockXYPlot(pyramid);
+		plot.getAxis(XYPlot.AXIS_X).setRange(0.0, 10000.0);
+		plot.getAxis(XYPlot.AXIS_Y).setRange(0.0, 1.0);
+		final List<Double> values = new LinkedList<Double>();
+		plot.setPointRenderers(pyramid, new DefaultPointRenderer2D() {
+			@Override
+			public Shape getPointShape(PointData data) {
+				values.add(((Number) data.row.get(data.col)).doubleValue());
+				return super.getPointShape(data);
+			}
+		});
+
+		BufferedImage image = createTestImage();
+		plot.setBounds(0.0, 0.0, image.getWidth(), image.getHeight());
+		plot.draw(new DrawingContext((Graphics2D) image.getGraphics()));
+		// Buckets are drawn instead of rows, and the peak isn't averaged out
+		assertTrue(values.size() < table.getRowCount());
+		assertTrue(values.contains(1.0));
+	}
+
 	@Test
 	public void testGetPointRenderers() {
 		DataSource data = new DummyData(2, 1, 1.0);
@@ -25,6 +25,7 @@ import static de.erichseifert.gral.TestUtils.assertNotEmpty;
 import static de.erichseifert.gral.TestUtils.createTestImage;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
@@ -91,6 +92,20 @@ public class LinearRenderer2DTest {
 		assertEquals( 10.0, renderer.viewToWorld(axis,  1.5, true));
 	}
 
+	@Test
+	public void testGetPosition() {
+		double[] values = {-10.0, -5.0, 0.0, 3.0, 5.0, 10.0};
+		for (double v: values) {
+			Number boxed = v;
+			assertNotNull(renderer.getPosition(axis, v, true, false));
+			assertEquals(renderer.getPosition(axis, boxed, true, false),
+				renderer.getPosition(axis, v, true, false));
+			assertEquals(renderer.getPosition(axis, boxed, false, true),
+				renderer.getPosition(axis, v, false, true));
+		}
+		assertNull(renderer.getPosition(axis, null, true, false));
+	}
+
 	@Test
 	public void testViewToView() {
 		double[] values = {-0.5, 0.0, 0.5, 0.8, 1.0, 1.5};
@@ -22,12 +22,16 @@
 package de.erichseifert.gral.plots.legends;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 
 import org.junit.Test;
 
 import de.erichseifert.gral.TestUtils;
+import de.erichseifert.gral.data.Category;
+import de.erichseifert.gral.data.CategoryDictionary;
+import de.erichseifert.gral.data.DataTable;
 import de.erichseifert.gral.data.Row;
 import de.erichseifert.gral.graphics.AbstractDrawable;
 import de.erichseifert.gral.graphics.Drawable;
@@ -44,6 +48,23 @@ public class ValueLegendTest {
 		}
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCategoryLabels() {
+		CategoryDictionary dictionary = new CategoryDictionary("a", "b");
+		DataTable data = new DataTable(Category.class);
+		data.add(dictionary.getCategory("b"));
+		data.add(dictionary.getCategory("a"));
+		data.add(dictionary.getCategory("b"));
+		ValueLegend legend = new MockValueLegend();
+		legend.add(data);
+
+		String label = legend.getLabel(new Row(data, 0));
+		assertEquals("b", label);
+		assertEquals("a", legend.getLabel(new Row(data, 1)));
+		assertSame(label, legend.getLabel(new Row(data, 2)));
+	}
+
 	@Test
 	public void testSerialization() throws IOException, ClassNotFoundException {
 		ValueLegend original = new MockValueLegend();